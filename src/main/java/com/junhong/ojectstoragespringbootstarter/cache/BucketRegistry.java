@@ -0,0 +1,233 @@
+package com.junhong.ojectstoragespringbootstarter.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.junhong.ojectstoragespringbootstarter.connection.MinioConnectionFactory;
+import io.minio.BucketExistsArgs;
+import io.minio.GetBucketEncryptionArgs;
+import io.minio.GetBucketVersioningArgs;
+import io.minio.MinioClient;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.InsufficientDataException;
+import io.minio.errors.InternalException;
+import io.minio.errors.InvalidResponseException;
+import io.minio.errors.ServerException;
+import io.minio.errors.XmlParserException;
+import io.minio.messages.Bucket;
+import io.minio.messages.SseConfiguration;
+import io.minio.messages.VersioningConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cached view of the buckets: existence, region, versioning and default encryption per bucket, plus the
+ * bucket list for lookups by name.
+ * <p>
+ * A bucket is looked up once per {@code ttl}, the bucket list is fetched once per {@code ttl} for every name.
+ * An existence check costs a single bucketExists request, region, versioning and encryption are only loaded when
+ * {@link #info(String)} asks for them.
+ * Templates sharing the registry refresh a bucket after creating or removing it or changing its encryption,
+ * changes made elsewhere show after at most {@code ttl}.
+ *
+ * @author jh
+ */
+public class BucketRegistry {
+    private final static Logger log = LoggerFactory.getLogger(BucketRegistry.class);
+
+    private final MinioConnectionFactory minioConnectionFactory;
+    private final Duration ttl;
+    private final Cache<String, Boolean> existence;
+    private final Cache<String, BucketInfo> infos;
+    private final AtomicLong refreshes = new AtomicLong();
+    private volatile Listing listing;
+
+    /**
+     * @param ttl time a lookup is served before the server is asked again
+     */
+    public BucketRegistry(MinioConnectionFactory minioConnectionFactory, Duration ttl) {
+        this.minioConnectionFactory = minioConnectionFactory;
+        this.ttl = ttl;
+        this.existence = CacheBuilder.newBuilder()
+                .expireAfterWrite(ttl)
+                .build();
+        this.infos = CacheBuilder.newBuilder()
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Cached existence of a bucket, checked with bucketExists alone on a miss
+     */
+    public boolean exists(String bucket) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        BucketInfo info = infos.getIfPresent(bucket);
+        if (info != null) {
+            return info.exists();
+        }
+        Boolean cached = existence.getIfPresent(bucket);
+        if (cached != null) {
+            return cached;
+        }
+        long stamp = refreshes.get();
+        boolean exists = connection().bucketExists(BucketExistsArgs.builder().bucket(bucket).build());
+        remember(existence, bucket, exists, stamp);
+        return exists;
+    }
+
+    /**
+     * Cached details of a bucket, loaded on a miss with the region, versioning and encryption requests
+     */
+    public BucketInfo info(String bucket) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        BucketInfo cached = infos.getIfPresent(bucket);
+        if (cached != null) {
+            return cached;
+        }
+        long stamp = refreshes.get();
+        BucketInfo loaded = load(bucket);
+        remember(infos, bucket, loaded, stamp);
+        return loaded;
+    }
+
+    /**
+     * Bucket of the given name from the cached bucket list
+     */
+    public Optional<Bucket> bucket(String bucket) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        Listing current = listing;
+        if (current == null || System.nanoTime() - current.loadedAt >= ttl.toNanos()) {
+            long stamp = refreshes.get();
+            Map<String, Bucket> buckets = new HashMap<>();
+            for (Bucket found : connection().listBuckets()) {
+                buckets.put(found.name(), found);
+            }
+            current = new Listing(buckets, System.nanoTime());
+            if (refreshes.get() == stamp) {
+                listing = current;
+            }
+        }
+        return Optional.ofNullable(current.buckets.get(bucket));
+    }
+
+    /**
+     * Forget a bucket, after it was created, removed or reconfigured
+     */
+    public void refresh(String bucket) {
+        refreshes.incrementAndGet();
+        existence.invalidate(bucket);
+        infos.invalidate(bucket);
+        listing = null;
+    }
+
+    /**
+     * Forget every bucket
+     */
+    public void refresh() {
+        refreshes.incrementAndGet();
+        existence.invalidateAll();
+        infos.invalidateAll();
+        listing = null;
+    }
+
+    private <V> void remember(Cache<String, V> cache, String bucket, V value, long stamp) {
+        cache.put(bucket, value);
+        if (refreshes.get() != stamp) {
+            // a refresh raced with the lookup, the loaded value may already be stale
+            cache.invalidate(bucket);
+        }
+    }
+
+    private BucketInfo load(String bucket) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        MinioClient client = connection();
+        if (!exists(bucket)) {
+            return new BucketInfo(bucket, false, null, VersioningConfiguration.Status.OFF, null);
+        }
+        VersioningConfiguration versioning = client.getBucketVersioning(GetBucketVersioningArgs.builder().bucket(bucket).build());
+        // minio answers a bucket without default encryption with an empty configuration
+        SseConfiguration encryption = client.getBucketEncryption(GetBucketEncryptionArgs.builder().bucket(bucket).build());
+        log.debug("Loaded bucket {}", bucket);
+        return new BucketInfo(bucket, true, region(bucket), versioning.status(), encryption.rule() == null ? null : encryption);
+    }
+
+    private String region(String bucket) throws IOException, InvalidKeyException, InsufficientDataException, NoSuchAlgorithmException, InternalException, XmlParserException {
+        try {
+            return minioConnectionFactory.getAsyncConnection().bucketRegion(bucket).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while looking up the region of " + bucket);
+        } catch (ExecutionException e) {
+            throw new IOException("Cannot look up the region of " + bucket, e.getCause());
+        }
+    }
+
+    private MinioClient connection() {
+        return minioConnectionFactory.getConnection();
+    }
+
+    /**
+     * What the registry knows about a bucket
+     */
+    public static final class BucketInfo {
+        private final String name;
+        private final boolean exists;
+        private final String region;
+        private final VersioningConfiguration.Status versioning;
+        private final SseConfiguration encryption;
+
+        BucketInfo(String name, boolean exists, String region, VersioningConfiguration.Status versioning, SseConfiguration encryption) {
+            this.name = name;
+            this.exists = exists;
+            this.region = region;
+            this.versioning = versioning;
+            this.encryption = encryption;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public boolean exists() {
+            return exists;
+        }
+
+        /**
+         * @return region of the bucket, null when it does not exist
+         */
+        public String region() {
+            return region;
+        }
+
+        public VersioningConfiguration.Status versioning() {
+            return versioning;
+        }
+
+        public boolean isVersioningEnabled() {
+            return versioning == VersioningConfiguration.Status.ENABLED;
+        }
+
+        /**
+         * @return default encryption of the bucket, null when it has none
+         */
+        public SseConfiguration encryption() {
+            return encryption;
+        }
+    }
+
+    private static final class Listing {
+        private final Map<String, Bucket> buckets;
+        private final long loadedAt;
+
+        private Listing(Map<String, Bucket> buckets, long loadedAt) {
+            this.buckets = buckets;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
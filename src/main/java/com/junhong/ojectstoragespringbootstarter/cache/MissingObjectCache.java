@@ -0,0 +1,131 @@
+package com.junhong.ojectstoragespringbootstarter.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.InsufficientDataException;
+import io.minio.errors.InternalException;
+import io.minio.errors.InvalidResponseException;
+import io.minio.errors.ServerException;
+import io.minio.errors.XmlParserException;
+
+import java.io.IOException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size bounded cache of objects found missing, keyed by bucket and object.
+ * <p>
+ * A lookup answered with {@code NoSuchKey} is remembered for {@code ttl}, lookups of the same key in that time
+ * return an empty result without a request. Templates sharing the cache invalidate a key whenever they write it,
+ * a lookup that was in flight during an invalidation is returned but not cached.
+ *
+ * @author jh
+ */
+public class MissingObjectCache {
+    private static final Boolean MISSING = Boolean.TRUE;
+
+    private final Cache<ObjectKey, Boolean> cache;
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maximumSize missing keys kept at most
+     * @param ttl         time a key is reported missing without asking the server again
+     */
+    public MissingObjectCache(long maximumSize, Duration ttl) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Look the object up unless it was recently found missing
+     *
+     * @return the result of the lookup, empty when the object is missing
+     */
+    public <T> Optional<T> find(String bucket, String object, Lookup<T> lookup) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        ObjectKey key = new ObjectKey(bucket, object);
+        if (cache.getIfPresent(key) != null) {
+            hits.incrementAndGet();
+            return Optional.empty();
+        }
+        misses.incrementAndGet();
+        long stamp = invalidations.get();
+        try {
+            return Optional.of(lookup.load());
+        } catch (ErrorResponseException e) {
+            if (!isNoSuchKey(e)) {
+                throw e;
+            }
+            cache.put(key, MISSING);
+            if (invalidations.get() != stamp) {
+                // a write raced with the lookup, the object may exist by now
+                cache.invalidate(key);
+            }
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return whether the object was found missing within the last {@code ttl}
+     */
+    public boolean isMissing(String bucket, String object) {
+        return cache.getIfPresent(new ObjectKey(bucket, object)) != null;
+    }
+
+    /**
+     * Forget that an object is missing, after it was written
+     */
+    public void invalidate(String bucket, String object) {
+        invalidations.incrementAndGet();
+        cache.invalidate(new ObjectKey(bucket, object));
+    }
+
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * @return lookups answered missing without a request
+     */
+    public long hitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return lookups sent to the server
+     */
+    public long missCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return whether the error reports a missing object
+     */
+    public static boolean isNoSuchKey(ErrorResponseException e) {
+        String code = e.errorResponse() == null ? null : e.errorResponse().code();
+        return "NoSuchKey".equals(code) || "NoSuchObject".equals(code);
+    }
+
+    /**
+     * Performs the actual lookup, throwing {@link ErrorResponseException} with {@code NoSuchKey} when the object is missing
+     */
+    @FunctionalInterface
+    public interface Lookup<T> {
+        T load() throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException;
+    }
+}
@@ -0,0 +1,402 @@
+package com.junhong.ojectstoragespringbootstarter.cache;
+
+import com.junhong.ojectstoragespringbootstarter.connection.MinioConnectionFactory;
+import com.junhong.ojectstoragespringbootstarter.service.ObjectOptions;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.InsufficientDataException;
+import io.minio.errors.InternalException;
+import io.minio.errors.InvalidResponseException;
+import io.minio.errors.ServerException;
+import io.minio.errors.XmlParserException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Read-through cache of object content on local disk, bounded in bytes.
+ * <p>
+ * Every read revalidates the cached copy with a conditional GET on its ETag, an unchanged object costs a
+ * 304 and is then served from the cached file, a changed one is downloaded again. Content is downloaded into
+ * a temp file and renamed into place, so a cached file is always complete. The least recently used files are
+ * deleted once the cache grows over its size, an object larger than the whole cache is passed through a
+ * temp file that is removed when its channel is closed.
+ * <p>
+ * The index lives in memory. Each cache keeps its files in a subdirectory of its own, locked while the cache is open,
+ * so caches sharing a directory never touch each other's files and other files in the directory are left alone.
+ * Subdirectories nobody holds the lock of were left by a previous run and are deleted on start.
+ *
+ * @author jh
+ */
+public class ObjectContentCache implements AutoCloseable {
+    private final static Logger log = LoggerFactory.getLogger(ObjectContentCache.class);
+
+    private static final String FILE_SUFFIX = ".obj";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String INSTANCE_PREFIX = "minio-content-cache-";
+    private static final String LOCK_FILE = ".minio-content-cache.lock";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final Pattern RESPONSE_CODE = Pattern.compile("Response code: (\\d+)");
+
+    private final MinioConnectionFactory minioConnectionFactory;
+    private final Path directory;
+    private final FileChannel lock;
+    private final long maxBytes;
+    private final Map<ObjectKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long bytes;
+
+    /**
+     * @param directory cache directory, created if missing
+     * @param maxBytes  total size of the cached files
+     */
+    public ObjectContentCache(MinioConnectionFactory minioConnectionFactory, Path directory, long maxBytes) throws IOException {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+        }
+        this.minioConnectionFactory = minioConnectionFactory;
+        this.maxBytes = maxBytes;
+        Path root = Files.createDirectories(directory);
+        // one cache at a time claims its subdirectory and sweeps the abandoned ones, in this JVM and across processes
+        synchronized (ObjectContentCache.class) {
+            try (FileChannel rootLock = FileChannel.open(root.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                // released when the channel is closed
+                rootLock.lock();
+                deleteAbandoned(root);
+                this.directory = Files.createTempDirectory(root, INSTANCE_PREFIX);
+                this.lock = FileChannel.open(this.directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                this.lock.lock();
+            }
+        }
+    }
+
+    public InputStream getObject(String bucket, String object) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        return Channels.newInputStream(open(bucket, object, ObjectOptions.EMPTY));
+    }
+
+    /**
+     * Content of the current version of the object, from the cache when it is unchanged
+     *
+     * @param options region and extra headers of the GET, objects read with a customer key are never cached
+     */
+    public InputStream getObject(String bucket, String object, ObjectOptions options) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        return Channels.newInputStream(open(bucket, object, options));
+    }
+
+    /**
+     * Copy the current version of the object into a file
+     */
+    public void downloadObject(String bucket, String object, Path target, ObjectOptions options) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        try (FileChannel source = open(bucket, object, options);
+             FileChannel destination = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long size = source.size();
+            long position = 0;
+            while (position < size) {
+                position += source.transferTo(position, size - position, destination);
+            }
+        }
+    }
+
+    /**
+     * Open the content of the current version of the object, the caller closes the channel
+     */
+    public FileChannel open(String bucket, String object, ObjectOptions options) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        return open(bucket, object, options, options.getSsec() == null);
+    }
+
+    /**
+     * @param revalidate send the ETag of the cached copy, false to download unconditionally
+     */
+    private FileChannel open(String bucket, String object, ObjectOptions options, boolean revalidate) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        ObjectKey key = new ObjectKey(bucket, object);
+        Entry cached = revalidate ? lookup(key) : null;
+        GetObjectArgs.Builder builder = options.applyRead(GetObjectArgs.builder()
+                .bucket(bucket)
+                .object(object));
+        if (cached != null) {
+            builder.notMatchETag(cached.etag);
+        }
+        GetObjectResponse response;
+        try {
+            response = minioConnectionFactory.getConnection().getObject(builder.build());
+        } catch (ServerException | InvalidResponseException e) {
+            if (cached == null || !isNotModified(e)) {
+                throw e;
+            }
+            try {
+                FileChannel channel = FileChannel.open(cached.file, StandardOpenOption.READ);
+                hits.incrementAndGet();
+                return channel;
+            } catch (NoSuchFileException evicted) {
+                // evicted between the lookup and the open, or deleted behind our back, forget it and fetch it again
+                forget(key, cached);
+                return open(bucket, object, options, false);
+            }
+        }
+        misses.incrementAndGet();
+        try (GetObjectResponse body = response) {
+            return store(key, body, options.getSsec() == null);
+        }
+    }
+
+    /**
+     * Drop the cached copy of an object
+     */
+    public void invalidate(String bucket, String object) throws IOException {
+        Entry removed;
+        synchronized (this) {
+            removed = entries.remove(new ObjectKey(bucket, object));
+            if (removed != null) {
+                bytes -= removed.size;
+            }
+        }
+        if (removed != null) {
+            Files.deleteIfExists(removed.file);
+        }
+    }
+
+    /**
+     * Delete the cached files and give up the directory, the cache must not be used afterwards
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            entries.clear();
+            bytes = 0;
+        }
+        lock.close();
+        deleteDirectory(directory);
+    }
+
+    /**
+     * @return total size of the cached files
+     */
+    public synchronized long size() {
+        return bytes;
+    }
+
+    /**
+     * @return reads served from a revalidated cached file
+     */
+    public long hitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return reads that downloaded the content
+     */
+    public long missCount() {
+        return misses.get();
+    }
+
+    private synchronized Entry lookup(ObjectKey key) {
+        return entries.get(key);
+    }
+
+    private synchronized void forget(ObjectKey key, Entry entry) {
+        if (entries.remove(key, entry)) {
+            bytes -= entry.size;
+        }
+    }
+
+    /**
+     * Write the response into a temp file and publish it, then open the published file
+     */
+    private FileChannel store(ObjectKey key, GetObjectResponse response, boolean cacheable) throws IOException {
+        Path temp = Files.createTempFile(directory, "fetch-", TEMP_SUFFIX);
+        try {
+            long size = copy(response, temp);
+            String etag = unquote(response.headers().get("ETag"));
+            if (!cacheable || etag == null || size > maxBytes) {
+                FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE);
+                temp = null;
+                return channel;
+            }
+            Path file = directory.resolve(fileName(key, etag));
+            move(temp, file);
+            temp = null;
+            // open before publishing, an eviction right after publishing cannot remove the file under us
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            publish(key, new Entry(file, etag, size));
+            return channel;
+        } finally {
+            if (temp != null) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    private void publish(ObjectKey key, Entry entry) throws IOException {
+        List<Path> obsolete = new ArrayList<>();
+        synchronized (this) {
+            Entry previous = entries.put(key, entry);
+            bytes += entry.size;
+            if (previous != null) {
+                bytes -= previous.size;
+                if (!previous.file.equals(entry.file)) {
+                    obsolete.add(previous.file);
+                }
+            }
+            Iterator<Map.Entry<ObjectKey, Entry>> eldest = entries.entrySet().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<ObjectKey, Entry> candidate = eldest.next();
+                if (candidate.getKey().equals(key)) {
+                    continue;
+                }
+                bytes -= candidate.getValue().size;
+                obsolete.add(candidate.getValue().file);
+                eldest.remove();
+            }
+        }
+        for (Path file : obsolete) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // still open elsewhere on platforms that do not allow deleting open files
+                log.warn("Could not delete evicted cache file {}", file, e);
+            }
+        }
+    }
+
+    private static long copy(InputStream in, Path file) throws IOException {
+        long size = 0;
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                ByteBuffer source = ByteBuffer.wrap(buffer, 0, read);
+                while (source.hasRemaining()) {
+                    channel.write(source);
+                }
+                size += read;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Delete the subdirectories of caches that are gone, a live cache holds the lock of its own
+     */
+    private static void deleteAbandoned(Path root) throws IOException {
+        try (DirectoryStream<Path> instances = Files.newDirectoryStream(root, INSTANCE_PREFIX + "*")) {
+            for (Path instance : instances) {
+                if (!Files.isDirectory(instance)) {
+                    continue;
+                }
+                boolean abandoned;
+                try (FileChannel channel = FileChannel.open(instance.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                    FileLock held = channel.tryLock();
+                    abandoned = held != null;
+                    if (held != null) {
+                        held.release();
+                    }
+                } catch (OverlappingFileLockException e) {
+                    abandoned = false;
+                }
+                if (abandoned) {
+                    log.debug("Deleting abandoned content cache {}", instance);
+                    deleteDirectory(instance);
+                }
+            }
+        }
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    private static void move(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * A 304 has no XML body, minio reports it as a server error or, without a Content-Length, as an invalid response
+     */
+    static boolean isNotModified(Exception e) {
+        return statusCode(e) == 304;
+    }
+
+    /**
+     * Status code of a failed response, -1 when unknown. An invalid response keeps it only in its message,
+     * ObjectContentCacheTest checks the SDK still writes it there.
+     */
+    static int statusCode(Exception e) {
+        if (e instanceof ServerException) {
+            return ((ServerException) e).statusCode();
+        }
+        if (e instanceof InvalidResponseException && e.getMessage() != null) {
+            Matcher code = RESPONSE_CODE.matcher(e.getMessage());
+            if (code.find()) {
+                return Integer.parseInt(code.group(1));
+            }
+        }
+        return -1;
+    }
+
+    private static String fileName(ObjectKey key, String etag) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest((key.bucket + "/" + key.object + "\n" + etag).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest) + FILE_SUFFIX;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String unquote(String etag) {
+        if (etag == null) {
+            return null;
+        }
+        return etag.startsWith("\"") && etag.endsWith("\"") && etag.length() > 1 ? etag.substring(1, etag.length() - 1) : etag;
+    }
+
+    private static final class Entry {
+        private final Path file;
+        private final String etag;
+        private final long size;
+
+        private Entry(Path file, String etag, long size) {
+            this.file = file;
+            this.etag = etag;
+            this.size = size;
+        }
+    }
+}
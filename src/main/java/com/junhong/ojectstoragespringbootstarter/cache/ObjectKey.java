@@ -0,0 +1,35 @@
+package com.junhong.ojectstoragespringbootstarter.cache;
+
+import java.util.Objects;
+
+/**
+ * Bucket and name of the latest version of an object, key of the content caches
+ *
+ * @author jh
+ */
+final class ObjectKey {
+    final String bucket;
+    final String object;
+
+    ObjectKey(String bucket, String object) {
+        this.bucket = bucket;
+        this.object = object;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ObjectKey)) {
+            return false;
+        }
+        ObjectKey key = (ObjectKey) o;
+        return bucket.equals(key.bucket) && object.equals(key.object);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(bucket, object);
+    }
+}
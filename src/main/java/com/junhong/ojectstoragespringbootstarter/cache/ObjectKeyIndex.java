@@ -0,0 +1,385 @@
+package com.junhong.ojectstoragespringbootstarter.cache;
+
+import com.junhong.ojectstoragespringbootstarter.connection.MinioConnectionFactory;
+import com.junhong.ojectstoragespringbootstarter.service.BucketOps;
+import com.junhong.ojectstoragespringbootstarter.service.ObjectListing;
+import com.junhong.ojectstoragespringbootstarter.service.ObjectOptions;
+import io.minio.CloseableIterator;
+import io.minio.ListObjectsArgs;
+import io.minio.Result;
+import io.minio.messages.Event;
+import io.minio.messages.Item;
+import io.minio.messages.NotificationRecords;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory sorted index of the keys of some buckets, for prefix listings and existence checks without a request.
+ * <p>
+ * Every bucket is seeded by one full listing and then kept current by its bucket notifications, a MinIO extension.
+ * A closed or failed notification stream is opened again and the bucket listed again, since events may have been
+ * missed in between; the buckets are also listed again every {@code reconcileInterval} to repair anything else the
+ * notifications missed. A listing never overwrites what an event newer than the start of the listing reported.
+ * <p>
+ * Until a bucket is seeded, and whenever its notification stream is down until the listing after reconnecting, it is
+ * not {@link #isReady(String) ready} and callers should ask the server. Writes and removals made through a template
+ * are recorded with {@link #put} and {@link #remove} right away, ahead of their notifications.
+ *
+ * @author jh
+ */
+public class ObjectKeyIndex implements AutoCloseable {
+    private final static Logger log = LoggerFactory.getLogger(ObjectKeyIndex.class);
+
+    private static final String[] EVENTS = {"s3:ObjectCreated:*", "s3:ObjectRemoved:*"};
+    private static final long MAX_RECONNECT_DELAY_MILLIS = 30_000;
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final MinioConnectionFactory minioConnectionFactory;
+    private final Duration reconcileInterval;
+    private final Map<String, BucketIndex> buckets = new HashMap<>();
+    private final ScheduledExecutorService reconciler;
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * @param buckets           buckets to index
+     * @param reconcileInterval time between two full listings of a bucket
+     */
+    public ObjectKeyIndex(MinioConnectionFactory minioConnectionFactory, Collection<String> buckets, Duration reconcileInterval) {
+        this.minioConnectionFactory = minioConnectionFactory;
+        this.reconcileInterval = reconcileInterval;
+        for (String bucket : buckets) {
+            this.buckets.put(bucket, new BucketIndex(bucket));
+        }
+        this.reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "minio-key-index-reconcile-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Open the notification streams and seed every bucket in the background
+     */
+    public void start() {
+        for (BucketIndex index : buckets.values()) {
+            index.listener.start();
+            reconciler.scheduleWithFixedDelay(index::reconcileQuietly, reconcileInterval.toMillis(), reconcileInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return whether the bucket is indexed, its notification stream is open and it was listed since the stream opened
+     */
+    public boolean isReady(String bucket) {
+        BucketIndex index = buckets.get(bucket);
+        return index != null && index.isReady();
+    }
+
+    /**
+     * Record an object written by this process, a no-op for a bucket that is not indexed
+     *
+     * @param etag null when unknown, filled in by the notification
+     */
+    public void put(String bucket, String object, long size, String etag) {
+        BucketIndex index = buckets.get(bucket);
+        if (index != null) {
+            index.created(object, size, etag, ZonedDateTime.now());
+        }
+    }
+
+    /**
+     * Record an object removed by this process, a no-op for a bucket that is not indexed
+     */
+    public void remove(String bucket, String object) {
+        BucketIndex index = buckets.get(bucket);
+        if (index != null) {
+            index.removed(object);
+        }
+    }
+
+    public boolean exists(String bucket, String object) {
+        return index(bucket).items.containsKey(object);
+    }
+
+    /**
+     * @return the indexed object, null when absent
+     */
+    public Item get(String bucket, String object) {
+        return index(bucket).items.get(object);
+    }
+
+    /**
+     * Objects below the prefix in key order, like a listing; without {@code recursive} the keys below a further
+     * {@code /} are returned as one directory item
+     */
+    public List<Item> list(String bucket, String prefix, boolean recursive) {
+        ConcurrentSkipListMap<String, IndexedItem> items = index(bucket).items;
+        String from = prefix == null ? "" : prefix;
+        List<Item> listed = new ArrayList<>();
+        String key = items.ceilingKey(from);
+        while (key != null && key.startsWith(from)) {
+            int slash = recursive ? -1 : key.indexOf('/', from.length());
+            if (slash < 0) {
+                IndexedItem item = items.get(key);
+                if (item != null) {
+                    listed.add(item);
+                }
+                key = items.higherKey(key);
+            } else {
+                String directory = key.substring(0, slash + 1);
+                listed.add(new IndexedItem(directory));
+                // the first key after every key starting with the directory
+                key = items.ceilingKey(key.substring(0, slash) + (char) ('/' + 1));
+            }
+        }
+        return listed;
+    }
+
+    /**
+     * @return number of objects indexed for the bucket
+     */
+    public int size(String bucket) {
+        return index(bucket).items.size();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        reconciler.shutdownNow();
+        for (BucketIndex index : buckets.values()) {
+            index.stop();
+        }
+    }
+
+    private BucketIndex index(String bucket) {
+        BucketIndex index = buckets.get(bucket);
+        if (index == null) {
+            throw new IllegalArgumentException("bucket is not indexed: " + bucket);
+        }
+        return index;
+    }
+
+    /**
+     * Keys of one bucket, its notification listener and its reconciliation
+     */
+    private final class BucketIndex {
+        private final String bucket;
+        private final ConcurrentSkipListMap<String, IndexedItem> items = new ConcurrentSkipListMap<>();
+        /**
+         * Sequence number of keys removed by an event, kept until a listing started after the removal
+         */
+        private final Map<String, Long> removed = new ConcurrentHashMap<>();
+        private final Thread listener;
+        private volatile CloseableIterator<Result<NotificationRecords>> stream;
+        /**
+         * Sequence number taken when the current stream opened, zero while no stream is open
+         */
+        private volatile long connectedAt;
+        /**
+         * The {@code connectedAt} of the stream that was open during the last complete listing
+         */
+        private volatile long listedAt;
+        private boolean seeded;
+
+        private BucketIndex(String bucket) {
+            this.bucket = bucket;
+            this.listener = new Thread(this::listen, "minio-key-index-listener-" + THREAD_COUNT.incrementAndGet());
+            this.listener.setDaemon(true);
+        }
+
+        private void listen() {
+            BucketOps bucketOps = new BucketOps(minioConnectionFactory, bucket, ObjectOptions.EMPTY);
+            long delay = 0;
+            while (!closed) {
+                try {
+                    stream = bucketOps.listenBucketNotification("", "", EVENTS);
+                    connectedAt = sequence.incrementAndGet();
+                    // events may have been missed while no stream was open
+                    reconciler.execute(this::reconcileQuietly);
+                    delay = 0;
+                    while (stream.hasNext()) {
+                        for (Event event : stream.next().get().events()) {
+                            apply(event);
+                        }
+                    }
+                } catch (Exception e) {
+                    if (closed) {
+                        return;
+                    }
+                    delay = Math.min(MAX_RECONNECT_DELAY_MILLIS, Math.max(100, delay * 2));
+                    log.warn("Notification stream of {} failed, reconnecting in {} ms", bucket, delay, e);
+                } finally {
+                    connectedAt = 0;
+                    closeStream();
+                }
+                if (delay > 0) {
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        private boolean isReady() {
+            long connection = connectedAt;
+            return connection != 0 && listedAt == connection;
+        }
+
+        private void apply(Event event) {
+            if (event.eventType() == null || event.objectName() == null) {
+                return;
+            }
+            String name = event.eventType().toString();
+            String key = URLDecoder.decode(event.objectName(), StandardCharsets.UTF_8);
+            if (name.startsWith("s3:ObjectCreated:")) {
+                created(key, event.objectSize(), event.etag(), event.eventTime());
+            } else if (name.startsWith("s3:ObjectRemoved:")) {
+                removed(key);
+            }
+        }
+
+        private void created(String key, long size, String etag, ZonedDateTime lastModified) {
+            items.put(key, new IndexedItem(key, size, etag, lastModified, sequence.incrementAndGet()));
+            removed.remove(key);
+        }
+
+        private void removed(String key) {
+            removed.put(key, sequence.incrementAndGet());
+            items.remove(key);
+        }
+
+        private void reconcileQuietly() {
+            try {
+                reconcile();
+            } catch (RuntimeException e) {
+                log.warn("Could not list {} to reconcile its key index", bucket, e);
+            }
+        }
+
+        /**
+         * List the bucket and bring the index in line with it, except for keys an event changed since the listing started
+         */
+        private synchronized void reconcile() {
+            long connection = connectedAt;
+            long start = sequence.incrementAndGet();
+            Map<String, IndexedItem> listed = new HashMap<>();
+            Iterator<Item> found = ObjectListing.iterator(bucket, minioConnectionFactory.getConnection().listObjects(ListObjectsArgs.builder()
+                    .bucket(bucket)
+                    .recursive(true)
+                    .build()));
+            while (found.hasNext()) {
+                Item item = found.next();
+                listed.put(item.objectName(), new IndexedItem(item.objectName(), item.size(), item.etag(), item.lastModified(), start));
+            }
+            for (IndexedItem item : listed.values()) {
+                Long removedAt = removed.get(item.objectName());
+                if (removedAt == null || removedAt < start) {
+                    items.merge(item.objectName(), item, (current, fresh) -> current.seq > start ? current : fresh);
+                }
+            }
+            items.entrySet().removeIf(entry -> entry.getValue().seq < start && !listed.containsKey(entry.getKey()));
+            removed.values().removeIf(seq -> seq < start);
+            if (!seeded) {
+                log.info("Indexed {} keys of {}", items.size(), bucket);
+                seeded = true;
+            }
+            // only a listing started while the stream was open covers what it missed before
+            if (connection != 0) {
+                listedAt = connection;
+            }
+        }
+
+        private void closeStream() {
+            CloseableIterator<Result<NotificationRecords>> current = stream;
+            if (current != null) {
+                try {
+                    current.close();
+                } catch (IOException | IllegalStateException e) {
+                    // okio complains when the stream is closed while the listener thread reads it
+                    log.debug("Could not close the notification stream of {}", bucket, e);
+                }
+            }
+        }
+
+        private void stop() {
+            listener.interrupt();
+            closeStream();
+        }
+    }
+
+    /**
+     * Key, size, ETag and modification time of an object, or a directory of a listing
+     */
+    private static final class IndexedItem extends Item {
+        private final String name;
+        private final long size;
+        private final String etag;
+        private final ZonedDateTime lastModified;
+        private final long seq;
+
+        private IndexedItem(String name, long size, String etag, ZonedDateTime lastModified, long seq) {
+            this.name = name;
+            this.size = size;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.seq = seq;
+        }
+
+        private IndexedItem(String directory) {
+            super(directory);
+            this.name = directory;
+            this.size = 0;
+            this.etag = null;
+            this.lastModified = null;
+            this.seq = 0;
+        }
+
+        @Override
+        public String objectName() {
+            return name;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public String etag() {
+            return etag;
+        }
+
+        @Override
+        public ZonedDateTime lastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public Map<String, String> userMetadata() {
+            return Collections.emptyMap();
+        }
+    }
+}
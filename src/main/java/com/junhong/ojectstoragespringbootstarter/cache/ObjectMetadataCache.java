@@ -0,0 +1,186 @@
+package com.junhong.ojectstoragespringbootstarter.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.InsufficientDataException;
+import io.minio.errors.InternalException;
+import io.minio.errors.InvalidResponseException;
+import io.minio.errors.ServerException;
+import io.minio.errors.XmlParserException;
+
+import java.io.IOException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size bounded cache of {@code statObject} results, keyed by bucket, object and version.
+ * <p>
+ * Entries expire a fixed time after they were loaded and the least recently used entry is evicted when the
+ * cache is full. Templates sharing the cache invalidate a key whenever they write or remove it, a stat that
+ * was in flight during an invalidation is returned but not cached.
+ *
+ * @author jh
+ */
+public class ObjectMetadataCache {
+    private final Cache<Key, StatObjectResponse> cache;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * @param maximumSize entries kept at most
+     * @param ttl         time an entry is served after it was loaded
+     */
+    public ObjectMetadataCache(long maximumSize, Duration ttl) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Cached stat of the object, loaded on a miss
+     *
+     * @param versionId null for the latest version
+     */
+    public StatObjectResponse get(String bucket, String object, String versionId, Loader loader) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        Key key = new Key(bucket, object, versionId);
+        StatObjectResponse cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long stamp = invalidations.get();
+        StatObjectResponse loaded = loader.load();
+        if (loaded != null) {
+            cache.put(key, loaded);
+            if (invalidations.get() != stamp) {
+                // a write raced with the stat, the loaded value may already be stale
+                cache.invalidate(key);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Drop the latest version of an object, after it was written or removed
+     */
+    public void invalidate(String bucket, String object) {
+        invalidations.incrementAndGet();
+        cache.invalidate(new Key(bucket, object, null));
+    }
+
+    /**
+     * Drop one version of an object and its latest version, which may have been that version
+     */
+    public void invalidate(String bucket, String object, String versionId) {
+        invalidate(bucket, object);
+        if (versionId != null) {
+            cache.invalidate(new Key(bucket, object, versionId));
+        }
+    }
+
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public Stats stats() {
+        CacheStats stats = cache.stats();
+        return new Stats(stats.hitCount(), stats.missCount(), stats.evictionCount(), cache.size());
+    }
+
+    /**
+     * Performs the actual stat on a miss
+     */
+    @FunctionalInterface
+    public interface Loader {
+        StatObjectResponse load() throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException;
+    }
+
+    /**
+     * Snapshot of the cache counters
+     */
+    public static final class Stats {
+        private final long hitCount;
+        private final long missCount;
+        private final long evictionCount;
+        private final long size;
+
+        Stats(long hitCount, long missCount, long evictionCount, long size) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+            this.size = size;
+        }
+
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public long getMissCount() {
+            return missCount;
+        }
+
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * @return share of lookups served from the cache, 1 when there was no lookup yet
+         */
+        public double getHitRate() {
+            long requests = hitCount + missCount;
+            return requests == 0 ? 1.0 : (double) hitCount / requests;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{hitCount=" + hitCount + ", missCount=" + missCount + ", evictionCount=" + evictionCount + ", size=" + size + "}";
+        }
+    }
+
+    private static final class Key {
+        private final String bucket;
+        private final String object;
+        private final String versionId;
+
+        private Key(String bucket, String object, String versionId) {
+            this.bucket = bucket;
+            this.object = object;
+            this.versionId = versionId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return bucket.equals(key.bucket) && object.equals(key.object) && Objects.equals(versionId, key.versionId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(bucket, object, versionId);
+        }
+    }
+}
@@ -0,0 +1,512 @@
+package com.junhong.ojectstoragespringbootstarter.cache;
+
+import com.junhong.ojectstoragespringbootstarter.connection.MinioConnectionFactory;
+import com.junhong.ojectstoragespringbootstarter.service.ObjectOptions;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.InsufficientDataException;
+import io.minio.errors.InternalException;
+import io.minio.errors.InvalidResponseException;
+import io.minio.errors.ServerException;
+import io.minio.errors.XmlParserException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache of small objects in direct memory, outside of the heap.
+ * <p>
+ * Memory is allocated in slabs of the largest chunk size and a slab is cut into chunks of one size class,
+ * powers of two from 1 KiB up to {@code maxObjectSize}. Slabs are spread over lock stripes chosen by key,
+ * every stripe owns its slabs and keeps one LRU order per size class; when a class has no free chunk and the
+ * stripe has no slab left, a slab without objects moves over from another class, else the least recently used
+ * object of that class is evicted, else objects of other classes are evicted until one of their slabs is empty
+ * and moves over. Slabs are never given back, the JVM needs {@code -XX:MaxDirectMemorySize} of at least
+ * {@code maxBytes}.
+ * <p>
+ * A hit hands out a read-only view of the chunk without copying it, the chunk stays reserved until the
+ * {@link Handle} is closed. A cached object is served without a request for {@code freshFor},
+ * after that it is revalidated with a conditional GET on its ETag.
+ *
+ * @author jh
+ */
+public class OffHeapObjectCache {
+    private static final int MIN_CHUNK_SIZE = 1024;
+    private static final int MAX_STRIPES = 16;
+
+    private final MinioConnectionFactory minioConnectionFactory;
+    private final int maxObjectSize;
+    private final long freshNanos;
+    private final Stripe[] stripes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxBytes      direct memory reserved at most, rounded down to whole slabs
+     * @param maxObjectSize larger objects are streamed through without caching them
+     * @param freshFor      how long a cached object is served without asking the server, zero to revalidate every read
+     */
+    public OffHeapObjectCache(MinioConnectionFactory minioConnectionFactory, long maxBytes, int maxObjectSize, Duration freshFor) {
+        if (maxObjectSize < 1 || maxObjectSize > 1 << 30) {
+            throw new IllegalArgumentException("maxObjectSize must be between 1 and 1 GiB: " + maxObjectSize);
+        }
+        int slabSize = chunkSize(maxObjectSize);
+        long slabs = maxBytes / slabSize;
+        if (slabs < 1) {
+            throw new IllegalArgumentException("maxBytes must hold at least one slab of " + slabSize + " bytes: " + maxBytes);
+        }
+        this.minioConnectionFactory = minioConnectionFactory;
+        this.maxObjectSize = maxObjectSize;
+        this.freshNanos = freshFor.toNanos();
+        this.stripes = new Stripe[(int) Math.min(MAX_STRIPES, slabs)];
+        for (int i = 0; i < stripes.length; i++) {
+            long stripeSlabs = slabs / stripes.length + (i < slabs % stripes.length ? 1 : 0);
+            stripes[i] = new Stripe(slabSize, (int) Math.min(Integer.MAX_VALUE, stripeSlabs), sizeClass(slabSize) + 1);
+        }
+    }
+
+    public InputStream getObject(String bucket, String object) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        return acquire(bucket, object, ObjectOptions.EMPTY).inputStream();
+    }
+
+    /**
+     * Content of the current version of the object, closing the stream releases the cached chunk
+     *
+     * @param options region and extra headers of the GET, objects read with a customer key are never cached
+     */
+    public InputStream getObject(String bucket, String object, ObjectOptions options) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        return acquire(bucket, object, options).inputStream();
+    }
+
+    /**
+     * Acquire the content of the current version of the object, the caller closes the handle
+     */
+    public Handle acquire(String bucket, String object, ObjectOptions options) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        ObjectKey key = new ObjectKey(bucket, object);
+        Stripe stripe = stripe(key);
+        boolean cacheable = options.getSsec() == null;
+        Entry cached = cacheable ? stripe.acquire(key) : null;
+        if (cached != null && System.nanoTime() - cached.validatedAt < freshNanos) {
+            hits.incrementAndGet();
+            return new Handle(stripe, cached, null);
+        }
+        // taken before the GET is sent, like the invalidation stamp of ObjectMetadataCache
+        long generation = stripe.generation();
+        boolean served = false;
+        try {
+            GetObjectArgs.Builder builder = options.applyRead(GetObjectArgs.builder()
+                    .bucket(bucket)
+                    .object(object));
+            if (cached != null) {
+                builder.notMatchETag(cached.etag);
+            }
+            GetObjectResponse response;
+            try {
+                response = minioConnectionFactory.getConnection().getObject(builder.build());
+            } catch (ServerException | InvalidResponseException e) {
+                if (cached == null || !ObjectContentCache.isNotModified(e)) {
+                    throw e;
+                }
+                cached.validatedAt = System.nanoTime();
+                hits.incrementAndGet();
+                served = true;
+                return new Handle(stripe, cached, null);
+            }
+            misses.incrementAndGet();
+            return store(stripe, key, response, cacheable, generation);
+        } finally {
+            if (cached != null && !served) {
+                stripe.release(cached);
+            }
+        }
+    }
+
+    /**
+     * Drop the cached copy of an object, readers holding it keep their view until they close it
+     */
+    public void invalidate(String bucket, String object) {
+        ObjectKey key = new ObjectKey(bucket, object);
+        stripe(key).remove(key);
+    }
+
+    /**
+     * @return total size of the cached objects
+     */
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.bytes();
+        }
+        return size;
+    }
+
+    /**
+     * @return reads served from memory, revalidated or still fresh
+     */
+    public long hitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return reads that downloaded the content
+     */
+    public long missCount() {
+        return misses.get();
+    }
+
+    /**
+     * Read the response into a chunk and publish it, or hand the response over when it cannot be cached.
+     * The chunk is only indexed when nothing was written to or invalidated in the stripe since {@code generation}.
+     */
+    private Handle store(Stripe stripe, ObjectKey key, GetObjectResponse response, boolean cacheable, long generation) throws IOException {
+        String etag = ObjectContentCache.unquote(response.headers().get("ETag"));
+        String contentLength = response.headers().get("Content-Length");
+        long size = contentLength == null ? -1 : Long.parseLong(contentLength);
+        if (!cacheable || etag == null || size < 0 || size > maxObjectSize) {
+            return new Handle(null, null, response);
+        }
+        int sizeClass = sizeClass((int) size);
+        Chunk chunk = stripe.allocate(sizeClass);
+        if (chunk == null) {
+            // every chunk of this class is held by readers
+            return new Handle(null, null, response);
+        }
+        boolean stored = false;
+        try (GetObjectResponse body = response) {
+            ByteBuffer target = chunk.buffer.duplicate().limit((int) size);
+            ReadableByteChannel channel = Channels.newChannel(body);
+            while (target.hasRemaining()) {
+                if (channel.read(target) < 0) {
+                    throw new EOFException("Object " + key.bucket + "/" + key.object + " ended after " + target.position() + " of " + size + " bytes");
+                }
+            }
+            Entry entry = new Entry(sizeClass, chunk, (int) size, etag);
+            stripe.publish(key, entry, generation);
+            stored = true;
+            return new Handle(stripe, entry, null);
+        } finally {
+            if (!stored) {
+                stripe.free(chunk);
+            }
+        }
+    }
+
+    private Stripe stripe(ObjectKey key) {
+        return stripes[(key.hashCode() & Integer.MAX_VALUE) % stripes.length];
+    }
+
+    private static int chunkSize(int size) {
+        return size <= MIN_CHUNK_SIZE ? MIN_CHUNK_SIZE : Integer.highestOneBit(size - 1) << 1;
+    }
+
+    private static int sizeClass(int size) {
+        return Integer.numberOfTrailingZeros(chunkSize(size)) - Integer.numberOfTrailingZeros(MIN_CHUNK_SIZE);
+    }
+
+    /**
+     * Content of an object acquired from the cache, or the response of an object that was not cached.
+     * <p>
+     * The handle is also the stream over the content, so a hit allocates no other object than the handle, the
+     * position of its reader, and the key it was looked up with.
+     */
+    public static final class Handle extends InputStream {
+        private final Stripe stripe;
+        private final Entry entry;
+        private final ByteBuffer content;
+        private final InputStream response;
+        private boolean closed;
+
+        private Handle(Stripe stripe, Entry entry, InputStream response) {
+            this.stripe = stripe;
+            this.entry = entry;
+            this.content = entry == null ? null : entry.view.duplicate();
+            this.response = response;
+        }
+
+        /**
+         * @return read-only view of the cached content, null when the object was streamed through; valid until this handle is closed
+         */
+        public ByteBuffer buffer() {
+            return entry == null ? null : entry.view.duplicate();
+        }
+
+        /**
+         * @return the content as a stream, closing it closes this handle
+         */
+        public InputStream inputStream() {
+            return entry == null ? response : this;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (content == null) {
+                return response.read();
+            }
+            return content.hasRemaining() ? content.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (content == null) {
+                return response.read(b, off, len);
+            }
+            if (len == 0) {
+                return 0;
+            }
+            if (!content.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, content.remaining());
+            content.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (content == null) {
+                return response.skip(n);
+            }
+            int skipped = (int) Math.max(0, Math.min(n, content.remaining()));
+            content.position(content.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return content == null ? response.available() : content.remaining();
+        }
+
+        @Override
+        public void close() throws IOException {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            if (entry != null) {
+                stripe.release(entry);
+            } else {
+                response.close();
+            }
+        }
+    }
+
+    /**
+     * Slabs, index and per size class LRU order of the keys hashed to it, guarded by its monitor
+     */
+    private static final class Stripe {
+        private final int slabSize;
+        private final int maxSlabs;
+        private final Map<ObjectKey, Entry> index = new HashMap<>();
+        private final List<Slab> slabs = new ArrayList<>();
+        private final List<ArrayDeque<Chunk>> free;
+        private final List<LinkedHashMap<ObjectKey, Entry>> lru;
+        private long bytes;
+        /**
+         * Bumped by every publish and removal, a GET whose snapshot no longer matches may hold stale content
+         */
+        private long generation;
+
+        private Stripe(int slabSize, int maxSlabs, int sizeClasses) {
+            this.slabSize = slabSize;
+            this.maxSlabs = maxSlabs;
+            this.free = new ArrayList<>(sizeClasses);
+            this.lru = new ArrayList<>(sizeClasses);
+            for (int i = 0; i < sizeClasses; i++) {
+                free.add(new ArrayDeque<>());
+                lru.add(new LinkedHashMap<>(16, 0.75f, true));
+            }
+        }
+
+        synchronized Entry acquire(ObjectKey key) {
+            Entry entry = index.get(key);
+            if (entry != null) {
+                lru.get(entry.sizeClass).get(key);
+                entry.refs++;
+            }
+            return entry;
+        }
+
+        /**
+         * @return a free chunk of the size class, null when every chunk that could be freed is held by readers
+         */
+        synchronized Chunk allocate(int sizeClass) {
+            ArrayDeque<Chunk> chunks = free.get(sizeClass);
+            if (chunks.isEmpty()) {
+                if (slabs.size() < maxSlabs) {
+                    Slab slab = new Slab(ByteBuffer.allocateDirect(slabSize));
+                    slabs.add(slab);
+                    carve(slab, sizeClass);
+                } else {
+                    reclaimEmptySlab(sizeClass);
+                }
+            }
+            Iterator<Map.Entry<ObjectKey, Entry>> eldest = lru.get(sizeClass).entrySet().iterator();
+            while (chunks.isEmpty() && eldest.hasNext()) {
+                evict(eldest);
+            }
+            // larger classes first, they empty a slab with the fewest evictions
+            for (int other = lru.size() - 1; other >= 0 && chunks.isEmpty(); other--) {
+                if (other == sizeClass) {
+                    continue;
+                }
+                eldest = lru.get(other).entrySet().iterator();
+                while (chunks.isEmpty() && eldest.hasNext()) {
+                    Slab slab = evict(eldest).chunk.slab;
+                    if (slab.used == 0) {
+                        carve(slab, sizeClass);
+                    }
+                }
+            }
+            Chunk chunk = chunks.poll();
+            if (chunk != null) {
+                chunk.slab.used++;
+            }
+            return chunk;
+        }
+
+        private void reclaimEmptySlab(int sizeClass) {
+            for (Slab slab : slabs) {
+                if (slab.used == 0 && slab.sizeClass != sizeClass) {
+                    carve(slab, sizeClass);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Cut an empty slab into chunks of the size class, dropping the free chunks of its previous class
+         */
+        private void carve(Slab slab, int sizeClass) {
+            if (slab.sizeClass >= 0) {
+                free.get(slab.sizeClass).removeIf(chunk -> chunk.slab == slab);
+            }
+            slab.sizeClass = sizeClass;
+            int chunkSize = MIN_CHUNK_SIZE << sizeClass;
+            for (int offset = 0; offset < slabSize; offset += chunkSize) {
+                free.get(sizeClass).push(new Chunk(slab, slab.memory.slice(offset, chunkSize)));
+            }
+        }
+
+        private Entry evict(Iterator<Map.Entry<ObjectKey, Entry>> eldest) {
+            Map.Entry<ObjectKey, Entry> evicted = eldest.next();
+            eldest.remove();
+            index.remove(evicted.getKey());
+            bytes -= evicted.getValue().length;
+            release(evicted.getValue());
+            return evicted.getValue();
+        }
+
+        synchronized long generation() {
+            return generation;
+        }
+
+        /**
+         * Index the entry unless the stripe changed since {@code generation} was taken, the caller holds it either way
+         *
+         * @return whether the entry is cached
+         */
+        synchronized boolean publish(ObjectKey key, Entry entry, long generation) {
+            if (this.generation != generation) {
+                // a write or an invalidation raced with the GET, the content may already be stale
+                entry.refs = 1;
+                return false;
+            }
+            this.generation++;
+            // one reference for the cache, one for the caller
+            entry.refs = 2;
+            Entry previous = index.put(key, entry);
+            if (previous != null) {
+                lru.get(previous.sizeClass).remove(key);
+                bytes -= previous.length;
+                release(previous);
+            }
+            lru.get(entry.sizeClass).put(key, entry);
+            bytes += entry.length;
+            return true;
+        }
+
+        synchronized void remove(ObjectKey key) {
+            generation++;
+            Entry removed = index.remove(key);
+            if (removed != null) {
+                lru.get(removed.sizeClass).remove(key);
+                bytes -= removed.length;
+                release(removed);
+            }
+        }
+
+        synchronized void release(Entry entry) {
+            if (--entry.refs == 0) {
+                free(entry.chunk);
+            }
+        }
+
+        synchronized void free(Chunk chunk) {
+            chunk.slab.used--;
+            free.get(chunk.slab.sizeClass).push(chunk);
+        }
+
+        synchronized long bytes() {
+            return bytes;
+        }
+    }
+
+    /**
+     * Direct memory of one slab, cut into chunks of a single size class at a time
+     */
+    private static final class Slab {
+        private final ByteBuffer memory;
+        private int sizeClass = -1;
+        private int used;
+
+        private Slab(ByteBuffer memory) {
+            this.memory = memory;
+        }
+    }
+
+    private static final class Chunk {
+        private final Slab slab;
+        private final ByteBuffer buffer;
+
+        private Chunk(Slab slab, ByteBuffer buffer) {
+            this.slab = slab;
+            this.buffer = buffer;
+        }
+    }
+
+    private static final class Entry {
+        private final int sizeClass;
+        private final Chunk chunk;
+        private final ByteBuffer view;
+        private final int length;
+        private final String etag;
+        private volatile long validatedAt = System.nanoTime();
+        private int refs;
+
+        private Entry(int sizeClass, Chunk chunk, int length, String etag) {
+            this.sizeClass = sizeClass;
+            this.chunk = chunk;
+            this.view = chunk.buffer.slice(0, length).asReadOnlyBuffer();
+            this.length = length;
+            this.etag = etag;
+        }
+    }
+}
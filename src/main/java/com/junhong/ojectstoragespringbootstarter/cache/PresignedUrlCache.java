@@ -0,0 +1,142 @@
+package com.junhong.ojectstoragespringbootstarter.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.InsufficientDataException;
+import io.minio.errors.InternalException;
+import io.minio.errors.InvalidResponseException;
+import io.minio.errors.ServerException;
+import io.minio.errors.XmlParserException;
+import io.minio.http.Method;
+
+import java.io.IOException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size bounded cache of presigned URLs, keyed by bucket, object, method, version and expiry.
+ * <p>
+ * A URL is handed out again while it stays valid for at least half of the expiry asked for, so a caller never
+ * gets a URL valid for less than half of what it asked for, and a URL is signed again at most twice per expiry.
+ * URLs signed for another expiry are never shared, a short-lived request never gets a long-lived URL.
+ *
+ * @author jh
+ */
+public class PresignedUrlCache {
+    private final Cache<Key, Url> cache;
+    private final Clock clock;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maximumSize URLs kept at most
+     */
+    public PresignedUrlCache(long maximumSize) {
+        this(maximumSize, Clock.systemUTC());
+    }
+
+    PresignedUrlCache(long maximumSize, Clock clock) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+        this.clock = clock;
+    }
+
+    /**
+     * Cached URL of the object, signed again when it would expire before half of {@code expirySeconds}
+     *
+     * @param versionId null for the latest version
+     */
+    public String get(String bucket, String object, String versionId, Method method, int expirySeconds, Signer signer) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        Key key = new Key(bucket, object, versionId, method, expirySeconds);
+        long now = clock.millis();
+        Url cached = cache.getIfPresent(key);
+        if (cached != null && cached.expiresAt - now >= expirySeconds * 500L) {
+            hits.incrementAndGet();
+            return cached.url;
+        }
+        misses.incrementAndGet();
+        String url = signer.sign();
+        cache.put(key, new Url(url, now + Duration.ofSeconds(expirySeconds).toMillis()));
+        return url;
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * @return URLs handed out again
+     */
+    public long hitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return URLs signed
+     */
+    public long missCount() {
+        return misses.get();
+    }
+
+    @FunctionalInterface
+    public interface Signer {
+        String sign() throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException;
+    }
+
+    private static final class Url {
+        private final String url;
+        private final long expiresAt;
+
+        private Url(String url, long expiresAt) {
+            this.url = url;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class Key {
+        private final String bucket;
+        private final String object;
+        private final String versionId;
+        private final Method method;
+        private final int expirySeconds;
+
+        private Key(String bucket, String object, String versionId, Method method, int expirySeconds) {
+            this.bucket = bucket;
+            this.object = object;
+            this.versionId = versionId;
+            this.method = method;
+            this.expirySeconds = expirySeconds;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return bucket.equals(key.bucket) && object.equals(key.object) && Objects.equals(versionId, key.versionId) && method == key.method
+                    && expirySeconds == key.expirySeconds;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(bucket, object, versionId, method, expirySeconds);
+        }
+    }
+}
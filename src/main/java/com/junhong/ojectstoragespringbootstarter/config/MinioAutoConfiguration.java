@@ -1,18 +1,44 @@
 package com.junhong.ojectstoragespringbootstarter.config;
 
+import com.junhong.ojectstoragespringbootstarter.cache.BucketRegistry;
+import com.junhong.ojectstoragespringbootstarter.cache.MissingObjectCache;
+import com.junhong.ojectstoragespringbootstarter.cache.ObjectContentCache;
+import com.junhong.ojectstoragespringbootstarter.cache.ObjectKeyIndex;
+import com.junhong.ojectstoragespringbootstarter.cache.ObjectMetadataCache;
+import com.junhong.ojectstoragespringbootstarter.cache.OffHeapObjectCache;
+import com.junhong.ojectstoragespringbootstarter.cache.PresignedUrlCache;
+import com.junhong.ojectstoragespringbootstarter.connection.LoadBalancedMinioConnectionFactory;
 import com.junhong.ojectstoragespringbootstarter.connection.MinioConnectionFactory;
+import com.junhong.ojectstoragespringbootstarter.connection.RequestCoalescer;
+import com.junhong.ojectstoragespringbootstarter.service.AsyncMinioTemplate;
 import com.junhong.ojectstoragespringbootstarter.service.MinioTemplate;
+import com.junhong.ojectstoragespringbootstarter.service.Presigner;
+import com.junhong.ojectstoragespringbootstarter.service.ShardedLister;
+import com.junhong.ojectstoragespringbootstarter.transfer.BulkDeleter;
+import com.junhong.ojectstoragespringbootstarter.transfer.DirectoryDownloader;
+import com.junhong.ojectstoragespringbootstarter.transfer.DirectoryUploader;
+import com.junhong.ojectstoragespringbootstarter.transfer.ParallelDownloader;
+import com.junhong.ojectstoragespringbootstarter.transfer.ParallelUploader;
+import com.junhong.ojectstoragespringbootstarter.transfer.PrefixCopier;
+import com.junhong.ojectstoragespringbootstarter.transfer.SnowballUploader;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
+import okhttp3.OkHttpClient;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
+import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+
 
 @EnableConfigurationProperties(MinioProperties.class)
 @ConditionalOnProperty(prefix = "storage", name = "type", havingValue = "minio")
@@ -27,20 +53,184 @@ public class MinioAutoConfiguration {
      */
     @Bean
     @ConditionalOnClass(MinioClient.class)
-    public MinioConnectionFactory minioConnectionFactory() {
+    public MinioConnectionFactory minioConnectionFactory(OkHttpClient minioHttpClient) {
+        if (!CollectionUtils.isEmpty(minioProperties.getEndpoints())) {
+            return new LoadBalancedMinioConnectionFactory(minioProperties, minioHttpClient);
+        }
         MinioClient.Builder builder = MinioClient.builder();
+        MinioAsyncClient.Builder asyncBuilder = MinioAsyncClient.builder();
         if (!StringUtils.hasText(minioProperties.getRegion())) {
             builder.region(minioProperties.getRegion());
+            asyncBuilder.region(minioProperties.getRegion());
         }
         builder
                 .endpoint(minioProperties.getUrl())
-                .credentials(minioProperties.getAccessKey(), minioProperties.getSecretKey());
-        return new MinioConnectionFactory(builder);
+                .credentials(minioProperties.getAccessKey(), minioProperties.getSecretKey())
+                .httpClient(minioHttpClient);
+        asyncBuilder
+                .endpoint(minioProperties.getUrl())
+                .credentials(minioProperties.getAccessKey(), minioProperties.getSecretKey())
+                .httpClient(minioHttpClient);
+        return new MinioConnectionFactory(builder, asyncBuilder);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "storage.minio", name = "metadata-cache-enabled", havingValue = "true")
+    public ObjectMetadataCache objectMetadataCache() {
+        return new ObjectMetadataCache(minioProperties.getMetadataCacheMaximumSize(), minioProperties.getMetadataCacheTtl());
+    }
+
+    @Bean
+    @ConditionalOnBean(MinioConnectionFactory.class)
+    @ConditionalOnProperty(prefix = "storage.minio", name = "content-cache-enabled", havingValue = "true")
+    public ObjectContentCache objectContentCache(MinioConnectionFactory minioConnectionFactory) throws IOException {
+        return new ObjectContentCache(minioConnectionFactory, Paths.get(minioProperties.getContentCacheDirectory()), minioProperties.getContentCacheMaxSize().toBytes());
+    }
+
+    @Bean
+    @ConditionalOnBean(MinioConnectionFactory.class)
+    @ConditionalOnProperty(prefix = "storage.minio", name = "off-heap-cache-enabled", havingValue = "true")
+    public OffHeapObjectCache offHeapObjectCache(MinioConnectionFactory minioConnectionFactory) {
+        return new OffHeapObjectCache(minioConnectionFactory, minioProperties.getOffHeapCacheMaxSize().toBytes(),
+                Math.toIntExact(minioProperties.getOffHeapCacheMaxObjectSize().toBytes()), minioProperties.getOffHeapCacheFreshFor());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "storage.minio", name = "presign-cache-enabled", havingValue = "true")
+    public PresignedUrlCache presignedUrlCache() {
+        return new PresignedUrlCache(minioProperties.getPresignCacheMaximumSize());
+    }
+
+    @Bean
+    @ConditionalOnBean(MinioConnectionFactory.class)
+    @ConditionalOnProperty(prefix = "storage.minio", name = {"access-key", "secret-key"})
+    public Presigner presigner() {
+        // any node of a cluster serves the signed requests, the first endpoint stands for all of them
+        return new Presigner(minioProperties.resolveUrl(), minioProperties.getRegion(), minioProperties.getAccessKey(), minioProperties.getSecretKey());
+    }
+
+    @Bean
+    @ConditionalOnBean(MinioConnectionFactory.class)
+    @ConditionalOnProperty(prefix = "storage.minio", name = "bucket-registry-enabled", havingValue = "true")
+    public BucketRegistry bucketRegistry(MinioConnectionFactory minioConnectionFactory) {
+        return new BucketRegistry(minioConnectionFactory, minioProperties.getBucketRegistryTtl());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "storage.minio", name = "missing-object-cache-enabled", havingValue = "true")
+    public MissingObjectCache missingObjectCache() {
+        return new MissingObjectCache(minioProperties.getMissingObjectCacheMaximumSize(), minioProperties.getMissingObjectCacheTtl());
+    }
+
+    @Bean
+    @ConditionalOnExpression("${storage.minio.coalesce-stat:false} or ${storage.minio.coalesce-get:false}")
+    public RequestCoalescer requestCoalescer() {
+        return new RequestCoalescer(minioProperties.isCoalesceStat(), minioProperties.isCoalesceGet(),
+                (int) Math.min(Integer.MAX_VALUE, minioProperties.getCoalesceMaxInMemorySize().toBytes()),
+                minioProperties.getCoalesceMaxSize().toBytes());
+    }
+
+    @Bean
+    @ConditionalOnBean(MinioConnectionFactory.class)
+    @ConditionalOnProperty(prefix = "storage.minio", name = "key-index-enabled", havingValue = "true")
+    public ObjectKeyIndex objectKeyIndex(MinioConnectionFactory minioConnectionFactory) {
+        ObjectKeyIndex keyIndex = new ObjectKeyIndex(minioConnectionFactory, minioProperties.getKeyIndexBuckets(),
+                minioProperties.getKeyIndexReconcileInterval());
+        keyIndex.start();
+        return keyIndex;
+    }
+
+    @Bean
+    @ConditionalOnBean(MinioConnectionFactory.class)
+    public MinioTemplate minioTemplate(MinioConnectionFactory minioConnectionFactory, ObjectProvider<ObjectMetadataCache> objectMetadataCache,
+                                       ObjectProvider<ObjectContentCache> objectContentCache, ObjectProvider<OffHeapObjectCache> offHeapObjectCache,
+                                       ObjectProvider<PresignedUrlCache> presignedUrlCache, ObjectProvider<BucketRegistry> bucketRegistry,
+                                       ObjectProvider<ObjectKeyIndex> objectKeyIndex, ObjectProvider<MissingObjectCache> missingObjectCache,
+                                       ObjectProvider<RequestCoalescer> requestCoalescer) {
+        return new MinioTemplate(minioConnectionFactory)
+                .withMetadataCache(objectMetadataCache.getIfAvailable())
+                .withContentCache(objectContentCache.getIfAvailable())
+                .withOffHeapCache(offHeapObjectCache.getIfAvailable())
+                .withPresignedUrlCache(presignedUrlCache.getIfAvailable())
+                .withBucketRegistry(bucketRegistry.getIfAvailable())
+                .withKeyIndex(objectKeyIndex.getIfAvailable())
+                .withMissingObjectCache(missingObjectCache.getIfAvailable())
+                .withRequestCoalescer(requestCoalescer.getIfAvailable());
+    }
+
+    @Bean
+    @ConditionalOnBean(MinioConnectionFactory.class)
+    public AsyncMinioTemplate asyncMinioTemplate(MinioConnectionFactory minioConnectionFactory) {
+        return new AsyncMinioTemplate(minioConnectionFactory, minioProperties.getAsyncMaxInFlight());
+    }
+
+    @Bean
+    @ConditionalOnBean(MinioConnectionFactory.class)
+    public ParallelUploader parallelUploader(MinioConnectionFactory minioConnectionFactory) {
+        return new ParallelUploader(minioConnectionFactory,
+                minioProperties.getTransferPartSize().toBytes(),
+                minioProperties.getTransferParallelism(),
+                minioProperties.getTransferMaxRetries());
+    }
+
+    @Bean
+    @ConditionalOnBean(MinioConnectionFactory.class)
+    public ParallelDownloader parallelDownloader(MinioConnectionFactory minioConnectionFactory) {
+        return new ParallelDownloader(minioConnectionFactory,
+                minioProperties.getTransferPartSize().toBytes(),
+                minioProperties.getTransferParallelism(),
+                minioProperties.getTransferMaxRetries());
+    }
+
+    @Bean
+    @ConditionalOnBean(MinioConnectionFactory.class)
+    public DirectoryUploader directoryUploader(MinioConnectionFactory minioConnectionFactory, ParallelUploader parallelUploader) {
+        return new DirectoryUploader(minioConnectionFactory, parallelUploader,
+                minioProperties.getTransferParallelism(),
+                minioProperties.getTransferMaxRetries());
+    }
+
+    @Bean
+    @ConditionalOnBean(MinioConnectionFactory.class)
+    public DirectoryDownloader directoryDownloader(MinioConnectionFactory minioConnectionFactory, ParallelDownloader parallelDownloader) {
+        return new DirectoryDownloader(minioConnectionFactory, parallelDownloader,
+                minioProperties.getTransferParallelism(),
+                minioProperties.getTransferMaxRetries());
+    }
+
+    @Bean
+    @ConditionalOnBean(MinioConnectionFactory.class)
+    public BulkDeleter bulkDeleter(MinioConnectionFactory minioConnectionFactory) {
+        return new BulkDeleter(minioConnectionFactory,
+                BulkDeleter.MAX_BATCH_SIZE,
+                minioProperties.getTransferParallelism(),
+                minioProperties.getTransferMaxRetries());
     }
 
     @Bean
     @ConditionalOnBean(MinioConnectionFactory.class)
-    public MinioTemplate minioTemplate(MinioConnectionFactory minioConnectionFactory) {
-        return new MinioTemplate(minioConnectionFactory);
+    public PrefixCopier prefixCopier(MinioConnectionFactory minioConnectionFactory, BulkDeleter bulkDeleter) {
+        return new PrefixCopier(minioConnectionFactory, bulkDeleter,
+                BulkDeleter.MAX_BATCH_SIZE,
+                minioProperties.getTransferParallelism(),
+                minioProperties.getTransferMaxRetries());
     }
+
+    @Bean
+    @ConditionalOnBean(MinioConnectionFactory.class)
+    public SnowballUploader snowballUploader(MinioConnectionFactory minioConnectionFactory) {
+        return new SnowballUploader(minioConnectionFactory,
+                minioProperties.getSnowballBatchSize().toBytes(),
+                minioProperties.getSnowballSpillThreshold().toBytes(),
+                minioProperties.isSnowballCompression(),
+                minioProperties.getTransferParallelism(),
+                minioProperties.getTransferMaxRetries());
+    }
+
+    @Bean
+    @ConditionalOnBean(MinioConnectionFactory.class)
+    public ShardedLister shardedLister(MinioConnectionFactory minioConnectionFactory) {
+        return new ShardedLister(minioConnectionFactory, minioProperties.getListParallelism());
+    }
+
 }
@@ -16,6 +16,8 @@
 
 package com.junhong.ojectstoragespringbootstarter.config;
 
+import com.junhong.ojectstoragespringbootstarter.cache.BucketRegistry;
+import com.junhong.ojectstoragespringbootstarter.connection.MinioHttpClientFactory;
 import io.minio.BucketExistsArgs;
 import io.minio.MakeBucketArgs;
 import io.minio.MinioClient;
@@ -29,8 +31,10 @@ import io.minio.errors.XmlParserException;
 import okhttp3.OkHttpClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
@@ -53,22 +57,31 @@ public class MinioConfiguration {
     @Autowired
     private MinioProperties minioConfigurationProperties;
 
+    /**
+     * Shared http client, every Minio client of this configuration reuses its connection pool
+     *
+     * @return pooled http client
+     */
     @Bean
-    public MinioClient minioClient() throws IOException, InvalidKeyException, NoSuchAlgorithmException, InsufficientDataException, InternalException, ErrorResponseException, InvalidResponseException, MinioException, XmlParserException, ServerException {
-
-        MinioClient minioClient;
-        if (!configuredProxy()) {
-            minioClient = MinioClient.builder()
-                    .endpoint(minioConfigurationProperties.getUrl())
-                    .credentials(minioConfigurationProperties.getAccessKey(), minioConfigurationProperties.getSecretKey())
-                    .build();
-        } else {
-            minioClient = MinioClient.builder()
-                    .endpoint(minioConfigurationProperties.getUrl())
-                    .credentials(minioConfigurationProperties.getAccessKey(), minioConfigurationProperties.getSecretKey())
-                    .httpClient(client())
-                    .build();
+    @ConditionalOnMissingBean(name = "minioHttpClient")
+    public OkHttpClient minioHttpClient() {
+        OkHttpClient.Builder builder = MinioHttpClientFactory.builder(minioConfigurationProperties);
+        if (configuredProxy()) {
+            String httpHost = System.getProperty("http.proxyHost");
+            String httpPort = System.getProperty("http.proxyPort");
+            builder.proxy(new Proxy(Proxy.Type.HTTP, new InetSocketAddress(httpHost, Integer.parseInt(httpPort))));
         }
+        return builder.build();
+    }
+
+    @Bean
+    public MinioClient minioClient(OkHttpClient minioHttpClient, ObjectProvider<BucketRegistry> bucketRegistry) throws IOException, InvalidKeyException, NoSuchAlgorithmException, InsufficientDataException, InternalException, ErrorResponseException, InvalidResponseException, MinioException, XmlParserException, ServerException {
+
+        MinioClient minioClient = MinioClient.builder()
+                .endpoint(minioConfigurationProperties.resolveUrl())
+                .credentials(minioConfigurationProperties.getAccessKey(), minioConfigurationProperties.getSecretKey())
+                .httpClient(minioHttpClient)
+                .build();
         minioClient.setTimeout(
                 minioConfigurationProperties.getConnectTimeout().toMillis(),
                 minioConfigurationProperties.getWriteTimeout().toMillis(),
@@ -81,7 +94,9 @@ public class MinioConfiguration {
                 BucketExistsArgs existsArgs = BucketExistsArgs.builder()
                         .bucket(minioConfigurationProperties.getBucket())
                         .build();
-                boolean b = minioClient.bucketExists(existsArgs);
+                // through the registry when there is one, the check then warms it for later checks
+                BucketRegistry registry = bucketRegistry.getIfAvailable();
+                boolean b = registry != null ? registry.exists(minioConfigurationProperties.getBucket()) : minioClient.bucketExists(existsArgs);
                 if (!b) {
                     if (minioConfigurationProperties.isCreateBucket()) {
                         try {
@@ -89,6 +104,9 @@ public class MinioConfiguration {
                                     .bucket(minioConfigurationProperties.getBucket())
                                     .build();
                             minioClient.makeBucket(makeBucketArgs);
+                            if (registry != null) {
+                                registry.refresh(minioConfigurationProperties.getBucket());
+                            }
                         } catch (Exception e) {
                             throw new MinioException("Cannot create bucket", e.getMessage());
                         }
@@ -111,15 +129,4 @@ public class MinioConfiguration {
         return httpHost != null && httpPort != null;
     }
 
-    private OkHttpClient client() {
-        String httpHost = System.getProperty("http.proxyHost");
-        String httpPort = System.getProperty("http.proxyPort");
-
-        OkHttpClient.Builder builder = new OkHttpClient.Builder();
-        if (httpHost != null)
-            builder.proxy(new Proxy(Proxy.Type.HTTP, new InetSocketAddress(httpHost, Integer.parseInt(httpPort))));
-        return builder
-                .build();
-    }
-
 }
@@ -1,8 +1,13 @@
 package com.junhong.ojectstoragespringbootstarter.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import com.junhong.ojectstoragespringbootstarter.connection.LoadBalancingStrategy;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Minio server connection settings
@@ -21,6 +26,33 @@ public class MinioProperties {
      */
     private String endpoint;
 
+    /**
+     * Not Required, several minio server URLs of one cluster.
+     * When set, requests are balanced over these endpoints instead of going to {@code url} only.
+     */
+    private List<String> endpoints = new ArrayList<>();
+
+    /**
+     * How the next endpoint is chosen when several {@code endpoints} are configured.
+     */
+    private LoadBalancingStrategy loadBalancingStrategy = LoadBalancingStrategy.LEAST_OUTSTANDING;
+
+    /**
+     * Interval between two health probes of every configured endpoint.
+     */
+    private Duration healthCheckInterval = Duration.ofSeconds(5);
+
+    /**
+     * Path probed on every endpoint, minio answers 200 on its liveness endpoint while the node is up.
+     */
+    private String healthCheckPath = "/minio/health/live";
+
+    /**
+     * Number of consecutive failed probes or requests after which an endpoint is ejected.
+     * An ejected endpoint is re-admitted after its next successful probe.
+     */
+    private int unhealthyThreshold = 3;
+
     /**
      * minio endpoint, it should be a  URL, domain name, IPv4 address or IPv6 address
      */
@@ -82,6 +114,187 @@ public class MinioProperties {
      */
     private boolean createBucket = true;
 
+    /**
+     * Maximum number of idle HTTP connections kept alive in the shared connection pool.
+     */
+    private int maxIdleConnections = 32;
+
+    /**
+     * How long an idle HTTP connection is kept in the shared connection pool before being evicted.
+     */
+    private Duration keepAliveDuration = Duration.ofMinutes(5);
+
+    /**
+     * Maximum number of requests executed concurrently by the shared HTTP client.
+     */
+    private int maxRequests = 256;
+
+    /**
+     * Maximum number of requests executed concurrently against a single Minio host.
+     * Every Minio call goes through the HTTP dispatcher, so this caps the parallelism of a single endpoint.
+     */
+    private int maxRequestsPerHost = 128;
+
+    /**
+     * Maximum number of requests the async template keeps in flight, further requests are queued.
+     */
+    private int asyncMaxInFlight = 256;
+
+    /**
+     * Part size of parallel uploads and range size of parallel downloads, at least 5MB.
+     */
+    private DataSize transferPartSize = DataSize.ofMegabytes(16);
+
+    /**
+     * Number of parts or ranges a single parallel transfer keeps in flight.
+     */
+    private int transferParallelism = 8;
+
+    /**
+     * How many times a failed part or range is retried before the whole transfer fails.
+     */
+    private int transferMaxRetries = 3;
+
+    /**
+     * Number of shards a sharded listing lists at the same time.
+     */
+    private int listParallelism = 8;
+
+    /**
+     * Cache statObject results of the templates, invalidated by their own writes and removals.
+     */
+    private boolean metadataCacheEnabled = false;
+
+    /**
+     * Objects whose metadata is cached at most, the least recently used one is evicted first.
+     */
+    private long metadataCacheMaximumSize = 10000;
+
+    /**
+     * How long cached metadata is served, writes by other clients stay unnoticed up to this long.
+     */
+    private Duration metadataCacheTtl = Duration.ofSeconds(30);
+
+    /**
+     * Read objects of the template through a local disk cache revalidated with conditional GETs.
+     */
+    private boolean contentCacheEnabled = false;
+
+    /**
+     * Directory of the content cache, each cache keeps its files in a subdirectory of its own, so it may be shared.
+     */
+    private String contentCacheDirectory = System.getProperty("java.io.tmpdir") + "/minio-content-cache";
+
+    /**
+     * Total size of the cached files, the least recently used ones are deleted beyond it.
+     */
+    private DataSize contentCacheMaxSize = DataSize.ofGigabytes(1);
+
+    /**
+     * Read small objects of the template through a cache in direct memory.
+     */
+    private boolean offHeapCacheEnabled = false;
+
+    /**
+     * Direct memory reserved by the off-heap cache at most.
+     */
+    private DataSize offHeapCacheMaxSize = DataSize.ofMegabytes(256);
+
+    /**
+     * Objects larger than this are not kept in the off-heap cache.
+     */
+    private DataSize offHeapCacheMaxObjectSize = DataSize.ofMegabytes(1);
+
+    /**
+     * How long a cached object is served without asking the server, zero to revalidate every read.
+     */
+    private Duration offHeapCacheFreshFor = Duration.ofSeconds(5);
+
+    /**
+     * Hand out presigned URLs of the template again while they stay valid for half of the expiry asked for.
+     */
+    private boolean presignCacheEnabled = false;
+
+    /**
+     * Presigned URLs kept at most.
+     */
+    private long presignCacheMaximumSize = 10000;
+
+    /**
+     * Answer bucket existence checks and bucket lookups of the template from a cache.
+     */
+    private boolean bucketRegistryEnabled = false;
+
+    /**
+     * Time a bucket lookup is served before the server is asked again.
+     */
+    private Duration bucketRegistryTtl = Duration.ofSeconds(60);
+
+    /**
+     * Keep an in-memory key index of {@code keyIndexBuckets}, updated by bucket notifications (MinIO only).
+     */
+    private boolean keyIndexEnabled = false;
+
+    /**
+     * Buckets whose keys are indexed.
+     */
+    private List<String> keyIndexBuckets = new ArrayList<>();
+
+    /**
+     * Time between two full listings of an indexed bucket, repairing missed notifications.
+     */
+    private Duration keyIndexReconcileInterval = Duration.ofMinutes(10);
+
+    /**
+     * Remember objects found missing by the template, so repeated lookups of absent keys skip the request.
+     */
+    private boolean missingObjectCacheEnabled = false;
+
+    /**
+     * Missing objects remembered at most.
+     */
+    private long missingObjectCacheMaximumSize = 10000;
+
+    /**
+     * Time an object found missing is reported missing without asking the server again.
+     */
+    private Duration missingObjectCacheTtl = Duration.ofSeconds(5);
+
+    /**
+     * Share one stat among concurrent {@code getObjectInfo} calls of the same object.
+     */
+    private boolean coalesceStat = false;
+
+    /**
+     * Share one download among concurrent {@code getObject} calls of the same object.
+     */
+    private boolean coalesceGet = false;
+
+    /**
+     * Largest shared download kept in memory, larger ones are spooled to a temporary file.
+     */
+    private DataSize coalesceMaxInMemorySize = DataSize.ofMegabytes(4);
+
+    /**
+     * Largest download shared among concurrent {@code getObject} calls, larger ones are downloaded by every caller.
+     */
+    private DataSize coalesceMaxSize = DataSize.ofMegabytes(64);
+
+    /**
+     * Largest tar a snowball upload packs small objects into before starting the next one.
+     */
+    private DataSize snowballBatchSize = DataSize.ofMegabytes(64);
+
+    /**
+     * Tars larger than this are staged in a temp file instead of memory.
+     */
+    private DataSize snowballSpillThreshold = DataSize.ofMegabytes(16);
+
+    /**
+     * Snappy compress snowball tars, worth it for text, wasted on already compressed content.
+     */
+    private boolean snowballCompression = false;
+
     public boolean isSecure() {
         return secure;
     }
@@ -138,6 +351,294 @@ public class MinioProperties {
         this.createBucket = createBucket;
     }
 
+    public int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+
+    public void setMaxIdleConnections(int maxIdleConnections) {
+        this.maxIdleConnections = maxIdleConnections;
+    }
+
+    public Duration getKeepAliveDuration() {
+        return keepAliveDuration;
+    }
+
+    public void setKeepAliveDuration(Duration keepAliveDuration) {
+        this.keepAliveDuration = keepAliveDuration;
+    }
+
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+
+    public void setMaxRequests(int maxRequests) {
+        this.maxRequests = maxRequests;
+    }
+
+    public int getMaxRequestsPerHost() {
+        return maxRequestsPerHost;
+    }
+
+    public void setMaxRequestsPerHost(int maxRequestsPerHost) {
+        this.maxRequestsPerHost = maxRequestsPerHost;
+    }
+
+    public int getAsyncMaxInFlight() {
+        return asyncMaxInFlight;
+    }
+
+    public void setAsyncMaxInFlight(int asyncMaxInFlight) {
+        this.asyncMaxInFlight = asyncMaxInFlight;
+    }
+
+    public DataSize getTransferPartSize() {
+        return transferPartSize;
+    }
+
+    public void setTransferPartSize(DataSize transferPartSize) {
+        this.transferPartSize = transferPartSize;
+    }
+
+    public int getTransferParallelism() {
+        return transferParallelism;
+    }
+
+    public void setTransferParallelism(int transferParallelism) {
+        this.transferParallelism = transferParallelism;
+    }
+
+    public int getTransferMaxRetries() {
+        return transferMaxRetries;
+    }
+
+    public void setTransferMaxRetries(int transferMaxRetries) {
+        this.transferMaxRetries = transferMaxRetries;
+    }
+
+    public int getListParallelism() {
+        return listParallelism;
+    }
+
+    public void setListParallelism(int listParallelism) {
+        this.listParallelism = listParallelism;
+    }
+
+    public boolean isMetadataCacheEnabled() {
+        return metadataCacheEnabled;
+    }
+
+    public void setMetadataCacheEnabled(boolean metadataCacheEnabled) {
+        this.metadataCacheEnabled = metadataCacheEnabled;
+    }
+
+    public long getMetadataCacheMaximumSize() {
+        return metadataCacheMaximumSize;
+    }
+
+    public void setMetadataCacheMaximumSize(long metadataCacheMaximumSize) {
+        this.metadataCacheMaximumSize = metadataCacheMaximumSize;
+    }
+
+    public Duration getMetadataCacheTtl() {
+        return metadataCacheTtl;
+    }
+
+    public void setMetadataCacheTtl(Duration metadataCacheTtl) {
+        this.metadataCacheTtl = metadataCacheTtl;
+    }
+
+    public boolean isContentCacheEnabled() {
+        return contentCacheEnabled;
+    }
+
+    public void setContentCacheEnabled(boolean contentCacheEnabled) {
+        this.contentCacheEnabled = contentCacheEnabled;
+    }
+
+    public String getContentCacheDirectory() {
+        return contentCacheDirectory;
+    }
+
+    public void setContentCacheDirectory(String contentCacheDirectory) {
+        this.contentCacheDirectory = contentCacheDirectory;
+    }
+
+    public DataSize getContentCacheMaxSize() {
+        return contentCacheMaxSize;
+    }
+
+    public void setContentCacheMaxSize(DataSize contentCacheMaxSize) {
+        this.contentCacheMaxSize = contentCacheMaxSize;
+    }
+
+    public boolean isOffHeapCacheEnabled() {
+        return offHeapCacheEnabled;
+    }
+
+    public void setOffHeapCacheEnabled(boolean offHeapCacheEnabled) {
+        this.offHeapCacheEnabled = offHeapCacheEnabled;
+    }
+
+    public DataSize getOffHeapCacheMaxSize() {
+        return offHeapCacheMaxSize;
+    }
+
+    public void setOffHeapCacheMaxSize(DataSize offHeapCacheMaxSize) {
+        this.offHeapCacheMaxSize = offHeapCacheMaxSize;
+    }
+
+    public DataSize getOffHeapCacheMaxObjectSize() {
+        return offHeapCacheMaxObjectSize;
+    }
+
+    public void setOffHeapCacheMaxObjectSize(DataSize offHeapCacheMaxObjectSize) {
+        this.offHeapCacheMaxObjectSize = offHeapCacheMaxObjectSize;
+    }
+
+    public Duration getOffHeapCacheFreshFor() {
+        return offHeapCacheFreshFor;
+    }
+
+    public void setOffHeapCacheFreshFor(Duration offHeapCacheFreshFor) {
+        this.offHeapCacheFreshFor = offHeapCacheFreshFor;
+    }
+
+    public boolean isPresignCacheEnabled() {
+        return presignCacheEnabled;
+    }
+
+    public void setPresignCacheEnabled(boolean presignCacheEnabled) {
+        this.presignCacheEnabled = presignCacheEnabled;
+    }
+
+    public long getPresignCacheMaximumSize() {
+        return presignCacheMaximumSize;
+    }
+
+    public void setPresignCacheMaximumSize(long presignCacheMaximumSize) {
+        this.presignCacheMaximumSize = presignCacheMaximumSize;
+    }
+
+    public boolean isBucketRegistryEnabled() {
+        return bucketRegistryEnabled;
+    }
+
+    public void setBucketRegistryEnabled(boolean bucketRegistryEnabled) {
+        this.bucketRegistryEnabled = bucketRegistryEnabled;
+    }
+
+    public Duration getBucketRegistryTtl() {
+        return bucketRegistryTtl;
+    }
+
+    public void setBucketRegistryTtl(Duration bucketRegistryTtl) {
+        this.bucketRegistryTtl = bucketRegistryTtl;
+    }
+
+    public boolean isKeyIndexEnabled() {
+        return keyIndexEnabled;
+    }
+
+    public void setKeyIndexEnabled(boolean keyIndexEnabled) {
+        this.keyIndexEnabled = keyIndexEnabled;
+    }
+
+    public List<String> getKeyIndexBuckets() {
+        return keyIndexBuckets;
+    }
+
+    public void setKeyIndexBuckets(List<String> keyIndexBuckets) {
+        this.keyIndexBuckets = keyIndexBuckets;
+    }
+
+    public Duration getKeyIndexReconcileInterval() {
+        return keyIndexReconcileInterval;
+    }
+
+    public void setKeyIndexReconcileInterval(Duration keyIndexReconcileInterval) {
+        this.keyIndexReconcileInterval = keyIndexReconcileInterval;
+    }
+
+    public boolean isMissingObjectCacheEnabled() {
+        return missingObjectCacheEnabled;
+    }
+
+    public void setMissingObjectCacheEnabled(boolean missingObjectCacheEnabled) {
+        this.missingObjectCacheEnabled = missingObjectCacheEnabled;
+    }
+
+    public long getMissingObjectCacheMaximumSize() {
+        return missingObjectCacheMaximumSize;
+    }
+
+    public void setMissingObjectCacheMaximumSize(long missingObjectCacheMaximumSize) {
+        this.missingObjectCacheMaximumSize = missingObjectCacheMaximumSize;
+    }
+
+    public Duration getMissingObjectCacheTtl() {
+        return missingObjectCacheTtl;
+    }
+
+    public void setMissingObjectCacheTtl(Duration missingObjectCacheTtl) {
+        this.missingObjectCacheTtl = missingObjectCacheTtl;
+    }
+
+    public boolean isCoalesceStat() {
+        return coalesceStat;
+    }
+
+    public void setCoalesceStat(boolean coalesceStat) {
+        this.coalesceStat = coalesceStat;
+    }
+
+    public boolean isCoalesceGet() {
+        return coalesceGet;
+    }
+
+    public void setCoalesceGet(boolean coalesceGet) {
+        this.coalesceGet = coalesceGet;
+    }
+
+    public DataSize getCoalesceMaxInMemorySize() {
+        return coalesceMaxInMemorySize;
+    }
+
+    public void setCoalesceMaxInMemorySize(DataSize coalesceMaxInMemorySize) {
+        this.coalesceMaxInMemorySize = coalesceMaxInMemorySize;
+    }
+
+    public DataSize getCoalesceMaxSize() {
+        return coalesceMaxSize;
+    }
+
+    public void setCoalesceMaxSize(DataSize coalesceMaxSize) {
+        this.coalesceMaxSize = coalesceMaxSize;
+    }
+
+    public DataSize getSnowballBatchSize() {
+        return snowballBatchSize;
+    }
+
+    public void setSnowballBatchSize(DataSize snowballBatchSize) {
+        this.snowballBatchSize = snowballBatchSize;
+    }
+
+    public DataSize getSnowballSpillThreshold() {
+        return snowballSpillThreshold;
+    }
+
+    public void setSnowballSpillThreshold(DataSize snowballSpillThreshold) {
+        this.snowballSpillThreshold = snowballSpillThreshold;
+    }
+
+    public boolean isSnowballCompression() {
+        return snowballCompression;
+    }
+
+    public void setSnowballCompression(boolean snowballCompression) {
+        this.snowballCompression = snowballCompression;
+    }
+
     public String getUrl() {
         return url;
     }
@@ -146,6 +647,18 @@ public class MinioProperties {
         this.url = url;
     }
 
+    /**
+     * Server that single-server clients talk to, {@code url} or else the first of {@code endpoints}
+     *
+     * @return null when neither is configured
+     */
+    public String resolveUrl() {
+        if (url != null && !url.isEmpty()) {
+            return url;
+        }
+        return endpoints == null || endpoints.isEmpty() ? null : endpoints.get(0);
+    }
+
     public String getAccessKey() {
         return accessKey;
     }
@@ -186,6 +699,46 @@ public class MinioProperties {
         this.endpoint = endpoint;
     }
 
+    public List<String> getEndpoints() {
+        return endpoints;
+    }
+
+    public void setEndpoints(List<String> endpoints) {
+        this.endpoints = endpoints;
+    }
+
+    public LoadBalancingStrategy getLoadBalancingStrategy() {
+        return loadBalancingStrategy;
+    }
+
+    public void setLoadBalancingStrategy(LoadBalancingStrategy loadBalancingStrategy) {
+        this.loadBalancingStrategy = loadBalancingStrategy;
+    }
+
+    public Duration getHealthCheckInterval() {
+        return healthCheckInterval;
+    }
+
+    public void setHealthCheckInterval(Duration healthCheckInterval) {
+        this.healthCheckInterval = healthCheckInterval;
+    }
+
+    public String getHealthCheckPath() {
+        return healthCheckPath;
+    }
+
+    public void setHealthCheckPath(String healthCheckPath) {
+        this.healthCheckPath = healthCheckPath;
+    }
+
+    public int getUnhealthyThreshold() {
+        return unhealthyThreshold;
+    }
+
+    public void setUnhealthyThreshold(int unhealthyThreshold) {
+        this.unhealthyThreshold = unhealthyThreshold;
+    }
+
     public String getBucketName() {
         return bucketName;
     }
@@ -199,6 +752,7 @@ public class MinioProperties {
         return "MinioProperties{" +
                 "url='" + url + '\'' +
                 "endpoint='" + endpoint + '\'' +
+                "endpoints='" + endpoints + '\'' +
                 "bucketName='" + bucketName + '\'' +
                 ", accessKey='" + accessKey + '\'' +
                 ", secretKey='" + secretKey + '\'' +
@@ -0,0 +1,28 @@
+package com.junhong.ojectstoragespringbootstarter.config;
+
+import com.junhong.ojectstoragespringbootstarter.service.AsyncMinioTemplate;
+import com.junhong.ojectstoragespringbootstarter.service.ReactiveMinioTemplate;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Reactive template, only when reactor is on the classpath and the async template exists.
+ * <p>
+ * Kept out of the component scan like {@link MinioAutoConfiguration}, it is only loaded as an auto-configuration.
+ *
+ * @author jh
+ */
+@AutoConfigureAfter(MinioAutoConfiguration.class)
+@ConditionalOnClass(name = "reactor.core.publisher.Flux")
+@ConditionalOnProperty(prefix = "storage", name = "type", havingValue = "minio")
+public class ReactiveMinioAutoConfiguration {
+
+    @Bean
+    @ConditionalOnBean(AsyncMinioTemplate.class)
+    public ReactiveMinioTemplate reactiveMinioTemplate(AsyncMinioTemplate asyncMinioTemplate) {
+        return new ReactiveMinioTemplate(asyncMinioTemplate);
+    }
+}
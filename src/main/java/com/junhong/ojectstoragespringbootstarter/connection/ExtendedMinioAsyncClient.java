@@ -0,0 +1,131 @@
+package com.junhong.ojectstoragespringbootstarter.connection;
+
+import com.google.common.collect.Multimap;
+import io.minio.AbortMultipartUploadResponse;
+import io.minio.CreateMultipartUploadResponse;
+import io.minio.ListObjectsArgs;
+import io.minio.ListObjectsV2Response;
+import io.minio.ListPartsResponse;
+import io.minio.MinioAsyncClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.UploadPartResponse;
+import io.minio.errors.InsufficientDataException;
+import io.minio.errors.InternalException;
+import io.minio.errors.XmlParserException;
+import io.minio.messages.Item;
+import io.minio.messages.ListBucketResultV2;
+import io.minio.messages.Part;
+import io.minio.messages.Prefix;
+
+import java.io.IOException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * MinioAsyncClient exposing the low level S3 calls the SDK keeps protected, such as single page listing
+ * and the individual steps of a multipart upload.
+ *
+ * @author jh
+ */
+public class ExtendedMinioAsyncClient extends MinioAsyncClient {
+
+    public ExtendedMinioAsyncClient(MinioAsyncClient client) {
+        super(client);
+    }
+
+    /**
+     * Fetch one page of a list objects v2 request
+     *
+     * @param args              listing arguments, {@code maxKeys} is the page size
+     * @param continuationToken token of the previous page, null for the first page
+     * @return the page, use {@link #items(ListBucketResultV2)} to read its entries
+     */
+    public CompletableFuture<ListObjectsV2Response> listObjectsPage(ListObjectsArgs args, String continuationToken) throws InsufficientDataException, InternalException, InvalidKeyException, IOException, NoSuchAlgorithmException, XmlParserException {
+        return listObjectsV2Async(
+                args.bucket(),
+                args.region(),
+                args.delimiter(),
+                args.useUrlEncodingType() ? "url" : null,
+                args.startAfter(),
+                args.maxKeys(),
+                args.prefix(),
+                continuationToken == null ? args.continuationToken() : continuationToken,
+                args.fetchOwner(),
+                args.includeUserMetadata(),
+                args.extraHeaders(),
+                args.extraQueryParams());
+    }
+
+    /**
+     * Start a multipart upload
+     *
+     * @param headers object headers such as Content-Type and user metadata, can be null
+     * @return response holding the upload id
+     */
+    public CompletableFuture<CreateMultipartUploadResponse> initiateMultipartUpload(String bucketName, String region, String objectName, Multimap<String, String> headers, Multimap<String, String> extraQueryParams) throws InsufficientDataException, InternalException, InvalidKeyException, IOException, NoSuchAlgorithmException, XmlParserException {
+        return createMultipartUploadAsync(bucketName, region, objectName, headers, extraQueryParams);
+    }
+
+    /**
+     * Upload one part of a multipart upload
+     *
+     * @param data   part content, only its first {@code length} bytes are sent; it must not change until the future completes
+     * @param length part size
+     */
+    public CompletableFuture<UploadPartResponse> uploadPartBytes(String bucketName, String region, String objectName, byte[] data, int length, String uploadId, int partNumber, Multimap<String, String> extraHeaders, Multimap<String, String> extraQueryParams) throws InsufficientDataException, InternalException, InvalidKeyException, IOException, NoSuchAlgorithmException, XmlParserException {
+        return uploadPartAsync(bucketName, region, objectName, data, length, uploadId, partNumber, extraHeaders, extraQueryParams);
+    }
+
+    /**
+     * Complete a multipart upload
+     *
+     * @param parts every uploaded part, ordered by part number
+     */
+    public CompletableFuture<ObjectWriteResponse> finishMultipartUpload(String bucketName, String region, String objectName, String uploadId, Part[] parts, Multimap<String, String> extraHeaders, Multimap<String, String> extraQueryParams) throws InsufficientDataException, InternalException, InvalidKeyException, IOException, NoSuchAlgorithmException, XmlParserException {
+        return completeMultipartUploadAsync(bucketName, region, objectName, uploadId, parts, extraHeaders, extraQueryParams);
+    }
+
+    /**
+     * Abort a multipart upload, the server drops the parts uploaded so far
+     */
+    public CompletableFuture<AbortMultipartUploadResponse> cancelMultipartUpload(String bucketName, String region, String objectName, String uploadId, Multimap<String, String> extraHeaders, Multimap<String, String> extraQueryParams) throws InsufficientDataException, InternalException, InvalidKeyException, IOException, NoSuchAlgorithmException, XmlParserException {
+        return abortMultipartUploadAsync(bucketName, region, objectName, uploadId, extraHeaders, extraQueryParams);
+    }
+
+    /**
+     * List the parts uploaded so far
+     *
+     * @param maxParts         page size, at most 1000
+     * @param partNumberMarker list parts after this part number, null for the first page
+     */
+    public CompletableFuture<ListPartsResponse> listUploadedParts(String bucketName, String region, String objectName, Integer maxParts, Integer partNumberMarker, String uploadId, Multimap<String, String> extraHeaders, Multimap<String, String> extraQueryParams) throws InsufficientDataException, InternalException, InvalidKeyException, IOException, NoSuchAlgorithmException, XmlParserException {
+        return listPartsAsync(bucketName, region, objectName, maxParts, partNumberMarker, uploadId, extraHeaders, extraQueryParams);
+    }
+
+    /**
+     * Region of a bucket, the configured region when the client has one, otherwise looked up once and cached by the client
+     */
+    public CompletableFuture<String> bucketRegion(String bucketName) throws InsufficientDataException, InternalException, InvalidKeyException, IOException, NoSuchAlgorithmException, XmlParserException {
+        return getRegionAsync(bucketName, null);
+    }
+
+    /**
+     * Objects then common prefixes of a listing page, in the order the blocking listObjects iterator returns them
+     */
+    public static List<Item> items(ListBucketResultV2 result) {
+        List<Item> items = new ArrayList<>(result.contents().size() + result.commonPrefixes().size());
+        for (Item item : result.contents()) {
+            item.setEncodingType(result.encodingType());
+            items.add(item);
+        }
+        for (Prefix prefix : result.commonPrefixes()) {
+            Item item = prefix.toItem();
+            item.setEncodingType(result.encodingType());
+            items.add(item);
+        }
+        return items;
+    }
+}
@@ -0,0 +1,162 @@
+package com.junhong.ojectstoragespringbootstarter.connection;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * Caps the number of asynchronous requests in flight without blocking the submitting thread.
+ * <p>
+ * Requests over the cap are queued and started, in submission order, as soon as a running request completes.
+ * Every request goes through the queue, so a new request never takes a freed slot ahead of one already waiting.
+ * A request whose response still has to be read may hold its slot until the response is closed, see
+ * {@link #submit(Callable, BiFunction)}.
+ *
+ * @author jh
+ */
+public class InFlightLimiter {
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger draining = new AtomicInteger();
+    private final Queue<Pending<?>> pending = new ConcurrentLinkedQueue<>();
+
+    public InFlightLimiter(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+        }
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Start the request now if a slot is free, otherwise once one is released
+     *
+     * @param request starts the request, called at most once
+     * @return completes with the outcome of the request
+     */
+    public <T> CompletableFuture<T> submit(Callable<CompletableFuture<T>> request) {
+        return submit(request, null);
+    }
+
+    /**
+     * Like {@link #submit(Callable)}, but the slot stays taken after the request completed until the release
+     * handed to {@code hold} runs, for a response whose body is read later
+     *
+     * @param hold wraps the response so that closing it runs the release, which may run more than once
+     */
+    public <T> CompletableFuture<T> submit(Callable<CompletableFuture<T>> request, BiFunction<T, Runnable, T> hold) {
+        Pending<T> task = new Pending<>(request, hold);
+        pending.add(task);
+        drain();
+        return task.result;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public int queued() {
+        return pending.size();
+    }
+
+    private boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= maxInFlight) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private void release() {
+        inFlight.decrementAndGet();
+        drain();
+    }
+
+    /**
+     * Only one thread drains at a time, re-entrant calls from requests completing synchronously
+     * just ask the draining thread for another pass instead of growing the stack.
+     */
+    private void drain() {
+        if (draining.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            while (!pending.isEmpty() && tryAcquire()) {
+                Pending<?> task = pending.poll();
+                if (task == null) {
+                    inFlight.decrementAndGet();
+                    break;
+                }
+                start(task);
+            }
+        } while (draining.decrementAndGet() != 0);
+    }
+
+    private <T> void start(Pending<T> task) {
+        CompletableFuture<T> future;
+        try {
+            future = task.request.call();
+        } catch (Exception e) {
+            release();
+            task.result.completeExceptionally(e);
+            return;
+        }
+        future.whenComplete((value, error) -> {
+            if (error != null || task.hold == null) {
+                release();
+                if (error != null) {
+                    task.result.completeExceptionally(error);
+                } else {
+                    task.result.complete(value);
+                }
+                return;
+            }
+            AtomicBoolean held = new AtomicBoolean(true);
+            Runnable releaseOnce = () -> {
+                if (held.compareAndSet(true, false)) {
+                    release();
+                }
+            };
+            T wrapped;
+            try {
+                wrapped = task.hold.apply(value, releaseOnce);
+            } catch (RuntimeException e) {
+                releaseOnce.run();
+                task.result.completeExceptionally(e);
+                return;
+            }
+            if (!task.result.complete(wrapped)) {
+                // cancelled by the caller, nobody will close the response
+                closeQuietly(wrapped);
+                releaseOnce.run();
+            }
+        });
+    }
+
+    private static void closeQuietly(Object response) {
+        if (response instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) response).close();
+            } catch (Exception ignored) {
+                // the response was never handed out
+            }
+        }
+    }
+
+    private static final class Pending<T> {
+        private final Callable<CompletableFuture<T>> request;
+        private final BiFunction<T, Runnable, T> hold;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private Pending(Callable<CompletableFuture<T>> request, BiFunction<T, Runnable, T> hold) {
+            this.request = request;
+            this.hold = hold;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.junhong.ojectstoragespringbootstarter.connection;
+
+import com.junhong.ojectstoragespringbootstarter.config.MinioProperties;
+import io.minio.MinioAsyncClient;
+import io.minio.MinioClient;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads operations over several minio servers of one cluster.
+ * <p>
+ * Every endpoint gets its own MinioClient, all of them share the same http connection pool and dispatcher.
+ * Each call to {@link #getConnection()} picks the healthy endpoint with the best score of the configured
+ * {@link LoadBalancingStrategy}. Endpoints are ejected after {@code unhealthyThreshold} consecutive failed
+ * requests or health probes, and re-admitted as soon as a background probe succeeds again.
+ *
+ * @author jh
+ */
+public class LoadBalancedMinioConnectionFactory extends MinioConnectionFactory implements AutoCloseable {
+    private final static Logger log = LoggerFactory.getLogger(LoadBalancedMinioConnectionFactory.class);
+
+    private final MinioEndpoint[] endpoints;
+    private final LoadBalancingStrategy strategy;
+    private final OkHttpClient httpClient;
+    private final String healthCheckPath;
+    private final AtomicInteger cursor = new AtomicInteger();
+    private final ScheduledExecutorService healthChecker;
+
+    public LoadBalancedMinioConnectionFactory(MinioProperties properties, OkHttpClient httpClient) {
+        List<String> urls = properties.getEndpoints();
+        if (urls == null || urls.isEmpty()) {
+            throw new IllegalArgumentException("at least one minio endpoint is required");
+        }
+        this.strategy = properties.getLoadBalancingStrategy();
+        this.httpClient = httpClient;
+        this.healthCheckPath = properties.getHealthCheckPath();
+        this.endpoints = new MinioEndpoint[urls.size()];
+        for (int i = 0; i < endpoints.length; i++) {
+            MinioEndpoint endpoint = new MinioEndpoint(urls.get(i), properties.getUnhealthyThreshold());
+            OkHttpClient endpointHttpClient = httpClient.newBuilder().addInterceptor(endpoint).build();
+            MinioClient.Builder builder = MinioClient.builder()
+                    .endpoint(endpoint.url())
+                    .credentials(properties.getAccessKey(), properties.getSecretKey())
+                    .httpClient(endpointHttpClient);
+            MinioAsyncClient.Builder asyncBuilder = MinioAsyncClient.builder()
+                    .endpoint(endpoint.url())
+                    .credentials(properties.getAccessKey(), properties.getSecretKey())
+                    .httpClient(endpointHttpClient);
+            if (StringUtils.hasText(properties.getRegion())) {
+                builder.region(properties.getRegion());
+                asyncBuilder.region(properties.getRegion());
+            }
+            endpoint.client(builder.build());
+            endpoint.asyncClient(new ExtendedMinioAsyncClient(asyncBuilder.build()));
+            endpoints[i] = endpoint;
+        }
+
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "minio-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getHealthCheckInterval().toMillis();
+        healthChecker.scheduleWithFixedDelay(this::probeAll, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public MinioClient getConnection() {
+        return select().client();
+    }
+
+    @Override
+    public ExtendedMinioAsyncClient getAsyncConnection() {
+        return select().asyncClient();
+    }
+
+    /**
+     * Choose the endpoint of the next operation.
+     * When every endpoint is ejected they are used in turn, so requests keep trying instead of failing fast.
+     */
+    public MinioEndpoint select() {
+        int start = Math.floorMod(cursor.getAndIncrement(), endpoints.length);
+        MinioEndpoint best = null;
+        double bestScore = Double.MAX_VALUE;
+        for (int i = 0; i < endpoints.length; i++) {
+            MinioEndpoint endpoint = endpoints[(start + i) % endpoints.length];
+            if (!endpoint.isHealthy()) {
+                continue;
+            }
+            double score = score(endpoint);
+            if (score < bestScore) {
+                best = endpoint;
+                bestScore = score;
+            }
+        }
+        return best != null ? best : endpoints[start];
+    }
+
+    private double score(MinioEndpoint endpoint) {
+        if (strategy == LoadBalancingStrategy.EWMA_LATENCY) {
+            return (endpoint.ewmaLatencyNanos() + 1) * (endpoint.outstanding() + 1);
+        }
+        return endpoint.outstanding();
+    }
+
+    public List<MinioEndpoint> getEndpoints() {
+        return List.of(endpoints);
+    }
+
+    /**
+     * Probe every endpoint now instead of waiting for the next scheduled check
+     */
+    public void probeAll() {
+        for (MinioEndpoint endpoint : endpoints) {
+            probe(endpoint);
+        }
+    }
+
+    private void probe(MinioEndpoint endpoint) {
+        Request request = new Request.Builder().url(endpoint.url() + healthCheckPath).get().build();
+        httpClient.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                boolean wasHealthy = endpoint.isHealthy();
+                endpoint.markFailure();
+                if (wasHealthy && !endpoint.isHealthy()) {
+                    log.warn("Minio endpoint {} ejected: {}", endpoint.url(), e.getMessage());
+                }
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    boolean wasHealthy = endpoint.isHealthy();
+                    if (response.isSuccessful()) {
+                        endpoint.markSuccess();
+                        if (!wasHealthy) {
+                            log.info("Minio endpoint {} re-admitted", endpoint.url());
+                        }
+                    } else {
+                        endpoint.markFailure();
+                        if (wasHealthy && !endpoint.isHealthy()) {
+                            log.warn("Minio endpoint {} ejected: health check returned {}", endpoint.url(), response.code());
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        healthChecker.shutdownNow();
+    }
+}
@@ -0,0 +1,18 @@
+package com.junhong.ojectstoragespringbootstarter.connection;
+
+/**
+ * How {@link LoadBalancedMinioConnectionFactory} picks the endpoint of the next operation
+ *
+ * @author jh
+ */
+public enum LoadBalancingStrategy {
+    /**
+     * endpoint with the fewest requests in flight
+     */
+    LEAST_OUTSTANDING,
+
+    /**
+     * endpoint with the lowest exponentially weighted moving average latency, weighted by its requests in flight
+     */
+    EWMA_LATENCY
+}
@@ -1,19 +1,71 @@
 package com.junhong.ojectstoragespringbootstarter.connection;
 
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
 
+/**
+ * Hands out the Minio clients of one configuration.
+ * <p>
+ * MinioClient is thread-safe, so the client is built once on first use and shared by every caller,
+ * which keeps the underlying http connections alive between operations.
+ *
+ * @author jh
+ */
 public class MinioConnectionFactory {
     private final MinioClient.Builder builder;
+    private final MinioAsyncClient.Builder asyncBuilder;
+
+    private volatile MinioClient client;
+    private volatile ExtendedMinioAsyncClient asyncClient;
 
     public MinioConnectionFactory(MinioClient.Builder builder) {
+        this(builder, null);
+    }
+
+    /**
+     * @param builder      blocking client builder
+     * @param asyncBuilder non-blocking client builder, configured like {@code builder}; null if not used
+     */
+    public MinioConnectionFactory(MinioClient.Builder builder, MinioAsyncClient.Builder asyncBuilder) {
         this.builder = builder;
+        this.asyncBuilder = asyncBuilder;
     }
 
-//    public waq(MinioClient.Builder builder) {
-//        this.builder = builder;
-//    }
+    /**
+     * For factories that manage their clients themselves and override {@link #getConnection()}
+     */
+    protected MinioConnectionFactory() {
+        this(null, null);
+    }
 
     public MinioClient getConnection() {
-        return builder.build();
+        MinioClient connection = client;
+        if (connection == null) {
+            synchronized (this) {
+                connection = client;
+                if (connection == null) {
+                    connection = builder.build();
+                    client = connection;
+                }
+            }
+        }
+        return connection;
+    }
+
+    public ExtendedMinioAsyncClient getAsyncConnection() {
+        ExtendedMinioAsyncClient connection = asyncClient;
+        if (connection == null) {
+            if (asyncBuilder == null) {
+                throw new IllegalStateException("no async client builder configured for this connection factory");
+            }
+            synchronized (this) {
+                connection = asyncClient;
+                if (connection == null) {
+                    connection = new ExtendedMinioAsyncClient(asyncBuilder.build());
+                    asyncClient = connection;
+                }
+            }
+        }
+        return connection;
     }
 }
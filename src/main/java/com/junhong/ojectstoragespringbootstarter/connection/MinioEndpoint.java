@@ -0,0 +1,171 @@
+package com.junhong.ojectstoragespringbootstarter.connection;
+
+import io.minio.MinioClient;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One minio server of a load balanced cluster, with the statistics used to choose between servers.
+ *
+ * @author jh
+ */
+public class MinioEndpoint implements Interceptor {
+    /**
+     * weight of the latest sample in the moving average latency
+     */
+    private static final double EWMA_ALPHA = 0.3;
+    /**
+     * minio answers 503 SlowDown when throttling, the server is alive
+     */
+    private static final int SLOW_DOWN = 503;
+
+    private final String url;
+    private final int unhealthyThreshold;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong ewmaNanos = new AtomicLong(Double.doubleToLongBits(0));
+    private volatile boolean healthy = true;
+    private volatile MinioClient client;
+    private volatile ExtendedMinioAsyncClient asyncClient;
+
+    MinioEndpoint(String url, int unhealthyThreshold) {
+        this.url = url;
+        this.unhealthyThreshold = unhealthyThreshold;
+    }
+
+    void client(MinioClient client) {
+        this.client = client;
+    }
+
+    public MinioClient client() {
+        return client;
+    }
+
+    void asyncClient(ExtendedMinioAsyncClient asyncClient) {
+        this.asyncClient = asyncClient;
+    }
+
+    public ExtendedMinioAsyncClient asyncClient() {
+        return asyncClient;
+    }
+
+    public String url() {
+        return url;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * @return requests sent to this endpoint whose response body was not read or closed yet
+     */
+    public int outstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * @return moving average latency in nanoseconds, 0 until the first response
+     */
+    public double ewmaLatencyNanos() {
+        return Double.longBitsToDouble(ewmaNanos.get());
+    }
+
+    /**
+     * Tracks in-flight requests and latency of every request sent through this endpoint's client.
+     * <p>
+     * The latency sample is taken when the response headers arrive, so it measures the server rather than the size of
+     * the object. The request stays outstanding until its response body is exhausted or closed, so a large download
+     * counts as load for as long as it streams. Throttling answers leave the health alone.
+     */
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        outstanding.incrementAndGet();
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = chain.proceed(chain.request());
+        } catch (IOException e) {
+            outstanding.decrementAndGet();
+            markFailure();
+            throw e;
+        } catch (RuntimeException e) {
+            outstanding.decrementAndGet();
+            throw e;
+        }
+        recordLatency(System.nanoTime() - start);
+        if (response.code() >= 500 && response.code() != SLOW_DOWN) {
+            markFailure();
+        } else if (response.code() < 500) {
+            markSuccess();
+        }
+        ResponseBody body = response.body();
+        if (body == null) {
+            outstanding.decrementAndGet();
+            return response;
+        }
+        AtomicBoolean finished = new AtomicBoolean();
+        ForwardingSource tracked = new ForwardingSource(body.source()) {
+            @Override
+            public long read(Buffer sink, long byteCount) throws IOException {
+                long read = super.read(sink, byteCount);
+                if (read == -1 && finished.compareAndSet(false, true)) {
+                    outstanding.decrementAndGet();
+                }
+                return read;
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (finished.compareAndSet(false, true)) {
+                    outstanding.decrementAndGet();
+                }
+                super.close();
+            }
+        };
+        return response.newBuilder()
+                .body(ResponseBody.create(Okio.buffer(tracked), body.contentType(), body.contentLength()))
+                .build();
+    }
+
+    void markSuccess() {
+        consecutiveFailures.set(0);
+        healthy = true;
+    }
+
+    void markFailure() {
+        if (consecutiveFailures.incrementAndGet() >= unhealthyThreshold) {
+            healthy = false;
+        }
+    }
+
+    private void recordLatency(long nanos) {
+        long current;
+        long updated;
+        do {
+            current = ewmaNanos.get();
+            double average = Double.longBitsToDouble(current);
+            double next = average == 0 ? nanos : average + EWMA_ALPHA * (nanos - average);
+            updated = Double.doubleToLongBits(next);
+        } while (!ewmaNanos.compareAndSet(current, updated));
+    }
+
+    @Override
+    public String toString() {
+        return "MinioEndpoint{" +
+                "url='" + url + '\'' +
+                ", healthy=" + healthy +
+                ", outstanding=" + outstanding +
+                ", ewmaLatencyNanos=" + ewmaLatencyNanos() +
+                '}';
+    }
+}
@@ -0,0 +1,56 @@
+package com.junhong.ojectstoragespringbootstarter.connection;
+
+import com.junhong.ojectstoragespringbootstarter.config.MinioProperties;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the OkHttp client shared by every Minio client of a configuration.
+ *
+ * @author jh
+ */
+public final class MinioHttpClientFactory {
+
+    private MinioHttpClientFactory() {
+    }
+
+    /**
+     * Create a http client builder with a connection pool and dispatcher sized from the given properties
+     *
+     * @param properties minio properties
+     * @return pre-configured builder, callers may add a proxy or interceptors before building
+     */
+    public static OkHttpClient.Builder builder(MinioProperties properties) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(properties.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(properties.getMaxRequestsPerHost());
+
+        ConnectionPool connectionPool = new ConnectionPool(
+                properties.getMaxIdleConnections(),
+                properties.getKeepAliveDuration().toMillis(),
+                TimeUnit.MILLISECONDS);
+
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(connectionPool)
+                .connectTimeout(properties.getConnectTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .writeTimeout(properties.getWriteTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .readTimeout(properties.getReadTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .protocols(Collections.singletonList(Protocol.HTTP_1_1));
+    }
+
+    /**
+     * Create the shared http client of the given properties
+     *
+     * @param properties minio properties
+     * @return http client
+     */
+    public static OkHttpClient create(MinioProperties properties) {
+        return builder(properties).build();
+    }
+}
@@ -0,0 +1,316 @@
+package com.junhong.ojectstoragespringbootstarter.connection;
+
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.InsufficientDataException;
+import io.minio.errors.InternalException;
+import io.minio.errors.InvalidResponseException;
+import io.minio.errors.ServerException;
+import io.minio.errors.XmlParserException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets concurrent identical stat and get requests share one request to the server.
+ * <p>
+ * The first caller of a key performs the request, callers arriving while it is in flight wait for its outcome,
+ * failures included. A get nobody joined before its response arrived is streamed through to its caller as is. Otherwise
+ * the body is read to the end before anyone gets it: into memory up to {@code maxInMemorySize}, into a temporary file
+ * beyond, which is deleted once every waiter opened it. Each waiter reads the body through its own stream. A body
+ * larger than {@code maxCoalescedSize} is not shared, the first caller streams it and the waiters send their own gets.
+ * The waiters also send their own gets when reading the shared body fails, only the first caller sees that failure.
+ * <p>
+ * Stat and get are coalesced independently, an operation that is not coalesced calls through directly.
+ *
+ * @author jh
+ */
+public class RequestCoalescer {
+    private final static Logger log = LoggerFactory.getLogger(RequestCoalescer.class);
+
+    /**
+     * Largest body shared when no size is given
+     */
+    public static final long DEFAULT_MAX_COALESCED_SIZE = 64L * 1024 * 1024;
+
+    private final boolean coalesceStat;
+    private final boolean coalesceGet;
+    private final int maxInMemorySize;
+    private final long maxCoalescedSize;
+    private final Map<String, Flight<StatObjectResponse>> stats = new ConcurrentHashMap<>();
+    private final Map<String, Flight<Body>> gets = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * @param maxInMemorySize largest body shared from memory, larger ones are spooled to a temporary file
+     */
+    public RequestCoalescer(boolean coalesceStat, boolean coalesceGet, int maxInMemorySize) {
+        this(coalesceStat, coalesceGet, maxInMemorySize, DEFAULT_MAX_COALESCED_SIZE);
+    }
+
+    /**
+     * @param maxCoalescedSize largest body shared with waiters, larger ones are downloaded by every caller
+     */
+    public RequestCoalescer(boolean coalesceStat, boolean coalesceGet, int maxInMemorySize, long maxCoalescedSize) {
+        if (maxInMemorySize < 0) {
+            throw new IllegalArgumentException("maxInMemorySize must not be negative: " + maxInMemorySize);
+        }
+        if (maxCoalescedSize < 0) {
+            throw new IllegalArgumentException("maxCoalescedSize must not be negative: " + maxCoalescedSize);
+        }
+        this.coalesceStat = coalesceStat;
+        this.coalesceGet = coalesceGet;
+        this.maxInMemorySize = maxInMemorySize;
+        this.maxCoalescedSize = maxCoalescedSize;
+    }
+
+    /**
+     * Stat of the object, shared with concurrent stats of the same object
+     */
+    public StatObjectResponse stat(String bucket, String object, Request<StatObjectResponse> request) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        if (!coalesceStat) {
+            return request.execute();
+        }
+        return join(stats, bucket + "/" + object, request);
+    }
+
+    /**
+     * Content of the object, the body is shared with concurrent gets of the same object
+     */
+    public InputStream getObject(String bucket, String object, Request<InputStream> request) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        if (!coalesceGet) {
+            return request.execute();
+        }
+        String key = bucket + "/" + object;
+        Flight<Body> created = new Flight<>();
+        Flight<Body> flight = enter(gets, key, created);
+        if (flight != created) {
+            coalesced.incrementAndGet();
+            Body body = await(flight.result);
+            // too large to share or failed while read, download it alone
+            return body == null ? request.execute() : body.open();
+        }
+        requests.incrementAndGet();
+        InputStream in;
+        try {
+            in = request.execute();
+        } catch (Throwable e) {
+            gets.remove(key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+        gets.remove(key, flight);
+        int readers = flight.waiters.get();
+        if (readers == 1) {
+            flight.result.complete(null);
+            return in;
+        }
+        Body body;
+        try {
+            body = read(in);
+        } catch (Throwable e) {
+            in.close();
+            flight.result.complete(null);
+            throw e;
+        }
+        if (!body.complete) {
+            flight.result.complete(null);
+            body.readers(1);
+            return new SequenceInputStream(body.open(), in);
+        }
+        in.close();
+        body.readers(readers);
+        flight.result.complete(body);
+        return body.open();
+    }
+
+    /**
+     * @return requests sent to the server by a coalescing operation
+     */
+    public long requestCount() {
+        return requests.get();
+    }
+
+    /**
+     * @return calls answered by the request of another caller
+     */
+    public long coalescedCount() {
+        return coalesced.get();
+    }
+
+    private <T> T join(Map<String, Flight<T>> flights, String key, Request<T> request) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        Flight<T> created = new Flight<>();
+        Flight<T> flight = enter(flights, key, created);
+        if (flight != created) {
+            coalesced.incrementAndGet();
+            return await(flight.result);
+        }
+        requests.incrementAndGet();
+        T result;
+        try {
+            result = request.execute();
+        } catch (Throwable e) {
+            flights.remove(key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+        flights.remove(key, flight);
+        flight.result.complete(result);
+        return result;
+    }
+
+    /**
+     * Join the flight of the key or start the given one; nobody joins after its removal, so the number of
+     * waiters is final once the flight is removed
+     */
+    private static <T> Flight<T> enter(Map<String, Flight<T>> flights, String key, Flight<T> created) {
+        return flights.compute(key, (k, current) -> {
+            Flight<T> joined = current == null ? created : current;
+            joined.waiters.incrementAndGet();
+            return joined;
+        });
+    }
+
+    /**
+     * Read the body to the end, or only a bit over {@code maxCoalescedSize} when it is larger
+     */
+    private Body read(InputStream in) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            buffer.write(chunk, 0, read);
+            if (buffer.size() > maxCoalescedSize) {
+                return new Body(buffer.toByteArray(), null, false);
+            }
+            if (buffer.size() > maxInMemorySize) {
+                Path file = Files.createTempFile("minio-coalesced-", ".tmp");
+                long size = buffer.size();
+                try (OutputStream out = Files.newOutputStream(file)) {
+                    buffer.writeTo(out);
+                    while (size <= maxCoalescedSize && (read = in.read(chunk)) != -1) {
+                        out.write(chunk, 0, read);
+                        size += read;
+                    }
+                } catch (IOException e) {
+                    Files.deleteIfExists(file);
+                    throw e;
+                }
+                return new Body(null, file, size <= maxCoalescedSize);
+            }
+        }
+        return new Body(buffer.toByteArray(), null, true);
+    }
+
+    private static <T> T await(CompletableFuture<T> result) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for a coalesced request");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof ErrorResponseException) {
+                throw (ErrorResponseException) cause;
+            } else if (cause instanceof InvalidKeyException) {
+                throw (InvalidKeyException) cause;
+            } else if (cause instanceof InvalidResponseException) {
+                throw (InvalidResponseException) cause;
+            } else if (cause instanceof InsufficientDataException) {
+                throw (InsufficientDataException) cause;
+            } else if (cause instanceof NoSuchAlgorithmException) {
+                throw (NoSuchAlgorithmException) cause;
+            } else if (cause instanceof ServerException) {
+                throw (ServerException) cause;
+            } else if (cause instanceof InternalException) {
+                throw (InternalException) cause;
+            } else if (cause instanceof XmlParserException) {
+                throw (XmlParserException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException("coalesced request failed", cause);
+        }
+    }
+
+    /**
+     * Performs the actual request
+     */
+    @FunctionalInterface
+    public interface Request<T> {
+        T execute() throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException;
+    }
+
+    private static final class Flight<T> {
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final AtomicInteger waiters = new AtomicInteger();
+    }
+
+    /**
+     * Body read once, in memory or in a temporary file deleted when the last reader opened it
+     */
+    private static final class Body {
+        private final byte[] content;
+        private final Path file;
+        /**
+         * False when only the start of a body too large to share was read
+         */
+        private final boolean complete;
+        private final AtomicInteger unopened = new AtomicInteger();
+
+        private Body(byte[] content, Path file, boolean complete) {
+            this.content = content;
+            this.file = file;
+            this.complete = complete;
+        }
+
+        private void readers(int readers) {
+            unopened.set(readers);
+        }
+
+        private InputStream open() throws IOException {
+            if (content != null) {
+                return new ByteArrayInputStream(content);
+            }
+            try {
+                return Files.newInputStream(file);
+            } finally {
+                if (unopened.decrementAndGet() == 0) {
+                    delete();
+                }
+            }
+        }
+
+        private void delete() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // open streams may prevent the deletion on some platforms
+                log.debug("Could not delete {}", file, e);
+                file.toFile().deleteOnExit();
+            }
+        }
+    }
+}
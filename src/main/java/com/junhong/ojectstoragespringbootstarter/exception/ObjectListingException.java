@@ -0,0 +1,10 @@
+package com.junhong.ojectstoragespringbootstarter.exception;
+
+/**
+ * A page of a lazy object listing could not be fetched or parsed, the cause is the minio exception
+ */
+public class ObjectListingException extends RuntimeException {
+    public ObjectListingException(String bucket, Throwable cause) {
+        super("listing objects of bucket " + bucket + " failed: " + cause.getMessage(), cause);
+    }
+}
@@ -0,0 +1,207 @@
+package com.junhong.ojectstoragespringbootstarter.service;
+
+import com.junhong.ojectstoragespringbootstarter.connection.ExtendedMinioAsyncClient;
+import com.junhong.ojectstoragespringbootstarter.connection.InFlightLimiter;
+import com.junhong.ojectstoragespringbootstarter.connection.MinioConnectionFactory;
+import io.minio.ComposeObjectArgs;
+import io.minio.ComposeSource;
+import io.minio.CopyObjectArgs;
+import io.minio.CopySource;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.ListObjectsArgs;
+import io.minio.ListObjectsV2Response;
+import io.minio.ObjectWriteResponse;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.UploadObjectArgs;
+import io.minio.messages.Item;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Non-blocking Minio operation template.
+ * <p>
+ * Every operation returns immediately with a future completed on the http client's threads, so a single caller
+ * thread can keep many transfers in flight. At most {@code maxInFlight} requests run at once, the others wait
+ * in a queue without blocking their caller.
+ *
+ * @author jh
+ */
+public class AsyncMinioTemplate {
+    private final MinioConnectionFactory minioConnectionFactory;
+    private final InFlightLimiter limiter;
+    private final int maxInFlight;
+
+    public AsyncMinioTemplate(MinioConnectionFactory minioConnectionFactory, int maxInFlight) {
+        this.minioConnectionFactory = minioConnectionFactory;
+        this.limiter = new InFlightLimiter(maxInFlight);
+        this.maxInFlight = maxInFlight;
+    }
+
+    private ExtendedMinioAsyncClient connection() {
+        return minioConnectionFactory.getAsyncConnection();
+    }
+
+    /**
+     * @return requests currently running
+     */
+    public int inFlight() {
+        return limiter.inFlight();
+    }
+
+    /**
+     * @return requests waiting for a free slot
+     */
+    public int queued() {
+        return limiter.queued();
+    }
+
+    /**
+     * Object operations
+     * Returned stream must be closed after use to release network resources, the request keeps its slot until then.
+     */
+    public CompletableFuture<GetObjectResponse> getObject(String bucketName, String objectName) {
+        return limiter.submit(() -> connection().getObject(GetObjectArgs.builder().bucket(bucketName).object(objectName).build()),
+                AsyncMinioTemplate::releasingOnClose);
+    }
+
+    public CompletableFuture<GetObjectResponse> getObjectVersioned(String bucketName, String objectName, String versionId) {
+        return limiter.submit(() -> connection().getObject(GetObjectArgs.builder().bucket(bucketName).object(objectName).versionId(versionId).build()),
+                AsyncMinioTemplate::releasingOnClose);
+    }
+
+    public CompletableFuture<GetObjectResponse> getObjectByPart(String bucketName, String objectName, long offset, long length) {
+        return limiter.submit(() -> connection().getObject(GetObjectArgs.builder().bucket(bucketName).object(objectName).offset(offset).length(length).build()),
+                AsyncMinioTemplate::releasingOnClose);
+    }
+
+    /**
+     * The response, with a body that gives the slot of its request back when closed
+     */
+    private static GetObjectResponse releasingOnClose(GetObjectResponse response, Runnable release) {
+        return new GetObjectResponse(response.headers(), response.bucket(), response.region(), response.object(), new FilterInputStream(response) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    release.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * save object, the stream is read by the http client, it must stay open until the future completes
+     *
+     * @param bucketName
+     * @param objectName
+     * @param stream
+     * @param objectSize  -1 if unknown
+     * @param partSize    -1 to use the default part size, <B>Required</B> when the size is unknown
+     * @param contentType can be null
+     */
+    public CompletableFuture<ObjectWriteResponse> saveObject(String bucketName, String objectName, InputStream stream, long objectSize, long partSize, String contentType) {
+        return limiter.submit(() -> connection().putObject(PutObjectArgs.builder()
+                .bucket(bucketName)
+                .object(objectName)
+                .stream(stream, objectSize, partSize)
+                .contentType(contentType)
+                .build()));
+    }
+
+    public CompletableFuture<ObjectWriteResponse> uploadObject(String bucketName, String objectName, String filename, String contentType) {
+        return limiter.submit(() -> connection().uploadObject(UploadObjectArgs.builder()
+                .bucket(bucketName)
+                .object(objectName)
+                .filename(filename)
+                .contentType(contentType)
+                .build()));
+    }
+
+    /**
+     * get object stat info
+     */
+    public CompletableFuture<StatObjectResponse> getObjectInfo(String bucketName, String objectName) {
+        return limiter.submit(() -> connection().statObject(StatObjectArgs.builder().bucket(bucketName).object(objectName).build()));
+    }
+
+    /**
+     * Stat many objects, with as many stats in flight as this template allows
+     */
+    public CompletableFuture<BulkStatResult> getObjectInfos(String bucketName, Iterable<String> objectNames) {
+        return getObjectInfos(bucketName, objectNames, maxInFlight, null);
+    }
+
+    /**
+     * Stat many objects, the next key is taken from {@code objectNames} whenever a stat completes
+     *
+     * @param parallelism stats of this call in flight at most
+     * @param onResult    called with the outcome of every key as soon as it is known, may be null
+     * @return completes once every key was stat, missing and failed keys do not fail it
+     */
+    public CompletableFuture<BulkStatResult> getObjectInfos(String bucketName, Iterable<String> objectNames, int parallelism, Consumer<BulkStatResult.Entry> onResult) {
+        return new BulkStat(objectNames.iterator(), parallelism, objectName -> getObjectInfo(bucketName, objectName), onResult).start();
+    }
+
+    public CompletableFuture<StatObjectResponse> getVersionedObjectInfo(String bucketName, String objectName, String versionId) {
+        return limiter.submit(() -> connection().statObject(StatObjectArgs.builder().bucket(bucketName).object(objectName).versionId(versionId).build()));
+    }
+
+    public CompletableFuture<Void> removeObject(String bucketName, String objectName) {
+        return limiter.submit(() -> connection().removeObject(RemoveObjectArgs.builder().bucket(bucketName).object(objectName).build()));
+    }
+
+    public CompletableFuture<Void> removeVersionedObject(String bucketName, String objectName, String versionId) {
+        return limiter.submit(() -> connection().removeObject(RemoveObjectArgs.builder().bucket(bucketName).object(objectName).versionId(versionId).build()));
+    }
+
+    public CompletableFuture<ObjectWriteResponse> composeObject(String bucketName, String objectName, List<ComposeSource> composeSources) {
+        return limiter.submit(() -> connection().composeObject(ComposeObjectArgs.builder().bucket(bucketName).object(objectName).sources(composeSources).build()));
+    }
+
+    public CompletableFuture<ObjectWriteResponse> copyObject(String destBucket, String destObjectName, String srcBucket, String srcObjectName) {
+        return limiter.submit(() -> connection().copyObject(CopyObjectArgs.builder()
+                .bucket(destBucket)
+                .object(destObjectName)
+                .source(CopySource.builder().bucket(srcBucket).object(srcObjectName).build())
+                .build()));
+    }
+
+    /**
+     * Fetch one page of objects
+     *
+     * @param continuationToken token of the previous page, null for the first page
+     * @param maxKeys           page size, at most 1000
+     */
+    public CompletableFuture<ListObjectsV2Response> listObjectsPage(String bucketName, String prefix, boolean recursive, String continuationToken, int maxKeys) {
+        ListObjectsArgs args = ListObjectsArgs.builder().bucket(bucketName).prefix(prefix).recursive(recursive).maxKeys(maxKeys).build();
+        return limiter.submit(() -> connection().listObjectsPage(args, continuationToken));
+    }
+
+    /**
+     * List every object of a prefix, pages are fetched one after another without blocking the caller
+     */
+    public CompletableFuture<List<Item>> getAllObjectsByPrefix(String bucketName, String prefix, boolean recursive) {
+        return collectPages(bucketName, prefix, recursive, null, new ArrayList<>());
+    }
+
+    private CompletableFuture<List<Item>> collectPages(String bucketName, String prefix, boolean recursive, String continuationToken, List<Item> items) {
+        return listObjectsPage(bucketName, prefix, recursive, continuationToken, 1000).thenCompose(page -> {
+            items.addAll(ExtendedMinioAsyncClient.items(page.result()));
+            if (!page.result().isTruncated()) {
+                return CompletableFuture.completedFuture(items);
+            }
+            return collectPages(bucketName, prefix, recursive, page.result().nextContinuationToken(), items);
+        });
+    }
+}
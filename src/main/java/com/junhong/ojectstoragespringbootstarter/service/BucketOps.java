@@ -1,5 +1,6 @@
 package com.junhong.ojectstoragespringbootstarter.service;
 
+import com.junhong.ojectstoragespringbootstarter.cache.BucketRegistry;
 import com.junhong.ojectstoragespringbootstarter.connection.MinioConnectionFactory;
 import io.minio.BucketExistsArgs;
 import io.minio.CloseableIterator;
@@ -54,60 +55,124 @@ import java.util.Map;
 
 /**
  * Bucket operator
+ * <p>
+ * The {@code with*} methods return a configured copy that can be shared by every thread. The older setters still
+ * change the operator in place, they are deprecated.
  *
  * @author jh
  */
 public class BucketOps {
-    private Logger log = LoggerFactory.getLogger(BucketOps.class);
+    private final static Logger log = LoggerFactory.getLogger(BucketOps.class);
 
     private final MinioConnectionFactory minioConnectionFactory;
+    private final String bucket;
+    private volatile ObjectOptions options;
+    private final BucketRegistry registry;
 
-    private String bucket;
-    private ServerSideEncryption serverSideEncryption;
-    private String region;
-
-    private Map<String, String> extraHeaders;
+    public BucketOps(MinioConnectionFactory minioConnectionFactory) {
+        this(minioConnectionFactory, null, ObjectOptions.EMPTY);
+    }
 
-    private Map<String, String> extraQueryParams;
+    /**
+     * @param bucket  bucket to operate
+     * @param options region, extra headers and extra query params applied to every operation
+     */
+    public BucketOps(MinioConnectionFactory minioConnectionFactory, String bucket, ObjectOptions options) {
+        this(minioConnectionFactory, bucket, options, null);
+    }
 
-    public BucketOps(MinioConnectionFactory minioConnectionFactory) {
+    private BucketOps(MinioConnectionFactory minioConnectionFactory, String bucket, ObjectOptions options, BucketRegistry registry) {
         this.minioConnectionFactory = minioConnectionFactory;
+        this.bucket = bucket;
+        this.options = options == null ? ObjectOptions.EMPTY : options;
+        this.registry = registry;
     }
 
-    private BucketOps bucket(String bucketName) {
-        this.bucket = bucketName;
-        return this;
+    /**
+     * Copy of this operator for another bucket
+     */
+    public BucketOps withBucket(String bucketName) {
+        return new BucketOps(minioConnectionFactory, bucketName, options, registry);
+    }
+
+    public String bucket() {
+        return bucket;
+    }
+
+    public ObjectOptions options() {
+        return options;
+    }
+
+    /**
+     * Copy of this operator that answers {@link #bucketExists()} from the registry and refreshes it on changes
+     */
+    public BucketOps withRegistry(BucketRegistry registry) {
+        return new BucketOps(minioConnectionFactory, bucket, options, registry);
+    }
+
+    public BucketRegistry registry() {
+        return registry;
+    }
+
+    /**
+     * Copy of this operator with the given server side encryption
+     */
+    public BucketOps withSse(ServerSideEncryption serverSideEncryption) {
+        return new BucketOps(minioConnectionFactory, bucket, options.sse(serverSideEncryption), registry);
+    }
+
+    /**
+     * Copy of this operator with the given region
+     */
+    public BucketOps withRegion(String region) {
+        return new BucketOps(minioConnectionFactory, bucket, options.region(region), registry);
+    }
+
+    public BucketOps withExtraHeaders(Map<String, String> extraHeaders) {
+        return new BucketOps(minioConnectionFactory, bucket, options.extraHeaders(extraHeaders), registry);
+    }
+
+    public BucketOps withExtraQueryParams(Map<String, String> extraQueryParams) {
+        return new BucketOps(minioConnectionFactory, bucket, options.extraQueryParams(extraQueryParams), registry);
     }
 
     /**
      * Set bucket server side encryption to operate
      *
-     * @param serverSideEncryption
-     * @return
+     * @deprecated changes this operator for every thread sharing it, use {@link #withSse}
      */
+    @Deprecated
     public BucketOps sse(ServerSideEncryption serverSideEncryption) {
-        this.serverSideEncryption = serverSideEncryption;
+        options = options.sse(serverSideEncryption);
         return this;
     }
 
     /**
      * Set bucket region to operate
      *
-     * @param region
-     * @return
+     * @deprecated changes this operator for every thread sharing it, use {@link #withRegion}
      */
+    @Deprecated
     public BucketOps region(String region) {
-        this.region = region;
+        options = options.region(region);
         return this;
     }
 
-    public BucketOps extraHeaders(Map<String, String> extraHeaders){
-        this.extraHeaders = extraHeaders;
+    /**
+     * @deprecated changes this operator for every thread sharing it, use {@link #withExtraHeaders}
+     */
+    @Deprecated
+    public BucketOps extraHeaders(Map<String, String> extraHeaders) {
+        options = options.extraHeaders(extraHeaders);
         return this;
     }
 
-    public BucketOps extraQueryParams(Map<String, String> extraQueryParams){
-        this.extraQueryParams = extraQueryParams;
+    /**
+     * @deprecated changes this operator for every thread sharing it, use {@link #withExtraQueryParams}
+     */
+    @Deprecated
+    public BucketOps extraQueryParams(Map<String, String> extraQueryParams) {
+        options = options.extraQueryParams(extraQueryParams);
         return this;
     }
 
@@ -115,15 +180,21 @@ public class BucketOps {
         return minioConnectionFactory.getConnection();
     }
 
+    private void refresh() {
+        if (registry != null) {
+            registry.refresh(bucket);
+        }
+    }
+
     /**
      * check bucket exists
      */
     public boolean bucketExists() throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        return connection().bucketExists(BucketExistsArgs.builder()
-                .bucket(this.bucket)
-                .region(this.region)
-                .extraHeaders(this.extraHeaders)
-                .extraQueryParams(this.extraQueryParams)
+        if (registry != null && options.getExtraHeaders() == null && options.getExtraQueryParams() == null) {
+            return registry.exists(bucket);
+        }
+        return connection().bucketExists(options.applyTo(BucketExistsArgs.builder()
+                .bucket(this.bucket))
                 .build());
     }
 
@@ -131,12 +202,10 @@ public class BucketOps {
      * Deletes encryption configuration of a bucket.
      */
     public void deleteBucketEncryption() throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        connection().deleteBucketEncryption(DeleteBucketEncryptionArgs.builder()
-                .bucket(this.bucket)
-                .region(region)
-                .extraHeaders(this.extraHeaders)
-                .extraQueryParams(this.extraQueryParams)
+        connection().deleteBucketEncryption(options.applyTo(DeleteBucketEncryptionArgs.builder()
+                .bucket(this.bucket))
                 .build());
+        refresh();
     }
 
     /**
@@ -144,11 +213,8 @@ public class BucketOps {
      */
     public void deleteBucketLifeCycle() throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
 //        connection().getBucketLifeCycle(GetBucketLifeCycleArgs.builder()
-        connection().deleteBucketLifecycle(DeleteBucketLifecycleArgs.builder()
-                .bucket(this.bucket)
-                .region(this.region)
-                .extraHeaders(this.extraHeaders)
-                .extraQueryParams(this.extraQueryParams)
+        connection().deleteBucketLifecycle(options.applyTo(DeleteBucketLifecycleArgs.builder()
+                .bucket(this.bucket))
                 .build());
     }
 
@@ -156,11 +222,8 @@ public class BucketOps {
      * Deletes notification configuration of a bucket.
      */
     public void deleteBucketNotification() throws IOException, InvalidResponseException, InvalidKeyException, NoSuchAlgorithmException, ServerException, ErrorResponseException, XmlParserException , InsufficientDataException, InternalException {
-        connection().deleteBucketNotification(DeleteBucketNotificationArgs.builder()
-                .bucket(this.bucket)
-                .region(this.region)
-                .extraHeaders(this.extraHeaders)
-                .extraQueryParams(this.extraQueryParams)
+        connection().deleteBucketNotification(options.applyTo(DeleteBucketNotificationArgs.builder()
+                .bucket(this.bucket))
                 .build());
     }
 
@@ -168,11 +231,8 @@ public class BucketOps {
      * Deletes bucket policy configuration of a bucket.
      */
     public void deleteBucketPolicy() throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        connection().deleteBucketPolicy(DeleteBucketPolicyArgs.builder()
-                .bucket(this.bucket)
-                .region(this.region)
-                .extraHeaders(this.extraHeaders)
-                .extraQueryParams(this.extraQueryParams)
+        connection().deleteBucketPolicy(options.applyTo(DeleteBucketPolicyArgs.builder()
+                .bucket(this.bucket))
                 .build());
     }
 
@@ -180,11 +240,8 @@ public class BucketOps {
      * Deletes tags of a bucket.
      */
     public void deleteBucketTags() throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        connection().deleteBucketTags(DeleteBucketTagsArgs.builder()
-                .bucket(this.bucket)
-                .region(this.region)
-                .extraHeaders(this.extraHeaders)
-                .extraQueryParams(this.extraQueryParams)
+        connection().deleteBucketTags(options.applyTo(DeleteBucketTagsArgs.builder()
+                .bucket(this.bucket))
                 .build());
     }
 
@@ -230,11 +287,8 @@ public class BucketOps {
      * Gets encryption configuration of a bucket.
      */
     public SseConfiguration getBucketEncryption() throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        return connection().getBucketEncryption(GetBucketEncryptionArgs.builder()
-                .bucket(this.bucket)
-                .region(this.region)
-                .extraHeaders(this.extraHeaders)
-                .extraQueryParams(this.extraQueryParams)
+        return connection().getBucketEncryption(options.applyTo(GetBucketEncryptionArgs.builder()
+                .bucket(this.bucket))
                 .build());
     }
 
@@ -243,11 +297,8 @@ public class BucketOps {
      */
     public String getBucketLifeCycle() throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
 //        return connection().getBucketLifeCiycle(GetBucketLifeCycleArgs.builder()
-        return connection().getBucketLifecycle(GetBucketLifecycleArgs.builder()
-                .bucket(this.bucket)
-                .region(this.region)
-                .extraHeaders(this.extraHeaders)
-                .extraQueryParams(this.extraQueryParams)
+        return connection().getBucketLifecycle(options.applyTo(GetBucketLifecycleArgs.builder()
+                .bucket(this.bucket))
                 .build()).toString();
     }
 
@@ -255,11 +306,8 @@ public class BucketOps {
      * Gets notification configuration of a bucket.
      */
     public NotificationConfiguration getBucketNotification() throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        return connection().getBucketNotification(GetBucketNotificationArgs.builder()
-                .bucket(this.bucket)
-                .region(this.region)
-                .extraHeaders(this.extraHeaders)
-                .extraQueryParams(this.extraQueryParams)
+        return connection().getBucketNotification(options.applyTo(GetBucketNotificationArgs.builder()
+                .bucket(this.bucket))
                 .build());
     }
 
@@ -267,11 +315,8 @@ public class BucketOps {
      * Gets bucket policy configuration of a bucket.
      */
     public String getBucketPolicy() throws IOException, InvalidKeyException, InvalidResponseException, BucketPolicyTooLargeException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  InsufficientDataException, ErrorResponseException {
-        return connection().getBucketPolicy(GetBucketPolicyArgs.builder()
-                .bucket(this.bucket)
-                .region(this.region)
-                .extraHeaders(this.extraHeaders)
-                .extraQueryParams(this.extraQueryParams)
+        return connection().getBucketPolicy(options.applyTo(GetBucketPolicyArgs.builder()
+                .bucket(this.bucket))
                 .build());
     }
 
@@ -279,11 +324,8 @@ public class BucketOps {
      * Gets tags of a bucket.
      */
     public Tags getBucketTags() throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        return connection().getBucketTags(GetBucketTagsArgs.builder()
-                .bucket(this.bucket)
-                .region(this.region)
-                .extraHeaders(this.extraHeaders)
-                .extraQueryParams(this.extraQueryParams)
+        return connection().getBucketTags(options.applyTo(GetBucketTagsArgs.builder()
+                .bucket(this.bucket))
                 .build());
     }
 
@@ -335,14 +377,11 @@ public class BucketOps {
         if (objectSuffix == null) {
             objectSuffix = "";
         }
-        return connection().listenBucketNotification(ListenBucketNotificationArgs.builder()
+        return connection().listenBucketNotification(options.applyTo(ListenBucketNotificationArgs.builder()
                 .bucket(this.bucket)
-                .region(this.region)
-                .extraHeaders(this.extraHeaders)
-                .extraQueryParams(this.extraQueryParams)
                 .prefix(objectPrefix)
                 .suffix(objectSuffix)
-                .events(events)
+                .events(events))
                 .build());
     }
 //
@@ -391,37 +430,31 @@ public class BucketOps {
      * Creates a bucket with given region and object lock feature enabled.
      */
     public void makeBucket() throws IOException, InvalidKeyException, InvalidResponseException, InvalidKeyException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        connection().makeBucket(MakeBucketArgs.builder()
-                .bucket(this.bucket)
-                .region(this.region)
-                .extraHeaders(this.extraHeaders)
-                .extraQueryParams(this.extraQueryParams)
+        connection().makeBucket(options.applyTo(MakeBucketArgs.builder()
+                .bucket(this.bucket))
                 .build());
+        refresh();
     }
 
     /**
      * Creates a object-lock enabled bucket with given region and object lock feature enabled.
      */
     public void makeObjectLockEnabledBucket() throws IOException, InvalidKeyException, InvalidResponseException, InvalidKeyException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        connection().makeBucket(MakeBucketArgs.builder()
+        connection().makeBucket(options.applyTo(MakeBucketArgs.builder()
                 .bucket(this.bucket)
-                .region(this.region)
-                .extraHeaders(this.extraHeaders)
-                .objectLock(true)
-                .extraQueryParams(this.extraQueryParams)
+                .objectLock(true))
                 .build());
+        refresh();
     }
 
     /**
      * Removes an empty bucket.
      */
     public void removeBucket() throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        connection().removeBucket(RemoveBucketArgs.builder()
-                .bucket(this.bucket)
-                .region(this.region)
-                .extraHeaders(this.extraHeaders)
-                .extraQueryParams(this.extraQueryParams)
+        connection().removeBucket(options.applyTo(RemoveBucketArgs.builder()
+                .bucket(this.bucket))
                 .build());
+        refresh();
     }
 
 //    /**
@@ -457,13 +490,11 @@ public class BucketOps {
      * Sets encryption configuration of a bucket.
      */
     public void setBucketEncryption(SseConfiguration sseConfiguration) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        connection().setBucketEncryption(SetBucketEncryptionArgs.builder()
+        connection().setBucketEncryption(options.applyTo(SetBucketEncryptionArgs.builder()
                 .bucket(this.bucket)
-                .region(this.region)
-                .extraHeaders(this.extraHeaders)
-                .extraQueryParams(this.extraQueryParams)
-                .config(sseConfiguration)
+                .config(sseConfiguration))
                 .build());
+        refresh();
     }
 
     /**
@@ -492,12 +523,9 @@ public class BucketOps {
 //    }
 //    
     public void setBucketLifeCycle(LifecycleConfiguration config) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        connection().setBucketLifecycle(SetBucketLifecycleArgs.builder()
+        connection().setBucketLifecycle(options.applyTo(SetBucketLifecycleArgs.builder()
                 .bucket(this.bucket)
-                .region(this.region)
-                .extraHeaders(this.extraHeaders)
-                .extraQueryParams(this.extraQueryParams)
-                .config(config)
+                .config(config))
                 .build());
     }
 
@@ -505,12 +533,9 @@ public class BucketOps {
      * Sets notification configuration to a bucket.
      */
     public void setBucketNotification(NotificationConfiguration notification) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        connection().setBucketNotification(SetBucketNotificationArgs.builder()
+        connection().setBucketNotification(options.applyTo(SetBucketNotificationArgs.builder()
                 .bucket(this.bucket)
-                .region(this.region)
-                .extraHeaders(this.extraHeaders)
-                .extraQueryParams(this.extraQueryParams)
-                .config(notification)
+                .config(notification))
                 .build());
     }
 
@@ -555,12 +580,9 @@ public class BucketOps {
      * }
      */
     public void setBucketPolicy(String policyConfig) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        connection().setBucketPolicy(SetBucketPolicyArgs.builder()
+        connection().setBucketPolicy(options.applyTo(SetBucketPolicyArgs.builder()
                 .bucket(this.bucket)
-                .region(this.region)
-                .extraHeaders(this.extraHeaders)
-                .extraQueryParams(this.extraQueryParams)
-                .config(policyConfig)
+                .config(policyConfig))
                 .build());
     }
 
@@ -568,12 +590,9 @@ public class BucketOps {
      * Sets tags to a bucket.
      */
     public void setBucketTags(Map<String, String> tags) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        connection().setBucketTags(SetBucketTagsArgs.builder()
+        connection().setBucketTags(options.applyTo(SetBucketTagsArgs.builder()
                 .bucket(this.bucket)
-                .region(this.region)
-                .extraHeaders(this.extraHeaders)
-                .extraQueryParams(this.extraQueryParams)
-                .tags(tags)
+                .tags(tags))
                 .build());
     }
 
@@ -0,0 +1,127 @@
+package com.junhong.ojectstoragespringbootstarter.service;
+
+import com.junhong.ojectstoragespringbootstarter.cache.MissingObjectCache;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Stats the keys of an iterator with a window of at most {@code parallelism} requests in flight.
+ * <p>
+ * The iterator is only advanced when a slot frees up, so the keys are never all held in memory at once.
+ *
+ * @author jh
+ */
+final class BulkStat {
+    private final Iterator<String> objectNames;
+    private final int parallelism;
+    private final Function<String, CompletableFuture<StatObjectResponse>> stat;
+    private final Consumer<BulkStatResult.Entry> listener;
+    private final BulkStatResult.Builder result = new BulkStatResult.Builder();
+    private final CompletableFuture<BulkStatResult> done = new CompletableFuture<>();
+    private final AtomicInteger pumping = new AtomicInteger();
+    private int running;
+    private boolean exhausted;
+
+    BulkStat(Iterator<String> objectNames, int parallelism, Function<String, CompletableFuture<StatObjectResponse>> stat, Consumer<BulkStatResult.Entry> listener) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.objectNames = objectNames;
+        this.parallelism = parallelism;
+        this.stat = stat;
+        this.listener = listener;
+    }
+
+    CompletableFuture<BulkStatResult> start() {
+        pump();
+        return done;
+    }
+
+    /**
+     * Only one thread starts stats at a time, stats completing synchronously ask it for another pass
+     */
+    private void pump() {
+        if (pumping.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            String objectName;
+            while ((objectName = nextObjectName()) != null) {
+                String name = objectName;
+                CompletableFuture<StatObjectResponse> future;
+                try {
+                    future = stat.apply(name);
+                } catch (RuntimeException e) {
+                    future = CompletableFuture.failedFuture(e);
+                }
+                future.whenComplete((response, error) -> complete(name, response, error));
+            }
+        } while (pumping.decrementAndGet() != 0);
+    }
+
+    private synchronized String nextObjectName() {
+        if (exhausted || running >= parallelism || done.isDone()) {
+            return null;
+        }
+        try {
+            if (!objectNames.hasNext()) {
+                exhausted = true;
+                finishIfIdle();
+                return null;
+            }
+            running++;
+            return objectNames.next();
+        } catch (RuntimeException e) {
+            // a failing source ends the bulk stat, stats in flight are abandoned
+            done.completeExceptionally(e);
+            return null;
+        }
+    }
+
+    private void complete(String objectName, StatObjectResponse response, Throwable error) {
+        Throwable cause = unwrap(error);
+        BulkStatResult.Entry entry;
+        if (cause == null) {
+            entry = new BulkStatResult.Entry(objectName, response, null);
+        } else if (cause instanceof ErrorResponseException && MissingObjectCache.isNoSuchKey((ErrorResponseException) cause)) {
+            entry = new BulkStatResult.Entry(objectName, null, null);
+        } else {
+            entry = new BulkStatResult.Entry(objectName, null, cause);
+        }
+        result.add(entry);
+        try {
+            if (listener != null) {
+                listener.accept(entry);
+            }
+        } catch (RuntimeException e) {
+            done.completeExceptionally(e);
+        } finally {
+            synchronized (this) {
+                running--;
+                finishIfIdle();
+            }
+            pump();
+        }
+    }
+
+    private void finishIfIdle() {
+        if (exhausted && running == 0) {
+            done.complete(result.build());
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+}
@@ -0,0 +1,126 @@
+package com.junhong.ojectstoragespringbootstarter.service;
+
+import io.minio.StatObjectResponse;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Outcome of a bulk stat, every key asked for is either found, missing or failed.
+ * <p>
+ * Keys are kept in the order their stat completed.
+ *
+ * @author jh
+ */
+public final class BulkStatResult {
+    private final Map<String, StatObjectResponse> found;
+    private final Set<String> missing;
+    private final Map<String, Throwable> failed;
+
+    BulkStatResult(Map<String, StatObjectResponse> found, Set<String> missing, Map<String, Throwable> failed) {
+        this.found = Collections.unmodifiableMap(found);
+        this.missing = Collections.unmodifiableSet(missing);
+        this.failed = Collections.unmodifiableMap(failed);
+    }
+
+    /**
+     * @return stat of every existing object
+     */
+    public Map<String, StatObjectResponse> found() {
+        return found;
+    }
+
+    /**
+     * @return objects that do not exist
+     */
+    public Set<String> missing() {
+        return missing;
+    }
+
+    /**
+     * @return error of every stat that failed for another reason than a missing object
+     */
+    public Map<String, Throwable> failed() {
+        return failed;
+    }
+
+    public boolean hasFailures() {
+        return !failed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "BulkStatResult{found=" + found.size() + ", missing=" + missing.size() + ", failed=" + failed.size() + "}";
+    }
+
+    /**
+     * Outcome of the stat of one key, handed to listeners as soon as it completes
+     */
+    public static final class Entry {
+        private final String objectName;
+        private final StatObjectResponse stat;
+        private final Throwable error;
+
+        Entry(String objectName, StatObjectResponse stat, Throwable error) {
+            this.objectName = objectName;
+            this.stat = stat;
+            this.error = error;
+        }
+
+        public String objectName() {
+            return objectName;
+        }
+
+        public boolean isFound() {
+            return stat != null;
+        }
+
+        public boolean isMissing() {
+            return stat == null && error == null;
+        }
+
+        public boolean isFailed() {
+            return error != null;
+        }
+
+        /**
+         * @return stat of the object, null unless found
+         */
+        public StatObjectResponse stat() {
+            return stat;
+        }
+
+        /**
+         * @return why the stat failed, null unless failed
+         */
+        public Throwable error() {
+            return error;
+        }
+    }
+
+    /**
+     * Collects entries from concurrent stats
+     */
+    static final class Builder {
+        private final Map<String, StatObjectResponse> found = new LinkedHashMap<>();
+        private final Set<String> missing = new LinkedHashSet<>();
+        private final Map<String, Throwable> failed = new LinkedHashMap<>();
+
+        synchronized void add(Entry entry) {
+            if (entry.isFound()) {
+                found.put(entry.objectName(), entry.stat());
+            } else if (entry.isMissing()) {
+                missing.add(entry.objectName());
+            } else {
+                failed.put(entry.objectName(), entry.error());
+            }
+        }
+
+        synchronized BulkStatResult build() {
+            return new BulkStatResult(new LinkedHashMap<>(found), new LinkedHashSet<>(missing), new LinkedHashMap<>(failed));
+        }
+    }
+}
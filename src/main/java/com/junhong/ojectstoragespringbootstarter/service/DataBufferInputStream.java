@@ -0,0 +1,175 @@
+package com.junhong.ojectstoragespringbootstarter.service;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Blocking InputStream view of a DataBuffer publisher.
+ * <p>
+ * At most {@code prefetch} buffers are requested ahead of the reader, so a slow reader slows the publisher down
+ * instead of piling buffers up in memory.
+ * <p>
+ * Closing it before the publisher completed makes every later read fail, so a consumer that was cut off, an upload
+ * cancelled while in progress for instance, never mistakes the missing rest of the content for its end.
+ *
+ * @author jh
+ */
+class DataBufferInputStream extends InputStream implements Subscriber<DataBuffer> {
+    private static final Object COMPLETE = new Object();
+    private static final Object CLOSED = new Object();
+
+    private final int prefetch;
+    private final int replenishThreshold;
+    private final BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+    private volatile Subscription subscription;
+    private volatile boolean closed;
+    private DataBuffer current;
+    private int consumed;
+    private boolean done;
+    private Throwable failure;
+
+    DataBufferInputStream(int prefetch) {
+        this.prefetch = prefetch;
+        this.replenishThreshold = Math.max(1, prefetch / 2);
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(prefetch);
+    }
+
+    @Override
+    public void onNext(DataBuffer dataBuffer) {
+        if (closed) {
+            DataBufferUtils.release(dataBuffer);
+            return;
+        }
+        signals.add(dataBuffer);
+        // close() may have drained the queue between the check and the add
+        if (closed) {
+            drain();
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        signals.add(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        signals.add(COMPLETE);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int n = read(single, 0, 1);
+        return n == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (true) {
+            synchronized (this) {
+                if (failure != null) {
+                    throw new IOException("upstream publisher failed", failure);
+                }
+                if (closed && !done) {
+                    throw new IOException("stream closed before the content was read to the end");
+                }
+                if (current != null && current.readableByteCount() > 0) {
+                    int n = Math.min(len, current.readableByteCount());
+                    current.read(b, off, n);
+                    return n;
+                }
+                releaseCurrent();
+                if (done) {
+                    return -1;
+                }
+            }
+            // never wait while holding the lock, close() must be able to get it
+            Object signal;
+            try {
+                signal = signals.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting for data");
+            }
+            synchronized (this) {
+                if (closed) {
+                    if (signal instanceof DataBuffer) {
+                        DataBufferUtils.release((DataBuffer) signal);
+                    }
+                    continue;
+                }
+                if (signal == COMPLETE) {
+                    done = true;
+                } else if (signal instanceof Throwable) {
+                    failure = (Throwable) signal;
+                } else {
+                    current = (DataBuffer) signal;
+                    if (++consumed >= replenishThreshold) {
+                        subscription.request(consumed);
+                        consumed = 0;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Cancel the publisher and release the buffers. Safe to call from another thread than the reader: a reader
+     * waiting for data is woken up, and any read that did not already reach the end of the content fails from now on.
+     */
+    @Override
+    public void close() {
+        boolean cancel;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            cancel = !done && failure == null;
+            releaseCurrent();
+        }
+        Subscription s = subscription;
+        if (s != null && cancel) {
+            s.cancel();
+        }
+        drain();
+    }
+
+    private void releaseCurrent() {
+        if (current != null) {
+            DataBufferUtils.release(current);
+            current = null;
+        }
+    }
+
+    /**
+     * Release the buffers queued, safe to call from the reader and the publisher at once since each is polled once.
+     * Ends with the {@code CLOSED} signal, so a reader waiting for data always finds something to wake up to.
+     */
+    private void drain() {
+        Object signal;
+        while ((signal = signals.poll()) != null) {
+            if (signal instanceof DataBuffer) {
+                DataBufferUtils.release((DataBuffer) signal);
+            }
+        }
+        signals.add(CLOSED);
+    }
+}
@@ -17,7 +17,9 @@
 package com.junhong.ojectstoragespringbootstarter.service;
 
 
+import com.junhong.ojectstoragespringbootstarter.cache.ObjectMetadataCache;
 import com.junhong.ojectstoragespringbootstarter.config.MinioProperties;
+import com.junhong.ojectstoragespringbootstarter.exception.ObjectListingException;
 import io.minio.DownloadObjectArgs;
 import io.minio.GetObjectArgs;
 import io.minio.ListObjectsArgs;
@@ -37,10 +39,14 @@ import org.springframework.stereotype.Service;
 import java.io.File;
 import java.io.InputStream;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 
@@ -62,12 +68,32 @@ public class MinioService {
 //        this.configurationProperties = configurationProperties;
 //    }
     
+    private ObjectMetadataCache metadataCache;
+
+    private AsyncMinioTemplate asyncMinioTemplate;
+
     @Autowired
     public MinioService(MinioClient minioClient, MinioProperties configurationProperties) {
         this.minioClient = minioClient;
         this.configurationProperties = configurationProperties;
     }
 
+    /**
+     * Serve {@code getMetadata} from the cache, invalidated by the uploads and removals of this service
+     */
+    @Autowired(required = false)
+    public void setMetadataCache(ObjectMetadataCache metadataCache) {
+        this.metadataCache = metadataCache;
+    }
+
+    /**
+     * Run {@code getMetadataResult} concurrently
+     */
+    @Autowired(required = false)
+    public void setAsyncMinioTemplate(AsyncMinioTemplate asyncMinioTemplate) {
+        this.asyncMinioTemplate = asyncMinioTemplate;
+    }
+
     /**
      * List all objects at root of the bucket
      *
@@ -130,24 +156,68 @@ public class MinioService {
         return getItems(myObjects);
     }
 
+    /**
+     * Stream all objects at root of the bucket, pages are fetched as the stream is consumed
+     *
+     * @return Lazy stream of items
+     */
+    public Stream<Item> stream() {
+        return stream(Paths.get(""));
+    }
+
+    /**
+     * Stream all objects of the bucket, pages are fetched as the stream is consumed
+     *
+     * @return Lazy stream of items
+     */
+    public Stream<Item> fullStream() {
+        return getFullStream(Paths.get(""));
+    }
+
+    /**
+     * Stream objects with the prefix given in parameter, objects within folders are not returned
+     *
+     * @param path Prefix of seeked list of object
+     * @return Lazy stream of items
+     */
+    public Stream<Item> stream(Path path) {
+        ListObjectsArgs args = ListObjectsArgs.builder()
+                .bucket(configurationProperties.getBucket())
+                .prefix(path.toString())
+                .recursive(false)
+                .build();
+        return ObjectListing.stream(configurationProperties.getBucket(), minioClient.listObjects(args));
+    }
+
+    /**
+     * Stream all objects with the prefix given in parameter, even those which are in a folder
+     *
+     * @param path          Prefix of seeked list of object
+     * @param prefetchPages Pages fetched ahead of the consumer by a background thread, close the stream when it is not consumed to the end
+     * @return Lazy stream of items
+     */
+    public Stream<Item> getFullStream(Path path, int prefetchPages) {
+        ListObjectsArgs args = ListObjectsArgs.builder()
+                .bucket(configurationProperties.getBucket())
+                .prefix(path.toString())
+                .recursive(true)
+                .build();
+        return ObjectListing.stream(configurationProperties.getBucket(), minioClient.listObjects(args), prefetchPages, ObjectListing.PAGE_SIZE);
+    }
+
+    public Stream<Item> getFullStream(Path path) {
+        return getFullStream(path, 0);
+    }
+
     /**
      * Utility method which map results to items and return a list
      *
      * @param myObjects Iterable of results
      * @return List of items
+     * @throws ObjectListingException if a page of the listing fails
      */
     private List<Item> getItems(Iterable<Result<Item>> myObjects) {
-        return StreamSupport
-            .stream(myObjects.spliterator(), true)
-            .map(itemResult -> {
-                try {
-                    return itemResult.get();
-                } catch (Exception e) {
-                    e.printStackTrace();
-//                    throw new MinioException("Error while parsing list of objects", e.getMessage());
-                }
-                return null;
-            })
+        return ObjectListing.stream(configurationProperties.getBucket(), myObjects)
             .collect(Collectors.toList());
     }
 
@@ -183,7 +253,7 @@ public class MinioService {
                     .bucket(configurationProperties.getBucket())
                     .object(path.toString())
                     .build();
-            return minioClient.statObject(args);
+            return stat(args);
         } catch (Exception e) {
             throw new MinioException("Error while fetching files in Minio", e.getMessage());
         }
@@ -193,24 +263,58 @@ public class MinioService {
      * Get metadata for multiples objects from Minio
      *
      * @param paths Paths of all objects with prefix. Objects names must be included.
-     * @return A map where all paths are keys and metadatas are values
+     * @return A map where the paths of existing objects are keys and metadatas are values, missing objects and
+     * failed stats are left out
      */
     public Map<Path, StatObjectResponse> getMetadata(Iterable<Path> paths) {
-        return StreamSupport.stream(paths.spliterator(), false)
-            .map(path -> {
+        // the paths are walked once, a one-shot iterable would be empty the second time
+        Map<String, Path> asked = Collections.synchronizedMap(new LinkedHashMap<>());
+        BulkStatResult result = getMetadataResult(paths, asked);
+        Map<Path, StatObjectResponse> metadata = new LinkedHashMap<>();
+        for (Map.Entry<String, Path> entry : asked.entrySet()) {
+            StatObjectResponse stat = result.found().get(entry.getKey());
+            if (stat != null) {
+                metadata.put(entry.getValue(), stat);
+            }
+        }
+        return metadata;
+    }
+
+    /**
+     * Get metadata for multiples objects from Minio, separating found, missing and failed objects.
+     * <p>
+     * With an {@link AsyncMinioTemplate} available the stats run concurrently, otherwise one after another.
+     *
+     * @param paths Paths of all objects with prefix. Objects names must be included.
+     */
+    public BulkStatResult getMetadataResult(Iterable<Path> paths) {
+        return getMetadataResult(paths, null);
+    }
+
+    private BulkStatResult getMetadataResult(Iterable<Path> paths, Map<String, Path> asked) {
+        Iterable<String> objectNames = () -> StreamSupport.stream(paths.spliterator(), false).map(path -> {
+            String objectName = path.toString();
+            if (asked != null) {
+                asked.put(objectName, path);
+            }
+            return objectName;
+        }).iterator();
+        CompletableFuture<BulkStatResult> result;
+        if (asyncMinioTemplate != null) {
+            result = asyncMinioTemplate.getObjectInfos(configurationProperties.getBucket(), objectNames);
+        } else {
+            result = new BulkStat(objectNames.iterator(), 1, objectName -> {
                 try {
-                    StatObjectArgs args = StatObjectArgs.builder()
+                    return CompletableFuture.completedFuture(stat(StatObjectArgs.builder()
                             .bucket(configurationProperties.getBucket())
-                            .object(path.toString())
-                            .build();
-                    return new HashMap.SimpleEntry<>(path, minioClient.statObject(args));
+                            .object(objectName)
+                            .build()));
                 } catch (Exception e) {
-                    e.printStackTrace();
-//                    throw new MinioException("Error while parsing list of objects", e.getMessage());
+                    return CompletableFuture.failedFuture(e);
                 }
-                return null;
-            })
-            .collect(Collectors.toMap(pathStatObjectResponseSimpleEntry -> pathStatObjectResponseSimpleEntry != null ? pathStatObjectResponseSimpleEntry.getKey() : null, pathStatObjectResponseSimpleEntry1 -> pathStatObjectResponseSimpleEntry1 != null ? pathStatObjectResponseSimpleEntry1.getValue() : null));
+            }, null).start();
+        }
+        return result.join();
     }
 
     /**
@@ -251,6 +355,7 @@ public class MinioService {
                     .headers(headers)
                     .build();
             minioClient.putObject(args);
+            invalidate(source);
         } catch (Exception e) {
             throw new MinioException("Error while fetching files in Minio", e.getMessage());
         }
@@ -272,6 +377,7 @@ public class MinioService {
                     .stream(file, file.available(), -1)
                     .build();
             minioClient.putObject(args);
+            invalidate(source);
         } catch (Exception e) {
             throw new MinioException("Error while fetching files in Minio", e.getMessage());
         }
@@ -298,6 +404,7 @@ public class MinioService {
                     .build();
 
             minioClient.putObject(args);
+            invalidate(source);
         } catch (Exception e) {
             throw new MinioException("Error while fetching files in Minio", e.getMessage());
         }
@@ -322,6 +429,7 @@ public class MinioService {
                     .build();
 
             minioClient.putObject(args);
+            invalidate(source);
         } catch (Exception e) {
             throw new MinioException("Error while fetching files in Minio", e.getMessage());
         }
@@ -343,6 +451,7 @@ public class MinioService {
                     .filename(file.getAbsolutePath())
                     .build();
             minioClient.uploadObject(args);
+            invalidate(source);
         } catch (Exception e) {
             throw new MinioException("Error while fetching files in Minio", e.getMessage());
         }
@@ -362,9 +471,22 @@ public class MinioService {
                     .object(source.toString())
                     .build();
             minioClient.removeObject(args);
+            invalidate(source);
         } catch (Exception e) {
             throw new MinioException("Error while fetching files in Minio", e.getMessage());
         }
     }
 
+    private StatObjectResponse stat(StatObjectArgs args) throws Exception {
+        if (metadataCache == null) {
+            return minioClient.statObject(args);
+        }
+        return metadataCache.get(args.bucket(), args.object(), args.versionId(), () -> minioClient.statObject(args));
+    }
+
+    private void invalidate(Path source) {
+        if (metadataCache != null) {
+            metadataCache.invalidate(configurationProperties.getBucket(), source.toString());
+        }
+    }
 }
@@ -1,6 +1,15 @@
 package com.junhong.ojectstoragespringbootstarter.service;
 
+import com.google.common.io.CountingInputStream;
+import com.junhong.ojectstoragespringbootstarter.cache.BucketRegistry;
+import com.junhong.ojectstoragespringbootstarter.cache.MissingObjectCache;
+import com.junhong.ojectstoragespringbootstarter.cache.ObjectContentCache;
+import com.junhong.ojectstoragespringbootstarter.cache.ObjectKeyIndex;
+import com.junhong.ojectstoragespringbootstarter.cache.ObjectMetadataCache;
+import com.junhong.ojectstoragespringbootstarter.cache.OffHeapObjectCache;
+import com.junhong.ojectstoragespringbootstarter.cache.PresignedUrlCache;
 import com.junhong.ojectstoragespringbootstarter.connection.MinioConnectionFactory;
+import com.junhong.ojectstoragespringbootstarter.connection.RequestCoalescer;
 import com.junhong.ojectstoragespringbootstarter.exception.MinioBadRequestException;
 import io.minio.BucketExistsArgs;
 import io.minio.ComposeObjectArgs;
@@ -17,8 +26,10 @@ import io.minio.RemoveObjectArgs;
 import io.minio.RemoveObjectsArgs;
 import io.minio.Result;
 import io.minio.ServerSideEncryption;
+import io.minio.SnowballObject;
 import io.minio.StatObjectArgs;
 import io.minio.StatObjectResponse;
+import io.minio.UploadSnowballObjectsArgs;
 import io.minio.errors.ErrorResponseException;
 import io.minio.errors.InsufficientDataException;
 import io.minio.errors.InternalException;
@@ -36,14 +47,19 @@ import org.slf4j.LoggerFactory;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Minio operation template
@@ -53,9 +69,101 @@ import java.util.stream.Collectors;
 public class MinioTemplate {
     private final static Logger log = LoggerFactory.getLogger(MinioTemplate.class);
     private final MinioConnectionFactory minioConnectionFactory;
+    private final ObjectMetadataCache metadataCache;
+    private final ObjectContentCache contentCache;
+    private final OffHeapObjectCache offHeapCache;
+    private final PresignedUrlCache presignedUrlCache;
+    private final BucketRegistry bucketRegistry;
+    private final ObjectKeyIndex keyIndex;
+    private final MissingObjectCache missingObjectCache;
+    private final RequestCoalescer requestCoalescer;
 
     public MinioTemplate(MinioConnectionFactory minioConnectionFactory) {
+        this(minioConnectionFactory, null, null, null, null, null, null, null, null);
+    }
+
+    private MinioTemplate(MinioConnectionFactory minioConnectionFactory, ObjectMetadataCache metadataCache, ObjectContentCache contentCache,
+                          OffHeapObjectCache offHeapCache, PresignedUrlCache presignedUrlCache, BucketRegistry bucketRegistry,
+                          ObjectKeyIndex keyIndex, MissingObjectCache missingObjectCache, RequestCoalescer requestCoalescer) {
         this.minioConnectionFactory = minioConnectionFactory;
+        this.metadataCache = metadataCache;
+        this.contentCache = contentCache;
+        this.offHeapCache = offHeapCache;
+        this.presignedUrlCache = presignedUrlCache;
+        this.bucketRegistry = bucketRegistry;
+        this.keyIndex = keyIndex;
+        this.missingObjectCache = missingObjectCache;
+        this.requestCoalescer = requestCoalescer;
+    }
+
+    /**
+     * Copy of this template that serves {@code getObjectInfo} from the cache, invalidated by the writes and removals
+     * of this template
+     *
+     * @param metadataCache null to ask the server every time
+     */
+    public MinioTemplate withMetadataCache(ObjectMetadataCache metadataCache) {
+        return new MinioTemplate(minioConnectionFactory, metadataCache, contentCache, offHeapCache, presignedUrlCache, bucketRegistry, keyIndex, missingObjectCache, requestCoalescer);
+    }
+
+    /**
+     * Copy of this template that serves {@code getObject} of the latest version from the cache
+     */
+    public MinioTemplate withContentCache(ObjectContentCache contentCache) {
+        return new MinioTemplate(minioConnectionFactory, metadataCache, contentCache, offHeapCache, presignedUrlCache, bucketRegistry, keyIndex, missingObjectCache, requestCoalescer);
+    }
+
+    /**
+     * Copy of this template that serves {@code getObject} of small objects from the cache ahead of the content cache,
+     * invalidated by the writes and removals of this template
+     */
+    public MinioTemplate withOffHeapCache(OffHeapObjectCache offHeapCache) {
+        return new MinioTemplate(minioConnectionFactory, metadataCache, contentCache, offHeapCache, presignedUrlCache, bucketRegistry, keyIndex, missingObjectCache, requestCoalescer);
+    }
+
+    /**
+     * Copy of this template that hands out the URLs of {@code getObjectURL} again while they are valid long enough
+     */
+    public MinioTemplate withPresignedUrlCache(PresignedUrlCache presignedUrlCache) {
+        return new MinioTemplate(minioConnectionFactory, metadataCache, contentCache, offHeapCache, presignedUrlCache, bucketRegistry, keyIndex, missingObjectCache, requestCoalescer);
+    }
+
+    /**
+     * Copy of this template that answers {@code createBucket} and {@code getBucket} from cached bucket lookups
+     */
+    public MinioTemplate withBucketRegistry(BucketRegistry bucketRegistry) {
+        return new MinioTemplate(minioConnectionFactory, metadataCache, contentCache, offHeapCache, presignedUrlCache, bucketRegistry, keyIndex, missingObjectCache, requestCoalescer);
+    }
+
+    /**
+     * Copy of this template that answers {@code getAllObjectsByPrefix} of the indexed buckets while they are ready,
+     * and records its writes and removals in the index
+     */
+    public MinioTemplate withKeyIndex(ObjectKeyIndex keyIndex) {
+        return new MinioTemplate(minioConnectionFactory, metadataCache, contentCache, offHeapCache, presignedUrlCache, bucketRegistry, keyIndex, missingObjectCache, requestCoalescer);
+    }
+
+    /**
+     * Copy of this template that answers {@code findObjectInfo} and {@code findObject} of recently missing objects
+     * from the cache, invalidated by the writes of this template
+     */
+    public MinioTemplate withMissingObjectCache(MissingObjectCache missingObjectCache) {
+        return new MinioTemplate(minioConnectionFactory, metadataCache, contentCache, offHeapCache, presignedUrlCache, bucketRegistry, keyIndex, missingObjectCache, requestCoalescer);
+    }
+
+    /**
+     * Copy of this template that shares one request among concurrent {@code getObject} or {@code getObjectInfo}
+     * calls of the same object that miss the caches
+     */
+    public MinioTemplate withRequestCoalescer(RequestCoalescer requestCoalescer) {
+        return new MinioTemplate(minioConnectionFactory, metadataCache, contentCache, offHeapCache, presignedUrlCache, bucketRegistry, keyIndex, missingObjectCache, requestCoalescer);
+    }
+
+    /**
+     * @return the metadata cache, null when metadata is not cached
+     */
+    public ObjectMetadataCache getMetadataCache() {
+        return metadataCache;
     }
 
     /**
@@ -64,6 +172,13 @@ public class MinioTemplate {
 
     public void createBucket(String bucketName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
         MinioClient client = minioConnectionFactory.getConnection();
+        if (bucketRegistry != null) {
+            if (!bucketRegistry.exists(bucketName)) {
+                client.makeBucket(MakeBucketArgs.builder().bucket(bucketName).build());
+                bucketRegistry.refresh(bucketName);
+            }
+            return;
+        }
         if (!client.bucketExists(BucketExistsArgs.builder().bucket(bucketName).build())) {
             client.makeBucket(MakeBucketArgs.builder().bucket(bucketName).build());
         }
@@ -74,14 +189,23 @@ public class MinioTemplate {
     }
 
     public Optional<Bucket> getBucket(String bucketName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
+        if (bucketRegistry != null) {
+            return bucketRegistry.bucket(bucketName);
+        }
         return minioConnectionFactory.getConnection().listBuckets().stream().filter(b -> b.name().equals(bucketName)).findFirst();
     }
 
     public void removeBucket(String bucketName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
         minioConnectionFactory.getConnection().removeBucket(RemoveBucketArgs.builder().bucket(bucketName).build());
+        if (bucketRegistry != null) {
+            bucketRegistry.refresh(bucketName);
+        }
     }
 
     public List<Item> getAllObjectsByPrefix(String bucketName, String prefix, boolean recursive) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
+        if (keyIndex != null && keyIndex.isReady(bucketName)) {
+            return keyIndex.list(bucketName, prefix, recursive);
+        }
         List<Item> objectList = new ArrayList();
         Iterable<Result<Item>> objectsIterator = minioConnectionFactory.getConnection().listObjects(ListObjectsArgs.builder().bucket(bucketName).recursive(recursive).prefix(prefix).build());
         for (Result<Item> itemResult : objectsIterator) {
@@ -90,13 +214,50 @@ public class MinioTemplate {
         return objectList;
     }
 
+    /**
+     * List objects lazily, a page is only requested once the previous one is consumed
+     */
+    public Stream<Item> streamObjectsByPrefix(String bucketName, String prefix, boolean recursive) {
+        return streamObjectsByPrefix(bucketName, prefix, recursive, 0);
+    }
+
+    /**
+     * List objects lazily with pages fetched ahead of the consumer
+     *
+     * @param prefetchPages pages fetched ahead by a background thread, close the stream when it is not consumed to the end
+     */
+    public Stream<Item> streamObjectsByPrefix(String bucketName, String prefix, boolean recursive, int prefetchPages) {
+        Iterable<Result<Item>> results = minioConnectionFactory.getConnection().listObjects(ListObjectsArgs.builder().bucket(bucketName).recursive(recursive).prefix(prefix).build());
+        return ObjectListing.stream(bucketName, results, prefetchPages, ObjectListing.PAGE_SIZE);
+    }
+
     /**
      * Object operations
      */
     public InputStream getObject(String bucketName, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException,  ErrorResponseException, InvalidResponseException {
+        if (requestCoalescer != null) {
+            return requestCoalescer.getObject(bucketName, objectName, () -> loadObject(bucketName, objectName));
+        }
+        return loadObject(bucketName, objectName);
+    }
+
+    private InputStream loadObject(String bucketName, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException,  ErrorResponseException {
+        if (offHeapCache != null) {
+            return offHeapCache.getObject(bucketName, objectName);
+        }
+        if (contentCache != null) {
+            return contentCache.getObject(bucketName, objectName);
+        }
         return minioConnectionFactory.getConnection().getObject(GetObjectArgs.builder().bucket(bucketName).object(objectName).build());
     }
 
+    /**
+     * Content of an object, empty when it does not exist
+     */
+    public Optional<InputStream> findObject(String bucketName, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException,  ErrorResponseException {
+        return find(bucketName, objectName, () -> getObject(bucketName, objectName));
+    }
+
     public InputStream getObjectVersioned(String bucketName, String objectName, String versionId) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, ServerException, InternalException, NoSuchAlgorithmException, XmlParserException,  ErrorResponseException {
         return minioConnectionFactory.getConnection().getObject(GetObjectArgs.builder().bucket(bucketName).object(objectName).versionId(versionId).build());
     }
@@ -113,6 +274,10 @@ public class MinioTemplate {
      * Object operations
      */
     public String getObjectURL(String bucketName, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException,  ServerException, InternalException, NoSuchAlgorithmException, XmlParserException,  ErrorResponseException {
+        if (presignedUrlCache != null) {
+            return presignedUrlCache.get(bucketName, objectName, null, Method.GET, Presigner.MAX_EXPIRY_SECONDS, () ->
+                    minioConnectionFactory.getConnection().getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder().bucket(bucketName).object(objectName).method(Method.GET).build()));
+        }
         return minioConnectionFactory.getConnection().getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder().bucket(bucketName).object(objectName).method(Method.GET).build());
     }
 
@@ -120,6 +285,10 @@ public class MinioTemplate {
      * Object operations
      */
     public String getObjectURL(String bucketName, String objectName, Integer expires) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException,  ServerException, InternalException, NoSuchAlgorithmException, XmlParserException,  ErrorResponseException {
+        if (presignedUrlCache != null) {
+            return presignedUrlCache.get(bucketName, objectName, null, Method.GET, expires, () ->
+                    minioConnectionFactory.getConnection().getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder().bucket(bucketName).method(Method.GET).object(objectName).expiry(expires).build()));
+        }
         return minioConnectionFactory.getConnection().getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder().bucket(bucketName).method(Method.GET).object(objectName).expiry(expires).build());
     }
 
@@ -152,6 +321,25 @@ public class MinioTemplate {
         return saveObject(bucketName, objectName, stream, -1, partSize, contentType);
     }
 
+    /**
+     * save many small objects with one request, the server extracts them from a tar stream
+     *
+     * @param bucketName
+     * @param objects     built in memory, use {@code SnowballUploader} for large or many batches
+     * @param compression snappy compress the tar
+     */
+    public ObjectWriteResponse saveSnowballObjects(String bucketName, List<SnowballObject> objects, boolean compression) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
+        ObjectWriteResponse response = minioConnectionFactory.getConnection().uploadSnowballObjects(UploadSnowballObjectsArgs.builder()
+                .bucket(bucketName)
+                .objects(objects)
+                .compression(compression)
+                .build());
+        for (SnowballObject object : objects) {
+            written(bucketName, object.name(), object.filename() == null ? object.size() : Files.size(Paths.get(object.filename())), null);
+        }
+        return response;
+    }
+
     /**
      * create folder or directory
      *
@@ -176,13 +364,17 @@ public class MinioTemplate {
      * @param contentType object content type, for example: 'mp4', 'jpg', etc.  can be null if save folder or directory
      */
     public ObjectWriteResponse saveObject(String bucketName, String objectName, InputStream stream, long objectSize, long partSize, String contentType) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
+        // an unknown size is read to the end, the count is the size for the key index
+        CountingInputStream counted = new CountingInputStream(stream);
         PutObjectArgs putObjectArgs = PutObjectArgs.builder()
                 .bucket(bucketName)
                 .object(objectName)
-                .stream(stream, objectSize, partSize)
+                .stream(counted, objectSize, partSize)
                 .contentType(contentType)
                 .build();
-        return minioConnectionFactory.getConnection().putObject(putObjectArgs);
+        ObjectWriteResponse response = minioConnectionFactory.getConnection().putObject(putObjectArgs);
+        written(bucketName, objectName, objectSize < 0 ? counted.getCount() : objectSize, response.etag());
+        return response;
     }
 
     /**
@@ -198,14 +390,16 @@ public class MinioTemplate {
      * @param userMetadata
      */
     public void saveObjectExtra(String bucketName, String objectName, InputStream stream, long objectSize, long partSize, Map<String, String> headers, String contentType, Map<String, String> userMetadata) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
+        CountingInputStream counted = new CountingInputStream(stream);
         PutObjectArgs putObjectArgs = PutObjectArgs.builder()
                 .bucket(bucketName)
                 .object(objectName)
-                .stream(stream, objectSize, partSize)
+                .stream(counted, objectSize, partSize)
                 .headers(headers)
                 .userMetadata(userMetadata)
                 .build();
-        minioConnectionFactory.getConnection().putObject(putObjectArgs);
+        ObjectWriteResponse response = minioConnectionFactory.getConnection().putObject(putObjectArgs);
+        written(bucketName, objectName, objectSize < 0 ? counted.getCount() : objectSize, response.etag());
     }
 
     /**
@@ -222,15 +416,17 @@ public class MinioTemplate {
      * @param serverSideEncryption
      */
     public void saveObjectExtraWithSSE(String bucketName, String objectName, InputStream stream, long objectSize, long partSize, Map<String, String> headers, String contentType, Map<String, String> userMetadata, ServerSideEncryption serverSideEncryption) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
+        CountingInputStream counted = new CountingInputStream(stream);
         PutObjectArgs putObjectArgs = PutObjectArgs.builder()
                 .bucket(bucketName)
                 .object(objectName)
-                .stream(stream, objectSize, partSize)
+                .stream(counted, objectSize, partSize)
                 .headers(headers)
                 .userMetadata(userMetadata)
                 .sse(serverSideEncryption)
                 .build();
-        minioConnectionFactory.getConnection().putObject(putObjectArgs);
+        ObjectWriteResponse response = minioConnectionFactory.getConnection().putObject(putObjectArgs);
+        written(bucketName, objectName, objectSize < 0 ? counted.getCount() : objectSize, response.etag());
     }
 
     /**
@@ -241,7 +437,19 @@ public class MinioTemplate {
      * @return
      */
     public StatObjectResponse getObjectInfo(String bucketName, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        return minioConnectionFactory.getConnection().statObject(StatObjectArgs.builder().bucket(bucketName).object(objectName).build());
+        ObjectMetadataCache.Loader stat = () -> minioConnectionFactory.getConnection().statObject(StatObjectArgs.builder().bucket(bucketName).object(objectName).build());
+        ObjectMetadataCache.Loader loader = requestCoalescer == null ? stat : () -> requestCoalescer.stat(bucketName, objectName, stat::load);
+        if (metadataCache == null) {
+            return loader.load();
+        }
+        return metadataCache.get(bucketName, objectName, null, loader);
+    }
+
+    /**
+     * get object stat info, empty when the object does not exist
+     */
+    public Optional<StatObjectResponse> findObjectInfo(String bucketName, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
+        return find(bucketName, objectName, () -> getObjectInfo(bucketName, objectName));
     }
 
     /**
@@ -252,15 +460,26 @@ public class MinioTemplate {
      * @return
      */
     public StatObjectResponse getVersionedObjectInfo(String bucketName, String objectName, String versionId) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        return minioConnectionFactory.getConnection().statObject(StatObjectArgs.builder().bucket(bucketName).object(objectName).versionId(versionId).build());
+        if (metadataCache == null) {
+            return minioConnectionFactory.getConnection().statObject(StatObjectArgs.builder().bucket(bucketName).object(objectName).versionId(versionId).build());
+        }
+        return metadataCache.get(bucketName, objectName, versionId,
+                () -> minioConnectionFactory.getConnection().statObject(StatObjectArgs.builder().bucket(bucketName).object(objectName).versionId(versionId).build()));
     }
 
     public void removeObject(String bucketName, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
         minioConnectionFactory.getConnection().removeObject(RemoveObjectArgs.builder().bucket(bucketName).object(objectName).build());
+        removed(bucketName, objectName);
     }
 
     public void removeVersionedObject(String bucketName, String objectName, String versionId) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
         minioConnectionFactory.getConnection().removeObject(RemoveObjectArgs.builder().bucket(bucketName).object(objectName).versionId(versionId).build());
+        if (metadataCache != null) {
+            metadataCache.invalidate(bucketName, objectName, versionId);
+        }
+        if (offHeapCache != null) {
+            offHeapCache.invalidate(bucketName, objectName);
+        }
     }
 
     /**
@@ -275,10 +494,59 @@ public class MinioTemplate {
         Iterable<Result<DeleteError>> results = minioConnectionFactory.getConnection().removeObjects(RemoveObjectsArgs.builder().bucket(bucketName).objects(objects).build());
         List<String> errorDeleteObjects = new ArrayList<>();
         for (Result<DeleteError> result : results) {
-            errorDeleteObjects.add(result.get().objectName());
-            log.error("Error in deleting object {}:{}, code={}, message={}", bucketName, result.get().objectName(), result.get().code(), result.get().message());
+            DeleteError error = result.get();
+            errorDeleteObjects.add(error.objectName());
+            log.error("Error in deleting object {}:{}, code={}, message={}", bucketName, error.objectName(), error.code(), error.message());
+        }
+        Set<String> failed = new HashSet<>(errorDeleteObjects);
+        for (String objectName : objectNames) {
+            if (failed.contains(objectName)) {
+                invalidate(bucketName, objectName);
+            } else {
+                removed(bucketName, objectName);
+            }
         }
         return errorDeleteObjects;
     }
 
+    private <T> Optional<T> find(String bucketName, String objectName, MissingObjectCache.Lookup<T> lookup) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
+        if (missingObjectCache != null) {
+            return missingObjectCache.find(bucketName, objectName, lookup);
+        }
+        try {
+            return Optional.of(lookup.load());
+        } catch (ErrorResponseException e) {
+            if (MissingObjectCache.isNoSuchKey(e)) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+    }
+
+    private void written(String bucketName, String objectName, long size, String etag) {
+        invalidate(bucketName, objectName);
+        if (keyIndex != null) {
+            keyIndex.put(bucketName, objectName, size, etag);
+        }
+    }
+
+    private void removed(String bucketName, String objectName) {
+        invalidate(bucketName, objectName);
+        if (keyIndex != null) {
+            keyIndex.remove(bucketName, objectName);
+        }
+    }
+
+    private void invalidate(String bucketName, String objectName) {
+        if (metadataCache != null) {
+            metadataCache.invalidate(bucketName, objectName);
+        }
+        if (offHeapCache != null) {
+            offHeapCache.invalidate(bucketName, objectName);
+        }
+        if (missingObjectCache != null) {
+            missingObjectCache.invalidate(bucketName, objectName);
+        }
+    }
+
 }
@@ -0,0 +1,151 @@
+package com.junhong.ojectstoragespringbootstarter.service;
+
+import com.junhong.ojectstoragespringbootstarter.exception.ObjectListingException;
+import io.minio.Result;
+import io.minio.messages.Item;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazy views of a minio listing.
+ * <p>
+ * The minio iterable only requests the next page once the current one is used up, these views keep that
+ * and never hold more than the current page, plus {@code prefetchPages} pages when prefetching. A page that
+ * fails surfaces as an {@link ObjectListingException} from the iterator or stream.
+ *
+ * @author jh
+ */
+public final class ObjectListing {
+    /**
+     * Keys per page of a listing unless {@code maxKeys} says otherwise
+     */
+    public static final int PAGE_SIZE = 1000;
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final Object END = new Object();
+
+    private ObjectListing() {
+    }
+
+    /**
+     * @return items fetched page by page as the iterator advances
+     */
+    public static Iterator<Item> iterator(String bucket, Iterable<Result<Item>> results) {
+        Iterator<Result<Item>> source = results.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+
+            @Override
+            public Item next() {
+                try {
+                    return source.next().get();
+                } catch (NoSuchElementException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new ObjectListingException(bucket, e);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return sequential stream of items fetched page by page as the stream is consumed
+     */
+    public static Stream<Item> stream(String bucket, Iterable<Result<Item>> results) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(bucket, results), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Stream of items where a background thread fetches up to {@code prefetchPages} pages ahead of the consumer.
+     * <p>
+     * Close the stream when it is not consumed to the end, this stops the background thread.
+     *
+     * @param prefetchPages pages buffered ahead, 0 for no prefetching
+     * @param pageSize      {@code maxKeys} of the listing
+     */
+    public static Stream<Item> stream(String bucket, Iterable<Result<Item>> results, int prefetchPages, int pageSize) {
+        if (prefetchPages < 0) {
+            throw new IllegalArgumentException("prefetchPages must not be negative: " + prefetchPages);
+        }
+        if (prefetchPages == 0) {
+            return stream(bucket, results);
+        }
+        Prefetcher prefetcher = new Prefetcher(bucket, results, prefetchPages * pageSize);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(prefetcher, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(prefetcher::close);
+    }
+
+    /**
+     * Iterator fed by a daemon thread through a bounded queue
+     */
+    private static final class Prefetcher implements Iterator<Item> {
+        private final BlockingQueue<Object> queue;
+        private final Thread thread;
+        private Object next;
+
+        private Prefetcher(String bucket, Iterable<Result<Item>> results, int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.thread = new Thread(() -> {
+                try {
+                    Object last = END;
+                    try {
+                        Iterator<Item> source = iterator(bucket, results);
+                        while (source.hasNext()) {
+                            queue.put(source.next());
+                        }
+                    } catch (RuntimeException e) {
+                        // handed over after the items fetched before the failure
+                        last = e;
+                    }
+                    queue.put(last);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "minio-list-prefetch-" + THREAD_COUNT.incrementAndGet());
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    close();
+                    throw new IllegalStateException("interrupted while waiting for the object listing", e);
+                }
+            }
+            if (next instanceof RuntimeException) {
+                throw (RuntimeException) next;
+            }
+            return next != END;
+        }
+
+        @Override
+        public Item next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Item item = (Item) next;
+            next = null;
+            return item;
+        }
+
+        private void close() {
+            thread.interrupt();
+        }
+    }
+}
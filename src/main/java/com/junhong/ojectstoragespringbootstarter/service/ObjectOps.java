@@ -1,5 +1,9 @@
 package com.junhong.ojectstoragespringbootstarter.service;
 
+import com.junhong.ojectstoragespringbootstarter.cache.ObjectContentCache;
+import com.junhong.ojectstoragespringbootstarter.cache.ObjectMetadataCache;
+import com.junhong.ojectstoragespringbootstarter.cache.OffHeapObjectCache;
+import com.junhong.ojectstoragespringbootstarter.cache.PresignedUrlCache;
 import com.junhong.ojectstoragespringbootstarter.connection.MinioConnectionFactory;
 import com.junhong.ojectstoragespringbootstarter.exception.MinioBadRequestException;
 import io.minio.ComposeObjectArgs;
@@ -29,9 +33,11 @@ import io.minio.ServerSideEncryption;
 import io.minio.ServerSideEncryptionCustomerKey;
 import io.minio.SetObjectRetentionArgs;
 import io.minio.SetObjectTagsArgs;
+import io.minio.SnowballObject;
 import io.minio.StatObjectArgs;
 import io.minio.StatObjectResponse;
 import io.minio.UploadObjectArgs;
+import io.minio.UploadSnowballObjectsArgs;
 import io.minio.errors.ErrorResponseException;
 import io.minio.errors.InsufficientDataException;
 import io.minio.errors.InternalException;
@@ -54,16 +60,23 @@ import org.slf4j.LoggerFactory;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Paths;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * object operator
+ * <p>
+ * The {@code with*} methods return a configured copy, so one operator can be shared by every thread and per-call
+ * settings are passed as {@link ObjectOptions}. The older setters still change the operator in place, they are
+ * deprecated.
  *
  * @author jh
  */
@@ -71,62 +84,193 @@ public class ObjectOps {
     private final static Logger log = LoggerFactory.getLogger(ObjectOps.class);
 
     private final MinioConnectionFactory minioConnectionFactory;
+    private volatile ObjectOptions options;
+    private final ObjectMetadataCache metadataCache;
+    private final ObjectContentCache contentCache;
+    private final OffHeapObjectCache offHeapCache;
+    private final PresignedUrlCache presignedUrlCache;
 
-    private String region;
-    private Map<String, String> headers;
-    private Map<String, String> extraHeaders;
-    private Map<String, String> extraQueryParams;
-    private Map<String, String> userMetadata;
-    private ServerSideEncryption serverSideEncryption;
-    private Tags tags;
-    private ServerSideEncryptionCustomerKey ssec;
+    public ObjectOps(MinioConnectionFactory minioConnectionFactory) {
+        this(minioConnectionFactory, ObjectOptions.EMPTY);
+    }
+
+    /**
+     * @param options applied to every operation of this instance
+     */
+    public ObjectOps(MinioConnectionFactory minioConnectionFactory, ObjectOptions options) {
+        this(minioConnectionFactory, options, null);
+    }
+
+    /**
+     * @param metadataCache serves {@code statObject}, invalidated by the writes and removals of this operator, may be null
+     */
+    public ObjectOps(MinioConnectionFactory minioConnectionFactory, ObjectOptions options, ObjectMetadataCache metadataCache) {
+        this(minioConnectionFactory, options, metadataCache, null, null, null);
+    }
+
+    private ObjectOps(MinioConnectionFactory minioConnectionFactory, ObjectOptions options, ObjectMetadataCache metadataCache,
+                      ObjectContentCache contentCache, OffHeapObjectCache offHeapCache, PresignedUrlCache presignedUrlCache) {
+        this.minioConnectionFactory = minioConnectionFactory;
+        this.options = options == null ? ObjectOptions.EMPTY : options;
+        this.metadataCache = metadataCache;
+        this.contentCache = contentCache;
+        this.offHeapCache = offHeapCache;
+        this.presignedUrlCache = presignedUrlCache;
+    }
+
+    public ObjectOptions options() {
+        return options;
+    }
+
+    /**
+     * Copy of this operator with other options, both share the same connection factory
+     */
+    public ObjectOps withOptions(ObjectOptions options) {
+        return new ObjectOps(minioConnectionFactory, options, metadataCache, contentCache, offHeapCache, presignedUrlCache);
+    }
+
+    /**
+     * Copy of this operator that caches {@code statObject} results in the given cache
+     */
+    public ObjectOps withMetadataCache(ObjectMetadataCache metadataCache) {
+        return new ObjectOps(minioConnectionFactory, options, metadataCache, contentCache, offHeapCache, presignedUrlCache);
+    }
+
+    public ObjectMetadataCache metadataCache() {
+        return metadataCache;
+    }
+
+    /**
+     * Copy of this operator that reads the latest version of objects through the given disk cache
+     */
+    public ObjectOps withContentCache(ObjectContentCache contentCache) {
+        return new ObjectOps(minioConnectionFactory, options, metadataCache, contentCache, offHeapCache, presignedUrlCache);
+    }
+
+    public ObjectContentCache contentCache() {
+        return contentCache;
+    }
+
+    /**
+     * Copy of this operator that reads the latest version of small objects through the given in-memory cache,
+     * ahead of the disk cache
+     */
+    public ObjectOps withOffHeapCache(OffHeapObjectCache offHeapCache) {
+        return new ObjectOps(minioConnectionFactory, options, metadataCache, contentCache, offHeapCache, presignedUrlCache);
+    }
+
+    public OffHeapObjectCache offHeapCache() {
+        return offHeapCache;
+    }
+
+    /**
+     * Copy of this operator that hands out presigned URLs again while they are valid long enough,
+     * operators with extra headers or query params always sign
+     */
+    public ObjectOps withPresignedUrlCache(PresignedUrlCache presignedUrlCache) {
+        return new ObjectOps(minioConnectionFactory, options, metadataCache, contentCache, offHeapCache, presignedUrlCache);
+    }
+
+    public PresignedUrlCache presignedUrlCache() {
+        return presignedUrlCache;
+    }
+
+    /**
+     * Copy of this operator with the given server side encryption
+     */
+    public ObjectOps withSse(ServerSideEncryption serverSideEncryption) {
+        return withOptions(options.sse(serverSideEncryption));
+    }
+
+    /**
+     * Copy of this operator with the given region
+     */
+    public ObjectOps withRegion(String region) {
+        return withOptions(options.region(region));
+    }
+
+    public ObjectOps withHeaders(Map<String, String> headers) {
+        return withOptions(options.headers(headers));
+    }
+
+    public ObjectOps withExtraHeaders(Map<String, String> extraHeaders) {
+        return withOptions(options.extraHeaders(extraHeaders));
+    }
+
+    public ObjectOps withExtraQueryParams(Map<String, String> extraQueryParams) {
+        return withOptions(options.extraQueryParams(extraQueryParams));
+    }
+
+    public ObjectOps withUserMetadata(Map<String, String> userMetadata) {
+        return withOptions(options.userMetadata(userMetadata));
+    }
+
+    public ObjectOps withTags(Map<String, String> tags) {
+        return withOptions(options.tags(tags));
+    }
+
+    public ObjectOps withSsec(ServerSideEncryptionCustomerKey ssec) {
+        return withOptions(options.ssec(ssec));
+    }
 
     /**
      * Set bucket server side encryption to operate
      *
-     * @param serverSideEncryption
-     * @return
+     * @deprecated changes this operator for every thread sharing it, use {@link #withSse}
      */
+    @Deprecated
     public ObjectOps sse(ServerSideEncryption serverSideEncryption) {
-        this.serverSideEncryption = serverSideEncryption;
+        options = options.sse(serverSideEncryption);
         return this;
     }
 
     /**
      * Set bucket region to operate
      *
-     * @param region
-     * @return
+     * @deprecated changes this operator for every thread sharing it, use {@link #withRegion}
      */
+    @Deprecated
     public ObjectOps region(String region) {
-        this.region = region;
+        options = options.region(region);
         return this;
     }
 
+    /**
+     * @deprecated changes this operator for every thread sharing it, use {@link #withHeaders}
+     */
+    @Deprecated
     public ObjectOps headers(Map<String, String> headers) {
-        this.headers = headers;
+        options = options.headers(headers);
         return this;
     }
 
+    /**
+     * @deprecated changes this operator for every thread sharing it, use {@link #withExtraHeaders}
+     */
+    @Deprecated
     public ObjectOps extraHeaders(Map<String, String> extraHeaders) {
-        this.extraHeaders = extraHeaders;
+        options = options.extraHeaders(extraHeaders);
         return this;
     }
 
+    /**
+     * @deprecated changes this operator for every thread sharing it, use {@link #withExtraQueryParams}
+     */
+    @Deprecated
     public ObjectOps extraQueryParams(Map<String, String> extraQueryParams) {
-        this.extraQueryParams = extraQueryParams;
+        options = options.extraQueryParams(extraQueryParams);
         return this;
     }
 
+    /**
+     * @deprecated changes this operator for every thread sharing it, use {@link #withUserMetadata}
+     */
+    @Deprecated
     public ObjectOps userMetadata(Map<String, String> userMetadata) {
-        this.userMetadata = userMetadata;
+        options = options.userMetadata(userMetadata);
         return this;
     }
 
-    public ObjectOps(MinioConnectionFactory minioConnectionFactory) {
-        this.minioConnectionFactory = minioConnectionFactory;
-    }
-
     public MinioClient connection() {
         return minioConnectionFactory.getConnection();
     }
@@ -135,19 +279,14 @@ public class ObjectOps {
      * Creates an object by combining data from different source objects using server-side copy.
      */
     public ObjectWriteResponse composeObject(String bucketName, String mergedObjectName, List<ComposeSource> composeSources) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        return connection().composeObject(
-                ComposeObjectArgs.builder()
+        ObjectWriteResponse response = connection().composeObject(
+                options.applyWrite(ComposeObjectArgs.builder()
                         .bucket(bucketName)
-                        .region(region)
-                        .headers(headers)
-                        .extraHeaders(extraHeaders)
-                        .extraQueryParams(extraQueryParams)
-                        .tags(tags)
-                        .sse(serverSideEncryption)
-                        .userMetadata(userMetadata)
                         .sources(composeSources)
-                        .object(mergedObjectName)
+                        .object(mergedObjectName))
                         .build());
+        invalidate(bucketName, mergedObjectName);
+        return response;
     }
 
     public void copyObject(String destBucket, String destObjectName, String srcBucket, String srcObjectName, Directive taggingDirective, Directive metadataDirective) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
@@ -157,92 +296,74 @@ public class ObjectOps {
 
     public void copyObject(String destBucket, String destObjectName, CopySource copySource, Directive taggingDirective, Directive metadataDirective) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
         connection().copyObject(
-                CopyObjectArgs.builder()
+                options.applyWrite(CopyObjectArgs.builder()
                         .bucket(destBucket)
                         .object(destObjectName)
-                        .region(region)
-                        .headers(headers)
-                        .extraHeaders(extraHeaders)
-                        .extraQueryParams(extraQueryParams)
-                        .tags(tags)
-                        .sse(serverSideEncryption)
-                        .userMetadata(userMetadata)
                         .source(copySource)
                         .taggingDirective(taggingDirective)
-                        .metadataDirective(metadataDirective)
+                        .metadataDirective(metadataDirective))
                         .build());
+        invalidate(destBucket, destObjectName);
     }
 
     /**
      * Deletes tags of an object.
      */
     public void deleteObjectTags(String bucket, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        connection().deleteObjectTags(DeleteObjectTagsArgs.builder()
+        connection().deleteObjectTags(options.applyTo(DeleteObjectTagsArgs.builder()
                 .bucket(bucket)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .object(objectName)
+                .object(objectName))
                 .build());
+        invalidate(bucket, objectName);
     }
 
     /**
      * Disables legal hold on an object.
      */
     public void disableObjectLegalHold(String bucket, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        connection().disableObjectLegalHold(DisableObjectLegalHoldArgs.builder()
+        connection().disableObjectLegalHold(options.applyTo(DisableObjectLegalHoldArgs.builder()
                 .bucket(bucket)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .object(objectName)
+                .object(objectName))
                 .build());
+        invalidate(bucket, objectName);
     }
 
     public void downloadObject(String bucket, String objectName, String filename) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        connection().downloadObject(DownloadObjectArgs.builder()
+        if (contentCache != null) {
+            contentCache.downloadObject(bucket, objectName, Paths.get(filename), options);
+            return;
+        }
+        connection().downloadObject(options.applyRead(DownloadObjectArgs.builder()
                 .bucket(bucket)
                 .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .ssec(ssec)
-                .filename(filename)
+                .filename(filename))
                 .build());
     }
 
     public void downloadVersionedObject(String bucket, String objectName, String filename, String versionId) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        connection().downloadObject(DownloadObjectArgs.builder()
+        connection().downloadObject(options.applyRead(DownloadObjectArgs.builder()
                 .bucket(bucket)
                 .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .ssec(ssec)
                 .versionId(versionId)
-                .filename(filename)
+                .filename(filename))
                 .build());
     }
 
     public void enableVersionedObjectLegalHold(String bucket, String objectName, String versionId) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        connection().enableObjectLegalHold(EnableObjectLegalHoldArgs.builder()
+        connection().enableObjectLegalHold(options.applyTo(EnableObjectLegalHoldArgs.builder()
                 .bucket(bucket)
                 .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .versionId(versionId)
+                .versionId(versionId))
                 .build());
+        invalidate(bucket, objectName, versionId);
     }
 
     public void enableObjectLegalHold(String bucket, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        connection().enableObjectLegalHold(EnableObjectLegalHoldArgs.builder()
+        connection().enableObjectLegalHold(options.applyTo(EnableObjectLegalHoldArgs.builder()
                 .bucket(bucket)
-                .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
+                .object(objectName))
                 .build());
+        invalidate(bucket, objectName);
     }
 
     /**
@@ -250,13 +371,23 @@ public class ObjectOps {
      * Returned InputStream must be closed after use to release network resources.
      */
     public InputStream getObject(String bucket, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        return connection().getObject(GetObjectArgs.builder()
+        return getObject(bucket, objectName, ObjectOptions.EMPTY);
+    }
+
+    /**
+     * Gets data of an object with per-call options, set values of {@code callOptions} win over the options of this operator.
+     * Returned InputStream must be closed after use to release network resources.
+     */
+    public InputStream getObject(String bucket, String objectName, ObjectOptions callOptions) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
+        if (offHeapCache != null) {
+            return offHeapCache.getObject(bucket, objectName, options.merge(callOptions));
+        }
+        if (contentCache != null) {
+            return contentCache.getObject(bucket, objectName, options.merge(callOptions));
+        }
+        return connection().getObject(options.merge(callOptions).applyRead(GetObjectArgs.builder()
                 .bucket(bucket)
-                .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .ssec(ssec)
+                .object(objectName))
                 .build());
     }
 
@@ -266,14 +397,10 @@ public class ObjectOps {
      * Returned InputStream must be closed after use to release network resources.
      */
     public InputStream getObject(String bucket, String objectName, String versionId) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        return connection().getObject(GetObjectArgs.builder()
+        return connection().getObject(options.applyRead(GetObjectArgs.builder()
                 .bucket(bucket)
                 .object(objectName)
-                .versionId(versionId)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .ssec(ssec)
+                .versionId(versionId))
                 .build());
     }
 
@@ -282,14 +409,10 @@ public class ObjectOps {
      * Returned InputStream must be closed after use to release network resources.
      */
     public InputStream getObject(String bucket, String objectName, long offset) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        return connection().getObject(GetObjectArgs.builder()
+        return connection().getObject(options.applyRead(GetObjectArgs.builder()
                 .bucket(bucket)
                 .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .ssec(ssec)
-                .offset(offset)
+                .offset(offset))
                 .build());
     }
 
@@ -299,15 +422,11 @@ public class ObjectOps {
      * Returned InputStream must be closed after use to release network resources.
      */
     public InputStream getObjectPart(String bucket, String objectName, long offset, long length) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        return connection().getObject(GetObjectArgs.builder()
+        return connection().getObject(options.applyRead(GetObjectArgs.builder()
                 .bucket(bucket)
                 .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .ssec(ssec)
                 .offset(offset)
-                .length(length)
+                .length(length))
                 .build());
     }
 
@@ -316,58 +435,42 @@ public class ObjectOps {
      * Returned InputStream must be closed after use to release network resources.
      */
     public InputStream getVersionedObjectPart(String bucket, String objectName, String versionId, long offset, long length) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        return connection().getObject(GetObjectArgs.builder()
+        return connection().getObject(options.applyRead(GetObjectArgs.builder()
                 .bucket(bucket)
                 .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .ssec(ssec)
                 .versionId(versionId)
                 .offset(offset)
-                .length(length)
+                .length(length))
                 .build());
     }
 
     public Retention getObjectRetention(String bucket, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        return connection().getObjectRetention(GetObjectRetentionArgs.builder()
+        return connection().getObjectRetention(options.applyTo(GetObjectRetentionArgs.builder()
                 .bucket(bucket)
-                .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
+                .object(objectName))
                 .build());
     }
 
     public Retention getVersionedObjectRetention(String bucket, String objectName, String versionId) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        return connection().getObjectRetention(GetObjectRetentionArgs.builder()
+        return connection().getObjectRetention(options.applyTo(GetObjectRetentionArgs.builder()
                 .bucket(bucket)
                 .object(objectName)
-                .versionId(versionId)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
+                .versionId(versionId))
                 .build());
     }
 
     public Tags getObjectTags(String bucket, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        return connection().getObjectTags(GetObjectTagsArgs.builder()
+        return connection().getObjectTags(options.applyTo(GetObjectTagsArgs.builder()
                 .bucket(bucket)
-                .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
+                .object(objectName))
                 .build());
     }
 
     public Tags getObjectTags(String bucket, String objectName, String versionId) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        return connection().getObjectTags(GetObjectTagsArgs.builder()
+        return connection().getObjectTags(options.applyTo(GetObjectTagsArgs.builder()
                 .bucket(bucket)
                 .object(objectName)
-                .versionId(versionId)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
+                .versionId(versionId))
                 .build());
     }
 
@@ -386,15 +489,12 @@ public class ObjectOps {
      * @return
      */
     public String getPresignedObjectUrl(String bucket, String objectName, Method method, int expirySeconds) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException,  ServerException, InternalException, NoSuchAlgorithmException, XmlParserException,  ErrorResponseException {
-        return connection().getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+        return presign(bucket, objectName, null, method, expirySeconds, () -> connection().getPresignedObjectUrl(options.applyTo(GetPresignedObjectUrlArgs.builder()
                 .bucket(bucket)
                 .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
                 .method(method)
-                .expiry(expirySeconds)
-                .build());
+                .expiry(expirySeconds))
+                .build()));
     }
 
     /**
@@ -403,46 +503,41 @@ public class ObjectOps {
      * @return
      */
     public String getVersionedPresignedObjectUrl(String bucket, String objectName, String versionId, Method method, int expirySeconds) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException,  ServerException, InternalException, NoSuchAlgorithmException, XmlParserException,  ErrorResponseException {
-        return connection().getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+        return presign(bucket, objectName, versionId, method, expirySeconds, () -> connection().getPresignedObjectUrl(options.applyTo(GetPresignedObjectUrlArgs.builder()
                 .bucket(bucket)
                 .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
                 .versionId(versionId)
                 .method(method)
-                .expiry(expirySeconds)
-                .build());
+                .expiry(expirySeconds))
+                .build()));
+    }
+
+    private String presign(String bucket, String objectName, String versionId, Method method, int expirySeconds, PresignedUrlCache.Signer signer) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException,  ServerException, InternalException, NoSuchAlgorithmException, XmlParserException,  ErrorResponseException {
+        if (presignedUrlCache == null || options.getExtraHeaders() != null || options.getExtraQueryParams() != null) {
+            return signer.sign();
+        }
+        return presignedUrlCache.get(bucket, objectName, versionId, method, expirySeconds, signer);
     }
 
     public boolean isObjectLegalHoldEnabled(String bucket, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        return connection().isObjectLegalHoldEnabled(IsObjectLegalHoldEnabledArgs.builder()
+        return connection().isObjectLegalHoldEnabled(options.applyTo(IsObjectLegalHoldEnabledArgs.builder()
                 .bucket(bucket)
-                .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
+                .object(objectName))
                 .build());
     }
 
     public boolean isVersionedObjectLegalHoldEnabled(String bucket, String objectName, String versionId) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        return connection().isObjectLegalHoldEnabled(IsObjectLegalHoldEnabledArgs.builder()
+        return connection().isObjectLegalHoldEnabled(options.applyTo(IsObjectLegalHoldEnabledArgs.builder()
                 .bucket(bucket)
                 .object(objectName)
-                .versionId(versionId)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
+                .versionId(versionId))
                 .build());
     }
 
     public List<Item> listAllObjects(String bucket) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
         List<Item> items = new ArrayList<>();
-        Iterable<Result<Item>> iterable = connection().listObjects(ListObjectsArgs.builder()
-                .bucket(bucket)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
+        Iterable<Result<Item>> iterable = connection().listObjects(options.applyTo(ListObjectsArgs.builder()
+                .bucket(bucket))
                 .build());
         for (Result<Item> itemResult : iterable) {
             items.add(itemResult.get());
@@ -452,14 +547,11 @@ public class ObjectOps {
 
     public List<Item> listAllObjectsExtra(String bucket, boolean fetchOwner, boolean includeUserMetadata, boolean includeVersions) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
         List<Item> items = new ArrayList<>();
-        Iterable<Result<Item>> iterable = connection().listObjects(ListObjectsArgs.builder()
+        Iterable<Result<Item>> iterable = connection().listObjects(options.applyTo(ListObjectsArgs.builder()
                 .bucket(bucket)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
                 .fetchOwner(fetchOwner)
                 .includeUserMetadata(includeUserMetadata)
-                .includeVersions(includeVersions)
+                .includeVersions(includeVersions))
                 .build());
         for (Result<Item> itemResult : iterable) {
             items.add(itemResult.get());
@@ -469,14 +561,11 @@ public class ObjectOps {
 
     public List<Item> listAllObjectsRecursive(String bucket) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
         List<Item> items = new ArrayList<>();
-        Iterable<Result<Item>> iterable = connection().listObjects(ListObjectsArgs.builder()
+        Iterable<Result<Item>> iterable = connection().listObjects(options.applyTo(ListObjectsArgs.builder()
                 .bucket(bucket)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
                 .fetchOwner(true)
                 .includeUserMetadata(true)
-                .includeVersions(true)
+                .includeVersions(true))
                 .build());
         for (Result<Item> itemResult : iterable) {
             items.add(itemResult.get());
@@ -484,22 +573,50 @@ public class ObjectOps {
         return items;
     }
 
+    /**
+     * List objects lazily, a page is only requested once the previous one is consumed
+     */
+    public Stream<Item> streamObjects(String bucket, String prefix, boolean recursive) {
+        return streamObjects(bucket, prefix, recursive, 0);
+    }
+
+    /**
+     * List objects lazily with pages fetched ahead of the consumer
+     *
+     * @param prefetchPages pages fetched ahead by a background thread, close the stream when it is not consumed to the end
+     */
+    public Stream<Item> streamObjects(String bucket, String prefix, boolean recursive, int prefetchPages) {
+        return ObjectListing.stream(bucket, listObjects(bucket, prefix, recursive), prefetchPages, ObjectListing.PAGE_SIZE);
+    }
+
+    public Iterator<Item> iterateObjects(String bucket, String prefix, boolean recursive) {
+        return ObjectListing.iterator(bucket, listObjects(bucket, prefix, recursive));
+    }
+
+    private Iterable<Result<Item>> listObjects(String bucket, String prefix, boolean recursive) {
+        return connection().listObjects(options.applyTo(ListObjectsArgs.builder()
+                .bucket(bucket)
+                .prefix(prefix)
+                .recursive(recursive))
+                .build());
+    }
+
     public void presignedPostPolicy() {
     }
 
     public ObjectWriteResponse putObject(String bucketName, String objectName, InputStream stream, long objectSize, long partSize, String contentType) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        return connection().putObject(PutObjectArgs.builder()
+        return putObject(bucketName, objectName, stream, objectSize, partSize, contentType, ObjectOptions.EMPTY);
+    }
+
+    public ObjectWriteResponse putObject(String bucketName, String objectName, InputStream stream, long objectSize, long partSize, String contentType, ObjectOptions callOptions) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
+        ObjectWriteResponse response = connection().putObject(options.merge(callOptions).applyWrite(PutObjectArgs.builder()
                 .bucket(bucketName)
                 .object(objectName)
-                .sse(serverSideEncryption)
-                .userMetadata(userMetadata)
-                .headers(headers)
                 .contentType(contentType)
-                .stream(stream, objectSize, partSize)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
+                .stream(stream, objectSize, partSize))
                 .build());
+        invalidate(bucketName, objectName);
+        return response;
     }
 
     public ObjectWriteResponse mkdir(String bucketName, String objectName, InputStream stream, long objectSize, long partSize, String contentType) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException, MinioBadRequestException {
@@ -521,35 +638,33 @@ public class ObjectOps {
     }
 
     public void removeObject(String bucketName, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        connection().removeObject(RemoveObjectArgs.builder()
+        removeObject(bucketName, objectName, ObjectOptions.EMPTY);
+    }
+
+    public void removeObject(String bucketName, String objectName, ObjectOptions callOptions) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
+        connection().removeObject(options.merge(callOptions).applyTo(RemoveObjectArgs.builder()
                 .bucket(bucketName)
-                .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
+                .object(objectName))
                 .build());
+        invalidate(bucketName, objectName);
     }
 
     public void removeVersionedObject(String bucketName, String objectName, String versionId) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        connection().removeObject(RemoveObjectArgs.builder()
+        connection().removeObject(options.applyTo(RemoveObjectArgs.builder()
                 .bucket(bucketName)
                 .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .versionId(versionId)
+                .versionId(versionId))
                 .build());
+        invalidate(bucketName, objectName, versionId);
     }
 
     public void removeObject(String bucketName, String objectName, boolean bypassGovernanceMode) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        connection().removeObject(RemoveObjectArgs.builder()
+        connection().removeObject(options.applyTo(RemoveObjectArgs.builder()
                 .bucket(bucketName)
                 .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .bypassGovernanceMode(bypassGovernanceMode)
+                .bypassGovernanceMode(bypassGovernanceMode))
                 .build());
+        invalidate(bucketName, objectName);
     }
 
     /**
@@ -561,12 +676,17 @@ public class ObjectOps {
      */
     public List<String> removeObjects(String bucketName, List<String> objectNames) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
         List<DeleteObject> objects = objectNames.stream().map(DeleteObject::new).collect(Collectors.toList());
-        Iterable<Result<DeleteError>> results = minioConnectionFactory.getConnection().removeObjects(RemoveObjectsArgs.builder().bucket(bucketName).objects(objects).build());
+        Iterable<Result<DeleteError>> results = connection().removeObjects(options.applyTo(RemoveObjectsArgs.builder()
+                .bucket(bucketName)
+                .objects(objects))
+                .build());
         List<String> errorDeleteObjects = new ArrayList<>();
         for (Result<DeleteError> result : results) {
-            errorDeleteObjects.add(result.get().objectName());
-            log.error("Error in deleting object {}:{}, code={}, message={}", bucketName, result.get().objectName(), result.get().code(), result.get().message());
+            DeleteError error = result.get();
+            errorDeleteObjects.add(error.objectName());
+            log.error("Error in deleting object {}:{}, code={}, message={}", bucketName, error.objectName(), error.code(), error.message());
         }
+        objectNames.forEach(objectName -> invalidate(bucketName, objectName));
         return errorDeleteObjects;
     }
 
@@ -575,80 +695,117 @@ public class ObjectOps {
      */
     public SelectResponseStream selectObjectContent(String bucketName, String objectName, String sql, InputSerialization is, OutputSerialization os) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
         return connection().selectObjectContent(
-                SelectObjectContentArgs.builder()
+                options.applyRead(SelectObjectContentArgs.builder()
                         .bucket(bucketName)
                         .object(objectName)
                         .sqlExpression(sql)
                         .inputSerialization(is)
                         .outputSerialization(os)
-                        .requestProgress(true)
+                        .requestProgress(true))
                         .build());
     }
 
     public void setObjectRetention(String bucketName, String objectName, RetentionMode retentionMode, ZonedDateTime retainUntilDate) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
         Retention retention = new Retention(retentionMode, retainUntilDate);
-        connection().setObjectRetention(SetObjectRetentionArgs.builder()
+        connection().setObjectRetention(options.applyTo(SetObjectRetentionArgs.builder()
                 .bucket(bucketName)
                 .object(objectName)
-                .config(retention)
+                .config(retention))
                 .build());
+        invalidate(bucketName, objectName);
     }
 
     public void setObjectTags(String bucketName, String objectName, Tags tags) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        connection().setObjectTags(SetObjectTagsArgs.builder()
+        connection().setObjectTags(options.applyTo(SetObjectTagsArgs.builder()
                 .bucket(bucketName)
                 .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .tags(tags)
+                .tags(tags))
                 .build());
+        invalidate(bucketName, objectName);
     }
 
     public void setObjectTags(String bucketName, String objectName, Map<String, String> tags) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        connection().setObjectTags(SetObjectTagsArgs.builder()
+        connection().setObjectTags(options.applyTo(SetObjectTagsArgs.builder()
                 .bucket(bucketName)
                 .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .tags(tags)
+                .tags(tags))
                 .build());
+        invalidate(bucketName, objectName);
     }
 
     public StatObjectResponse statObject(String bucketName, String objectName) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        return connection().statObject(StatObjectArgs.builder()
+        return statObject(bucketName, objectName, ObjectOptions.EMPTY);
+    }
+
+    public StatObjectResponse statObject(String bucketName, String objectName, ObjectOptions callOptions) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
+        StatObjectArgs args = options.merge(callOptions).applyRead(StatObjectArgs.builder()
                 .bucket(bucketName)
-                .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .ssec(ssec)
-                .build());
+                .object(objectName))
+                .build();
+        if (metadataCache == null) {
+            return connection().statObject(args);
+        }
+        return metadataCache.get(bucketName, objectName, null, () -> connection().statObject(args));
     }
 
     public StatObjectResponse statVersionedObject(String bucketName, String objectName, String versionId) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        return connection().statObject(StatObjectArgs.builder()
+        StatObjectArgs args = options.applyRead(StatObjectArgs.builder()
                 .bucket(bucketName)
                 .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .ssec(ssec)
-                .versionId(versionId)
-                .build());
+                .versionId(versionId))
+                .build();
+        if (metadataCache == null) {
+            return connection().statObject(args);
+        }
+        return metadataCache.get(bucketName, objectName, versionId, () -> connection().statObject(args));
     }
 
     public ObjectWriteResponse uploadObject(String bucketName, String objectName, String filename, String contentType) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
-        return connection().uploadObject(UploadObjectArgs.builder()
+        ObjectWriteResponse response = connection().uploadObject(options.applyWrite(UploadObjectArgs.builder()
                 .bucket(bucketName)
                 .object(objectName)
-                .region(region)
-                .extraHeaders(extraHeaders)
-                .extraQueryParams(extraQueryParams)
-                .sse(serverSideEncryption)
                 .contentType(contentType)
-                .filename(filename)
+                .filename(filename))
+                .build());
+        invalidate(bucketName, objectName);
+        return response;
+    }
+
+    /**
+     * Upload many small objects as one tar stream the server extracts, a single request instead of one per object.
+     * <p>
+     * The tar is built in memory, large or many batches are better sent with the {@code SnowballUploader}.
+     *
+     * @param compression snappy compress the tar
+     */
+    public ObjectWriteResponse uploadSnowballObjects(String bucketName, List<SnowballObject> objects, boolean compression) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException,  ErrorResponseException {
+        ObjectWriteResponse response = connection().uploadSnowballObjects(options.applyWrite(UploadSnowballObjectsArgs.builder()
+                .bucket(bucketName)
+                .objects(objects)
+                .compression(compression))
                 .build());
+        for (SnowballObject object : objects) {
+            invalidate(bucketName, object.name());
+        }
+        return response;
+    }
+
+    private void invalidate(String bucketName, String objectName) {
+        if (metadataCache != null) {
+            metadataCache.invalidate(bucketName, objectName);
+        }
+        if (offHeapCache != null) {
+            offHeapCache.invalidate(bucketName, objectName);
+        }
+    }
+
+    private void invalidate(String bucketName, String objectName, String versionId) {
+        if (metadataCache != null) {
+            metadataCache.invalidate(bucketName, objectName, versionId);
+        }
+        if (offHeapCache != null) {
+            // the version may have been the latest one
+            offHeapCache.invalidate(bucketName, objectName);
+        }
     }
 }
@@ -0,0 +1,196 @@
+package com.junhong.ojectstoragespringbootstarter.service;
+
+import io.minio.BucketArgs;
+import io.minio.ObjectReadArgs;
+import io.minio.ObjectWriteArgs;
+import io.minio.ServerSideEncryption;
+import io.minio.ServerSideEncryptionCustomerKey;
+import io.minio.messages.Tags;
+
+import java.util.Map;
+
+/**
+ * Immutable settings applied to the args of an object operation.
+ * <p>
+ * Every setter returns a new instance, so an options value can be shared between threads and reused by any
+ * number of calls. Maps and tags are copied and validated once when set, and unset values are never handed
+ * to the minio builders, so applying options to a call only adds what is actually configured.
+ *
+ * @author jh
+ */
+public final class ObjectOptions {
+    public static final ObjectOptions EMPTY = new ObjectOptions(null, null, null, null, null, null, null, null);
+
+    private final String region;
+    private final Map<String, String> headers;
+    private final Map<String, String> extraHeaders;
+    private final Map<String, String> extraQueryParams;
+    private final Map<String, String> userMetadata;
+    private final ServerSideEncryption sse;
+    private final Tags tags;
+    private final ServerSideEncryptionCustomerKey ssec;
+
+    private ObjectOptions(String region, Map<String, String> headers, Map<String, String> extraHeaders,
+                          Map<String, String> extraQueryParams, Map<String, String> userMetadata,
+                          ServerSideEncryption sse, Tags tags, ServerSideEncryptionCustomerKey ssec) {
+        this.region = region;
+        this.headers = headers;
+        this.extraHeaders = extraHeaders;
+        this.extraQueryParams = extraQueryParams;
+        this.userMetadata = userMetadata;
+        this.sse = sse;
+        this.tags = tags;
+        this.ssec = ssec;
+    }
+
+    public ObjectOptions region(String region) {
+        return new ObjectOptions(region, headers, extraHeaders, extraQueryParams, userMetadata, sse, tags, ssec);
+    }
+
+    public ObjectOptions headers(Map<String, String> headers) {
+        return new ObjectOptions(region, copy(headers), extraHeaders, extraQueryParams, userMetadata, sse, tags, ssec);
+    }
+
+    public ObjectOptions extraHeaders(Map<String, String> extraHeaders) {
+        return new ObjectOptions(region, headers, copy(extraHeaders), extraQueryParams, userMetadata, sse, tags, ssec);
+    }
+
+    public ObjectOptions extraQueryParams(Map<String, String> extraQueryParams) {
+        return new ObjectOptions(region, headers, extraHeaders, copy(extraQueryParams), userMetadata, sse, tags, ssec);
+    }
+
+    public ObjectOptions userMetadata(Map<String, String> userMetadata) {
+        return new ObjectOptions(region, headers, extraHeaders, extraQueryParams, copy(userMetadata), sse, tags, ssec);
+    }
+
+    /**
+     * Set server side encryption of written objects
+     */
+    public ObjectOptions sse(ServerSideEncryption sse) {
+        return new ObjectOptions(region, headers, extraHeaders, extraQueryParams, userMetadata, sse, tags, ssec);
+    }
+
+    /**
+     * Set tags of written objects
+     *
+     * @throws IllegalArgumentException if the tags break the S3 tag limits
+     */
+    public ObjectOptions tags(Map<String, String> tags) {
+        Tags objectTags = tags == null ? null : Tags.newObjectTags(tags);
+        return new ObjectOptions(region, headers, extraHeaders, extraQueryParams, userMetadata, sse, objectTags, ssec);
+    }
+
+    /**
+     * Set customer key of read objects
+     */
+    public ObjectOptions ssec(ServerSideEncryptionCustomerKey ssec) {
+        return new ObjectOptions(region, headers, extraHeaders, extraQueryParams, userMetadata, sse, tags, ssec);
+    }
+
+    /**
+     * Combine with per-call options
+     *
+     * @param override options of one call, its set values win over the values of this instance
+     * @return combined options
+     */
+    public ObjectOptions merge(ObjectOptions override) {
+        if (override == null || override == EMPTY) {
+            return this;
+        }
+        if (this == EMPTY) {
+            return override;
+        }
+        return new ObjectOptions(
+                override.region != null ? override.region : region,
+                override.headers != null ? override.headers : headers,
+                override.extraHeaders != null ? override.extraHeaders : extraHeaders,
+                override.extraQueryParams != null ? override.extraQueryParams : extraQueryParams,
+                override.userMetadata != null ? override.userMetadata : userMetadata,
+                override.sse != null ? override.sse : sse,
+                override.tags != null ? override.tags : tags,
+                override.ssec != null ? override.ssec : ssec);
+    }
+
+    /**
+     * Apply region, extra headers and extra query params
+     */
+    public <B extends BucketArgs.Builder<B, A>, A extends BucketArgs> B applyTo(B builder) {
+        if (region != null) {
+            builder.region(region);
+        }
+        if (extraHeaders != null) {
+            builder.extraHeaders(extraHeaders);
+        }
+        if (extraQueryParams != null) {
+            builder.extraQueryParams(extraQueryParams);
+        }
+        return builder;
+    }
+
+    /**
+     * Apply the common options plus headers, user metadata, server side encryption and tags
+     */
+    public <B extends ObjectWriteArgs.Builder<B, A>, A extends ObjectWriteArgs> B applyWrite(B builder) {
+        applyTo(builder);
+        if (headers != null) {
+            builder.headers(headers);
+        }
+        if (userMetadata != null) {
+            builder.userMetadata(userMetadata);
+        }
+        if (sse != null) {
+            builder.sse(sse);
+        }
+        if (tags != null) {
+            builder.tags(tags);
+        }
+        return builder;
+    }
+
+    /**
+     * Apply the common options plus the customer key
+     */
+    public <B extends ObjectReadArgs.Builder<B, A>, A extends ObjectReadArgs> B applyRead(B builder) {
+        applyTo(builder);
+        if (ssec != null) {
+            builder.ssec(ssec);
+        }
+        return builder;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public Map<String, String> getExtraHeaders() {
+        return extraHeaders;
+    }
+
+    public Map<String, String> getExtraQueryParams() {
+        return extraQueryParams;
+    }
+
+    public Map<String, String> getUserMetadata() {
+        return userMetadata;
+    }
+
+    public ServerSideEncryption getSse() {
+        return sse;
+    }
+
+    public Tags getTags() {
+        return tags;
+    }
+
+    public ServerSideEncryptionCustomerKey getSsec() {
+        return ssec;
+    }
+
+    private static Map<String, String> copy(Map<String, String> map) {
+        return map == null ? null : Map.copyOf(map);
+    }
+}
@@ -0,0 +1,222 @@
+package com.junhong.ojectstoragespringbootstarter.service;
+
+import io.minio.http.Method;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Presigns path-style S3 URLs with query string SigV4, without going through the minio client.
+ * <p>
+ * The signing key only depends on the day, it is derived once per day and shared, every thread keeps its own
+ * initialized {@link Mac} and digest. {@link #presignAll} signs a whole batch with one timestamp and one
+ * common query string, which leaves two SHA-256 runs per URL.
+ * <p>
+ * The region is never looked up, it must be the region of the buckets.
+ *
+ * @author jh
+ */
+public class Presigner {
+    /**
+     * Longest validity SigV4 allows, and the expiry the minio client uses by default
+     */
+    public static final int MAX_EXPIRY_SECONDS = 7 * 24 * 3600;
+
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String HMAC = "HmacSHA256";
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'", Locale.US).withZone(ZoneOffset.UTC);
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final String baseUrl;
+    private final String host;
+    private final String region;
+    private final String accessKey;
+    private final byte[] secret;
+    private final Clock clock;
+    private final ThreadLocal<Hasher> hashers = ThreadLocal.withInitial(Hasher::new);
+    private volatile SigningKey signingKey;
+
+    /**
+     * @param endpoint URL of the server, like {@code https://minio.example.com:9000}
+     * @param region   region of the buckets, {@code us-east-1} when null
+     */
+    public Presigner(String endpoint, String region, String accessKey, String secretKey) {
+        this(endpoint, region, accessKey, secretKey, Clock.systemUTC());
+    }
+
+    Presigner(String endpoint, String region, String accessKey, String secretKey, Clock clock) {
+        URI uri = URI.create(endpoint);
+        if (uri.getScheme() == null || uri.getHost() == null) {
+            throw new IllegalArgumentException("endpoint must be an absolute http or https URL: " + endpoint);
+        }
+        boolean defaultPort = uri.getPort() == -1
+                || ("http".equalsIgnoreCase(uri.getScheme()) && uri.getPort() == 80)
+                || ("https".equalsIgnoreCase(uri.getScheme()) && uri.getPort() == 443);
+        this.host = defaultPort ? uri.getHost() : uri.getHost() + ":" + uri.getPort();
+        this.baseUrl = uri.getScheme().toLowerCase(Locale.US) + "://" + host;
+        this.region = region == null || region.isEmpty() ? "us-east-1" : region;
+        this.accessKey = accessKey;
+        this.secret = ("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8);
+        this.clock = clock;
+    }
+
+    /**
+     * Presigned URL of an object
+     *
+     * @param versionId null for the latest version
+     */
+    public String presign(String bucket, String object, String versionId, Method method, int expirySeconds) {
+        Batch batch = new Batch(method, expirySeconds);
+        return batch.sign(bucket, object, versionId);
+    }
+
+    /**
+     * Presigned URLs of the latest version of objects of one bucket, all valid from the same instant
+     *
+     * @return the URLs in the order of {@code objects}
+     */
+    public List<String> presignAll(String bucket, List<String> objects, Method method, int expirySeconds) {
+        Batch batch = new Batch(method, expirySeconds);
+        List<String> urls = new ArrayList<>(objects.size());
+        for (String object : objects) {
+            urls.add(batch.sign(bucket, object, null));
+        }
+        return urls;
+    }
+
+    private byte[] signingKey(String date) {
+        SigningKey current = signingKey;
+        if (current == null || !current.date.equals(date)) {
+            try {
+                byte[] key = hmac(secret, date);
+                key = hmac(key, region);
+                key = hmac(key, "s3");
+                key = hmac(key, "aws4_request");
+                current = new SigningKey(date, key);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 is not available", e);
+            }
+            signingKey = current;
+        }
+        return current.key;
+    }
+
+    private static byte[] hmac(byte[] key, String data) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(HMAC);
+        mac.init(new SecretKeySpec(key, HMAC));
+        return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * S3 URI encoding: everything but unreserved characters is percent-encoded, slashes too unless {@code path}
+     */
+    static String encode(String value, boolean path) {
+        StringBuilder encoded = new StringBuilder(value.length() + 16);
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            int c = b & 0xff;
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~' || (path && c == '/')) {
+                encoded.append((char) c);
+            } else {
+                encoded.append('%').append(Character.toUpperCase(Character.forDigit(c >> 4, 16)))
+                        .append(Character.toUpperCase(Character.forDigit(c & 0xf, 16)));
+            }
+        }
+        return encoded.toString();
+    }
+
+    /**
+     * Timestamp, scope and common query string shared by the URLs of one call
+     */
+    private final class Batch {
+        private final Method method;
+        private final String amzDate;
+        private final String scope;
+        private final String query;
+        private final Hasher hasher;
+
+        private Batch(Method method, int expirySeconds) {
+            if (expirySeconds < 1 || expirySeconds > MAX_EXPIRY_SECONDS) {
+                throw new IllegalArgumentException("expirySeconds must be between 1 and " + MAX_EXPIRY_SECONDS + ": " + expirySeconds);
+            }
+            this.method = method;
+            this.amzDate = AMZ_DATE.format(clock.instant());
+            String date = amzDate.substring(0, 8);
+            this.scope = date + "/" + region + "/s3/aws4_request";
+            // sorted by name, versionId sorts after the upper case X-Amz parameters
+            this.query = "X-Amz-Algorithm=" + ALGORITHM
+                    + "&X-Amz-Credential=" + encode(accessKey + "/" + scope, false)
+                    + "&X-Amz-Date=" + amzDate
+                    + "&X-Amz-Expires=" + expirySeconds
+                    + "&X-Amz-SignedHeaders=host";
+            this.hasher = hashers.get();
+            hasher.use(signingKey(date));
+        }
+
+        private String sign(String bucket, String object, String versionId) {
+            String path = "/" + bucket + "/" + encode(object, true);
+            String canonicalQuery = versionId == null ? query : query + "&versionId=" + encode(versionId, false);
+            String canonicalRequest = method.name() + "\n" + path + "\n" + canonicalQuery + "\nhost:" + host + "\n\nhost\nUNSIGNED-PAYLOAD";
+            String stringToSign = ALGORITHM + "\n" + amzDate + "\n" + scope + "\n" + HEX.formatHex(hasher.sha256(canonicalRequest));
+            return baseUrl + path + "?" + canonicalQuery + "&X-Amz-Signature=" + HEX.formatHex(hasher.sign(stringToSign));
+        }
+    }
+
+    /**
+     * Mac and digest of one thread, the Mac is initialized again only when the signing key changes
+     */
+    private static final class Hasher {
+        private final Mac mac;
+        private final MessageDigest sha256;
+        private byte[] key;
+
+        private Hasher() {
+            try {
+                this.mac = Mac.getInstance(HMAC);
+                this.sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+
+        private void use(byte[] signingKey) {
+            if (key != signingKey) {
+                try {
+                    mac.init(new SecretKeySpec(signingKey, HMAC));
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException(e);
+                }
+                key = signingKey;
+            }
+        }
+
+        private byte[] sha256(String data) {
+            return sha256.digest(data.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private byte[] sign(String data) {
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static final class SigningKey {
+        private final String date;
+        private final byte[] key;
+
+        private SigningKey(String date, byte[] key) {
+            this.date = date;
+            this.key = key;
+        }
+    }
+}
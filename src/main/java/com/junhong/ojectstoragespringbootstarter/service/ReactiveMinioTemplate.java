@@ -0,0 +1,118 @@
+package com.junhong.ojectstoragespringbootstarter.service;
+
+import com.junhong.ojectstoragespringbootstarter.connection.ExtendedMinioAsyncClient;
+import io.minio.ListObjectsV2Response;
+import io.minio.ObjectWriteResponse;
+import io.minio.StatObjectResponse;
+import io.minio.messages.Item;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Reactor flavoured Minio operation template.
+ * <p>
+ * Listing pages, download buffers and upload buffers are all pulled on demand,
+ * so a slow subscriber or a slow server never makes the template hold a whole object or listing in memory.
+ *
+ * @author jh
+ */
+public class ReactiveMinioTemplate {
+    /**
+     * S3 minimum part size, also the part buffered by an upload of unknown size
+     */
+    public static final long DEFAULT_PART_SIZE = 5L * 1024 * 1024;
+
+    private static final int LIST_PAGE_SIZE = 1000;
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final int UPLOAD_PREFETCH = 16;
+
+    private final AsyncMinioTemplate asyncMinioTemplate;
+    private final DataBufferFactory bufferFactory;
+
+    public ReactiveMinioTemplate(AsyncMinioTemplate asyncMinioTemplate) {
+        this(asyncMinioTemplate, DefaultDataBufferFactory.sharedInstance);
+    }
+
+    public ReactiveMinioTemplate(AsyncMinioTemplate asyncMinioTemplate, DataBufferFactory bufferFactory) {
+        this.asyncMinioTemplate = asyncMinioTemplate;
+        this.bufferFactory = bufferFactory;
+    }
+
+    /**
+     * List objects of a prefix. The next page is only requested once the subscriber has consumed the current one.
+     */
+    public Flux<Item> getAllObjectsByPrefix(String bucketName, String prefix, boolean recursive) {
+        return page(bucketName, prefix, recursive, null)
+                .expand(response -> response.result().isTruncated()
+                        ? page(bucketName, prefix, recursive, response.result().nextContinuationToken())
+                        : Mono.empty())
+                .flatMapIterable(response -> ExtendedMinioAsyncClient.items(response.result()), 1);
+    }
+
+    private Mono<ListObjectsV2Response> page(String bucketName, String prefix, boolean recursive, String continuationToken) {
+        return Mono.fromFuture(() -> asyncMinioTemplate.listObjectsPage(bucketName, prefix, recursive, continuationToken, LIST_PAGE_SIZE));
+    }
+
+    public Mono<StatObjectResponse> getObjectInfo(String bucketName, String objectName) {
+        return Mono.fromFuture(() -> asyncMinioTemplate.getObjectInfo(bucketName, objectName));
+    }
+
+    public Mono<Void> removeObject(String bucketName, String objectName) {
+        return Mono.fromFuture(() -> asyncMinioTemplate.removeObject(bucketName, objectName));
+    }
+
+    /**
+     * Object content, read from the network only as fast as the subscriber requests buffers.
+     * <p>
+     * The request is sent by the async client, only the copy of the body, which the http client exposes as a
+     * blocking stream, runs on the bounded elastic scheduler.
+     */
+    public Flux<DataBuffer> getObject(String bucketName, String objectName) {
+        return getObject(bucketName, objectName, DEFAULT_BUFFER_SIZE);
+    }
+
+    public Flux<DataBuffer> getObject(String bucketName, String objectName, int bufferSize) {
+        return Mono.fromFuture(() -> asyncMinioTemplate.getObject(bucketName, objectName))
+                .flatMapMany(stream -> DataBufferUtils.readInputStream(() -> stream, bufferFactory, bufferSize)
+                        .subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    public Flux<DataBuffer> getObjectByPart(String bucketName, String objectName, long offset, long length) {
+        return Mono.fromFuture(() -> asyncMinioTemplate.getObjectByPart(bucketName, objectName, offset, length))
+                .flatMapMany(stream -> DataBufferUtils.readInputStream(() -> stream, bufferFactory, DEFAULT_BUFFER_SIZE)
+                        .subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    /**
+     * save object of unknown size, only one part of {@link #DEFAULT_PART_SIZE} is buffered at a time
+     */
+    public Mono<ObjectWriteResponse> saveObject(String bucketName, String objectName, Publisher<DataBuffer> content, String contentType) {
+        return saveObject(bucketName, objectName, content, -1, DEFAULT_PART_SIZE, contentType);
+    }
+
+    /**
+     * save object, buffers are requested from {@code content} only as fast as they are sent to minio.
+     * <p>
+     * The upload runs on the async client, no thread of the caller waits for it. Cancelling the subscription fails
+     * the upload instead of committing the part of the content read so far.
+     *
+     * @param objectSize -1 if unknown
+     * @param partSize   -1 to use the default part size, <B>Required</B> when the size is unknown
+     */
+    public Mono<ObjectWriteResponse> saveObject(String bucketName, String objectName, Publisher<DataBuffer> content, long objectSize, long partSize, String contentType) {
+        return Mono.using(
+                () -> {
+                    DataBufferInputStream stream = new DataBufferInputStream(UPLOAD_PREFETCH);
+                    content.subscribe(stream);
+                    return stream;
+                },
+                stream -> Mono.fromFuture(() -> asyncMinioTemplate.saveObject(bucketName, objectName, stream, objectSize, partSize, contentType)),
+                DataBufferInputStream::close);
+    }
+}
@@ -0,0 +1,282 @@
+package com.junhong.ojectstoragespringbootstarter.service;
+
+import com.junhong.ojectstoragespringbootstarter.connection.MinioConnectionFactory;
+import io.minio.ListObjectsArgs;
+import io.minio.messages.Item;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lists a bucket as disjoint shards listed concurrently and merged into one stream.
+ * <p>
+ * Shards are either the top-level prefixes below a delimiter or key ranges between caller-supplied split
+ * keys. Every shard is a contiguous key range, so an ordered listing is the shards concatenated in key
+ * order: the shard being consumed and the next ones are listed ahead into bounded buffers. An unordered
+ * listing hands items over as soon as any shard produced them.
+ * <p>
+ * Close the returned stream when it is not consumed to the end, this stops the shards still listing.
+ *
+ * @author jh
+ */
+public class ShardedLister {
+    private final static Logger log = LoggerFactory.getLogger(ShardedLister.class);
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final Object END = new Object();
+
+    private final MinioConnectionFactory minioConnectionFactory;
+    private final int parallelism;
+    private final ObjectOptions options;
+
+    /**
+     * @param parallelism shards listed at the same time
+     */
+    public ShardedLister(MinioConnectionFactory minioConnectionFactory, int parallelism) {
+        this(minioConnectionFactory, parallelism, ObjectOptions.EMPTY);
+    }
+
+    /**
+     * @param options region, extra headers and extra query params of every listing request
+     */
+    public ShardedLister(MinioConnectionFactory minioConnectionFactory, int parallelism, ObjectOptions options) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.minioConnectionFactory = minioConnectionFactory;
+        this.parallelism = parallelism;
+        this.options = options;
+    }
+
+    /**
+     * List every object below {@code prefix}, one shard per prefix found right below it.
+     * <p>
+     * Objects right below {@code prefix} are held while the prefixes are looked up, a flat bucket is better
+     * split with {@link #listByRange}.
+     *
+     * @param delimiter separator of the top-level prefixes, usually {@code /}
+     * @param ordered   whether items come back in key order
+     */
+    public Stream<Item> listByPrefix(String bucket, String prefix, String delimiter, boolean ordered) {
+        List<Item> objects = new ArrayList<>();
+        List<String> prefixes = new ArrayList<>();
+        Iterator<Item> top = ObjectListing.iterator(bucket, minioConnectionFactory.getConnection().listObjects(options.applyTo(ListObjectsArgs.builder()
+                .bucket(bucket)
+                .prefix(prefix)
+                .delimiter(delimiter)
+                .recursive(false))
+                .build()));
+        while (top.hasNext()) {
+            Item item = top.next();
+            if (item.isDir()) {
+                prefixes.add(item.objectName());
+            } else {
+                objects.add(item);
+            }
+        }
+        // a page holds its objects before its prefixes, put them back in key order
+        objects.sort(Comparator.comparing(Item::objectName));
+        prefixes.sort(null);
+        List<Shard> shards = new ArrayList<>();
+        int next = 0;
+        for (String found : prefixes) {
+            int from = next;
+            while (next < objects.size() && objects.get(next).objectName().compareTo(found) < 0) {
+                next++;
+            }
+            if (next > from) {
+                shards.add(Shard.objects(objects.subList(from, next)));
+            }
+            shards.add(Shard.range(found, null, null));
+        }
+        if (next < objects.size()) {
+            shards.add(Shard.objects(objects.subList(next, objects.size())));
+        }
+        log.debug("Listing {}/{} as {} shards", bucket, prefix, shards.size());
+        return list(bucket, shards, ordered);
+    }
+
+    /**
+     * List every object below {@code prefix} as key ranges: up to and including the first split key, after it up
+     * to and including the second one, and so on, the last shard holds the keys after the last split key
+     *
+     * @param splitKeys strictly increasing boundaries
+     * @param ordered   whether items come back in key order
+     */
+    public Stream<Item> listByRange(String bucket, String prefix, List<String> splitKeys, boolean ordered) {
+        List<Shard> shards = new ArrayList<>();
+        String previous = null;
+        for (String splitKey : splitKeys) {
+            if (previous != null && previous.compareTo(splitKey) >= 0) {
+                throw new IllegalArgumentException("split keys must be strictly increasing: " + previous + ", " + splitKey);
+            }
+            shards.add(Shard.range(prefix, previous, splitKey));
+            previous = splitKey;
+        }
+        shards.add(Shard.range(prefix, previous, null));
+        return list(bucket, shards, ordered);
+    }
+
+    private Stream<Item> list(String bucket, List<Shard> shards, boolean ordered) {
+        if (shards.isEmpty()) {
+            return Stream.empty();
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, shards.size()), SHARD_THREADS);
+        Iterator<Item> merged;
+        if (ordered) {
+            List<BlockingQueue<Object>> queues = new ArrayList<>();
+            for (Shard shard : shards) {
+                BlockingQueue<Object> queue = new LinkedBlockingQueue<>(ObjectListing.PAGE_SIZE);
+                queues.add(queue);
+                executor.execute(() -> fill(bucket, shard, queue));
+            }
+            merged = new QueueIterator(queues, 1, executor);
+        } else {
+            BlockingQueue<Object> queue = new LinkedBlockingQueue<>(ObjectListing.PAGE_SIZE * Math.min(parallelism, shards.size()));
+            for (Shard shard : shards) {
+                executor.execute(() -> fill(bucket, shard, queue));
+            }
+            merged = new QueueIterator(List.of(queue), shards.size(), executor);
+        }
+        executor.shutdown();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.NONNULL | (ordered ? Spliterator.ORDERED : 0)), false)
+                .onClose(executor::shutdownNow);
+    }
+
+    /**
+     * List one shard into the queue, ending with {@link #END} or the failure
+     */
+    private void fill(String bucket, Shard shard, BlockingQueue<Object> queue) {
+        try {
+            Object last = END;
+            try {
+                if (shard.objects != null) {
+                    for (Item item : shard.objects) {
+                        queue.put(item);
+                    }
+                } else {
+                    ListObjectsArgs.Builder builder = ListObjectsArgs.builder()
+                            .bucket(bucket)
+                            .prefix(shard.prefix)
+                            .recursive(true);
+                    if (shard.startAfter != null) {
+                        builder.startAfter(shard.startAfter);
+                    }
+                    Iterator<Item> items = ObjectListing.iterator(bucket, minioConnectionFactory.getConnection().listObjects(options.applyTo(builder).build()));
+                    while (items.hasNext()) {
+                        Item item = items.next();
+                        if (shard.endInclusive != null && item.objectName().compareTo(shard.endInclusive) > 0) {
+                            // the rest belongs to the next shard, stop before requesting its pages
+                            break;
+                        }
+                        queue.put(item);
+                    }
+                }
+            } catch (RuntimeException e) {
+                last = e;
+            }
+            queue.put(last);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Drains the queues one after the other, a queue is done after {@code endsPerQueue} end markers
+     */
+    private static final class QueueIterator implements Iterator<Item> {
+        private final List<BlockingQueue<Object>> queues;
+        private final int endsPerQueue;
+        private final ExecutorService executor;
+        private int current;
+        private int ends;
+        private Object next;
+
+        private QueueIterator(List<BlockingQueue<Object>> queues, int endsPerQueue, ExecutorService executor) {
+            this.queues = queues;
+            this.endsPerQueue = endsPerQueue;
+            this.executor = executor;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && current < queues.size()) {
+                Object taken;
+                try {
+                    taken = queues.get(current).take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    executor.shutdownNow();
+                    throw new IllegalStateException("interrupted while waiting for the object listing", e);
+                }
+                if (taken instanceof RuntimeException) {
+                    executor.shutdownNow();
+                    throw (RuntimeException) taken;
+                }
+                if (taken != END) {
+                    next = taken;
+                } else if (++ends == endsPerQueue) {
+                    ends = 0;
+                    current++;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Item next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Item item = (Item) next;
+            next = null;
+            return item;
+        }
+    }
+
+    /**
+     * Either objects found while looking for prefixes or a key range below a prefix
+     */
+    private static final class Shard {
+        private final List<Item> objects;
+        private final String prefix;
+        private final String startAfter;
+        private final String endInclusive;
+
+        private Shard(List<Item> objects, String prefix, String startAfter, String endInclusive) {
+            this.objects = objects;
+            this.prefix = prefix;
+            this.startAfter = startAfter;
+            this.endInclusive = endInclusive;
+        }
+
+        static Shard objects(List<Item> objects) {
+            return new Shard(objects, null, null, null);
+        }
+
+        static Shard range(String prefix, String startAfter, String endInclusive) {
+            return new Shard(null, prefix, startAfter, endInclusive);
+        }
+    }
+
+    private static final ThreadFactory SHARD_THREADS = runnable -> {
+        Thread thread = new Thread(runnable, "minio-list-shard-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    };
+}
@@ -0,0 +1,200 @@
+package com.junhong.ojectstoragespringbootstarter.transfer;
+
+import com.junhong.ojectstoragespringbootstarter.connection.MinioConnectionFactory;
+import com.junhong.ojectstoragespringbootstarter.service.ObjectListing;
+import io.minio.ListObjectsArgs;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.InsufficientDataException;
+import io.minio.errors.InternalException;
+import io.minio.errors.InvalidResponseException;
+import io.minio.errors.ServerException;
+import io.minio.errors.XmlParserException;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.awaitAll;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.backoffMillis;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.daemonThreads;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.isRetryable;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.retry;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.sleep;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.submit;
+
+/**
+ * Deletes many objects with concurrent multi-object delete requests.
+ * <p>
+ * Keys are consumed lazily from an iterator or a listing and cut into batches of at most 1000 keys, the limit of a
+ * DeleteObjects request. Up to {@code parallelism} batches are in flight while the next one is filled, so a
+ * listing and the deletes overlap and at most {@code parallelism + 1} batches of keys are held in memory.
+ * A failed request is retried, and keys reported with a retryable error code are sent again with the next attempt.
+ * Keys that still fail are counted in the returned {@link TransferSummary}, which keeps only the first few failures.
+ * <p>
+ * Caches of templates are not invalidated, deleted keys may be served from them until they expire.
+ *
+ * @author jh
+ */
+public class BulkDeleter {
+    private final static Logger log = LoggerFactory.getLogger(BulkDeleter.class);
+
+    /**
+     * Most keys a DeleteObjects request accepts
+     */
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    private static final ThreadFactory DELETE_THREADS = daemonThreads("minio-delete");
+
+    private final MinioConnectionFactory minioConnectionFactory;
+    private final int batchSize;
+    private final int parallelism;
+    private final int maxRetries;
+
+    /**
+     * @param batchSize   keys per request, at most {@value #MAX_BATCH_SIZE}
+     * @param parallelism requests in flight at the same time
+     * @param maxRetries  retries of a failed request or key before it counts as failed
+     */
+    public BulkDeleter(MinioConnectionFactory minioConnectionFactory, int batchSize, int parallelism, int maxRetries) {
+        if (batchSize < 1 || batchSize > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("batchSize must be between 1 and " + MAX_BATCH_SIZE + ": " + batchSize);
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must not be negative: " + maxRetries);
+        }
+        this.minioConnectionFactory = minioConnectionFactory;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Delete every object below a prefix, while listing it
+     */
+    public TransferSummary<String> deletePrefix(String bucketName, String prefix) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        Iterable<Result<Item>> listing = minioConnectionFactory.getConnection().listObjects(ListObjectsArgs.builder()
+                .bucket(bucketName)
+                .prefix(prefix)
+                .recursive(true)
+                .build());
+        Iterator<Item> items = ObjectListing.iterator(bucketName, listing);
+        return delete(bucketName, new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return items.hasNext();
+            }
+
+            @Override
+            public String next() {
+                return items.next().objectName();
+            }
+        });
+    }
+
+    public TransferSummary<String> delete(String bucketName, Iterable<String> objectNames) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        return delete(bucketName, objectNames.iterator());
+    }
+
+    /**
+     * Delete the objects named by an iterator, which is consumed as batches are sent
+     *
+     * @throws ErrorResponseException when a request keeps failing, batches already sent stay deleted
+     */
+    public TransferSummary<String> delete(String bucketName, Iterator<String> objectNames) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        TransferTally<String> tally = new TransferTally<>();
+        List<String> batch = new ArrayList<>(batchSize);
+        while (objectNames.hasNext() && batch.size() < batchSize) {
+            batch.add(objectNames.next());
+        }
+        if (!objectNames.hasNext()) {
+            if (!batch.isEmpty()) {
+                deleteBatch(bucketName, batch, tally);
+            }
+            return tally.summary();
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, DELETE_THREADS);
+        Semaphore slots = new Semaphore(parallelism);
+        List<Future<Void>> futures = new ArrayList<>();
+        try {
+            while (!batch.isEmpty()) {
+                List<String> keys = batch;
+                submit(executor, slots, futures, () -> {
+                    deleteBatch(bucketName, keys, tally);
+                    return null;
+                });
+                batch = new ArrayList<>(batchSize);
+                while (objectNames.hasNext() && batch.size() < batchSize) {
+                    batch.add(objectNames.next());
+                }
+            }
+            awaitAll(futures);
+        } finally {
+            executor.shutdownNow();
+        }
+        TransferSummary<String> summary = tally.summary();
+        log.debug("Deleted {} objects of {}, {} failed", summary.getCompleted(), bucketName, summary.getFailed());
+        return summary;
+    }
+
+    /**
+     * Delete one batch, retrying the request and the keys that failed with a retryable code
+     */
+    private void deleteBatch(String bucketName, List<String> keys, TransferTally<String> tally) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        List<String> pending = keys;
+        int attempt = 0;
+        while (true) {
+            List<String> requested = pending;
+            List<DeleteError> errors = retry(maxRetries, "delete of " + requested.size() + " objects of " + bucketName,
+                    () -> remove(bucketName, requested));
+            List<String> retry = new ArrayList<>();
+            for (DeleteError error : errors) {
+                if (attempt < maxRetries && isRetryable(error.code())) {
+                    retry.add(error.objectName());
+                } else {
+                    tally.failed(error.objectName(), new ErrorResponseException(error, null, null));
+                }
+            }
+            tally.completed(pending.size() - errors.size(), 0);
+            if (retry.isEmpty()) {
+                return;
+            }
+            attempt++;
+            pending = retry;
+            sleep(backoffMillis(attempt));
+        }
+    }
+
+    private List<DeleteError> remove(String bucketName, List<String> keys) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        List<DeleteObject> objects = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            objects.add(new DeleteObject(key));
+        }
+        List<DeleteError> errors = new ArrayList<>();
+        for (Result<DeleteError> result : minioConnectionFactory.getConnection().removeObjects(RemoveObjectsArgs.builder()
+                .bucket(bucketName)
+                .objects(objects)
+                .build())) {
+            errors.add(result.get());
+        }
+        return errors;
+    }
+
+}
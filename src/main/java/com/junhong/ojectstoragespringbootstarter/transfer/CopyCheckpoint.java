@@ -0,0 +1,80 @@
+package com.junhong.ojectstoragespringbootstarter.transfer;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Progress of a prefix copy or move, the last source key up to which every key is done.
+ * <p>
+ * The listing returns keys in order, so a run resumes by listing after that key. The file is replaced atomically
+ * and synced on every update, a crash leaves either the previous or the new key.
+ *
+ * @author jh
+ */
+final class CopyCheckpoint {
+    private final static Logger log = LoggerFactory.getLogger(CopyCheckpoint.class);
+
+    private final Path path;
+    private final String job;
+    private String after;
+
+    private CopyCheckpoint(Path path, String job, String after) {
+        this.path = path;
+        this.job = job;
+        this.after = after;
+    }
+
+    /**
+     * Continue the checkpoint of the same job, or start a new one
+     *
+     * @param job identifies the buckets, prefixes and mode, a checkpoint of another job is ignored
+     */
+    static CopyCheckpoint open(Path path, String job) throws IOException {
+        if (Files.exists(path)) {
+            try {
+                JSONObject json = JSON.parseObject(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+                if (json != null && job.equals(json.getString("job"))) {
+                    return new CopyCheckpoint(path, job, json.getString("after"));
+                }
+                log.info("Checkpoint {} belongs to another job, starting over", path);
+            } catch (JSONException e) {
+                log.warn("Ignoring unreadable copy checkpoint {}", path, e);
+            }
+        }
+        return new CopyCheckpoint(path, job, null);
+    }
+
+    /**
+     * @return source key to list after, null to start at the beginning
+     */
+    String after() {
+        return after;
+    }
+
+    /**
+     * Record that every key up to and including {@code after} is done, durable once this returns
+     */
+    void advance(String after) throws IOException {
+        if (Objects.equals(this.after, after)) {
+            return;
+        }
+        this.after = after;
+        JSONObject json = new JSONObject();
+        json.put("job", job);
+        json.put("after", after);
+        TransferSupport.writeDurably(path, json.toJSONString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+}
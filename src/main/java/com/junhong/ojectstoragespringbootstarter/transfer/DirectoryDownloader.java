@@ -0,0 +1,190 @@
+package com.junhong.ojectstoragespringbootstarter.transfer;
+
+import com.junhong.ojectstoragespringbootstarter.connection.MinioConnectionFactory;
+import com.junhong.ojectstoragespringbootstarter.service.ObjectListing;
+import com.junhong.ojectstoragespringbootstarter.service.ObjectOptions;
+import io.minio.ListObjectsArgs;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.InsufficientDataException;
+import io.minio.errors.InternalException;
+import io.minio.errors.InvalidResponseException;
+import io.minio.errors.ServerException;
+import io.minio.errors.XmlParserException;
+import io.minio.messages.Item;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.awaitAll;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.daemonThreads;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.directoryPrefix;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.md5Hex;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.retryOrRecord;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.submit;
+
+/**
+ * Downloads every object below a prefix into a local directory that mirrors the keys.
+ * <p>
+ * The listing is consumed while up to {@code parallelism} objects are downloaded, each through the
+ * {@link ParallelDownloader}, so a file only appears once it is complete and large objects are fetched in ranges.
+ * Downloaded files get the last modified time of their object, which lets a later run with
+ * {@link Skip#SIZE_AND_LAST_MODIFIED} skip them without reading them.
+ * <p>
+ * Keys that would leave the directory, like {@code a/../../b}, are reported as failures and never written.
+ * Files that fail after the retries are reported in the returned {@link TransferSummary} and do not stop the others.
+ *
+ * @author jh
+ */
+public class DirectoryDownloader {
+    private final static Logger log = LoggerFactory.getLogger(DirectoryDownloader.class);
+
+    private static final Pattern MD5_ETAG = Pattern.compile("[0-9a-fA-F]{32}");
+    private static final ThreadFactory DOWNLOAD_THREADS = daemonThreads("minio-directory-download");
+
+    /**
+     * When an existing local file is left alone
+     */
+    public enum Skip {
+        /**
+         * Download every object
+         */
+        NEVER,
+        /**
+         * Skip files with the size of the object and its last modified time, to the second
+         */
+        SIZE_AND_LAST_MODIFIED,
+        /**
+         * Skip files with the size of the object whose MD5 matches its ETag, objects with multipart or encrypted
+         * ETags are always downloaded
+         */
+        ETAG
+    }
+
+    private final MinioConnectionFactory minioConnectionFactory;
+    private final ParallelDownloader downloader;
+    private final int parallelism;
+    private final int maxRetries;
+
+    /**
+     * @param downloader  downloads each object, large objects in parallel ranges
+     * @param parallelism objects in flight at the same time
+     * @param maxRetries  retries of an object before it counts as failed
+     */
+    public DirectoryDownloader(MinioConnectionFactory minioConnectionFactory, ParallelDownloader downloader, int parallelism, int maxRetries) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must not be negative: " + maxRetries);
+        }
+        this.minioConnectionFactory = minioConnectionFactory;
+        this.downloader = downloader;
+        this.parallelism = parallelism;
+        this.maxRetries = maxRetries;
+    }
+
+    public TransferSummary<String> download(String bucketName, String prefix, Path directory) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        return download(bucketName, prefix, directory, Skip.NEVER, ObjectOptions.EMPTY);
+    }
+
+    /**
+     * Download every object below a prefix, {@code prefix/a/b.txt} becomes {@code dir/a/b.txt}
+     *
+     * @param prefix  key prefix, a missing trailing slash is added, empty or null for the whole bucket
+     * @param skip    which existing files are left alone
+     * @param options region, extra headers and customer key of the objects
+     * @throws ErrorResponseException when the listing fails, files downloaded so far stay on disk
+     */
+    public TransferSummary<String> download(String bucketName, String prefix, Path directory, Skip skip, ObjectOptions options) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        String keyPrefix = directoryPrefix(prefix);
+        Path root = directory.toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        Iterator<Item> items = ObjectListing.iterator(bucketName, minioConnectionFactory.getConnection().listObjects(options.applyTo(ListObjectsArgs.builder()
+                .bucket(bucketName)
+                .prefix(keyPrefix)
+                .recursive(true))
+                .build()));
+        TransferTally<String> tally = new TransferTally<>();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, DOWNLOAD_THREADS);
+        Semaphore slots = new Semaphore(parallelism);
+        List<Future<Void>> futures = new ArrayList<>();
+        try {
+            while (items.hasNext()) {
+                Item item = items.next();
+                if (item.objectName().endsWith("/")) {
+                    // folder marker
+                    continue;
+                }
+                submit(executor, slots, futures, () -> {
+                    transfer(bucketName, item, root, item.objectName().substring(keyPrefix.length()), skip, options, tally);
+                    return null;
+                });
+            }
+            awaitAll(futures);
+        } finally {
+            executor.shutdownNow();
+        }
+        TransferSummary<String> summary = tally.summary();
+        log.debug("Downloaded {}/{} to {}: {}", bucketName, keyPrefix, root, summary);
+        return summary;
+    }
+
+    /**
+     * Download one object unless the local file is up to date, failures are recorded instead of thrown
+     */
+    private void transfer(String bucketName, Item item, Path root, String relativeName, Skip skip, ObjectOptions options, TransferTally<String> tally) throws InterruptedIOException {
+        String objectName = item.objectName();
+        Path target = root.resolve(relativeName).normalize();
+        if (!target.startsWith(root) || target.equals(root)) {
+            log.warn("Not downloading {}/{}, it would be written outside of {}", bucketName, objectName, root);
+            tally.failed(objectName, new IOException("Object " + objectName + " would be written outside of " + root));
+            return;
+        }
+        retryOrRecord(maxRetries, "download of " + bucketName + "/" + objectName, () -> {
+            if (upToDate(target, item, skip, options)) {
+                tally.skipped(item.size());
+                return null;
+            }
+            Files.createDirectories(target.getParent());
+            downloader.download(bucketName, objectName, target, options);
+            if (item.lastModified() != null) {
+                Files.setLastModifiedTime(target, FileTime.from(item.lastModified().toInstant()));
+            }
+            tally.completed(item.size());
+            return null;
+        }, e -> tally.failed(objectName, e));
+    }
+
+    private static boolean upToDate(Path target, Item item, Skip skip, ObjectOptions options) throws IOException, NoSuchAlgorithmException {
+        if (skip == Skip.NEVER || !Files.isRegularFile(target) || Files.size(target) != item.size()) {
+            return false;
+        }
+        if (skip == Skip.SIZE_AND_LAST_MODIFIED) {
+            return item.lastModified() != null && Files.getLastModifiedTime(target).to(TimeUnit.SECONDS)
+                    == item.lastModified().toEpochSecond();
+        }
+        String etag = item.etag() == null ? "" : item.etag().replace("\"", "");
+        if (!MD5_ETAG.matcher(etag).matches() || options.getSsec() != null) {
+            return false;
+        }
+        return md5Hex(target, item.size(), 0).equalsIgnoreCase(etag);
+    }
+
+}
@@ -0,0 +1,184 @@
+package com.junhong.ojectstoragespringbootstarter.transfer;
+
+import com.junhong.ojectstoragespringbootstarter.cache.MissingObjectCache;
+import com.junhong.ojectstoragespringbootstarter.connection.MinioConnectionFactory;
+import com.junhong.ojectstoragespringbootstarter.service.ObjectOptions;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.InsufficientDataException;
+import io.minio.errors.InternalException;
+import io.minio.errors.InvalidResponseException;
+import io.minio.errors.ServerException;
+import io.minio.errors.XmlParserException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.awaitAll;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.daemonThreads;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.directoryPrefix;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.md5Hex;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.retryOrRecord;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.submit;
+
+/**
+ * Uploads a local directory tree below a prefix, skipping files the bucket already holds.
+ * <p>
+ * The tree is walked lazily and up to {@code parallelism} files are stat'ed and uploaded at the same time, so many
+ * small files keep the connections busy instead of waiting on one round trip after the other. A file is skipped when
+ * an object of the same size exists whose ETag matches the MD5 of the file, multipart ETags are recomputed with the
+ * part size the {@link ParallelUploader} would use. Objects with ETags that are no MD5, for example encrypted with
+ * SSE-KMS or SSE-C, are always uploaded again.
+ * <p>
+ * The files in flight share the part buffer budget of the {@link ParallelUploader}, so memory stays at its
+ * {@code maxBufferedBytes} however many large files are uploaded at the same time.
+ * <p>
+ * Files that fail after the retries are reported in the returned {@link TransferSummary} and do not stop the others.
+ *
+ * @author jh
+ */
+public class DirectoryUploader {
+    private final static Logger log = LoggerFactory.getLogger(DirectoryUploader.class);
+
+    private static final Pattern ETAG = Pattern.compile("([0-9a-fA-F]{32})(?:-(\\d+))?");
+    private static final ThreadFactory UPLOAD_THREADS = daemonThreads("minio-directory-upload");
+
+    private final MinioConnectionFactory minioConnectionFactory;
+    private final ParallelUploader uploader;
+    private final int parallelism;
+    private final int maxRetries;
+
+    /**
+     * @param uploader    uploads each file, large files in parallel parts
+     * @param parallelism files in flight at the same time
+     * @param maxRetries  retries of a file before it counts as failed
+     */
+    public DirectoryUploader(MinioConnectionFactory minioConnectionFactory, ParallelUploader uploader, int parallelism, int maxRetries) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must not be negative: " + maxRetries);
+        }
+        this.minioConnectionFactory = minioConnectionFactory;
+        this.uploader = uploader;
+        this.parallelism = parallelism;
+        this.maxRetries = maxRetries;
+    }
+
+    public TransferSummary<Path> upload(String bucketName, String prefix, Path directory) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        return upload(bucketName, prefix, directory, ObjectOptions.EMPTY);
+    }
+
+    /**
+     * Upload every regular file below a directory, {@code dir/a/b.txt} becomes {@code prefix/a/b.txt}
+     *
+     * @param prefix  key prefix, a missing trailing slash is added, empty or null for the bucket root
+     * @param options headers, metadata, encryption and tags of every object
+     * @throws IOException when the directory cannot be walked, files uploaded so far stay uploaded
+     */
+    public TransferSummary<Path> upload(String bucketName, String prefix, Path directory, ObjectOptions options) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        String keyPrefix = directoryPrefix(prefix);
+        TransferTally<Path> tally = new TransferTally<>();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, UPLOAD_THREADS);
+        Semaphore slots = new Semaphore(parallelism);
+        List<Future<Void>> futures = new ArrayList<>();
+        try (Stream<Path> walk = Files.walk(directory)) {
+            Iterator<Path> files = walk.filter(Files::isRegularFile).iterator();
+            while (files.hasNext()) {
+                Path file = files.next();
+                String objectName = keyPrefix + objectName(directory.relativize(file));
+                submit(executor, slots, futures, () -> {
+                    transfer(bucketName, objectName, file, options, tally);
+                    return null;
+                });
+            }
+            awaitAll(futures);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            executor.shutdownNow();
+        }
+        TransferSummary<Path> summary = tally.summary();
+        log.debug("Uploaded {} to {}/{}: {}", directory, bucketName, keyPrefix, summary);
+        return summary;
+    }
+
+    /**
+     * Upload one file unless it is unchanged, failures are recorded instead of thrown
+     */
+    private void transfer(String bucketName, String objectName, Path file, ObjectOptions options, TransferTally<Path> tally) throws InterruptedIOException {
+        retryOrRecord(maxRetries, "upload of " + file + " to " + bucketName + "/" + objectName, () -> {
+            long size = Files.size(file);
+            if (unchanged(bucketName, objectName, file, size, options)) {
+                tally.skipped(size);
+            } else {
+                uploader.upload(bucketName, objectName, file, null, options);
+                tally.completed(size);
+            }
+            return null;
+        }, e -> tally.failed(file, e));
+    }
+
+    private boolean unchanged(String bucketName, String objectName, Path file, long size, ObjectOptions options) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        StatObjectResponse stat;
+        try {
+            stat = minioConnectionFactory.getConnection().statObject(options.applyRead(StatObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(objectName)).build());
+        } catch (ErrorResponseException e) {
+            if (MissingObjectCache.isNoSuchKey(e)) {
+                return false;
+            }
+            throw e;
+        }
+        if (stat.size() != size || stat.etag() == null || options.getSsec() != null
+                || "aws:kms".equals(stat.headers().get("x-amz-server-side-encryption"))) {
+            return false;
+        }
+        Matcher etag = ETAG.matcher(stat.etag());
+        if (!etag.matches()) {
+            return false;
+        }
+        if (etag.group(2) == null) {
+            return md5Hex(file, size, 0).equalsIgnoreCase(etag.group(1));
+        }
+        long partSize = uploader.partSizeFor(size);
+        if ((size + partSize - 1) / partSize != Long.parseLong(etag.group(2))) {
+            // uploaded with another part size, cannot be compared
+            return false;
+        }
+        return md5Hex(file, size, partSize).equalsIgnoreCase(etag.group(1));
+    }
+
+    private static String objectName(Path relative) {
+        StringBuilder name = new StringBuilder();
+        for (Path element : relative) {
+            if (name.length() > 0) {
+                name.append('/');
+            }
+            name.append(element);
+        }
+        return name.toString();
+    }
+
+}
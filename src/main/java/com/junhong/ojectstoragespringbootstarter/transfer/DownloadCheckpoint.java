@@ -0,0 +1,98 @@
+package com.junhong.ojectstoragespringbootstarter.transfer;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Sidecar of a partial download, records which version of the object is being downloaded and how many bytes
+ * of the partial file are synced to disk.
+ * <p>
+ * The sidecar is only advanced after the partial file was forced, so the recorded byte count never covers
+ * bytes a crash could still lose.
+ *
+ * @author jh
+ */
+final class DownloadCheckpoint {
+    private final static Logger log = LoggerFactory.getLogger(DownloadCheckpoint.class);
+
+    private final Path path;
+    private final String etag;
+    private final long size;
+    private long verified;
+
+    private DownloadCheckpoint(Path path, String etag, long size, long verified) {
+        this.path = path;
+        this.etag = etag;
+        this.size = size;
+        this.verified = verified;
+    }
+
+    /**
+     * Start a new sidecar, replacing any previous one
+     */
+    static DownloadCheckpoint create(Path path, String etag, long size) throws IOException {
+        DownloadCheckpoint checkpoint = new DownloadCheckpoint(path, etag, size, 0);
+        checkpoint.write();
+        return checkpoint;
+    }
+
+    /**
+     * Read a sidecar back
+     *
+     * @return null if there is no sidecar or it is unreadable
+     */
+    static DownloadCheckpoint load(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            JSONObject json = JSON.parseObject(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+            if (json == null || json.getString("etag") == null) {
+                return null;
+            }
+            return new DownloadCheckpoint(path, json.getString("etag"), json.getLongValue("size"), json.getLongValue("verified"));
+        } catch (JSONException e) {
+            log.warn("Ignoring unreadable download checkpoint {}", path, e);
+            return null;
+        }
+    }
+
+    /**
+     * @return whether this sidecar belongs to the given version of the object
+     */
+    boolean matches(String etag, long size) {
+        return this.etag.equals(etag) && this.size == size;
+    }
+
+    /**
+     * Record bytes synced to the partial file, durable once this returns; the caller forces the partial file first
+     */
+    void verified(long verified) throws IOException {
+        this.verified = verified;
+        write();
+    }
+
+    long verified() {
+        return verified;
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    private void write() throws IOException {
+        JSONObject json = new JSONObject();
+        json.put("etag", etag);
+        json.put("size", size);
+        json.put("verified", verified);
+        TransferSupport.writeDurably(path, json.toJSONString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,395 @@
+package com.junhong.ojectstoragespringbootstarter.transfer;
+
+import com.junhong.ojectstoragespringbootstarter.connection.MinioConnectionFactory;
+import com.junhong.ojectstoragespringbootstarter.service.ObjectOptions;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.InsufficientDataException;
+import io.minio.errors.InternalException;
+import io.minio.errors.InvalidResponseException;
+import io.minio.errors.ServerException;
+import io.minio.errors.XmlParserException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.regex.Pattern;
+
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.acquire;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.awaitAll;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.backoffMillis;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.daemonThreads;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.describe;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.forceDirectory;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.isRetryable;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.sleep;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.submit;
+
+/**
+ * Downloads an object as byte ranges fetched concurrently.
+ * <p>
+ * Ranges are written with positional writes into a temp file preallocated next to the target, which is then
+ * renamed over the target, so the target either keeps its old content or holds the whole object.
+ * Every range is requested with the ETag of the first stat, an object replaced during the download fails it
+ * instead of producing a mix of two versions. A failed range is retried from where it stopped.
+ * At most {@code parallelism} ranges are fetched at once, whatever the number of downloads running concurrently.
+ * <p>
+ * {@link #downloadResumable} trades the parallel ranges for a single stream whose progress survives restarts.
+ *
+ * @author jh
+ */
+public class ParallelDownloader {
+    private final static Logger log = LoggerFactory.getLogger(ParallelDownloader.class);
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final ThreadFactory DOWNLOAD_THREADS = daemonThreads("minio-download");
+    private static final Pattern MD5_ETAG = Pattern.compile("[0-9a-fA-F]{32}");
+
+    private final MinioConnectionFactory minioConnectionFactory;
+    private final long chunkSize;
+    private final int parallelism;
+    private final int maxRetries;
+    /**
+     * Ranges this downloader may still fetch, shared by all its downloads
+     */
+    private final Semaphore rangeSlots;
+
+    /**
+     * @param chunkSize   size of every range but the last one
+     * @param parallelism ranges fetched at the same time, over all the concurrent downloads of this downloader
+     * @param maxRetries  retries of a failed range before the download fails
+     */
+    public ParallelDownloader(MinioConnectionFactory minioConnectionFactory, long chunkSize, int parallelism, int maxRetries) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must not be negative: " + maxRetries);
+        }
+        this.minioConnectionFactory = minioConnectionFactory;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.maxRetries = maxRetries;
+        this.rangeSlots = new Semaphore(parallelism);
+    }
+
+    public StatObjectResponse download(String bucketName, String objectName, Path target) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        return download(bucketName, objectName, target, ObjectOptions.EMPTY);
+    }
+
+    /**
+     * Download an object into a file, an existing file is replaced once the whole object is on disk
+     *
+     * @param options region, extra headers and customer key of the object
+     * @return stat of the downloaded object
+     */
+    public StatObjectResponse download(String bucketName, String objectName, Path target, ObjectOptions options) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        StatObjectResponse stat = minioConnectionFactory.getConnection().statObject(options.applyRead(StatObjectArgs.builder()
+                .bucket(bucketName)
+                .object(objectName))
+                .build());
+        Path absolute = target.toAbsolutePath();
+        Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString() + ".", ".download");
+        boolean moved = false;
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                long size = stat.size();
+                if (size > 0) {
+                    // reserve the whole length up front, ranges then only overwrite
+                    channel.write(ByteBuffer.wrap(new byte[1]), size - 1);
+                }
+                fetchRanges(bucketName, objectName, stat, channel, options);
+                channel.force(false);
+            }
+            move(temp, absolute);
+            moved = true;
+            return stat;
+        } finally {
+            if (!moved) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    public StatObjectResponse downloadResumable(String bucketName, String objectName, Path target) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        return downloadResumable(bucketName, objectName, target, ObjectOptions.EMPTY);
+    }
+
+    /**
+     * Download an object into a file so that a failed or interrupted download can be continued.
+     * <p>
+     * The object is streamed into {@code <target>.part}, and {@code <target>.part.json} records its ETag and
+     * the bytes synced so far. Calling this again after a failure or restart asks only for the missing bytes
+     * with a ranged GET, a changed object starts the download over. A plain MD5 ETag is checked against the
+     * finished file before it replaces the target.
+     *
+     * @param options region, extra headers and customer key of the object
+     * @return stat of the downloaded object
+     */
+    public StatObjectResponse downloadResumable(String bucketName, String objectName, Path target, ObjectOptions options) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        return downloadResumable(bucketName, objectName, target.toAbsolutePath(), options, false);
+    }
+
+    private StatObjectResponse downloadResumable(String bucketName, String objectName, Path target, ObjectOptions options, boolean restarted) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        StatObjectResponse stat = minioConnectionFactory.getConnection().statObject(options.applyRead(StatObjectArgs.builder()
+                .bucket(bucketName)
+                .object(objectName))
+                .build());
+        Path part = target.resolveSibling(target.getFileName() + ".part");
+        DownloadCheckpoint checkpoint = DownloadCheckpoint.load(target.resolveSibling(target.getFileName() + ".part.json"));
+        long verified = 0;
+        if (checkpoint != null && checkpoint.matches(stat.etag(), stat.size()) && Files.exists(part) && Files.size(part) >= checkpoint.verified()) {
+            verified = checkpoint.verified();
+            log.info("Resuming download of {}/{} at byte {} of {}", bucketName, objectName, verified, stat.size());
+        } else {
+            if (checkpoint != null) {
+                log.info("Restarting download of {}/{}, the object or the partial file changed", bucketName, objectName);
+            }
+            checkpoint = DownloadCheckpoint.create(target.resolveSibling(target.getFileName() + ".part.json"), stat.etag(), stat.size());
+        }
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // bytes past the synced count may be garbage from a crash
+            channel.truncate(verified);
+            fetchFrom(bucketName, objectName, stat, channel, verified, checkpoint, options);
+            channel.force(false);
+        } catch (ErrorResponseException e) {
+            if (!"PreconditionFailed".equals(e.errorResponse().code())) {
+                throw e;
+            }
+            // replaced while downloading, the partial file holds the old version
+            Files.deleteIfExists(part);
+            checkpoint.delete();
+            if (restarted) {
+                throw e;
+            }
+            log.info("Restarting download of {}/{}, the object changed while downloading", bucketName, objectName);
+            return downloadResumable(bucketName, objectName, target, options, true);
+        }
+        if (!matchesEtag(part, stat, options)) {
+            Files.deleteIfExists(part);
+            checkpoint.delete();
+            throw new IOException("content of " + bucketName + "/" + objectName + " does not match its ETag " + stat.etag());
+        }
+        move(part, target);
+        checkpoint.delete();
+        return stat;
+    }
+
+    /**
+     * Stream the object from {@code offset} to its end, retrying from the last synced byte
+     */
+    private void fetchFrom(String bucketName, String objectName, StatObjectResponse stat, FileChannel channel, long offset, DownloadCheckpoint checkpoint, ObjectOptions options) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        long position = offset;
+        int attempt = 0;
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        while (position < stat.size()) {
+            try {
+                long next = streamFrom(bucketName, objectName, stat, channel, position, checkpoint, buffer, options);
+                if (next > position) {
+                    // only attempts without any progress count against the retries
+                    attempt = 0;
+                }
+                position = next;
+            } catch (IOException | ServerException | ErrorResponseException e) {
+                if (attempt >= maxRetries || !isRetryable(e)) {
+                    throw e;
+                }
+                attempt++;
+                position = checkpoint.verified();
+                log.warn("Retrying download of {}/{} from byte {} after attempt {} failed: {}", bucketName, objectName, position, attempt, describe(e));
+                sleep(backoffMillis(attempt));
+            }
+        }
+    }
+
+    /**
+     * @return position reached, synced to disk and recorded in the checkpoint
+     */
+    private long streamFrom(String bucketName, String objectName, StatObjectResponse stat, FileChannel channel, long offset, DownloadCheckpoint checkpoint, byte[] buffer, ObjectOptions options) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        long size = stat.size();
+        long position = offset;
+        long synced = offset;
+        try (GetObjectResponse response = minioConnectionFactory.getConnection().getObject(options.applyRead(GetObjectArgs.builder()
+                .bucket(bucketName)
+                .object(objectName)
+                .offset(offset)
+                .length(size - offset)
+                .matchETag(stat.etag()))
+                .build())) {
+            int read;
+            while (position < size && (read = response.read(buffer, 0, (int) Math.min(buffer.length, size - position))) != -1) {
+                ByteBuffer source = ByteBuffer.wrap(buffer, 0, read);
+                while (source.hasRemaining()) {
+                    channel.write(source, position + source.position());
+                }
+                position += read;
+                if (position - synced >= chunkSize) {
+                    channel.force(false);
+                    checkpoint.verified(position);
+                    synced = position;
+                }
+            }
+        } catch (IOException e) {
+            if (position == offset) {
+                throw e;
+            }
+            log.debug("Download of {}/{} interrupted at byte {}", bucketName, objectName, position, e);
+        } finally {
+            if (position > synced) {
+                channel.force(false);
+                checkpoint.verified(position);
+            }
+        }
+        if (position == offset) {
+            throw new EOFException("response of " + bucketName + "/" + objectName + " ended before offset " + offset);
+        }
+        return position;
+    }
+
+    /**
+     * Compare the file with the ETag when the ETag is the MD5 of the content, which is not the case for
+     * multipart uploads and KMS or customer key encryption
+     */
+    private static boolean matchesEtag(Path file, StatObjectResponse stat, ObjectOptions options) throws IOException, NoSuchAlgorithmException {
+        String etag = stat.etag();
+        if (etag == null || !MD5_ETAG.matcher(etag).matches() || options.getSsec() != null
+                || "aws:kms".equals(stat.headers().get("x-amz-server-side-encryption"))) {
+            return true;
+        }
+        MessageDigest md5 = MessageDigest.getInstance("MD5");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                md5.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(md5.digest()).equalsIgnoreCase(etag);
+    }
+
+    private void fetchRanges(String bucketName, String objectName, StatObjectResponse stat, FileChannel channel, ObjectOptions options) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        long size = stat.size();
+        long ranges = (size + chunkSize - 1) / chunkSize;
+        if (ranges <= 1) {
+            acquire(rangeSlots);
+            try {
+                fetchRange(bucketName, objectName, stat.etag(), channel, 0, size, options);
+            } finally {
+                rangeSlots.release();
+            }
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool((int) Math.min(parallelism, ranges), DOWNLOAD_THREADS);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (long offset = 0; offset < size; offset += chunkSize) {
+                final long position = offset;
+                final long length = Math.min(chunkSize, size - offset);
+                // the slots are shared, concurrent downloads such as a DirectoryDownloader's stay within parallelism
+                submit(executor, rangeSlots, futures, () -> {
+                    fetchRange(bucketName, objectName, stat.etag(), channel, position, length, options);
+                    return null;
+                });
+            }
+            awaitAll(futures);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Fetch one range, retrying from the last byte written
+     */
+    private void fetchRange(String bucketName, String objectName, String etag, FileChannel channel, long offset, long length, ObjectOptions options) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        long written = 0;
+        int attempt = 0;
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        while (written < length) {
+            try {
+                written += copyRange(bucketName, objectName, etag, channel, offset + written, length - written, buffer, options);
+            } catch (IOException | ServerException | ErrorResponseException e) {
+                if (attempt >= maxRetries || !isRetryable(e)) {
+                    throw e;
+                }
+                attempt++;
+                log.warn("Retrying range {}-{} of {}/{} after attempt {} failed: {}", offset + written, offset + length - 1, bucketName, objectName, attempt, describe(e));
+                sleep(backoffMillis(attempt));
+            }
+        }
+    }
+
+    /**
+     * @return bytes written, fewer than {@code length} only when the response ended early
+     */
+    private long copyRange(String bucketName, String objectName, String etag, FileChannel channel, long offset, long length, byte[] buffer, ObjectOptions options) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        long written = 0;
+        try (GetObjectResponse response = minioConnectionFactory.getConnection().getObject(options.applyRead(GetObjectArgs.builder()
+                .bucket(bucketName)
+                .object(objectName)
+                .offset(offset)
+                .length(length)
+                .matchETag(etag))
+                .build())) {
+            int read;
+            while (written < length && (read = response.read(buffer, 0, (int) Math.min(buffer.length, length - written))) != -1) {
+                ByteBuffer source = ByteBuffer.wrap(buffer, 0, read);
+                while (source.hasRemaining()) {
+                    channel.write(source, offset + written + source.position());
+                }
+                written += read;
+            }
+        } catch (IOException e) {
+            if (written > 0) {
+                // keep the progress, the caller resumes after the bytes already written
+                log.debug("Range of {}/{} interrupted after {} bytes", bucketName, objectName, written, e);
+                return written;
+            }
+            throw e;
+        }
+        if (written < length) {
+            if (written > 0) {
+                return written;
+            }
+            throw new EOFException("response of " + bucketName + "/" + objectName + " ended before offset " + offset);
+        }
+        return written;
+    }
+
+    /**
+     * Rename the forced file over the target, and sync the directory so the rename survives a crash
+     */
+    private static void move(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        forceDirectory(target.getParent());
+    }
+}
@@ -0,0 +1,358 @@
+package com.junhong.ojectstoragespringbootstarter.transfer;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+import com.junhong.ojectstoragespringbootstarter.connection.ExtendedMinioAsyncClient;
+import com.junhong.ojectstoragespringbootstarter.connection.MinioConnectionFactory;
+import com.junhong.ojectstoragespringbootstarter.service.ObjectOptions;
+import io.minio.ObjectWriteResponse;
+import io.minio.ServerSideEncryptionCustomerKey;
+import io.minio.UploadObjectArgs;
+import io.minio.UploadPartResponse;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.InsufficientDataException;
+import io.minio.errors.InternalException;
+import io.minio.errors.InvalidResponseException;
+import io.minio.errors.ServerException;
+import io.minio.errors.XmlParserException;
+import io.minio.messages.Part;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.await;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.backoffMillis;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.describe;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.isRetryable;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.rethrow;
+
+/**
+ * Uploads a local file as a multipart upload whose parts are sent concurrently.
+ * <p>
+ * Parts are read with positional reads of one {@link FileChannel} into at most {@code parallelism} reusable buffers
+ * per upload. The buffers of all uploads running at the same time on one uploader, for example the files of a
+ * {@link DirectoryUploader}, share a budget of {@code maxBufferedBytes}: an upload takes more buffers only while the
+ * budget allows and waits for its first one otherwise, so memory stays bounded whatever the file sizes and the number
+ * of callers. A failed part is retried on its own, the upload is aborted only when a part keeps failing.
+ *
+ * @author jh
+ */
+public class ParallelUploader {
+    private final static Logger log = LoggerFactory.getLogger(ParallelUploader.class);
+
+    public static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    /**
+     * Parts are buffered in memory, so they are kept well below the 5GB S3 limit
+     */
+    public static final long MAX_PART_SIZE = 1024L * 1024 * 1024;
+    public static final int MAX_PARTS = 10000;
+
+    private static final long MIB = 1024L * 1024;
+
+    private final MinioConnectionFactory minioConnectionFactory;
+    private final long partSize;
+    private final int parallelism;
+    private final int maxRetries;
+    /**
+     * Part buffers left to allocate, in MiB
+     */
+    private final Semaphore bufferBudget;
+    private final int bufferBudgetMib;
+
+    /**
+     * @param partSize    size of every part but the last one, between {@link #MIN_PART_SIZE} and {@link #MAX_PART_SIZE};
+     *                    it grows when the file would otherwise need more than {@link #MAX_PARTS} parts
+     * @param parallelism parts uploaded at the same time
+     * @param maxRetries  retries of a failed part before the upload fails
+     */
+    public ParallelUploader(MinioConnectionFactory minioConnectionFactory, long partSize, int parallelism, int maxRetries) {
+        this(minioConnectionFactory, partSize, parallelism, maxRetries, partSize * parallelism);
+    }
+
+    /**
+     * @param maxBufferedBytes part buffers of all concurrent uploads together, at least one part
+     */
+    public ParallelUploader(MinioConnectionFactory minioConnectionFactory, long partSize, int parallelism, int maxRetries, long maxBufferedBytes) {
+        if (partSize < MIN_PART_SIZE || partSize > MAX_PART_SIZE) {
+            throw new IllegalArgumentException("partSize must be between " + MIN_PART_SIZE + " and " + MAX_PART_SIZE + ": " + partSize);
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must not be negative: " + maxRetries);
+        }
+        if (maxBufferedBytes < partSize || maxBufferedBytes / MIB > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("maxBufferedBytes must be between partSize and " + Integer.MAX_VALUE + " MiB: " + maxBufferedBytes);
+        }
+        this.minioConnectionFactory = minioConnectionFactory;
+        this.partSize = partSize;
+        this.parallelism = parallelism;
+        this.maxRetries = maxRetries;
+        this.bufferBudgetMib = (int) (maxBufferedBytes / MIB);
+        this.bufferBudget = new Semaphore(bufferBudgetMib);
+    }
+
+    public ObjectWriteResponse upload(String bucketName, String objectName, Path file, String contentType) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        return upload(bucketName, objectName, file, contentType, ObjectOptions.EMPTY);
+    }
+
+    /**
+     * Upload a file, files of a single part are sent with one plain put
+     *
+     * @param contentType can be null, probed from the file name then
+     * @param options     headers, metadata, encryption and tags of the object
+     */
+    public ObjectWriteResponse upload(String bucketName, String objectName, Path file, String contentType, ObjectOptions options) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        return upload(bucketName, objectName, file, contentType, options, null);
+    }
+
+    /**
+     * Upload a file and keep track of the completed parts in a local checkpoint file.
+     * <p>
+     * If the upload fails or the JVM stops, the multipart upload is left open on the server and calling this method
+     * again with the same checkpoint continues after the last completed part. The checkpoint is ignored, and the
+     * upload started over, when the file size or modification time changed in between.
+     * The checkpoint is deleted once the upload completes.
+     *
+     * @param checkpoint journal file of this upload, its directory must exist
+     */
+    public ObjectWriteResponse uploadResumable(String bucketName, String objectName, Path file, String contentType, ObjectOptions options, Path checkpoint) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        return upload(bucketName, objectName, file, contentType, options, checkpoint);
+    }
+
+    private ObjectWriteResponse upload(String bucketName, String objectName, Path file, String contentType, ObjectOptions options, Path checkpointFile) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        long objectSize = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        ExtendedMinioAsyncClient client = minioConnectionFactory.getAsyncConnection();
+        UploadCheckpoint checkpoint = checkpointFile == null ? null : resumable(client, checkpointFile, bucketName, objectName, objectSize, lastModified);
+
+        UploadObjectArgs.Builder builder = UploadObjectArgs.builder()
+                .bucket(bucketName)
+                .object(objectName)
+                .filename(file.toString(), checkpoint != null ? checkpoint.partSize() : partSizeFor(objectSize));
+        if (contentType != null) {
+            builder.contentType(contentType);
+        }
+        UploadObjectArgs args = options.applyWrite(builder).build();
+        if (args.partCount() <= 1) {
+            ObjectWriteResponse response = await(client.uploadObject(args));
+            if (checkpointFile != null) {
+                Files.deleteIfExists(checkpointFile);
+            }
+            return response;
+        }
+
+        if (checkpoint == null) {
+            Multimap<String, String> headers = HashMultimap.create(args.extraHeaders());
+            headers.putAll(args.genHeaders());
+            if (!headers.containsKey("Content-Type")) {
+                headers.put("Content-Type", args.contentType());
+            }
+            String uploadId = await(client.initiateMultipartUpload(bucketName, args.region(), objectName, headers, args.extraQueryParams()))
+                    .result().uploadId();
+            if (checkpointFile != null) {
+                checkpoint = UploadCheckpoint.create(checkpointFile, bucketName, objectName, uploadId, objectSize, lastModified, args.partSize());
+            } else {
+                checkpoint = UploadCheckpoint.transientCheckpoint(bucketName, objectName, uploadId, args.partSize());
+            }
+        } else {
+            log.info("Resuming upload {} of {}/{} with {} of {} parts done", checkpoint.uploadId(), bucketName, objectName, checkpoint.parts().size(), args.partCount());
+        }
+
+        String uploadId = checkpoint.uploadId();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Part[] parts = uploadParts(client, args, uploadId, channel, objectSize, checkpoint);
+            ObjectWriteResponse response = await(client.finishMultipartUpload(bucketName, args.region(), objectName, uploadId, parts, null, null));
+            checkpoint.delete();
+            return response;
+        } catch (Exception e) {
+            if (checkpointFile == null) {
+                abortQuietly(client, args, uploadId);
+            } else {
+                checkpoint.close();
+                log.warn("Upload {} of {}/{} stopped, it can be resumed from {}", uploadId, bucketName, objectName, checkpointFile);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return the checkpoint if the upload it records can be continued, null to start over
+     */
+    private UploadCheckpoint resumable(ExtendedMinioAsyncClient client, Path checkpointFile, String bucketName, String objectName, long objectSize, long lastModified) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        UploadCheckpoint checkpoint = UploadCheckpoint.load(checkpointFile);
+        if (checkpoint == null) {
+            return null;
+        }
+        if (!checkpoint.matches(bucketName, objectName, objectSize, lastModified)) {
+            log.info("Source of upload {} changed since {} was written, starting over", checkpoint.uploadId(), checkpointFile);
+            try {
+                await(client.cancelMultipartUpload(checkpoint.bucket(), null, checkpoint.object(), checkpoint.uploadId(), null, null));
+            } catch (ErrorResponseException e) {
+                log.debug("Stale upload {} already gone: {}", checkpoint.uploadId(), e.errorResponse().code());
+            }
+            checkpoint.delete();
+            return null;
+        }
+        try {
+            await(client.listUploadedParts(bucketName, null, objectName, 1, null, checkpoint.uploadId(), null, null));
+        } catch (ErrorResponseException e) {
+            if (!"NoSuchUpload".equals(e.errorResponse().code())) {
+                throw e;
+            }
+            log.info("Upload {} recorded in {} expired on the server, starting over", checkpoint.uploadId(), checkpointFile);
+            checkpoint.delete();
+            return null;
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Part size used for a file of the given size
+     */
+    long partSizeFor(long objectSize) {
+        long minimum = (objectSize + MAX_PARTS - 1) / MAX_PARTS;
+        if (minimum <= partSize) {
+            return partSize;
+        }
+        // round up to a whole MiB like the SDK does
+        long mib = 1024L * 1024;
+        return Math.min((minimum + mib - 1) / mib * mib, MAX_PART_SIZE);
+    }
+
+    private Part[] uploadParts(ExtendedMinioAsyncClient client, UploadObjectArgs args, String uploadId, FileChannel channel, long objectSize, UploadCheckpoint checkpoint) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        long size = args.partSize();
+        int partCount = args.partCount();
+        Multimap<String, String> ssecHeaders = args.sse() instanceof ServerSideEncryptionCustomerKey
+                ? Multimaps.forMap(args.sse().headers())
+                : null;
+
+        Part[] parts = new Part[partCount];
+        checkpoint.parts().forEach((number, etag) -> parts[number - 1] = new Part(number, etag));
+        BlockingQueue<byte[]> buffers = new LinkedBlockingQueue<>();
+        // a part larger than the whole budget takes all of it
+        int bufferMib = (int) Math.min(bufferBudgetMib, (size + MIB - 1) / MIB);
+        int allocated = 0;
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>(partCount);
+        try {
+            for (int partNumber = 1; partNumber <= partCount && failure.get() == null; partNumber++) {
+                if (parts[partNumber - 1] != null) {
+                    continue;
+                }
+                byte[] buffer = buffers.poll();
+                if (buffer == null) {
+                    if (allocated == 0) {
+                        bufferBudget.acquire(bufferMib);
+                    }
+                    if (allocated == 0 || allocated < parallelism && bufferBudget.tryAcquire(bufferMib)) {
+                        buffer = new byte[(int) size];
+                        allocated++;
+                    } else {
+                        buffer = buffers.take();
+                        if (failure.get() != null) {
+                            break;
+                        }
+                    }
+                }
+                long position = (partNumber - 1) * size;
+                int length = (int) Math.min(size, objectSize - position);
+                readFully(channel, buffer, position, length);
+
+                final int number = partNumber;
+                final byte[] data = buffer;
+                futures.add(uploadPart(client, args, uploadId, data, length, number, ssecHeaders, 0)
+                        .handle((response, error) -> {
+                            if (error == null) {
+                                try {
+                                    checkpoint.completed(number, response.etag());
+                                    parts[number - 1] = new Part(number, response.etag());
+                                } catch (IOException e) {
+                                    error = e;
+                                }
+                            }
+                            if (error != null) {
+                                failure.compareAndSet(null, error);
+                            }
+                            buffers.add(data);
+                            return null;
+                        }));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while uploading " + args.object());
+        } catch (ExecutionException e) {
+            throw rethrow(e);
+        } finally {
+            bufferBudget.release(allocated * bufferMib);
+        }
+        Throwable error = failure.get();
+        if (error != null) {
+            throw rethrow(error);
+        }
+        return parts;
+    }
+
+    private CompletableFuture<UploadPartResponse> uploadPart(ExtendedMinioAsyncClient client, UploadObjectArgs args, String uploadId, byte[] data, int length, int partNumber, Multimap<String, String> ssecHeaders, int attempt) {
+        CompletableFuture<UploadPartResponse> future;
+        try {
+            future = client.uploadPartBytes(args.bucket(), args.region(), args.object(), data, length, uploadId, partNumber, ssecHeaders, null);
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.handle((response, error) -> {
+            if (error == null) {
+                return CompletableFuture.completedFuture(response);
+            }
+            if (attempt >= maxRetries || !isRetryable(error)) {
+                return CompletableFuture.<UploadPartResponse>failedFuture(error);
+            }
+            log.warn("Retrying part {} of {}/{} after attempt {} failed: {}", partNumber, args.bucket(), args.object(), attempt + 1, describe(error));
+            return CompletableFuture.runAsync(() -> {
+                    }, CompletableFuture.delayedExecutor(backoffMillis(attempt + 1), TimeUnit.MILLISECONDS))
+                    .thenCompose(ignored -> uploadPart(client, args, uploadId, data, length, partNumber, ssecHeaders, attempt + 1));
+        }).thenCompose(Function.identity());
+    }
+
+    private static void readFully(FileChannel channel, byte[] buffer, long position, int length) throws IOException {
+        ByteBuffer target = ByteBuffer.wrap(buffer, 0, length);
+        while (target.hasRemaining()) {
+            if (channel.read(target, position + target.position()) < 0) {
+                throw new EOFException("file shorter than expected, it changed during the upload");
+            }
+        }
+    }
+
+    private void abortQuietly(ExtendedMinioAsyncClient client, UploadObjectArgs args, String uploadId) {
+        try {
+            client.cancelMultipartUpload(args.bucket(), args.region(), args.object(), uploadId, null, null).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Error in aborting upload {} of {}/{}", uploadId, args.bucket(), args.object(), e);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.junhong.ojectstoragespringbootstarter.transfer;
+
+import com.junhong.ojectstoragespringbootstarter.connection.MinioConnectionFactory;
+import com.junhong.ojectstoragespringbootstarter.service.ObjectListing;
+import com.junhong.ojectstoragespringbootstarter.service.ObjectOptions;
+import io.minio.CopyObjectArgs;
+import io.minio.CopySource;
+import io.minio.Directive;
+import io.minio.ListObjectsArgs;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.InsufficientDataException;
+import io.minio.errors.InternalException;
+import io.minio.errors.InvalidResponseException;
+import io.minio.errors.ServerException;
+import io.minio.errors.XmlParserException;
+import io.minio.messages.Item;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.await;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.daemonThreads;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.directoryPrefix;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.retryOrRecord;
+
+/**
+ * Copies or moves every object below a prefix with server-side copies, no data passes through the client.
+ * <p>
+ * The source listing is consumed in batches, the keys of a batch are copied by up to {@code parallelism} concurrent
+ * requests and, for a move, the copied sources are then removed through the {@link BulkDeleter}. Every copy is
+ * made on the condition that the source still has the ETag it was listed with, a source replaced in between fails
+ * instead of being copied, and for a move deleted, in its new version.
+ * <p>
+ * With a checkpoint file the last source key up to which every key is done is recorded after each batch, and a run
+ * with the same file lists after it. Once a key fails the checkpoint stops advancing, so a later run retries it;
+ * copies are idempotent and moved keys are no longer listed. The checkpoint is deleted when a run completes
+ * without failures.
+ * <p>
+ * Caches of templates are not invalidated, copied and deleted keys may be served from them until they expire.
+ *
+ * @author jh
+ */
+public class PrefixCopier {
+    private final static Logger log = LoggerFactory.getLogger(PrefixCopier.class);
+
+    private static final ThreadFactory COPY_THREADS = daemonThreads("minio-copy");
+
+    private final MinioConnectionFactory minioConnectionFactory;
+    private final BulkDeleter deleter;
+    private final int batchSize;
+    private final int parallelism;
+    private final int maxRetries;
+
+    /**
+     * @param deleter     removes the sources of a move
+     * @param batchSize   keys copied before the sources are deleted and the checkpoint advances
+     * @param parallelism copies in flight at the same time
+     * @param maxRetries  retries of a copy before the key counts as failed
+     */
+    public PrefixCopier(MinioConnectionFactory minioConnectionFactory, BulkDeleter deleter, int batchSize, int parallelism, int maxRetries) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must not be negative: " + maxRetries);
+        }
+        this.minioConnectionFactory = minioConnectionFactory;
+        this.deleter = deleter;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+        this.maxRetries = maxRetries;
+    }
+
+    public TransferSummary<String> copy(String srcBucket, String srcPrefix, String destBucket, String destPrefix) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        return copy(srcBucket, srcPrefix, destBucket, destPrefix, null, null, ObjectOptions.EMPTY, null);
+    }
+
+    /**
+     * Copy every object below a prefix, {@code srcPrefix/a/b.txt} becomes {@code destPrefix/a/b.txt}
+     *
+     * @param srcPrefix         a missing trailing slash is added, empty or null for the whole bucket
+     * @param destPrefix        a missing trailing slash is added, empty or null for the bucket root
+     * @param taggingDirective  copy or replace the tags, null to copy
+     * @param metadataDirective copy or replace the metadata, null to copy
+     * @param options           headers, metadata, encryption and tags of the copies
+     * @param checkpoint        progress file to resume from, null to always start over
+     * @throws ErrorResponseException when the listing fails, keys copied so far stay copied
+     */
+    public TransferSummary<String> copy(String srcBucket, String srcPrefix, String destBucket, String destPrefix, Directive taggingDirective, Directive metadataDirective, ObjectOptions options, Path checkpoint) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        return transfer(srcBucket, srcPrefix, destBucket, destPrefix, taggingDirective, metadataDirective, options, checkpoint, false);
+    }
+
+    public TransferSummary<String> move(String srcBucket, String srcPrefix, String destBucket, String destPrefix) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        return move(srcBucket, srcPrefix, destBucket, destPrefix, null, null, ObjectOptions.EMPTY, null);
+    }
+
+    /**
+     * Move every object below a prefix, a source is only deleted once its copy succeeded
+     *
+     * @see #copy(String, String, String, String, Directive, Directive, ObjectOptions, Path)
+     */
+    public TransferSummary<String> move(String srcBucket, String srcPrefix, String destBucket, String destPrefix, Directive taggingDirective, Directive metadataDirective, ObjectOptions options, Path checkpoint) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        return transfer(srcBucket, srcPrefix, destBucket, destPrefix, taggingDirective, metadataDirective, options, checkpoint, true);
+    }
+
+    private TransferSummary<String> transfer(String srcBucket, String srcPrefix, String destBucket, String destPrefix, Directive taggingDirective, Directive metadataDirective, ObjectOptions options, Path checkpointFile, boolean move) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        String from = directoryPrefix(srcPrefix);
+        String to = directoryPrefix(destPrefix);
+        if (srcBucket.equals(destBucket) && (to.startsWith(from) || from.startsWith(to))) {
+            throw new IllegalArgumentException("Prefixes " + from + " and " + to + " of " + srcBucket + " overlap");
+        }
+        CopyCheckpoint checkpoint = checkpointFile == null ? null
+                : CopyCheckpoint.open(checkpointFile, (move ? "move " : "copy ") + srcBucket + "/" + from + " " + destBucket + "/" + to);
+        ListObjectsArgs.Builder listing = ListObjectsArgs.builder()
+                .bucket(srcBucket)
+                .prefix(from)
+                .recursive(true);
+        if (checkpoint != null && checkpoint.after() != null) {
+            log.info("Resuming {} of {}/{} after {}", move ? "move" : "copy", srcBucket, from, checkpoint.after());
+            listing.startAfter(checkpoint.after());
+        }
+        Iterator<Item> items = ObjectListing.iterator(srcBucket, minioConnectionFactory.getConnection().listObjects(options.applyTo(listing).build()));
+
+        TransferTally<String> tally = new TransferTally<>();
+        boolean advancing = true;
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, COPY_THREADS);
+        try {
+            while (items.hasNext()) {
+                List<Item> batch = new ArrayList<>(batchSize);
+                while (items.hasNext() && batch.size() < batchSize) {
+                    batch.add(items.next());
+                }
+                List<Future<Boolean>> futures = new ArrayList<>(batch.size());
+                for (Item item : batch) {
+                    String destObject = to + item.objectName().substring(from.length());
+                    futures.add(executor.submit(() -> copy(srcBucket, item, destBucket, destObject, taggingDirective, metadataDirective, options, tally)));
+                }
+                List<String> copied = new ArrayList<>(batch.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    if (await(futures.get(i))) {
+                        copied.add(batch.get(i).objectName());
+                    }
+                }
+                boolean complete = copied.size() == batch.size();
+                if (move && !copied.isEmpty()) {
+                    TransferSummary<String> deleted = deleter.delete(srcBucket, copied);
+                    tally.failed(deleted);
+                    complete &= deleted.isComplete();
+                }
+                advancing &= complete;
+                if (checkpoint != null && advancing) {
+                    checkpoint.advance(batch.get(batch.size() - 1).objectName());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        TransferSummary<String> summary = tally.summary();
+        if (checkpoint != null && summary.isComplete()) {
+            checkpoint.delete();
+        }
+        log.debug("{} {}/{} to {}/{}: {}", move ? "Moved" : "Copied", srcBucket, from, destBucket, to, summary);
+        return summary;
+    }
+
+    /**
+     * Copy one object, failures are recorded instead of thrown
+     *
+     * @return whether the object was copied
+     */
+    private boolean copy(String srcBucket, Item item, String destBucket, String destObject, Directive taggingDirective, Directive metadataDirective, ObjectOptions options, TransferTally<String> tally) throws InterruptedIOException {
+        String objectName = item.objectName();
+        CopySource.Builder source = CopySource.builder()
+                .bucket(srcBucket)
+                .object(objectName);
+        if (item.etag() != null) {
+            source.matchETag(item.etag().replace("\"", ""));
+        }
+        if (options.getSsec() != null) {
+            source.ssec(options.getSsec());
+        }
+        CopyObjectArgs.Builder args = options.applyWrite(CopyObjectArgs.builder()
+                .bucket(destBucket)
+                .object(destObject)
+                .source(source.build()));
+        if (taggingDirective != null) {
+            args.taggingDirective(taggingDirective);
+        }
+        if (metadataDirective != null) {
+            args.metadataDirective(metadataDirective);
+        }
+        CopyObjectArgs copy = args.build();
+        return retryOrRecord(maxRetries, "copy of " + srcBucket + "/" + objectName + " to " + destBucket + "/" + destObject, () -> {
+            minioConnectionFactory.getConnection().copyObject(copy);
+            tally.completed(item.size());
+            return null;
+        }, e -> tally.failed(objectName, e));
+    }
+
+}
@@ -0,0 +1,271 @@
+package com.junhong.ojectstoragespringbootstarter.transfer;
+
+import com.junhong.ojectstoragespringbootstarter.connection.MinioConnectionFactory;
+import io.minio.PutObjectArgs;
+import io.minio.SnowballObject;
+import io.minio.UploadSnowballObjectsArgs;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.InsufficientDataException;
+import io.minio.errors.InternalException;
+import io.minio.errors.InvalidResponseException;
+import io.minio.errors.ServerException;
+import io.minio.errors.XmlParserException;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xerial.snappy.SnappyFramedOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.awaitAll;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.daemonThreads;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.isRetryable;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.retryOrRecord;
+import static com.junhong.ojectstoragespringbootstarter.transfer.TransferSupport.submit;
+
+/**
+ * Uploads many small objects as tar batches that the server extracts, one request per batch instead of per object.
+ * <p>
+ * Entries are consumed lazily and packed into batches whose tar stays below {@code batchSize}, an entry larger than
+ * that gets a batch of its own. A tar above {@code spillThreshold} is staged in a temp file, smaller ones are built
+ * in memory. Up to {@code parallelism} batches are sent at the same time while the next one is filled.
+ * <p>
+ * A failed batch is retried when every entry can be read again, that is it names a file or its stream supports
+ * {@link InputStream#mark}. Streams of entries are closed once their batch is done. Objects of batches that still
+ * fail are counted in the returned {@link TransferSummary}, which keeps only the first few of them.
+ * <p>
+ * Caches of templates are not invalidated, the uploaded keys may be served from them until they expire.
+ *
+ * @author jh
+ */
+public class SnowballUploader {
+    private final static Logger log = LoggerFactory.getLogger(SnowballUploader.class);
+
+    private static final String AUTO_EXTRACT_HEADER = "X-Amz-Meta-Snowball-Auto-Extract";
+    private static final long TAR_BLOCK = 512;
+    private static final ThreadFactory SNOWBALL_THREADS = daemonThreads("minio-snowball");
+
+    private final MinioConnectionFactory minioConnectionFactory;
+    private final long batchSize;
+    private final long spillThreshold;
+    private final boolean compression;
+    private final int parallelism;
+    private final int maxRetries;
+
+    /**
+     * @param batchSize      largest tar of a batch in bytes
+     * @param spillThreshold tars larger than this are staged in a temp file
+     * @param compression    snappy compress the tars, the SDK offers no compression levels
+     * @param parallelism    batches in flight at the same time
+     * @param maxRetries     retries of a failed batch before its objects count as failed
+     */
+    public SnowballUploader(MinioConnectionFactory minioConnectionFactory, long batchSize, long spillThreshold, boolean compression, int parallelism, int maxRetries) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        if (spillThreshold < 0) {
+            throw new IllegalArgumentException("spillThreshold must not be negative: " + spillThreshold);
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must not be negative: " + maxRetries);
+        }
+        this.minioConnectionFactory = minioConnectionFactory;
+        this.batchSize = batchSize;
+        this.spillThreshold = spillThreshold;
+        this.compression = compression;
+        this.parallelism = parallelism;
+        this.maxRetries = maxRetries;
+    }
+
+    public TransferSummary<String> upload(String bucketName, Iterable<SnowballObject> objects) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        return upload(bucketName, objects.iterator());
+    }
+
+    /**
+     * Upload the objects of an iterator, which is consumed as batches are filled
+     *
+     * @throws IOException when the size of a file entry cannot be read, batches already sent stay uploaded
+     */
+    public TransferSummary<String> upload(String bucketName, Iterator<SnowballObject> objects) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        TransferTally<String> tally = new TransferTally<>();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, SNOWBALL_THREADS);
+        Semaphore slots = new Semaphore(parallelism);
+        List<Future<Void>> futures = new ArrayList<>();
+        SnowballObject carried = null;
+        try {
+            while (carried != null || objects.hasNext()) {
+                List<SnowballObject> batch = new ArrayList<>();
+                // the two end-of-archive blocks
+                long tarSize = 2 * TAR_BLOCK;
+                long bytes = 0;
+                while (carried != null || objects.hasNext()) {
+                    SnowballObject object = carried != null ? carried : objects.next();
+                    carried = null;
+                    long size = sizeOf(object);
+                    long entrySize = TAR_BLOCK + (size + TAR_BLOCK - 1) / TAR_BLOCK * TAR_BLOCK;
+                    if (!batch.isEmpty() && tarSize + entrySize > batchSize) {
+                        carried = object;
+                        break;
+                    }
+                    if (object.stream() != null && object.stream().markSupported()) {
+                        object.stream().mark(Integer.MAX_VALUE);
+                    }
+                    batch.add(object);
+                    tarSize += entrySize;
+                    bytes += size;
+                }
+                long batchTarSize = tarSize;
+                long batchBytes = bytes;
+                submit(executor, slots, futures, () -> {
+                    send(bucketName, batch, batchTarSize, batchBytes, tally);
+                    return null;
+                });
+            }
+            awaitAll(futures);
+        } finally {
+            executor.shutdownNow();
+        }
+        TransferSummary<String> summary = tally.summary();
+        log.debug("Uploaded small objects to {}: {}", bucketName, summary);
+        return summary;
+    }
+
+    /**
+     * Send one batch, failures are recorded instead of thrown
+     */
+    private void send(String bucketName, List<SnowballObject> batch, long tarSize, long bytes, TransferTally<String> tally) throws InterruptedIOException {
+        try {
+            retryOrRecord(maxRetries, "upload of a batch of " + batch.size() + " objects to " + bucketName,
+                    e -> isRetryable(e) && rewind(batch), () -> {
+                        if (tarSize <= spillThreshold) {
+                            minioConnectionFactory.getConnection().uploadSnowballObjects(UploadSnowballObjectsArgs.builder()
+                                    .bucket(bucketName)
+                                    .objects(batch)
+                                    .compression(compression)
+                                    .build());
+                        } else {
+                            sendStaged(bucketName, batch);
+                        }
+                        tally.completed(batch.size(), bytes);
+                        return null;
+                    }, e -> {
+                        for (SnowballObject object : batch) {
+                            tally.failed(object.name(), e);
+                        }
+                    });
+        } finally {
+            close(batch);
+        }
+    }
+
+    /**
+     * Write the tar to a file and put it like the SDK would.
+     * <p>
+     * The staging file support of minio 8.5 closes the file before the asynchronous put read it, so the tar is
+     * written here in the same format, with long names as PAX headers and optionally snappy framed.
+     */
+    private void sendStaged(String bucketName, List<SnowballObject> batch) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        Path staging = Files.createTempFile("minio-snowball-", ".tar");
+        try {
+            writeTar(batch, staging);
+            try (InputStream tar = Files.newInputStream(staging)) {
+                minioConnectionFactory.getConnection().putObject(PutObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object("snowball." + UUID.randomUUID() + ".tar")
+                        .headers(Map.of(AUTO_EXTRACT_HEADER, "true"))
+                        .stream(tar, Files.size(staging), -1)
+                        .build());
+            }
+        } finally {
+            try {
+                Files.deleteIfExists(staging);
+            } catch (IOException e) {
+                log.warn("Could not delete staged tar {}", staging, e);
+            }
+        }
+    }
+
+    private void writeTar(List<SnowballObject> batch, Path staging) throws IOException {
+        try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(staging));
+             TarArchiveOutputStream tar = new TarArchiveOutputStream(compression ? new SnappyFramedOutputStream(file) : file)) {
+            tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            for (SnowballObject object : batch) {
+                if (object.filename() != null) {
+                    Path source = Path.of(object.filename());
+                    tar.putArchiveEntry(new TarArchiveEntry(source.toFile(), object.name()));
+                    Files.copy(source, tar);
+                } else {
+                    TarArchiveEntry entry = new TarArchiveEntry(object.name());
+                    if (object.modificationTime() != null) {
+                        entry.setModTime(Date.from(object.modificationTime().toInstant()));
+                    }
+                    entry.setSize(object.size());
+                    tar.putArchiveEntry(entry);
+                    object.stream().transferTo(tar);
+                }
+                tar.closeArchiveEntry();
+            }
+        }
+    }
+
+    /**
+     * @return whether every entry was reset to its start and can be sent again
+     */
+    private static boolean rewind(List<SnowballObject> batch) {
+        for (SnowballObject object : batch) {
+            if (object.stream() != null && !object.stream().markSupported()) {
+                return false;
+            }
+        }
+        try {
+            for (SnowballObject object : batch) {
+                if (object.stream() != null) {
+                    object.stream().reset();
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static long sizeOf(SnowballObject object) throws IOException {
+        return object.filename() != null ? Files.size(Path.of(object.filename())) : object.size();
+    }
+
+    private static void close(List<SnowballObject> batch) {
+        for (SnowballObject object : batch) {
+            if (object.stream() != null) {
+                try {
+                    object.stream().close();
+                } catch (IOException e) {
+                    log.debug("Could not close stream of {}", object.name(), e);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.junhong.ojectstoragespringbootstarter.transfer;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Counts, bytes and throughput of a bulk transfer, with the first failures and the number of failures per error code.
+ * <p>
+ * Returned by the directory, prefix, snowball and bulk delete operations of this package, a completed item is a file
+ * or an object uploaded, downloaded, copied or deleted.
+ *
+ * @param <K> what failures are keyed by, the local file or the object name
+ * @author jh
+ */
+public final class TransferSummary<K> {
+    private final long completed;
+    private final long skipped;
+    private final long failed;
+    private final long bytesTransferred;
+    private final long bytesSkipped;
+    private final Duration elapsed;
+    private final Map<K, Throwable> failures;
+    private final Map<String, Long> failuresByCode;
+
+    TransferSummary(long completed, long skipped, long failed, long bytesTransferred, long bytesSkipped, Duration elapsed, Map<K, Throwable> failures, Map<String, Long> failuresByCode) {
+        this.completed = completed;
+        this.skipped = skipped;
+        this.failed = failed;
+        this.bytesTransferred = bytesTransferred;
+        this.bytesSkipped = bytesSkipped;
+        this.elapsed = elapsed;
+        this.failures = failures;
+        this.failuresByCode = failuresByCode;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    /**
+     * @return items left alone because the target already held them
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getBytesTransferred() {
+        return bytesTransferred;
+    }
+
+    public long getBytesSkipped() {
+        return bytesSkipped;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * @return bytes transferred per second of the whole run, skipped items excluded
+     */
+    public double getBytesPerSecond() {
+        long nanos = elapsed.toNanos();
+        return nanos == 0 ? 0 : bytesTransferred * 1e9 / nanos;
+    }
+
+    /**
+     * @return items completed or skipped per second of the whole run
+     */
+    public double getObjectsPerSecond() {
+        long nanos = elapsed.toNanos();
+        return nanos == 0 ? 0 : (completed + skipped) * 1e9 / nanos;
+    }
+
+    /**
+     * @return up to 100 failed items with their error, in the order they failed
+     */
+    public Map<K, Throwable> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return failures by S3 error code, or by exception name for errors without a code
+     */
+    public Map<String, Long> getFailuresByCode() {
+        return failuresByCode;
+    }
+
+    public boolean isComplete() {
+        return failed == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "TransferSummary{completed=" + completed + ", skipped=" + skipped + ", failed=" + failed
+                + ", bytesTransferred=" + bytesTransferred + ", elapsed=" + elapsed + ", failuresByCode=" + failuresByCode + "}";
+    }
+}
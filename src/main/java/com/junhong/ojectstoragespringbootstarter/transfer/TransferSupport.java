@@ -0,0 +1,362 @@
+package com.junhong.ojectstoragespringbootstarter.transfer;
+
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.InsufficientDataException;
+import io.minio.errors.InternalException;
+import io.minio.errors.InvalidResponseException;
+import io.minio.errors.ServerException;
+import io.minio.errors.XmlParserException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Scheduling, error handling, checksums and checkpoint files shared by the transfer engines
+ *
+ * @author jh
+ */
+final class TransferSupport {
+    private final static Logger log = LoggerFactory.getLogger(TransferSupport.class);
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final long RETRY_BACKOFF_MILLIS = 200;
+    private static final Set<String> RETRYABLE_CODES = Set.of("InternalError", "SlowDown", "RequestTimeout", "ServiceUnavailable");
+
+    private TransferSupport() {
+    }
+
+    /**
+     * Wait for a future and rethrow its failure as the checked exception minio would have thrown
+     */
+    static <T> T await(Future<T> future) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for minio");
+        } catch (ExecutionException e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Wait for every future in order, the first failure is rethrown
+     */
+    static void awaitAll(Collection<? extends Future<?>> futures) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        for (Future<?> future : futures) {
+            await(future);
+        }
+    }
+
+    /**
+     * Submit a task once one of the {@code slots} is free, the slot is given back when the task ends.
+     * <p>
+     * Futures already done are awaited and dropped from {@code futures}, so a failure surfaces early and the list
+     * stays as short as the tasks in flight.
+     */
+    static void submit(ExecutorService executor, Semaphore slots, List<Future<Void>> futures, Callable<Void> task) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        acquire(slots);
+        try {
+            futures.add(executor.submit(() -> {
+                try {
+                    return task.call();
+                } finally {
+                    slots.release();
+                }
+            }));
+        } catch (RuntimeException e) {
+            slots.release();
+            throw e;
+        }
+        for (Iterator<Future<Void>> done = futures.iterator(); done.hasNext(); ) {
+            Future<Void> future = done.next();
+            if (future.isDone()) {
+                await(future);
+                done.remove();
+            }
+        }
+    }
+
+    /**
+     * Take one of the {@code slots}, waiting for it when none is free
+     */
+    static void acquire(Semaphore slots) throws InterruptedIOException {
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for a transfer slot");
+        }
+    }
+
+    /**
+     * Wait before a retry, doubling from 200 ms with every attempt
+     *
+     * @param attempt retry about to be made, 1 for the first one
+     */
+    static long backoffMillis(int attempt) {
+        return RETRY_BACKOFF_MILLIS << (attempt - 1);
+    }
+
+    /**
+     * Run an action, retrying retryable failures up to {@code maxRetries} times with an increasing backoff
+     *
+     * @param what names the action in log lines, like {@code "copy of bucket/key"}
+     * @throws InterruptedIOException when interrupted, never retried
+     */
+    static <T> T retry(int maxRetries, String what, Callable<T> action) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        return retry(maxRetries, what, TransferSupport::isRetryable, action);
+    }
+
+    /**
+     * @param retryable whether a failure is worth another attempt, asked once per failure
+     * @see #retry(int, String, Callable)
+     */
+    static <T> T retry(int maxRetries, String what, Predicate<Exception> retryable, Callable<T> action) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        int attempt = 0;
+        while (true) {
+            try {
+                return action.call();
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (Exception e) {
+                if (attempt >= maxRetries || !retryable.test(e)) {
+                    throw rethrow(e);
+                }
+                attempt++;
+                log.warn("Retrying {} after attempt {} failed: {}", what, attempt, describe(e));
+                sleep(backoffMillis(attempt));
+            }
+        }
+    }
+
+    /**
+     * @see #retryOrRecord(int, String, Predicate, Callable, Consumer)
+     */
+    static boolean retryOrRecord(int maxRetries, String what, Callable<?> action, Consumer<Exception> failed) throws InterruptedIOException {
+        return retryOrRecord(maxRetries, what, TransferSupport::isRetryable, action, failed);
+    }
+
+    /**
+     * Like {@link #retry(int, String, Predicate, Callable)}, but the failure left after the retries is logged and handed
+     * to {@code failed} instead of thrown, so one item does not stop the others
+     *
+     * @return whether the action succeeded
+     * @throws InterruptedIOException when interrupted
+     */
+    static boolean retryOrRecord(int maxRetries, String what, Predicate<Exception> retryable, Callable<?> action, Consumer<Exception> failed) throws InterruptedIOException {
+        try {
+            retry(maxRetries, what, retryable, action);
+            return true;
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("Failed {}: {}", what, describe(e));
+            failed.accept(e);
+            return false;
+        }
+    }
+
+    static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting to retry");
+        }
+    }
+
+    /**
+     * Daemon threads named {@code name-1}, {@code name-2}, ... so a forgotten pool never keeps the JVM alive
+     */
+    static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Prefix with a trailing slash, the empty string for the bucket root
+     */
+    static String directoryPrefix(String prefix) {
+        if (prefix == null || prefix.isEmpty()) {
+            return "";
+        }
+        return prefix.endsWith("/") ? prefix : prefix + "/";
+    }
+
+    /**
+     * Rethrow the cause of an asynchronous failure, returns only to let callers write {@code throw rethrow(e)}
+     */
+    static RuntimeException rethrow(Throwable error) throws IOException, InvalidKeyException, InvalidResponseException, InsufficientDataException, NoSuchAlgorithmException, ServerException, InternalException, XmlParserException, ErrorResponseException {
+        Throwable cause = unwrap(error);
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        } else if (cause instanceof ErrorResponseException) {
+            throw (ErrorResponseException) cause;
+        } else if (cause instanceof ServerException) {
+            throw (ServerException) cause;
+        } else if (cause instanceof InvalidResponseException) {
+            throw (InvalidResponseException) cause;
+        } else if (cause instanceof InsufficientDataException) {
+            throw (InsufficientDataException) cause;
+        } else if (cause instanceof InternalException) {
+            throw (InternalException) cause;
+        } else if (cause instanceof XmlParserException) {
+            throw (XmlParserException) cause;
+        } else if (cause instanceof InvalidKeyException) {
+            throw (InvalidKeyException) cause;
+        } else if (cause instanceof NoSuchAlgorithmException) {
+            throw (NoSuchAlgorithmException) cause;
+        } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        throw new IllegalStateException(cause);
+    }
+
+    /**
+     * Network errors, 5xx responses and throttling are worth another attempt, other errors would fail again
+     */
+    static boolean isRetryable(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof ErrorResponseException) {
+            return isRetryable(((ErrorResponseException) cause).errorResponse().code());
+        }
+        return cause instanceof IOException && !(cause instanceof InterruptedIOException) || cause instanceof ServerException;
+    }
+
+    /**
+     * Error codes of throttling and transient server failures
+     */
+    static boolean isRetryable(String code) {
+        return RETRYABLE_CODES.contains(code);
+    }
+
+    /**
+     * Error code of an S3 error response, else the simple name of the exception
+     */
+    static String code(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof ErrorResponseException && ((ErrorResponseException) cause).errorResponse().code() != null) {
+            return ((ErrorResponseException) cause).errorResponse().code();
+        }
+        return cause.getClass().getSimpleName();
+    }
+
+    /**
+     * Short description of an error for log lines
+     */
+    static String describe(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof ErrorResponseException) {
+            return ((ErrorResponseException) cause).errorResponse().code();
+        }
+        return cause.toString();
+    }
+
+    /**
+     * Replace a small file atomically and durably. The content is forced to disk under a temporary name, renamed
+     * over {@code path}, then the directory is forced so the rename itself survives a crash.
+     */
+    static void writeDurably(Path path, byte[] content) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        forceDirectory(path.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Sync the entries of a directory, so files created or renamed in it are found again after a crash
+     */
+    static void forceDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            // directories cannot be opened on Windows, where a completed rename is already durable
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * MD5 of a file as hex, comparable to an ETag
+     *
+     * @param partSize 0 for the MD5 of the whole file, else the MD5 of the MD5s of its parts like a multipart ETag
+     */
+    static String md5Hex(Path file, long size, long partSize) throws IOException, NoSuchAlgorithmException {
+        MessageDigest md5 = MessageDigest.getInstance("MD5");
+        MessageDigest parts = partSize > 0 ? MessageDigest.getInstance("MD5") : null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+            long position = 0;
+            while (position < size) {
+                long boundary = partSize > 0 ? (position / partSize + 1) * partSize : size;
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), boundary - position));
+                int read = channel.read(buffer);
+                if (read == -1) {
+                    break;
+                }
+                buffer.flip();
+                md5.update(buffer);
+                position += read;
+                if (parts != null && (position == boundary || position == size)) {
+                    parts.update(md5.digest());
+                }
+            }
+        }
+        return HexFormat.of().formatHex(parts != null ? parts.digest() : md5.digest());
+    }
+
+    static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+}
@@ -0,0 +1,67 @@
+package com.junhong.ojectstoragespringbootstarter.transfer;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Thread safe counters behind a {@link TransferSummary}, the elapsed time runs from construction
+ *
+ * @author jh
+ */
+final class TransferTally<K> {
+    private static final int REPORTED_FAILURES = 100;
+
+    private final long started = System.nanoTime();
+    private long completed;
+    private long skipped;
+    private long failed;
+    private long bytesTransferred;
+    private long bytesSkipped;
+    private final Map<K, Throwable> failures = new LinkedHashMap<>();
+    private final Map<String, Long> failuresByCode = new TreeMap<>();
+
+    synchronized void completed(long bytes) {
+        completed(1, bytes);
+    }
+
+    synchronized void completed(long count, long bytes) {
+        completed += count;
+        bytesTransferred += bytes;
+    }
+
+    synchronized void skipped(long bytes) {
+        skipped++;
+        bytesSkipped += bytes;
+    }
+
+    synchronized void failed(K key, Throwable error) {
+        failed++;
+        failuresByCode.merge(TransferSupport.code(error), 1L, Long::sum);
+        if (failures.size() < REPORTED_FAILURES) {
+            failures.put(key, error);
+        }
+    }
+
+    /**
+     * Count the failures of a nested transfer, like the deletes of a move, as failures of this one
+     */
+    synchronized void failed(TransferSummary<K> nested) {
+        failed += nested.getFailed();
+        nested.getFailuresByCode().forEach((code, count) -> failuresByCode.merge(code, count, Long::sum));
+        for (Map.Entry<K, Throwable> failure : nested.getFailures().entrySet()) {
+            if (failures.size() >= REPORTED_FAILURES) {
+                break;
+            }
+            failures.put(failure.getKey(), failure.getValue());
+        }
+    }
+
+    synchronized TransferSummary<K> summary() {
+        return new TransferSummary<>(completed, skipped, failed, bytesTransferred, bytesSkipped,
+                Duration.ofNanos(System.nanoTime() - started), Collections.unmodifiableMap(new LinkedHashMap<>(failures)),
+                Collections.unmodifiableMap(new TreeMap<>(failuresByCode)));
+    }
+}
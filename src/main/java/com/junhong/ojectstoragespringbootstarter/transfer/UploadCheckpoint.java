@@ -0,0 +1,186 @@
+package com.junhong.ojectstoragespringbootstarter.transfer;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Local journal of a multipart upload, lets an upload interrupted by a crash or restart continue where it stopped.
+ * <p>
+ * The first line describes the upload and its source file, every further line records one completed part.
+ * Parts are appended and synced one by one, so a crash loses at most the part being written, and a torn last
+ * line is simply ignored when the journal is read back.
+ *
+ * @author jh
+ */
+final class UploadCheckpoint {
+    private final static Logger log = LoggerFactory.getLogger(UploadCheckpoint.class);
+
+    private final Path path;
+    private final String bucket;
+    private final String object;
+    private final String uploadId;
+    private final long fileSize;
+    private final long lastModified;
+    private final long partSize;
+    private final Map<Integer, String> parts;
+
+    private FileChannel journal;
+
+    private UploadCheckpoint(Path path, String bucket, String object, String uploadId, long fileSize, long lastModified, long partSize, Map<Integer, String> parts) {
+        this.path = path;
+        this.bucket = bucket;
+        this.object = object;
+        this.uploadId = uploadId;
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+        this.partSize = partSize;
+        this.parts = parts;
+    }
+
+    /**
+     * Start a new journal, replacing any previous one, durable once this returns
+     */
+    static UploadCheckpoint create(Path path, String bucket, String object, String uploadId, long fileSize, long lastModified, long partSize) throws IOException {
+        JSONObject header = new JSONObject();
+        header.put("bucket", bucket);
+        header.put("object", object);
+        header.put("uploadId", uploadId);
+        header.put("fileSize", fileSize);
+        header.put("lastModified", lastModified);
+        header.put("partSize", partSize);
+        TransferSupport.writeDurably(path, (header.toJSONString() + "\n").getBytes(StandardCharsets.UTF_8));
+        return new UploadCheckpoint(path, bucket, object, uploadId, fileSize, lastModified, partSize, new TreeMap<>());
+    }
+
+    /**
+     * In-memory record of an upload that is not meant to be resumed
+     */
+    static UploadCheckpoint transientCheckpoint(String bucket, String object, String uploadId, long partSize) {
+        return new UploadCheckpoint(null, bucket, object, uploadId, -1, -1, partSize, new TreeMap<>());
+    }
+
+    /**
+     * Read a journal back
+     *
+     * @return null if there is no journal or its header is unreadable
+     */
+    static UploadCheckpoint load(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            JSONObject header = JSON.parseObject(line);
+            Map<Integer, String> parts = new TreeMap<>();
+            while ((line = reader.readLine()) != null) {
+                JSONObject part = parsePart(line);
+                if (part == null) {
+                    // torn write of the last part before a crash, that part is uploaded again
+                    break;
+                }
+                parts.put(part.getInteger("partNumber"), part.getString("etag"));
+            }
+            return new UploadCheckpoint(path, header.getString("bucket"), header.getString("object"), header.getString("uploadId"),
+                    header.getLongValue("fileSize"), header.getLongValue("lastModified"), header.getLongValue("partSize"), parts);
+        } catch (JSONException e) {
+            log.warn("Ignoring unreadable upload checkpoint {}", path, e);
+            return null;
+        }
+    }
+
+    private static JSONObject parsePart(String line) {
+        try {
+            JSONObject part = JSON.parseObject(line);
+            return part != null && part.getInteger("partNumber") != null && part.getString("etag") != null ? part : null;
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return whether this journal belongs to an upload of the given, unchanged, file
+     */
+    boolean matches(String bucket, String object, long fileSize, long lastModified) {
+        return this.bucket.equals(bucket) && this.object.equals(object) && this.fileSize == fileSize && this.lastModified == lastModified;
+    }
+
+    /**
+     * Record a completed part, durable once this returns
+     */
+    synchronized void completed(int partNumber, String etag) throws IOException {
+        if (path == null) {
+            parts.put(partNumber, etag);
+            return;
+        }
+        if (journal == null) {
+            journal = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        JSONObject part = new JSONObject();
+        part.put("partNumber", partNumber);
+        part.put("etag", etag);
+        ByteBuffer line = ByteBuffer.wrap((part.toJSONString() + "\n").getBytes(StandardCharsets.UTF_8));
+        while (line.hasRemaining()) {
+            journal.write(line);
+        }
+        journal.force(false);
+        parts.put(partNumber, etag);
+    }
+
+    synchronized void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    /**
+     * Close and remove the journal once the upload is complete or abandoned
+     */
+    void delete() throws IOException {
+        close();
+        if (path != null) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    String uploadId() {
+        return uploadId;
+    }
+
+    long partSize() {
+        return partSize;
+    }
+
+    String bucket() {
+        return bucket;
+    }
+
+    String object() {
+        return object;
+    }
+
+    /**
+     * @return ETags of completed parts by part number
+     */
+    synchronized Map<Integer, String> parts() {
+        return Collections.unmodifiableMap(new TreeMap<>(parts));
+    }
+}
@@ -0,0 +1,54 @@
+package com.junhong.ojectstoragespringbootstarter.cache;
+
+import com.junhong.ojectstoragespringbootstarter.connection.MinioConnectionFactory;
+import com.junhong.ojectstoragespringbootstarter.service.MinioTemplate;
+import com.junhong.ojectstoragespringbootstarter.support.StubMinioServer;
+import io.minio.messages.Bucket;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BucketRegistryTest {
+
+    @Test
+    void servesBucketChecksFromTheRegistryUntilRefreshed() throws Exception {
+        try (StubMinioServer server = new StubMinioServer()) {
+            MinioConnectionFactory factory = server.connectionFactory();
+            BucketRegistry registry = new BucketRegistry(factory, Duration.ofMinutes(1));
+            MinioTemplate template = new MinioTemplate(factory).withBucketRegistry(registry);
+
+            assertFalse(registry.exists("photos"));
+            int requests = server.requests();
+            assertFalse(registry.exists("photos"));
+            assertEquals(requests, server.requests());
+
+            template.createBucket("photos");
+            requests = server.requests();
+            assertTrue(registry.exists("photos"));
+            // a single bucketExists, the details are only loaded on info
+            assertEquals(requests + 1, server.requests());
+            BucketRegistry.BucketInfo info = registry.info("photos");
+            assertTrue(info.exists());
+            assertEquals("us-east-1", info.region());
+            assertFalse(info.isVersioningEnabled());
+            assertNull(info.encryption());
+
+            template.createBucket("photos");
+            Optional<Bucket> bucket = template.getBucket("photos");
+            assertEquals("photos", bucket.map(Bucket::name).orElse(null));
+            requests = server.requests();
+            assertFalse(template.getBucket("videos").isPresent());
+            assertTrue(registry.exists("photos"));
+            assertEquals(requests, server.requests());
+
+            template.removeBucket("photos");
+            assertFalse(registry.exists("photos"));
+        }
+    }
+}
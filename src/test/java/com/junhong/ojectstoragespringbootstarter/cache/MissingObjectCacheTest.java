@@ -0,0 +1,44 @@
+package com.junhong.ojectstoragespringbootstarter.cache;
+
+import com.junhong.ojectstoragespringbootstarter.service.MinioTemplate;
+import com.junhong.ojectstoragespringbootstarter.support.StubMinioServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MissingObjectCacheTest {
+
+    @Test
+    void answersMissingObjectsWithoutRequestUntilWritten() throws Exception {
+        try (StubMinioServer server = new StubMinioServer()) {
+            MissingObjectCache cache = new MissingObjectCache(100, Duration.ofMinutes(1));
+            MinioTemplate template = new MinioTemplate(server.connectionFactory()).withMissingObjectCache(cache);
+
+            assertFalse(template.findObjectInfo("photos", "absent.jpg").isPresent());
+            assertTrue(cache.isMissing("photos", "absent.jpg"));
+            int requests = server.requests();
+            assertFalse(template.findObjectInfo("photos", "absent.jpg").isPresent());
+            assertFalse(template.findObject("photos", "absent.jpg").isPresent());
+            assertEquals(requests, server.requests());
+            assertEquals(2, cache.hitCount());
+
+            byte[] content = "content".getBytes(StandardCharsets.UTF_8);
+            template.saveKnownSizeObject("photos", "absent.jpg", new ByteArrayInputStream(content), content.length, "image/jpeg");
+            assertFalse(cache.isMissing("photos", "absent.jpg"));
+            assertEquals(content.length, template.findObjectInfo("photos", "absent.jpg").orElseThrow().size());
+            Optional<InputStream> found = template.findObject("photos", "absent.jpg");
+            try (InputStream in = found.orElseThrow()) {
+                assertArrayEquals(content, in.readAllBytes());
+            }
+        }
+    }
+}
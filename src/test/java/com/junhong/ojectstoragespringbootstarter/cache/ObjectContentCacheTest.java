@@ -0,0 +1,127 @@
+package com.junhong.ojectstoragespringbootstarter.cache;
+
+import com.junhong.ojectstoragespringbootstarter.support.StubMinioServer;
+import io.minio.errors.InvalidResponseException;
+import io.minio.errors.ServerException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ObjectContentCacheTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void servesUnchangedContentFromDiskAndRefetchesChangedContent() throws Exception {
+        try (StubMinioServer server = new StubMinioServer()) {
+            server.putObject("bucket", "hot.txt", "v1".getBytes());
+            ObjectContentCache cache = new ObjectContentCache(server.connectionFactory(), directory, 1024);
+
+            assertArrayEquals("v1".getBytes(), read(cache, "hot.txt"));
+            assertArrayEquals("v1".getBytes(), read(cache, "hot.txt"));
+            assertEquals(1, cache.hitCount());
+            assertEquals(1, cache.missCount());
+
+            server.putObject("bucket", "hot.txt", "v2-changed".getBytes());
+            assertArrayEquals("v2-changed".getBytes(), read(cache, "hot.txt"));
+            assertEquals(2, cache.missCount());
+            assertEquals("v2-changed".length(), cache.size());
+        }
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedFiles() throws Exception {
+        try (StubMinioServer server = new StubMinioServer()) {
+            for (String key : new String[]{"a", "b", "c"}) {
+                server.putObject("bucket", key, new byte[40]);
+            }
+            ObjectContentCache cache = new ObjectContentCache(server.connectionFactory(), directory, 100);
+            read(cache, "a");
+            read(cache, "b");
+            read(cache, "a");
+            read(cache, "c");
+            assertEquals(80, cache.size());
+
+            read(cache, "a");
+            assertEquals(2, cache.hitCount());
+            read(cache, "b");
+            assertEquals(4, cache.missCount());
+
+            server.putObject("bucket", "big", new byte[200]);
+            assertEquals(200, read(cache, "big").length);
+            assertEquals(80, cache.size());
+        }
+    }
+
+    @Test
+    void refetchesWhenTheCachedFileIsDeletedUnderneath() throws Exception {
+        try (StubMinioServer server = new StubMinioServer()) {
+            server.putObject("bucket", "hot.txt", "v1".getBytes());
+            ObjectContentCache cache = new ObjectContentCache(server.connectionFactory(), directory, 1024);
+            read(cache, "hot.txt");
+
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : (Iterable<Path>) files.filter(file -> file.toString().endsWith(".obj"))::iterator) {
+                    Files.delete(file);
+                }
+            }
+
+            assertArrayEquals("v1".getBytes(), read(cache, "hot.txt"));
+            assertEquals(2, cache.missCount());
+            assertEquals(2, cache.size());
+            assertArrayEquals("v1".getBytes(), read(cache, "hot.txt"));
+            assertEquals(1, cache.hitCount());
+        }
+    }
+
+    @Test
+    void sharesTheDirectoryWithOtherCachesAndFiles() throws Exception {
+        try (StubMinioServer server = new StubMinioServer()) {
+            server.putObject("bucket", "hot.txt", "v1".getBytes());
+            Path foreign = Files.write(directory.resolve("report.obj"), new byte[]{1});
+            ObjectContentCache first = new ObjectContentCache(server.connectionFactory(), directory, 1024);
+            read(first, "hot.txt");
+
+            try (ObjectContentCache second = new ObjectContentCache(server.connectionFactory(), directory, 1024)) {
+                read(second, "hot.txt");
+                assertArrayEquals("v1".getBytes(), read(first, "hot.txt"));
+                assertEquals(1, first.hitCount());
+            }
+            assertTrue(Files.exists(foreign));
+
+            first.close();
+            // left by a cache that never closed
+            Path abandoned = Files.createDirectories(directory.resolve("minio-content-cache-1"));
+            Files.write(abandoned.resolve("0.obj"), new byte[]{1});
+            try (ObjectContentCache third = new ObjectContentCache(server.connectionFactory(), directory, 1024);
+                 Stream<Path> files = Files.walk(directory)) {
+                assertEquals(0, files.filter(file -> file.toString().endsWith(".obj") && !file.equals(foreign)).count());
+            }
+            assertFalse(Files.exists(abandoned));
+        }
+    }
+
+    @Test
+    void recognisesNotModifiedFromTheSdkExceptions() {
+        // built by the SDK, fails when minio stops writing the status code into the message
+        assertTrue(ObjectContentCache.isNotModified(new InvalidResponseException(304, null, "", "")));
+        assertFalse(ObjectContentCache.isNotModified(new InvalidResponseException(502, "text/html", "<html/>", "")));
+        assertTrue(ObjectContentCache.isNotModified(new ServerException("server failed with HTTP status code 304", 304, "")));
+    }
+
+    private static byte[] read(ObjectContentCache cache, String object) throws Exception {
+        try (InputStream in = cache.getObject("bucket", object)) {
+            return in.readAllBytes();
+        }
+    }
+}
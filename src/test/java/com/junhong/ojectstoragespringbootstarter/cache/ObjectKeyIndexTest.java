@@ -0,0 +1,95 @@
+package com.junhong.ojectstoragespringbootstarter.cache;
+
+import com.junhong.ojectstoragespringbootstarter.connection.MinioConnectionFactory;
+import com.junhong.ojectstoragespringbootstarter.service.MinioTemplate;
+import com.junhong.ojectstoragespringbootstarter.support.StubMinioServer;
+import com.sun.net.httpserver.HttpExchange;
+import io.minio.messages.Item;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ObjectKeyIndexTest {
+
+    @Test
+    void followsNotificationsAndCatchesUpAfterReconnecting() throws Exception {
+        AtomicBoolean refuseListeners = new AtomicBoolean();
+        try (StubMinioServer server = new StubMinioServer() {
+            @Override
+            protected void handle(HttpExchange exchange) throws IOException {
+                if (refuseListeners.get() && exchange.getRequestURI().getRawQuery() != null && exchange.getRequestURI().getRawQuery().contains("events")) {
+                    sendError(exchange, 503, "SlowDown");
+                    return;
+                }
+                super.handle(exchange);
+            }
+        }) {
+            byte[] content = "content".getBytes(StandardCharsets.UTF_8);
+            server.putObject("photos", "a/1.jpg", content);
+            server.putObject("photos", "a/2.jpg", content);
+            server.putObject("photos", "b.jpg", content);
+            MinioConnectionFactory factory = server.connectionFactory();
+
+            try (ObjectKeyIndex index = new ObjectKeyIndex(factory, List.of("photos"), Duration.ofMinutes(10))) {
+                index.start();
+                await(() -> index.isReady("photos") && server.listeners() == 1);
+                assertEquals(List.of("a/", "b.jpg"), names(index.list("photos", "", false)));
+                assertEquals(List.of("a/1.jpg", "a/2.jpg"), names(index.list("photos", "a/", false)));
+                assertEquals(content.length, index.get("photos", "b.jpg").size());
+
+                MinioTemplate template = new MinioTemplate(factory).withKeyIndex(index);
+                int requests = server.requests();
+                assertEquals(List.of("a/1.jpg", "a/2.jpg", "b.jpg"), names(template.getAllObjectsByPrefix("photos", null, true)));
+                assertEquals(requests, server.requests());
+
+                server.putObject("photos", "a/3.jpg", content);
+                server.removeObject("photos", "b.jpg");
+                await(() -> index.exists("photos", "a/3.jpg") && !index.exists("photos", "b.jpg"));
+                assertEquals(List.of("a/1.jpg", "a/2.jpg", "a/3.jpg"), names(index.list("photos", "", true)));
+
+                // writes through the template show without waiting for their notifications
+                template.saveObject("photos", "d.jpg", new ByteArrayInputStream(content), -1, 5 * 1024 * 1024, "image/jpeg");
+                assertEquals(content.length, index.get("photos", "d.jpg").size());
+                template.removeObject("photos", "d.jpg");
+                assertFalse(index.exists("photos", "d.jpg"));
+
+                // events sent while no stream is open are recovered by the listing after reconnecting
+                refuseListeners.set(true);
+                server.dropListeners();
+                await(() -> !index.isReady("photos"));
+                server.putObject("photos", "c.jpg", content);
+                server.removeObject("photos", "a/1.jpg");
+                requests = server.requests();
+                assertEquals(List.of("a/2.jpg", "a/3.jpg", "c.jpg"), names(template.getAllObjectsByPrefix("photos", null, true)));
+                assertTrue(server.requests() > requests);
+
+                refuseListeners.set(false);
+                await(() -> index.isReady("photos") && index.exists("photos", "c.jpg") && !index.exists("photos", "a/1.jpg"));
+                assertEquals(3, index.size("photos"));
+            }
+        }
+    }
+
+    private static List<String> names(List<Item> items) {
+        return items.stream().map(Item::objectName).collect(Collectors.toList());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
@@ -0,0 +1,57 @@
+package com.junhong.ojectstoragespringbootstarter.cache;
+
+import com.junhong.ojectstoragespringbootstarter.service.ObjectOps;
+import com.junhong.ojectstoragespringbootstarter.support.StubMinioServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class ObjectMetadataCacheTest {
+
+    @Test
+    void servesRepeatedStatsAndInvalidatesOnWrite() throws Exception {
+        try (StubMinioServer server = new StubMinioServer()) {
+            server.putObject("bucket", "hot.txt", "v1".getBytes());
+            ObjectMetadataCache cache = new ObjectMetadataCache(100, Duration.ofMinutes(1));
+            ObjectOps ops = new ObjectOps(server.connectionFactory()).withMetadataCache(cache);
+
+            String first = ops.statObject("bucket", "hot.txt").etag();
+            int requests = server.requests();
+            assertEquals(first, ops.statObject("bucket", "hot.txt").etag());
+            assertEquals(requests, server.requests());
+
+            ops.putObject("bucket", "hot.txt", new ByteArrayInputStream("v2".getBytes()), 2, -1, "text/plain");
+            assertNotEquals(first, ops.statObject("bucket", "hot.txt").etag());
+
+            ObjectMetadataCache.Stats stats = cache.stats();
+            assertEquals(1, stats.getHitCount());
+            assertEquals(2, stats.getMissCount());
+        }
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntry() throws Exception {
+        ObjectMetadataCache cache = new ObjectMetadataCache(2, Duration.ofMinutes(1));
+        try (StubMinioServer server = new StubMinioServer()) {
+            for (String key : new String[]{"a", "b", "c"}) {
+                server.putObject("bucket", key, key.getBytes());
+            }
+            ObjectOps ops = new ObjectOps(server.connectionFactory()).withMetadataCache(cache);
+            ops.statObject("bucket", "a");
+            ops.statObject("bucket", "b");
+            ops.statObject("bucket", "a");
+            ops.statObject("bucket", "c");
+
+            int requests = server.requests();
+            ops.statObject("bucket", "a");
+            assertEquals(requests, server.requests());
+            ops.statObject("bucket", "b");
+            assertEquals(requests + 1, server.requests());
+            assertEquals(2, cache.size());
+        }
+    }
+}
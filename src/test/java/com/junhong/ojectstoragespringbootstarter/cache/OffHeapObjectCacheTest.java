@@ -0,0 +1,134 @@
+package com.junhong.ojectstoragespringbootstarter.cache;
+
+import com.junhong.ojectstoragespringbootstarter.service.ObjectOps;
+import com.junhong.ojectstoragespringbootstarter.service.ObjectOptions;
+import com.junhong.ojectstoragespringbootstarter.support.StubMinioServer;
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapObjectCacheTest {
+
+    @Test
+    void servesFreshObjectsWithoutRequestsAndInvalidatesOnWrite() throws Exception {
+        try (StubMinioServer server = new StubMinioServer()) {
+            server.putObject("bucket", "hot.txt", "v1".getBytes());
+            OffHeapObjectCache cache = new OffHeapObjectCache(server.connectionFactory(), 64 * 1024, 4096, Duration.ofMinutes(1));
+            ObjectOps ops = new ObjectOps(server.connectionFactory()).withOffHeapCache(cache);
+
+            assertArrayEquals("v1".getBytes(), read(ops, "hot.txt"));
+            int requests = server.requests();
+            assertArrayEquals("v1".getBytes(), read(ops, "hot.txt"));
+            assertEquals(requests, server.requests());
+
+            ops.putObject("bucket", "hot.txt", new ByteArrayInputStream("v2".getBytes()), 2, -1, "text/plain");
+            assertArrayEquals("v2".getBytes(), read(ops, "hot.txt"));
+            assertEquals(1, cache.hitCount());
+            assertEquals(2, cache.missCount());
+
+            OffHeapObjectCache revalidating = new OffHeapObjectCache(server.connectionFactory(), 64 * 1024, 4096, Duration.ZERO);
+            revalidating.getObject("bucket", "hot.txt").close();
+            try (InputStream in = revalidating.getObject("bucket", "hot.txt")) {
+                assertArrayEquals("v2".getBytes(), in.readAllBytes());
+            }
+            assertEquals(1, revalidating.hitCount());
+        }
+    }
+
+    @Test
+    void doesNotCacheResponsesThatRacedWithAnInvalidation() throws Exception {
+        AtomicReference<OffHeapObjectCache> racing = new AtomicReference<>();
+        try (StubMinioServer server = new StubMinioServer() {
+            @Override
+            protected void handle(HttpExchange exchange) throws IOException {
+                OffHeapObjectCache cache = racing.getAndSet(null);
+                if (cache != null) {
+                    // a write lands while the old content is on its way
+                    cache.invalidate("bucket", "race.txt");
+                }
+                super.handle(exchange);
+            }
+        }) {
+            server.putObject("bucket", "race.txt", "v1".getBytes());
+            OffHeapObjectCache cache = new OffHeapObjectCache(server.connectionFactory(), 64 * 1024, 4096, Duration.ofMinutes(1));
+            racing.set(cache);
+
+            try (InputStream in = cache.getObject("bucket", "race.txt")) {
+                assertArrayEquals("v1".getBytes(), in.readAllBytes());
+            }
+            assertEquals(0, cache.size());
+
+            cache.getObject("bucket", "race.txt").close();
+            assertEquals(2, cache.size());
+            assertEquals(2, cache.missCount());
+        }
+    }
+
+    @Test
+    void keepsAcquiredChunksUntilReleased() throws Exception {
+        try (StubMinioServer server = new StubMinioServer()) {
+            for (String key : new String[]{"a", "b", "c", "d", "e"}) {
+                server.putObject("bucket", key, key.repeat(100).getBytes());
+            }
+            // a single slab of four 1 KiB chunks
+            OffHeapObjectCache cache = new OffHeapObjectCache(server.connectionFactory(), 4096, 4096, Duration.ofMinutes(1));
+            OffHeapObjectCache.Handle held = cache.acquire("bucket", "a", ObjectOptions.EMPTY);
+            for (String key : new String[]{"b", "c", "d", "e"}) {
+                cache.getObject("bucket", key).close();
+            }
+
+            ByteBuffer buffer = held.buffer();
+            assertTrue(buffer.isReadOnly());
+            byte[] content = new byte[buffer.remaining()];
+            buffer.get(content);
+            assertArrayEquals("a".repeat(100).getBytes(), content);
+            assertEquals(300, cache.size());
+            held.close();
+
+            cache.getObject("bucket", "b").close();
+            assertEquals(400, cache.size());
+            assertEquals(6, cache.missCount());
+        }
+    }
+
+    @Test
+    void movesSlabsBetweenSizeClasses() throws Exception {
+        try (StubMinioServer server = new StubMinioServer()) {
+            server.putObject("bucket", "a", new byte[100]);
+            server.putObject("bucket", "b", new byte[100]);
+            server.putObject("bucket", "big", new byte[3000]);
+            // a single slab, first cut into 1 KiB chunks
+            OffHeapObjectCache cache = new OffHeapObjectCache(server.connectionFactory(), 4096, 4096, Duration.ofMinutes(1));
+            cache.getObject("bucket", "a").close();
+            cache.getObject("bucket", "b").close();
+            assertEquals(200, cache.size());
+
+            cache.getObject("bucket", "big").close();
+            assertEquals(3000, cache.size());
+            int requests = server.requests();
+            cache.getObject("bucket", "big").close();
+            assertEquals(requests, server.requests());
+
+            cache.getObject("bucket", "a").close();
+            assertEquals(100, cache.size());
+            assertEquals(1, cache.hitCount());
+            assertEquals(4, cache.missCount());
+        }
+    }
+
+    private static byte[] read(ObjectOps ops, String object) throws Exception {
+        try (InputStream in = ops.getObject("bucket", object)) {
+            return in.readAllBytes();
+        }
+    }
+}
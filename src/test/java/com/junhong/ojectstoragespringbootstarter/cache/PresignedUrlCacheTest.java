@@ -0,0 +1,53 @@
+package com.junhong.ojectstoragespringbootstarter.cache;
+
+import io.minio.http.Method;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PresignedUrlCacheTest {
+
+    @Test
+    void reusesUrlsWhileHalfOfTheExpiryIsLeft() throws Exception {
+        AtomicLong millis = new AtomicLong();
+        PresignedUrlCache cache = new PresignedUrlCache(100, new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return Instant.ofEpochMilli(millis.get());
+            }
+        });
+        AtomicInteger signed = new AtomicInteger();
+        PresignedUrlCache.Signer signer = () -> "url-" + signed.incrementAndGet();
+
+        assertEquals("url-1", cache.get("bucket", "a.jpg", null, Method.GET, 600, signer));
+        millis.set(300_000);
+        assertEquals("url-1", cache.get("bucket", "a.jpg", null, Method.GET, 600, signer));
+        assertEquals("url-2", cache.get("bucket", "a.jpg", null, Method.PUT, 600, signer));
+        millis.set(300_001);
+        assertEquals("url-3", cache.get("bucket", "a.jpg", null, Method.GET, 600, signer));
+        assertEquals("url-4", cache.get("bucket", "a.jpg", null, Method.GET, 3600, signer));
+        // a long-lived URL is never handed out for a short expiry
+        assertEquals("url-5", cache.get("bucket", "a.jpg", null, Method.GET, 60, signer));
+        assertEquals("url-4", cache.get("bucket", "a.jpg", null, Method.GET, 3600, signer));
+        assertEquals("url-5", cache.get("bucket", "a.jpg", null, Method.GET, 60, signer));
+        assertEquals(3, cache.hitCount());
+        assertEquals(5, cache.missCount());
+    }
+}
@@ -0,0 +1,91 @@
+package com.junhong.ojectstoragespringbootstarter.connection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InFlightLimiterTest {
+
+    @Test
+    void queuesRequestsOverTheCapAndStartsThemInOrder() {
+        InFlightLimiter limiter = new InFlightLimiter(2);
+        List<CompletableFuture<Integer>> requests = new ArrayList<>();
+        List<Integer> started = new ArrayList<>();
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            int id = i;
+            CompletableFuture<Integer> request = new CompletableFuture<>();
+            requests.add(request);
+            results.add(limiter.submit(() -> {
+                started.add(id);
+                return request;
+            }));
+        }
+        assertEquals(List.of(0, 1), started);
+        assertEquals(2, limiter.inFlight());
+        assertEquals(3, limiter.queued());
+
+        requests.get(1).complete(1);
+        assertEquals(List.of(0, 1, 2), started);
+        assertEquals(1, results.get(1).join());
+
+        requests.get(0).completeExceptionally(new IllegalStateException("boom"));
+        assertTrue(results.get(0).isCompletedExceptionally());
+        assertEquals(List.of(0, 1, 2, 3), started);
+    }
+
+    @Test
+    void synchronousFailuresDoNotGrowTheStack() {
+        InFlightLimiter limiter = new InFlightLimiter(1);
+        CompletableFuture<Void> blocker = new CompletableFuture<>();
+        limiter.submit(() -> blocker);
+        AtomicInteger failed = new AtomicInteger();
+        for (int i = 0; i < 100_000; i++) {
+            limiter.<Void>submit(() -> {
+                throw new IllegalStateException("rejected");
+            }).whenComplete((v, e) -> failed.incrementAndGet());
+        }
+        blocker.complete(null);
+        assertEquals(100_000, failed.get());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void queuedRequestsGoFirstAndHeldSlotsWaitForTheRelease() {
+        InFlightLimiter limiter = new InFlightLimiter(1);
+        List<Runnable> releases = new ArrayList<>();
+        List<Integer> started = new ArrayList<>();
+        CompletableFuture<Integer> first = limiter.submit(() -> {
+            started.add(0);
+            return CompletableFuture.completedFuture(0);
+        }, (value, release) -> {
+            releases.add(release);
+            return value;
+        });
+        assertEquals(0, first.join());
+        // the response of the first request is still open
+        assertEquals(1, limiter.inFlight());
+        limiter.submit(() -> {
+            started.add(1);
+            return new CompletableFuture<Integer>();
+        });
+        assertEquals(List.of(0), started);
+
+        releases.get(0).run();
+        releases.get(0).run();
+        assertEquals(List.of(0, 1), started);
+        assertEquals(1, limiter.inFlight());
+        limiter.submit(() -> {
+            started.add(2);
+            return CompletableFuture.completedFuture(2);
+        });
+        assertEquals(List.of(0, 1), started);
+        assertEquals(1, limiter.queued());
+    }
+}
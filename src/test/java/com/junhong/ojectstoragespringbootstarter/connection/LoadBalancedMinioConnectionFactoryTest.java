@@ -0,0 +1,118 @@
+package com.junhong.ojectstoragespringbootstarter.connection;
+
+import com.junhong.ojectstoragespringbootstarter.config.MinioProperties;
+import com.junhong.ojectstoragespringbootstarter.support.StubMinioServer;
+import com.sun.net.httpserver.HttpExchange;
+import io.minio.GetObjectArgs;
+import io.minio.errors.ErrorResponseException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadBalancedMinioConnectionFactoryTest {
+
+    private static MinioProperties properties(String... endpoints) {
+        MinioProperties properties = new MinioProperties();
+        properties.setEndpoints(List.of(endpoints));
+        properties.setAccessKey("minioadmin");
+        properties.setSecretKey("minioadmin");
+        properties.setRegion("us-east-1");
+        properties.setHealthCheckInterval(Duration.ofHours(1));
+        properties.setUnhealthyThreshold(1);
+        return properties;
+    }
+
+    @Test
+    void ejectsDeadEndpointAndReadmitsIt() throws Exception {
+        AtomicBoolean down = new AtomicBoolean(true);
+        try (StubMinioServer live = new StubMinioServer();
+             StubMinioServer flaky = new StubMinioServer() {
+                 @Override
+                 protected void handle(HttpExchange exchange) throws IOException {
+                     if (down.get()) {
+                         sendError(exchange, 500, "InternalError");
+                         return;
+                     }
+                     super.handle(exchange);
+                 }
+             }) {
+            MinioProperties properties = properties(live.endpoint(), flaky.endpoint());
+            try (LoadBalancedMinioConnectionFactory factory =
+                         new LoadBalancedMinioConnectionFactory(properties, MinioHttpClientFactory.create(properties))) {
+                MinioEndpoint flakyEndpoint = factory.getEndpoints().get(1);
+
+                factory.probeAll();
+                for (int i = 0; i < 50 && flakyEndpoint.isHealthy(); i++) {
+                    Thread.sleep(100);
+                }
+                assertFalse(flakyEndpoint.isHealthy());
+                for (int i = 0; i < 10; i++) {
+                    assertEquals(live.endpoint(), factory.select().url());
+                }
+
+                down.set(false);
+                factory.probeAll();
+                for (int i = 0; i < 50 && !flakyEndpoint.isHealthy(); i++) {
+                    Thread.sleep(100);
+                }
+                assertTrue(flakyEndpoint.isHealthy());
+            }
+        }
+    }
+
+    @Test
+    void fallsBackToRoundRobinWhenEveryEndpointIsEjected() {
+        MinioProperties properties = properties("http://127.0.0.1:1", "http://127.0.0.1:2");
+        try (LoadBalancedMinioConnectionFactory factory =
+                     new LoadBalancedMinioConnectionFactory(properties, MinioHttpClientFactory.create(properties))) {
+            factory.getEndpoints().forEach(MinioEndpoint::markFailure);
+            String first = factory.select().url();
+            String second = factory.select().url();
+            assertFalse(first.equals(second));
+        }
+    }
+
+    @Test
+    void countsRequestsUntilTheBodyIsClosedAndKeepsThrottledEndpoints() throws Exception {
+        try (StubMinioServer server = new StubMinioServer() {
+            @Override
+            protected void handle(HttpExchange exchange) throws IOException {
+                if (exchange.getRequestURI().getPath().endsWith("/busy.bin")) {
+                    sendError(exchange, 503, "SlowDown");
+                    return;
+                }
+                super.handle(exchange);
+            }
+        }) {
+            server.putObject("bucket", "data.bin", new byte[1024 * 1024]);
+            MinioProperties properties = properties(server.endpoint());
+            try (LoadBalancedMinioConnectionFactory factory =
+                         new LoadBalancedMinioConnectionFactory(properties, MinioHttpClientFactory.create(properties))) {
+                MinioEndpoint endpoint = factory.getEndpoints().get(0);
+
+                try (InputStream in = endpoint.client().getObject(GetObjectArgs.builder().bucket("bucket").object("data.bin").build())) {
+                    assertEquals(0, in.read());
+                    assertEquals(1, endpoint.outstanding());
+                }
+                assertEquals(0, endpoint.outstanding());
+                assertTrue(endpoint.ewmaLatencyNanos() > 0);
+
+                for (int i = 0; i < 3; i++) {
+                    assertThrows(ErrorResponseException.class,
+                            () -> endpoint.client().getObject(GetObjectArgs.builder().bucket("bucket").object("busy.bin").build()));
+                }
+                assertTrue(endpoint.isHealthy());
+                assertEquals(0, endpoint.outstanding());
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.junhong.ojectstoragespringbootstarter.connection;
+
+import com.junhong.ojectstoragespringbootstarter.config.MinioProperties;
+import com.junhong.ojectstoragespringbootstarter.support.StubMinioServer;
+import io.minio.MinioClient;
+import io.minio.StatObjectArgs;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Compares statObject throughput of a fresh client per call with the shared pooled client.
+ * <p>
+ * Run with {@code mvn test -Dtest=MinioConnectionFactoryBenchmark -Dbenchmark=true}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class MinioConnectionFactoryBenchmark {
+    private static final int THREADS = 8;
+    private static final int REQUESTS_PER_THREAD = 250;
+
+    @Test
+    void statThroughput() throws Exception {
+        try (StubMinioServer server = new StubMinioServer()) {
+            MinioProperties properties = new MinioProperties();
+
+            Supplier<MinioClient> perCall = () -> MinioClient.builder()
+                    .endpoint(server.endpoint())
+                    .region("us-east-1")
+                    .credentials("minioadmin", "minioadmin")
+                    .build();
+            MinioConnectionFactory factory = new MinioConnectionFactory(MinioClient.builder()
+                    .endpoint(server.endpoint())
+                    .region("us-east-1")
+                    .credentials("minioadmin", "minioadmin")
+                    .httpClient(MinioHttpClientFactory.create(properties)));
+
+            run("warm-up", factory::getConnection);
+            System.out.printf("client per call : %,.0f req/s%n", run("per-call", perCall));
+            System.out.printf("shared client   : %,.0f req/s%n", run("shared", factory::getConnection));
+        }
+    }
+
+    private double run(String name, Supplier<MinioClient> connections) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < REQUESTS_PER_THREAD; i++) {
+                        connections.get().statObject(StatObjectArgs.builder().bucket("bench").object(name + i).build());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            return THREADS * REQUESTS_PER_THREAD / seconds;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.junhong.ojectstoragespringbootstarter.connection;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RequestCoalescerTest {
+    private static final int CALLERS = 8;
+
+    @Test
+    void sharesOneSpooledBodyAmongConcurrentGets() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer(false, true, 1024);
+        byte[] content = new byte[64 * 1024];
+        new Random(7).nextBytes(content);
+        AtomicInteger executions = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> {
+                    try (InputStream in = coalescer.getObject("photos", "a.jpg", () -> {
+                        executions.incrementAndGet();
+                        awaitWaiters(coalescer, CALLERS - 1);
+                        return new ByteArrayInputStream(content);
+                    })) {
+                        return in.readAllBytes();
+                    }
+                }));
+            }
+            for (Future<byte[]> result : results) {
+                assertArrayEquals(content, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, executions.get());
+        assertEquals(1, coalescer.requestCount());
+        assertEquals(CALLERS - 1, coalescer.coalescedCount());
+    }
+
+    @Test
+    void streamsUnsharedAndOversizedBodiesThrough() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer(false, true, 1024, 4096);
+        byte[] content = new byte[64 * 1024];
+        new Random(11).nextBytes(content);
+        InputStream response = new ByteArrayInputStream(content);
+        assertSame(response, coalescer.getObject("photos", "a.jpg", () -> response));
+
+        AtomicInteger executions = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> {
+                    try (InputStream in = coalescer.getObject("photos", "b.jpg", () -> {
+                        executions.incrementAndGet();
+                        awaitWaiters(coalescer, CALLERS - 1);
+                        return new ByteArrayInputStream(content);
+                    })) {
+                        return in.readAllBytes();
+                    }
+                }));
+            }
+            for (Future<byte[]> result : results) {
+                assertArrayEquals(content, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        // too large to share, every waiter downloaded it again
+        assertEquals(CALLERS, executions.get());
+    }
+
+    @Test
+    void waitersGetAgainWhenTheSharedBodyFailsMidway() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer(false, true, 1024);
+        byte[] content = new byte[16 * 1024];
+        new Random(13).nextBytes(content);
+        AtomicInteger executions = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> {
+                    try (InputStream in = coalescer.getObject("photos", "a.jpg", () -> {
+                        if (executions.incrementAndGet() > 1) {
+                            return new ByteArrayInputStream(content);
+                        }
+                        awaitWaiters(coalescer, CALLERS - 1);
+                        return new SequenceInputStream(new ByteArrayInputStream(content, 0, 4096), new InputStream() {
+                            @Override
+                            public int read() throws IOException {
+                                throw new IOException("connection reset");
+                            }
+                        });
+                    })) {
+                        return in.readAllBytes();
+                    }
+                }));
+            }
+            int failed = 0;
+            for (Future<byte[]> result : results) {
+                try {
+                    assertArrayEquals(content, result.get());
+                } catch (ExecutionException e) {
+                    assertInstanceOf(IOException.class, e.getCause());
+                    failed++;
+                }
+            }
+            assertEquals(1, failed);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(CALLERS, executions.get());
+    }
+
+    @Test
+    void sharesFailuresAndCallsThroughWhenNotCoalesced() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer(true, false, 1024);
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> coalescer.stat("photos", "a.jpg", () -> {
+                    awaitWaiters(coalescer, CALLERS - 1);
+                    throw new IOException("connection reset");
+                })));
+            }
+            for (Future<?> result : results) {
+                ExecutionException e = assertThrows(ExecutionException.class, result::get);
+                assertInstanceOf(IOException.class, e.getCause());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, coalescer.requestCount());
+
+        byte[] content = {1, 2, 3};
+        try (InputStream in = coalescer.getObject("photos", "a.jpg", () -> new ByteArrayInputStream(content))) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+        assertEquals(1, coalescer.requestCount());
+    }
+
+    private static void awaitWaiters(RequestCoalescer coalescer, int waiters) throws IOException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (coalescer.coalescedCount() < waiters) {
+            if (System.nanoTime() > deadline) {
+                throw new IOException("waiters did not join");
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
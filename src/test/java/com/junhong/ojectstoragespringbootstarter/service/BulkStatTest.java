@@ -0,0 +1,68 @@
+package com.junhong.ojectstoragespringbootstarter.service;
+
+import com.junhong.ojectstoragespringbootstarter.support.StubMinioServer;
+import com.sun.net.httpserver.HttpExchange;
+import io.minio.errors.ErrorResponseException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkStatTest {
+
+    @Test
+    void separatesFoundMissingAndFailedKeysWithinTheWindow() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        try (StubMinioServer server = new StubMinioServer() {
+            @Override
+            protected void handle(HttpExchange exchange) throws IOException {
+                if (!"HEAD".equals(exchange.getRequestMethod())) {
+                    super.handle(exchange);
+                    return;
+                }
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(5);
+                    if (exchange.getRequestURI().getPath().endsWith("/secret.txt")) {
+                        sendEmpty(exchange, 403);
+                        return;
+                    }
+                    super.handle(exchange);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            }
+        }) {
+            List<String> keys = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                server.putObject("bucket", "file-" + i, new byte[i]);
+                keys.add("file-" + i);
+            }
+            keys.add("absent-1");
+            keys.add("absent-2");
+            keys.add("secret.txt");
+            AsyncMinioTemplate template = new AsyncMinioTemplate(server.connectionFactory(), 64);
+            AtomicInteger listened = new AtomicInteger();
+
+            BulkStatResult result = template.getObjectInfos("bucket", keys, 4, entry -> listened.incrementAndGet()).get(10, TimeUnit.SECONDS);
+
+            assertEquals(40, result.found().size());
+            assertEquals(7, result.found().get("file-7").size());
+            assertEquals(List.of("absent-1", "absent-2"), result.missing().stream().sorted().toList());
+            assertEquals(1, result.failed().size());
+            assertInstanceOf(ErrorResponseException.class, result.failed().get("secret.txt"));
+            assertEquals(keys.size(), listened.get());
+            assertTrue(maxInFlight.get() <= 4, "stats in flight: " + maxInFlight.get());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.junhong.ojectstoragespringbootstarter.service;
+
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferWrapper;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.PooledDataBuffer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DataBufferInputStreamTest {
+
+    private static Flux<DataBuffer> buffers(int count, AtomicLong requested) {
+        return Flux.range(0, count)
+                .doOnRequest(requested::addAndGet)
+                .map(i -> DefaultDataBufferFactory.sharedInstance.wrap(new byte[]{i.byteValue(), i.byteValue()}));
+    }
+
+    @Test
+    void requestsOnlyWhatTheReaderConsumes() throws IOException {
+        AtomicLong requested = new AtomicLong();
+        try (DataBufferInputStream stream = new DataBufferInputStream(4)) {
+            buffers(100, requested).subscribe(stream);
+            assertEquals(4, requested.get());
+
+            byte[] chunk = new byte[2];
+            for (int i = 0; i < 10; i++) {
+                assertEquals(2, stream.read(chunk, 0, 2));
+                assertEquals((byte) i, chunk[0]);
+                assertTrue(requested.get() <= i + 1 + 4);
+            }
+        }
+    }
+
+    @Test
+    void readsToTheEndThenReportsEof() throws IOException {
+        try (DataBufferInputStream stream = new DataBufferInputStream(4)) {
+            buffers(10, new AtomicLong()).subscribe(stream);
+            assertEquals(20, stream.readAllBytes().length);
+            assertEquals(-1, stream.read());
+        }
+    }
+
+    @Test
+    void upstreamErrorSurfacesAsIOException() {
+        DataBufferInputStream stream = new DataBufferInputStream(4);
+        Flux.<DataBuffer>error(new IllegalStateException("boom")).subscribe(stream);
+        assertThrows(IOException.class, stream::read);
+    }
+
+    @Test
+    void closeWakesTheReaderAndFailsReadsBeforeTheEnd() throws Exception {
+        DataBufferInputStream stream = new DataBufferInputStream(4);
+        Sinks.Many<DataBuffer> sink = Sinks.many().unicast().onBackpressureBuffer();
+        sink.asFlux().subscribe(stream);
+        sink.tryEmitNext(DefaultDataBufferFactory.sharedInstance.wrap(new byte[]{1, 2}));
+        assertEquals(1, stream.read());
+
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        try {
+            Future<byte[]> rest = reader.submit(() -> stream.readNBytes(4));
+            Thread.sleep(100);
+            stream.close();
+            ExecutionException e = assertThrows(ExecutionException.class, () -> rest.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(IOException.class, e.getCause());
+        } finally {
+            reader.shutdownNow();
+        }
+        assertThrows(IOException.class, stream::read);
+
+        DataBufferInputStream completed = new DataBufferInputStream(4);
+        buffers(1, new AtomicLong()).subscribe(completed);
+        assertEquals(2, completed.readAllBytes().length);
+        completed.close();
+        assertEquals(-1, completed.read());
+    }
+
+    @Test
+    void releasesBuffersArrivingWhileClosing() throws Exception {
+        AtomicInteger outstanding = new AtomicInteger();
+        for (int round = 0; round < 500; round++) {
+            DataBufferInputStream stream = new DataBufferInputStream(4);
+            stream.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            CountDownLatch start = new CountDownLatch(1);
+            Thread publisher = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 4; i++) {
+                    stream.onNext(new CountedBuffer(outstanding));
+                }
+            });
+            publisher.start();
+            start.countDown();
+            stream.close();
+            publisher.join();
+        }
+        assertEquals(0, outstanding.get());
+    }
+
+    private static final class CountedBuffer extends DataBufferWrapper implements PooledDataBuffer {
+        private final AtomicInteger outstanding;
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        private CountedBuffer(AtomicInteger outstanding) {
+            super(DefaultDataBufferFactory.sharedInstance.wrap(new byte[]{1}));
+            this.outstanding = outstanding;
+            outstanding.incrementAndGet();
+        }
+
+        @Override
+        public boolean isAllocated() {
+            return references.get() > 0;
+        }
+
+        @Override
+        public PooledDataBuffer retain() {
+            references.incrementAndGet();
+            return this;
+        }
+
+        @Override
+        public PooledDataBuffer touch(Object hint) {
+            return this;
+        }
+
+        @Override
+        public boolean release() {
+            if (references.decrementAndGet() == 0) {
+                outstanding.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
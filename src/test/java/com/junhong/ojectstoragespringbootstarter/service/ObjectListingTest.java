@@ -0,0 +1,82 @@
+package com.junhong.ojectstoragespringbootstarter.service;
+
+import com.junhong.ojectstoragespringbootstarter.exception.ObjectListingException;
+import com.junhong.ojectstoragespringbootstarter.support.StubMinioServer;
+import com.sun.net.httpserver.HttpExchange;
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.Result;
+import io.minio.messages.Item;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ObjectListingTest {
+    private static final int PAGE_SIZE = 7;
+
+    @Test
+    void fetchesPagesOnlyAsTheStreamIsConsumed() throws Exception {
+        try (StubMinioServer server = new StubMinioServer()) {
+            List<String> keys = putObjects(server, 25);
+            int before = server.requests();
+
+            try (Stream<Item> items = ObjectListing.stream("bucket", list(server))) {
+                assertEquals(keys.subList(0, 3), items.limit(3).map(Item::objectName).collect(Collectors.toList()));
+            }
+            assertEquals(1, server.requests() - before);
+
+            assertEquals(keys, ObjectListing.stream("bucket", list(server)).map(Item::objectName).collect(Collectors.toList()));
+            assertEquals(1 + 4, server.requests() - before);
+        }
+    }
+
+    @Test
+    void prefetchesPagesInOrder() throws Exception {
+        try (StubMinioServer server = new StubMinioServer()) {
+            List<String> keys = putObjects(server, 25);
+
+            try (Stream<Item> items = ObjectListing.stream("bucket", list(server), 2, PAGE_SIZE)) {
+                assertEquals(keys, items.map(Item::objectName).collect(Collectors.toList()));
+            }
+        }
+    }
+
+    @Test
+    void failsTheStreamWhenAPageFails() throws Exception {
+        try (StubMinioServer server = new StubMinioServer() {
+            @Override
+            protected void handle(HttpExchange exchange) throws IOException {
+                if (String.valueOf(exchange.getRequestURI().getQuery()).contains("continuation-token")) {
+                    sendError(exchange, 403, "AccessDenied");
+                    return;
+                }
+                super.handle(exchange);
+            }
+        }) {
+            putObjects(server, 25);
+
+            try (Stream<Item> items = ObjectListing.stream("bucket", list(server), 1, PAGE_SIZE)) {
+                assertThrows(ObjectListingException.class, () -> items.forEach(item -> {
+                }));
+            }
+        }
+    }
+
+    private static List<String> putObjects(StubMinioServer server, int count) {
+        List<String> keys = IntStream.range(0, count).mapToObj(i -> String.format("logs/%03d.txt", i)).collect(Collectors.toList());
+        keys.forEach(key -> server.putObject("bucket", key, key.getBytes()));
+        return keys;
+    }
+
+    private static Iterable<Result<Item>> list(StubMinioServer server) {
+        return MinioClient.builder().endpoint(server.endpoint()).region("us-east-1").credentials("minioadmin", "minioadmin").build()
+                .listObjects(ListObjectsArgs.builder().bucket("bucket").prefix("logs/").recursive(true).maxKeys(PAGE_SIZE).build());
+    }
+}
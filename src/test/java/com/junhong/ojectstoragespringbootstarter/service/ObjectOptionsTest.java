@@ -0,0 +1,72 @@
+package com.junhong.ojectstoragespringbootstarter.service;
+
+import io.minio.PutObjectArgs;
+import io.minio.StatObjectArgs;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ObjectOptionsTest {
+
+    @Test
+    void settersReturnCopiesAndMergeLetsCallOptionsWin() {
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put("owner", "a");
+        ObjectOptions defaults = ObjectOptions.EMPTY.region("cn-north-1").userMetadata(metadata);
+        metadata.put("owner", "b");
+
+        assertNull(ObjectOptions.EMPTY.getRegion());
+        assertEquals("a", defaults.getUserMetadata().get("owner"));
+
+        ObjectOptions merged = defaults.merge(ObjectOptions.EMPTY.region("us-east-1"));
+        assertEquals("us-east-1", merged.getRegion());
+        assertSame(defaults.getUserMetadata(), merged.getUserMetadata());
+        assertSame(defaults, defaults.merge(ObjectOptions.EMPTY));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void withersCopyOperatorsAndOldSettersStillApply() {
+        ObjectOps ops = new ObjectOps(null);
+        assertEquals("cn-north-1", ops.withRegion("cn-north-1").options().getRegion());
+        assertNull(ops.options().getRegion());
+        ops.region("us-east-1");
+        assertEquals("us-east-1", ops.options().getRegion());
+
+        BucketOps bucketOps = new BucketOps(null);
+        assertEquals("cn-north-1", bucketOps.withRegion("cn-north-1").options().getRegion());
+        bucketOps.region("us-east-1");
+        assertEquals("us-east-1", bucketOps.options().getRegion());
+    }
+
+    @Test
+    void applyOnlyAddsConfiguredValues() {
+        StatObjectArgs stat = ObjectOptions.EMPTY.applyRead(StatObjectArgs.builder().bucket("bucket").object("object")).build();
+        assertNull(stat.region());
+        assertTrue(stat.extraHeaders().isEmpty());
+
+        PutObjectArgs put = ObjectOptions.EMPTY.region("cn-north-1").userMetadata(Map.of("owner", "a"))
+                .applyWrite(PutObjectArgs.builder().bucket("bucket").object("object")
+                        .stream(new ByteArrayInputStream(new byte[0]), 0, -1))
+                .build();
+        assertEquals("cn-north-1", put.region());
+        assertTrue(put.userMetadata().containsKey("x-amz-meta-owner"));
+    }
+
+    @Test
+    void invalidTagsAreRejectedUpFront() {
+        Map<String, String> tags = new HashMap<>();
+        for (int i = 0; i < 11; i++) {
+            tags.put("k" + i, "v");
+        }
+        assertThrows(IllegalArgumentException.class, () -> ObjectOptions.EMPTY.tags(tags));
+    }
+}
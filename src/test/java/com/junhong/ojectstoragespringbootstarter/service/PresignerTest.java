@@ -0,0 +1,51 @@
+package com.junhong.ojectstoragespringbootstarter.service;
+
+import io.minio.S3Escaper;
+import io.minio.Signer;
+import io.minio.http.Method;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PresignerTest {
+    private static final Instant NOW = Instant.parse("2023-03-01T12:34:56Z");
+
+    @Test
+    void signsLikeTheMinioClient() throws Exception {
+        Presigner presigner = new Presigner("http://localhost:9000", "eu-west-1", "minioadmin", "minio secret",
+                Clock.fixed(NOW, ZoneOffset.UTC));
+
+        for (String object : List.of("photos/a.jpg", "space and + plus/ünïcode~*.txt")) {
+            HttpUrl url = HttpUrl.get(presigner.presign("bucket", object, "v-1/2", Method.GET, 3600));
+            assertEquals(minioSignature(object, "v-1/2", 3600), url.queryParameter("X-Amz-Signature"));
+            assertEquals("bucket/" + object, String.join("/", url.pathSegments()));
+            assertEquals("v-1/2", url.queryParameter("versionId"));
+        }
+
+        List<String> urls = presigner.presignAll("bucket", List.of("a.jpg", "b.jpg"), Method.GET, 60);
+        assertEquals(minioSignature("b.jpg", null, 60), HttpUrl.get(urls.get(1)).queryParameter("X-Amz-Signature"));
+    }
+
+    private static String minioSignature(String object, String versionId, int expires) throws Exception {
+        HttpUrl.Builder url = HttpUrl.get("http://localhost:9000").newBuilder()
+                .addPathSegment("bucket")
+                .addEncodedPathSegments(S3Escaper.encodePath(object));
+        if (versionId != null) {
+            url.addEncodedQueryParameter("versionId", S3Escaper.encode(versionId));
+        }
+        Request request = new Request.Builder()
+                .url(url.build())
+                .header("Host", "localhost:9000")
+                .header("x-amz-date", "20230301T123456Z")
+                .get()
+                .build();
+        return Signer.presignV4(request, "eu-west-1", "minioadmin", "minio secret", expires).queryParameter("X-Amz-Signature");
+    }
+}
@@ -0,0 +1,58 @@
+package com.junhong.ojectstoragespringbootstarter.service;
+
+import com.junhong.ojectstoragespringbootstarter.support.StubMinioServer;
+import io.minio.messages.Item;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ShardedListerTest {
+
+    @Test
+    void listsTopLevelPrefixesAsShards() throws Exception {
+        try (StubMinioServer server = new StubMinioServer()) {
+            List<String> keys = putObjects(server);
+            ShardedLister lister = new ShardedLister(server.connectionFactory(), 3);
+
+            try (Stream<Item> items = lister.listByPrefix("bucket", "", "/", true)) {
+                assertEquals(keys, items.map(Item::objectName).collect(Collectors.toList()));
+            }
+            try (Stream<Item> items = lister.listByPrefix("bucket", "", "/", false)) {
+                List<String> unordered = items.map(Item::objectName).collect(Collectors.toList());
+                assertEquals(keys.size(), unordered.size());
+                assertEquals(new HashSet<>(keys), new HashSet<>(unordered));
+            }
+        }
+    }
+
+    @Test
+    void listsKeyRangesBetweenSplitKeys() throws Exception {
+        try (StubMinioServer server = new StubMinioServer()) {
+            List<String> keys = putObjects(server);
+            ShardedLister lister = new ShardedLister(server.connectionFactory(), 2);
+
+            try (Stream<Item> items = lister.listByRange("bucket", null, List.of("b/004", "b/010", "c/"), true)) {
+                assertEquals(keys, items.map(Item::objectName).collect(Collectors.toList()));
+            }
+        }
+    }
+
+    private static List<String> putObjects(StubMinioServer server) {
+        List<String> keys = new ArrayList<>(List.of("0.txt", "a.txt"));
+        for (String prefix : List.of("a/", "b/", "c/d/")) {
+            for (int i = 0; i < 12; i++) {
+                keys.add(String.format("%s%03d", prefix, i));
+            }
+        }
+        keys.add("z.txt");
+        keys.sort(null);
+        keys.forEach(key -> server.putObject("bucket", key, key.getBytes()));
+        return keys;
+    }
+}
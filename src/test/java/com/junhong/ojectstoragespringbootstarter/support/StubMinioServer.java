@@ -0,0 +1,554 @@
+package com.junhong.ojectstoragespringbootstarter.support;
+
+import com.junhong.ojectstoragespringbootstarter.connection.MinioConnectionFactory;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.minio.MinioAsyncClient;
+import io.minio.MinioClient;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal local stand-in for a Minio server, answers just enough of the S3 protocol for benchmarks.
+ * <p>
+ * Objects written by single or multipart uploads are kept in memory and served back by GET, with range support.
+ * A per-request bandwidth can be set to mimic the limit of a single connection over a real network.
+ * Bucket notifications of object writes and removals are streamed to listeners, MinIO style.
+ */
+public class StubMinioServer implements AutoCloseable {
+    private static final String XMLNS = "http://s3.amazonaws.com/doc/2006-03-01/";
+    private static final int CHUNK = 64 * 1024;
+    private static final Pattern DELETE_KEY = Pattern.compile("<Key>(.*?)</Key>");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long bytesPerSecondPerRequest;
+    private final Map<String, StoredObject> objects = new ConcurrentHashMap<>();
+    private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+    private final Set<String> buckets = ConcurrentHashMap.newKeySet();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Set<String> undeletable = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    public StubMinioServer() throws IOException {
+        this(0);
+    }
+
+    /**
+     * @param bytesPerSecondPerRequest bandwidth of every request and response body, 0 for unlimited
+     */
+    public StubMinioServer(long bytesPerSecondPerRequest) throws IOException {
+        this.bytesPerSecondPerRequest = bytesPerSecondPerRequest;
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        executor = Executors.newFixedThreadPool(32);
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            handle(exchange);
+        });
+        server.start();
+    }
+
+    public String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Connection factory of clients pointed at this server
+     */
+    public MinioConnectionFactory connectionFactory() {
+        return new MinioConnectionFactory(
+                MinioClient.builder().endpoint(endpoint()).region("us-east-1").credentials("minioadmin", "minioadmin"),
+                MinioAsyncClient.builder().endpoint(endpoint()).region("us-east-1").credentials("minioadmin", "minioadmin"));
+    }
+
+    /**
+     * @return content of an uploaded object, null if absent
+     */
+    public byte[] object(String bucket, String object) {
+        StoredObject stored = objects.get("/" + bucket + "/" + object);
+        return stored == null ? null : stored.content;
+    }
+
+    public void putObject(String bucket, String object, byte[] content) {
+        store("/" + bucket + "/" + object, new StoredObject(content, md5Hex(content)));
+    }
+
+    public void removeObject(String bucket, String object) {
+        remove("/" + bucket + "/" + object);
+    }
+
+    /**
+     * Answer multi-object deletes of an object with AccessDenied
+     */
+    public void denyDelete(String bucket, String object) {
+        undeletable.add("/" + bucket + "/" + object);
+    }
+
+    /**
+     * Close every notification stream, like a server restart would
+     */
+    public void dropListeners() {
+        for (Listener listener : listeners) {
+            listeners.remove(listener);
+            listener.exchange.close();
+        }
+    }
+
+    /**
+     * @return notification streams open
+     */
+    public int listeners() {
+        return listeners.size();
+    }
+
+    /**
+     * @return multipart uploads neither completed nor aborted
+     */
+    public Set<String> pendingUploads() {
+        return uploads.keySet();
+    }
+
+    /**
+     * @return requests received so far
+     */
+    public int requests() {
+        return requests.get();
+    }
+
+    protected void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+        byte[] body = readBody(exchange);
+
+        if (path.startsWith("/minio/health/")) {
+            sendBody(exchange, 200, "OK".getBytes(StandardCharsets.UTF_8));
+        } else if ("GET".equals(method) && query.containsKey("events")) {
+            exchange.sendResponseHeaders(200, 0);
+            exchange.getResponseBody().flush();
+            listeners.add(new Listener(bucket(path), exchange));
+        } else if ("GET".equals(method) && "/".equals(path)) {
+            StringBuilder xml = new StringBuilder("<ListAllMyBucketsResult xmlns=\"" + XMLNS + "\"><Owner><ID>stub</ID><DisplayName>stub</DisplayName></Owner><Buckets>");
+            buckets().forEach(name -> xml.append("<Bucket><Name>").append(name).append("</Name><CreationDate>2023-01-02T15:04:05.000Z</CreationDate></Bucket>"));
+            sendXml(exchange, xml.append("</Buckets></ListAllMyBucketsResult>").toString());
+        } else if ("POST".equals(method) && query.containsKey("delete")) {
+            sendXml(exchange, deleteObjects(bucket(path), new String(body, StandardCharsets.UTF_8)));
+        } else if (key(path).isEmpty() && !"GET".equals(method) || query.containsKey("versioning") || query.containsKey("encryption")) {
+            handleBucket(exchange, method, path, query);
+        } else if ("POST".equals(method) && query.containsKey("uploads")) {
+            String uploadId = UUID.randomUUID().toString();
+            uploads.put(uploadId, new ConcurrentHashMap<>());
+            sendXml(exchange, "<InitiateMultipartUploadResult xmlns=\"" + XMLNS + "\"><Bucket>" + bucket(path) + "</Bucket><Key>"
+                    + key(path) + "</Key><UploadId>" + uploadId + "</UploadId></InitiateMultipartUploadResult>");
+        } else if ("PUT".equals(method) && query.containsKey("uploadId")) {
+            Map<Integer, byte[]> parts = uploads.get(query.get("uploadId"));
+            if (parts == null) {
+                sendError(exchange, 404, "NoSuchUpload");
+                return;
+            }
+            parts.put(Integer.parseInt(query.get("partNumber")), body);
+            exchange.getResponseHeaders().add("ETag", "\"" + md5Hex(body) + "\"");
+            sendEmpty(exchange, 200);
+        } else if ("POST".equals(method) && query.containsKey("uploadId")) {
+            Map<Integer, byte[]> parts = uploads.remove(query.get("uploadId"));
+            if (parts == null) {
+                sendError(exchange, 404, "NoSuchUpload");
+                return;
+            }
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            ByteArrayOutputStream partDigests = new ByteArrayOutputStream();
+            for (byte[] part : new TreeMap<>(parts).values()) {
+                content.writeBytes(part);
+                partDigests.writeBytes(HexFormat.of().parseHex(md5Hex(part)));
+            }
+            // like S3, the MD5 of the binary MD5s of the parts
+            String etag = md5Hex(partDigests.toByteArray()) + "-" + parts.size();
+            store(path, new StoredObject(content.toByteArray(), etag));
+            sendXml(exchange, "<CompleteMultipartUploadResult xmlns=\"" + XMLNS + "\"><Location>" + endpoint() + path + "</Location><Bucket>"
+                    + bucket(path) + "</Bucket><Key>" + key(path) + "</Key><ETag>\"" + etag + "\"</ETag></CompleteMultipartUploadResult>");
+        } else if ("GET".equals(method) && query.containsKey("uploadId")) {
+            Map<Integer, byte[]> parts = uploads.get(query.get("uploadId"));
+            if (parts == null) {
+                sendError(exchange, 404, "NoSuchUpload");
+                return;
+            }
+            StringBuilder xml = new StringBuilder("<ListPartsResult xmlns=\"" + XMLNS + "\"><Bucket>" + bucket(path) + "</Bucket><Key>" + key(path)
+                    + "</Key><Initiator><ID>stub</ID><DisplayName>stub</DisplayName></Initiator><Owner><ID>stub</ID><DisplayName>stub</DisplayName></Owner>"
+                    + "<StorageClass>STANDARD</StorageClass><PartNumberMarker>0</PartNumberMarker><NextPartNumberMarker>0</NextPartNumberMarker>"
+                    + "<MaxParts>1000</MaxParts><IsTruncated>false</IsTruncated>");
+            new TreeMap<>(parts).forEach((number, part) -> xml.append("<Part><PartNumber>").append(number).append("</PartNumber><ETag>\"")
+                    .append(md5Hex(part)).append("\"</ETag><Size>").append(part.length).append("</Size></Part>"));
+            sendXml(exchange, xml.append("</ListPartsResult>").toString());
+        } else if ("DELETE".equals(method) && query.containsKey("uploadId")) {
+            uploads.remove(query.get("uploadId"));
+            sendEmpty(exchange, 204);
+        } else if ("PUT".equals(method) && "true".equals(exchange.getRequestHeaders().getFirst("X-Amz-Meta-Snowball-Auto-Extract"))) {
+            try (TarArchiveInputStream tar = new TarArchiveInputStream(new ByteArrayInputStream(body))) {
+                TarArchiveEntry entry;
+                while ((entry = tar.getNextTarEntry()) != null) {
+                    byte[] content = tar.readAllBytes();
+                    store("/" + bucket(path) + "/" + entry.getName(), new StoredObject(content, md5Hex(content)));
+                }
+            }
+            exchange.getResponseHeaders().add("ETag", "\"" + md5Hex(body) + "\"");
+            sendEmpty(exchange, 200);
+        } else if ("PUT".equals(method) && exchange.getRequestHeaders().containsKey("x-amz-copy-source")) {
+            String source = decode(exchange.getRequestHeaders().getFirst("x-amz-copy-source"));
+            StoredObject original = objects.get(source.startsWith("/") ? source : "/" + source);
+            String ifMatch = exchange.getRequestHeaders().getFirst("x-amz-copy-source-if-match");
+            if (original == null) {
+                sendError(exchange, 404, "NoSuchKey");
+                return;
+            }
+            if (ifMatch != null && !ifMatch.replace("\"", "").equals(original.etag)) {
+                sendError(exchange, 412, "PreconditionFailed");
+                return;
+            }
+            store(path, new StoredObject(original.content, original.etag));
+            sendXml(exchange, "<CopyObjectResult xmlns=\"" + XMLNS + "\"><LastModified>2023-01-02T15:04:05.000Z</LastModified><ETag>\""
+                    + original.etag + "\"</ETag></CopyObjectResult>");
+        } else if ("PUT".equals(method)) {
+            StoredObject stored = new StoredObject(body, md5Hex(body));
+            store(path, stored);
+            exchange.getResponseHeaders().add("ETag", "\"" + stored.etag + "\"");
+            sendEmpty(exchange, 200);
+        } else if ("DELETE".equals(method)) {
+            remove(path);
+            sendEmpty(exchange, 204);
+        } else if ("HEAD".equals(method) && !objects.containsKey(path)) {
+            sendEmpty(exchange, 404);
+        } else if ("HEAD".equals(method)) {
+            StoredObject stored = objects.get(path);
+            exchange.getResponseHeaders().add("ETag", "\"" + stored.etag + "\"");
+            exchange.getResponseHeaders().add("Last-Modified", "Mon, 02 Jan 2023 15:04:05 GMT");
+            exchange.getResponseHeaders().add("Content-Type", "application/octet-stream");
+            exchange.getResponseHeaders().add("Content-Length", String.valueOf(stored.content.length));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        } else if ("GET".equals(method) && "2".equals(query.get("list-type"))) {
+            sendXml(exchange, listObjects(bucket(path), query));
+        } else if ("GET".equals(method) && objects.containsKey(path)) {
+            sendObject(exchange, objects.get(path));
+        } else {
+            sendEmpty(exchange, 404);
+        }
+    }
+
+    /**
+     * Existence, creation, versioning and encryption of buckets, buckets holding objects exist without being created
+     */
+    private void handleBucket(HttpExchange exchange, String method, String path, Map<String, String> query) throws IOException {
+        String bucket = bucket(path);
+        if (!buckets().contains(bucket)) {
+            if ("PUT".equals(method) && query.isEmpty()) {
+                buckets.add(bucket);
+                sendEmpty(exchange, 200);
+            } else if ("HEAD".equals(method)) {
+                sendEmpty(exchange, 404);
+            } else {
+                sendError(exchange, 404, "NoSuchBucket");
+            }
+        } else if ("HEAD".equals(method)) {
+            sendEmpty(exchange, 200);
+        } else if ("DELETE".equals(method) && query.isEmpty()) {
+            buckets.remove(bucket);
+            sendEmpty(exchange, 204);
+        } else if ("GET".equals(method) && query.containsKey("versioning")) {
+            sendXml(exchange, "<VersioningConfiguration xmlns=\"" + XMLNS + "\"/>");
+        } else if ("GET".equals(method) && query.containsKey("encryption")) {
+            sendError(exchange, 404, "ServerSideEncryptionConfigurationNotFoundError");
+        } else {
+            sendError(exchange, 409, "BucketAlreadyOwnedByYou");
+        }
+    }
+
+    private void store(String path, StoredObject stored) {
+        objects.put(path, stored);
+        notifyListeners("s3:ObjectCreated:Put", path, stored);
+    }
+
+    private void remove(String path) {
+        if (objects.remove(path) != null) {
+            notifyListeners("s3:ObjectRemoved:Delete", path, null);
+        }
+    }
+
+    private void notifyListeners(String eventName, String path, StoredObject stored) {
+        String bucket = bucket(path);
+        String record = "{\"Records\":[{\"eventVersion\":\"2.0\",\"eventSource\":\"minio:s3\",\"eventTime\":\"2023-01-02T15:04:05.000Z\","
+                + "\"eventName\":\"" + eventName + "\",\"s3\":{\"bucket\":{\"name\":\"" + bucket + "\"},\"object\":{\"key\":\""
+                + URLEncoder.encode(key(path), StandardCharsets.UTF_8) + "\""
+                + (stored == null ? "" : ",\"size\":" + stored.content.length + ",\"eTag\":\"" + stored.etag + "\"") + "}}}]}\n";
+        for (Listener listener : listeners) {
+            if (!listener.bucket.equals(bucket)) {
+                continue;
+            }
+            try {
+                OutputStream out = listener.exchange.getResponseBody();
+                synchronized (listener) {
+                    out.write(record.getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                }
+            } catch (IOException e) {
+                listeners.remove(listener);
+                listener.exchange.close();
+            }
+        }
+    }
+
+    /**
+     * Quiet DeleteObjects, only failures are reported
+     */
+    private String deleteObjects(String bucket, String request) {
+        StringBuilder xml = new StringBuilder("<DeleteResult xmlns=\"" + XMLNS + "\">");
+        Matcher keys = DELETE_KEY.matcher(request);
+        while (keys.find()) {
+            String key = keys.group(1).replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"").replace("&apos;", "'").replace("&amp;", "&");
+            String path = "/" + bucket + "/" + key;
+            if (undeletable.contains(path)) {
+                xml.append("<Error><Key>").append(escape(key)).append("</Key><Code>AccessDenied</Code><Message>Access Denied.</Message></Error>");
+            } else {
+                remove(path);
+            }
+        }
+        return xml.append("</DeleteResult>").toString();
+    }
+
+    private Set<String> buckets() {
+        Set<String> names = new TreeSet<>(buckets);
+        objects.keySet().forEach(path -> names.add(bucket(path)));
+        return names;
+    }
+
+    /**
+     * ListObjectsV2 over the stored objects, continuation tokens are the last key or common prefix returned
+     */
+    private String listObjects(String bucket, Map<String, String> query) {
+        String prefix = decode(query.getOrDefault("prefix", ""));
+        String delimiter = decode(query.getOrDefault("delimiter", ""));
+        int maxKeys = Integer.parseInt(query.getOrDefault("max-keys", "1000"));
+        String after = decode(query.getOrDefault("continuation-token", query.getOrDefault("start-after", "")));
+        StringBuilder entries = new StringBuilder();
+        int count = 0;
+        String last = null;
+        boolean truncated = false;
+        for (String path : new TreeMap<>(objects).keySet()) {
+            String key = key(path);
+            if (!path.startsWith("/" + bucket + "/") || !key.startsWith(prefix) || key.compareTo(after) <= 0
+                    || (!delimiter.isEmpty() && after.endsWith(delimiter) && key.startsWith(after))) {
+                continue;
+            }
+            int cut = delimiter.isEmpty() ? -1 : key.indexOf(delimiter, prefix.length());
+            String entry = cut < 0 ? key : key.substring(0, cut + delimiter.length());
+            if (entry.equals(last)) {
+                continue;
+            }
+            if (count == maxKeys) {
+                truncated = true;
+                break;
+            }
+            if (cut < 0) {
+                StoredObject stored = objects.get(path);
+                entries.append("<Contents><Key>").append(escape(key)).append("</Key><LastModified>2023-01-02T15:04:05.000Z</LastModified><ETag>\"")
+                        .append(stored.etag).append("\"</ETag><Size>").append(stored.content.length).append("</Size><StorageClass>STANDARD</StorageClass></Contents>");
+            } else {
+                entries.append("<CommonPrefixes><Prefix>").append(escape(entry)).append("</Prefix></CommonPrefixes>");
+            }
+            last = entry;
+            count++;
+        }
+        return "<ListBucketResult xmlns=\"" + XMLNS + "\"><Name>" + bucket + "</Name><Prefix>" + escape(prefix) + "</Prefix><KeyCount>" + count
+                + "</KeyCount><MaxKeys>" + maxKeys + "</MaxKeys><Delimiter>" + escape(delimiter) + "</Delimiter><IsTruncated>" + truncated + "</IsTruncated>"
+                + (truncated ? "<NextContinuationToken>" + escape(last) + "</NextContinuationToken>" : "") + entries + "</ListBucketResult>";
+    }
+
+    private void sendObject(HttpExchange exchange, StoredObject stored) throws IOException {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch != null && ifNoneMatch.replace("\"", "").equals(stored.etag)) {
+            exchange.getResponseHeaders().add("ETag", "\"" + stored.etag + "\"");
+            sendEmpty(exchange, 304);
+            return;
+        }
+        String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+        if (ifMatch != null && !ifMatch.replace("\"", "").equals(stored.etag)) {
+            sendError(exchange, 412, "PreconditionFailed");
+            return;
+        }
+        byte[] content = stored.content;
+        int from = 0;
+        int to = content.length - 1;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        exchange.getResponseHeaders().add("ETag", "\"" + stored.etag + "\"");
+        exchange.getResponseHeaders().add("Last-Modified", "Mon, 02 Jan 2023 15:04:05 GMT");
+        exchange.getResponseHeaders().add("Content-Type", "application/octet-stream");
+        if (range != null && range.startsWith("bytes=")) {
+            String[] bounds = range.substring("bytes=".length()).split("-", -1);
+            from = Integer.parseInt(bounds[0]);
+            if (!bounds[1].isEmpty()) {
+                to = Math.min(to, Integer.parseInt(bounds[1]));
+            }
+            exchange.getResponseHeaders().add("Content-Range", "bytes " + from + "-" + to + "/" + content.length);
+        }
+        int length = to - from + 1;
+        exchange.sendResponseHeaders(range != null ? 206 : 200, length == 0 ? -1 : length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            long start = System.nanoTime();
+            for (int offset = 0; offset < length; offset += CHUNK) {
+                int chunk = Math.min(CHUNK, length - offset);
+                out.write(content, from + offset, chunk);
+                throttle(start, offset + chunk);
+            }
+        }
+        exchange.close();
+    }
+
+    private byte[] readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[CHUNK];
+        long start = System.nanoTime();
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+                throttle(start, body.size());
+            }
+        }
+        return body.toByteArray();
+    }
+
+    private void throttle(long startNanos, long bytes) {
+        if (bytesPerSecondPerRequest <= 0) {
+            return;
+        }
+        long dueNanos = startNanos + bytes * 1_000_000_000L / bytesPerSecondPerRequest;
+        long waitNanos = dueNanos - System.nanoTime();
+        if (waitNanos > 0) {
+            try {
+                Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    protected void sendError(HttpExchange exchange, int status, String code) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/xml");
+        sendBody(exchange, status, ("<Error><Code>" + code + "</Code><Message>" + code + "</Message><Resource>"
+                + exchange.getRequestURI().getPath() + "</Resource><RequestId>stub</RequestId></Error>").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void sendXml(HttpExchange exchange, String xml) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/xml");
+        sendBody(exchange, 200, xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void sendBody(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+        exchange.close();
+    }
+
+    protected void sendEmpty(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            query.put(eq < 0 ? pair : pair.substring(0, eq), eq < 0 ? "" : pair.substring(eq + 1));
+        }
+        return query;
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    private static String bucket(String path) {
+        int slash = path.indexOf('/', 1);
+        return slash < 0 ? path.substring(1) : path.substring(1, slash);
+    }
+
+    private static String key(String path) {
+        int slash = path.indexOf('/', 1);
+        return slash < 0 ? "" : path.substring(slash + 1);
+    }
+
+    static String md5Hex(byte[] content) {
+        try {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("MD5").digest(content)) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        dropListeners();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private static final class Listener {
+        private final String bucket;
+        private final HttpExchange exchange;
+
+        private Listener(String bucket, HttpExchange exchange) {
+            this.bucket = bucket;
+            this.exchange = exchange;
+        }
+    }
+
+    private static final class StoredObject {
+        private final byte[] content;
+        private final String etag;
+
+        private StoredObject(byte[] content, String etag) {
+            this.content = content;
+            this.etag = etag;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.junhong.ojectstoragespringbootstarter.transfer;
+
+import com.junhong.ojectstoragespringbootstarter.support.StubMinioServer;
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkDeleterTest {
+
+    @Test
+    void deletesPrefixInConcurrentBatchesAndSummarizesFailures() throws Exception {
+        AtomicInteger deletes = new AtomicInteger();
+        try (StubMinioServer server = new StubMinioServer() {
+            @Override
+            protected void handle(HttpExchange exchange) throws IOException {
+                String query = exchange.getRequestURI().getRawQuery();
+                if ("POST".equals(exchange.getRequestMethod()) && query != null && query.startsWith("delete") && deletes.getAndIncrement() == 0) {
+                    sendError(exchange, 503, "SlowDown");
+                    return;
+                }
+                super.handle(exchange);
+            }
+        }) {
+            byte[] content = {1};
+            for (int i = 0; i < 2500; i++) {
+                server.putObject("bucket", String.format("logs/%05d.log", i), content);
+            }
+            server.putObject("bucket", "keep/a.txt", content);
+            server.denyDelete("bucket", "logs/01234.log");
+
+            TransferSummary<String> summary = new BulkDeleter(server.connectionFactory(), 100, 4, 2).deletePrefix("bucket", "logs/");
+
+            assertEquals(2499, summary.getCompleted());
+            assertEquals(1, summary.getFailed());
+            assertFalse(summary.isComplete());
+            assertEquals(Map.of("AccessDenied", 1L), summary.getFailuresByCode());
+            assertTrue(summary.getFailures().containsKey("logs/01234.log"));
+            // 25 batches and the retry of the throttled one
+            assertEquals(26, deletes.get());
+            assertNull(server.object("bucket", "logs/00000.log"));
+            assertNotNull(server.object("bucket", "logs/01234.log"));
+            assertNotNull(server.object("bucket", "keep/a.txt"));
+
+            summary = new BulkDeleter(server.connectionFactory(), 1000, 4, 2).delete("bucket", List.of("keep/a.txt", "missing.txt"));
+            assertEquals(2, summary.getCompleted());
+            assertNull(server.object("bucket", "keep/a.txt"));
+        }
+    }
+}
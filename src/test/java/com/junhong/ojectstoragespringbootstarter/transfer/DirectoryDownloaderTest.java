@@ -0,0 +1,104 @@
+package com.junhong.ojectstoragespringbootstarter.transfer;
+
+import com.junhong.ojectstoragespringbootstarter.service.ObjectOptions;
+import com.junhong.ojectstoragespringbootstarter.support.StubMinioServer;
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DirectoryDownloaderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void mirrorsPrefixAndSkipsUpToDateFiles() throws Exception {
+        try (StubMinioServer server = new StubMinioServer()) {
+            byte[] large = ParallelUploaderTest.randomFile(300_000);
+            server.putObject("bucket", "site/index.html", "<html/>".getBytes(StandardCharsets.UTF_8));
+            server.putObject("bucket", "site/a/b/app.js", "let a = 1;".getBytes(StandardCharsets.UTF_8));
+            server.putObject("bucket", "site/a/bundle.bin", large);
+            server.putObject("bucket", "site/empty/", new byte[0]);
+            server.putObject("bucket", "site/../../escape.txt", new byte[]{1});
+            server.putObject("bucket", "other/skip.txt", new byte[]{1});
+            Path target = dir.resolve("restore");
+            DirectoryDownloader downloader = new DirectoryDownloader(server.connectionFactory(),
+                    new ParallelDownloader(server.connectionFactory(), 64 * 1024, 2, 0), 4, 1);
+
+            TransferSummary<String> first = downloader.download("bucket", "site", target);
+
+            assertEquals(3, first.getCompleted());
+            assertEquals(large.length + 17, first.getBytesTransferred());
+            assertEquals(1, first.getFailed());
+            assertTrue(first.getFailures().containsKey("site/../../escape.txt"));
+            assertFalse(Files.exists(dir.resolve("escape.txt")));
+            assertFalse(Files.exists(target.resolve("skip.txt")));
+            assertArrayEquals(large, Files.readAllBytes(target.resolve("a/bundle.bin")));
+            assertArrayEquals("let a = 1;".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(target.resolve("a/b/app.js")));
+            assertEquals(Instant.parse("2023-01-02T15:04:05Z"), Files.getLastModifiedTime(target.resolve("index.html")).toInstant());
+
+            TransferSummary<String> second = downloader.download("bucket", "site/", target, DirectoryDownloader.Skip.SIZE_AND_LAST_MODIFIED, ObjectOptions.EMPTY);
+            assertEquals(0, second.getCompleted());
+            assertEquals(3, second.getSkipped());
+
+            // same size and time, other content
+            Files.write(target.resolve("a/b/app.js"), "let b = 2;".getBytes(StandardCharsets.UTF_8));
+            TransferSummary<String> third = downloader.download("bucket", "site/", target, DirectoryDownloader.Skip.ETAG, ObjectOptions.EMPTY);
+            assertEquals(1, third.getCompleted());
+            assertEquals(2, third.getSkipped());
+            assertArrayEquals("let a = 1;".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(target.resolve("a/b/app.js")));
+        }
+    }
+
+    @Test
+    void sharesTheRangeSlotsBetweenFiles() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        try (StubMinioServer server = new StubMinioServer() {
+            @Override
+            protected void handle(HttpExchange exchange) throws IOException {
+                if (!"GET".equals(exchange.getRequestMethod()) || exchange.getRequestHeaders().getFirst("Range") == null) {
+                    super.handle(exchange);
+                    return;
+                }
+                // counted while the client holds the range slot, the response frees it
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+                super.handle(exchange);
+            }
+        }) {
+            for (int i = 0; i < 4; i++) {
+                server.putObject("bucket", "data/" + i + ".bin", ParallelUploaderTest.randomFile(4 * 1024 + i));
+            }
+            // four files of four or five ranges each, but two ranges in flight in all
+            DirectoryDownloader downloader = new DirectoryDownloader(server.connectionFactory(),
+                    new ParallelDownloader(server.connectionFactory(), 1024, 2, 0), 4, 0);
+
+            TransferSummary<String> summary = downloader.download("bucket", "data", dir);
+
+            assertEquals(4, summary.getCompleted());
+            assertTrue(maxInFlight.get() <= 2, "ranges in flight: " + maxInFlight.get());
+            for (int i = 0; i < 4; i++) {
+                assertArrayEquals(ParallelUploaderTest.randomFile(4 * 1024 + i), Files.readAllBytes(dir.resolve(i + ".bin")));
+            }
+        }
+    }
+}
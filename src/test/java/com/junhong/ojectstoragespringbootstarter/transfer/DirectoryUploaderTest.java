@@ -0,0 +1,111 @@
+package com.junhong.ojectstoragespringbootstarter.transfer;
+
+import com.junhong.ojectstoragespringbootstarter.support.StubMinioServer;
+import com.sun.net.httpserver.HttpExchange;
+import io.minio.errors.ErrorResponseException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DirectoryUploaderTest {
+    private static final int PART_SIZE = 5 * 1024 * 1024;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void uploadsTreeOnceAndSkipsUnchangedFiles() throws Exception {
+        try (StubMinioServer server = new StubMinioServer() {
+            @Override
+            protected void handle(HttpExchange exchange) throws IOException {
+                if ("PUT".equals(exchange.getRequestMethod()) && exchange.getRequestURI().getPath().endsWith("/locked.txt")) {
+                    sendError(exchange, 403, "AccessDenied");
+                    return;
+                }
+                super.handle(exchange);
+            }
+        }) {
+            byte[] large = ParallelUploaderTest.randomFile(2 * PART_SIZE + 17);
+            Files.createDirectories(dir.resolve("a/b"));
+            Files.write(dir.resolve("index.html"), "<html/>".getBytes(StandardCharsets.UTF_8));
+            Files.write(dir.resolve("a/b/app.js"), "let a = 1;".getBytes(StandardCharsets.UTF_8));
+            Files.write(dir.resolve("a/bundle.bin"), large);
+            DirectoryUploader uploader = new DirectoryUploader(server.connectionFactory(),
+                    new ParallelUploader(server.connectionFactory(), PART_SIZE, 2, 0), 4, 1);
+
+            TransferSummary<Path> first = uploader.upload("bucket", "site", dir);
+
+            assertEquals(3, first.getCompleted());
+            assertEquals(0, first.getSkipped());
+            assertTrue(first.isComplete());
+            assertArrayEquals(large, server.object("bucket", "site/a/bundle.bin"));
+            assertArrayEquals("let a = 1;".getBytes(StandardCharsets.UTF_8), server.object("bucket", "site/a/b/app.js"));
+
+            // same size, other content
+            Files.write(dir.resolve("a/b/app.js"), "let b = 2;".getBytes(StandardCharsets.UTF_8));
+            Files.write(dir.resolve("locked.txt"), new byte[]{1});
+
+            TransferSummary<Path> second = uploader.upload("bucket", "site/", dir);
+
+            assertEquals(1, second.getCompleted());
+            assertEquals(2, second.getSkipped());
+            assertEquals(large.length + 7, second.getBytesSkipped());
+            assertFalse(second.isComplete());
+            assertInstanceOf(ErrorResponseException.class, second.getFailures().get(dir.resolve("locked.txt")));
+            assertArrayEquals("let b = 2;".getBytes(StandardCharsets.UTF_8), server.object("bucket", "site/a/b/app.js"));
+        }
+    }
+
+    @Test
+    void sharesOnePartBufferBudgetBetweenFiles() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        try (StubMinioServer server = new StubMinioServer() {
+            @Override
+            protected void handle(HttpExchange exchange) throws IOException {
+                String query = exchange.getRequestURI().getRawQuery();
+                if (!"PUT".equals(exchange.getRequestMethod()) || query == null || !query.contains("partNumber")) {
+                    super.handle(exchange);
+                    return;
+                }
+                // counted while the client still holds the part buffer, the response frees it
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+                super.handle(exchange);
+            }
+        }) {
+            for (int i = 0; i < 4; i++) {
+                Files.write(dir.resolve(i + ".bin"), ParallelUploaderTest.randomFile(3 * PART_SIZE + i));
+            }
+            // four files of four parts each in flight, but buffers for two parts in all
+            DirectoryUploader uploader = new DirectoryUploader(server.connectionFactory(),
+                    new ParallelUploader(server.connectionFactory(), PART_SIZE, 4, 0, 2L * PART_SIZE), 4, 0);
+
+            TransferSummary<Path> summary = uploader.upload("bucket", "", dir);
+
+            assertTrue(summary.isComplete());
+            assertEquals(4, summary.getCompleted());
+            assertTrue(maxInFlight.get() <= 2, "parts in flight: " + maxInFlight.get());
+            for (int i = 0; i < 4; i++) {
+                assertArrayEquals(ParallelUploaderTest.randomFile(3 * PART_SIZE + i), server.object("bucket", i + ".bin"));
+            }
+        }
+    }
+}
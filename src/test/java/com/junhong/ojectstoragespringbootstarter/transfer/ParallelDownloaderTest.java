@@ -0,0 +1,156 @@
+package com.junhong.ojectstoragespringbootstarter.transfer;
+
+import com.junhong.ojectstoragespringbootstarter.support.StubMinioServer;
+import com.sun.net.httpserver.HttpExchange;
+import io.minio.errors.ErrorResponseException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelDownloaderTest {
+    private static final int CHUNK_SIZE = 256 * 1024;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void downloadsRangesIntoTheTargetAndRetriesFailedRanges() throws Exception {
+        AtomicInteger failures = new AtomicInteger();
+        try (StubMinioServer server = new StubMinioServer() {
+            @Override
+            protected void handle(HttpExchange exchange) throws IOException {
+                String range = exchange.getRequestHeaders().getFirst("Range");
+                if (range != null && range.startsWith("bytes=" + CHUNK_SIZE + "-") && failures.getAndIncrement() == 0) {
+                    sendError(exchange, 503, "ServiceUnavailable");
+                    return;
+                }
+                super.handle(exchange);
+            }
+        }) {
+            byte[] content = ParallelUploaderTest.randomFile(5 * CHUNK_SIZE + 17);
+            server.putObject("bucket", "data.bin", content);
+            Path target = dir.resolve("data.bin");
+            Files.write(target, new byte[]{1, 2, 3});
+
+            new ParallelDownloader(server.connectionFactory(), CHUNK_SIZE, 3, 2).download("bucket", "data.bin", target);
+
+            assertArrayEquals(content, Files.readAllBytes(target));
+            assertEquals(2, failures.get());
+            try (var files = Files.list(dir)) {
+                assertEquals(1, files.count());
+            }
+        }
+    }
+
+    @Test
+    void keepsTheTargetWhenTheDownloadFails() throws Exception {
+        try (StubMinioServer server = new StubMinioServer() {
+            @Override
+            protected void handle(HttpExchange exchange) throws IOException {
+                if ("GET".equals(exchange.getRequestMethod())) {
+                    sendError(exchange, 412, "PreconditionFailed");
+                    return;
+                }
+                super.handle(exchange);
+            }
+        }) {
+            server.putObject("bucket", "data.bin", ParallelUploaderTest.randomFile(3 * CHUNK_SIZE));
+            Path target = dir.resolve("data.bin");
+            Files.write(target, new byte[]{1, 2, 3});
+
+            assertThrows(ErrorResponseException.class,
+                    () -> new ParallelDownloader(server.connectionFactory(), CHUNK_SIZE, 3, 2).download("bucket", "data.bin", target));
+
+            assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(target));
+            try (var files = Files.list(dir)) {
+                assertEquals(1, files.count());
+            }
+        }
+    }
+
+    @Test
+    void resumesWhereTheInterruptedDownloadStopped() throws Exception {
+        try (InterruptingServer server = new InterruptingServer()) {
+            byte[] content = ParallelUploaderTest.randomFile(5 * CHUNK_SIZE + 17);
+            server.putObject("bucket", "data.bin", content);
+            Path target = dir.resolve("data.bin");
+            ParallelDownloader downloader = new ParallelDownloader(server.connectionFactory(), CHUNK_SIZE, 1, 0);
+
+            assertThrows(ErrorResponseException.class, () -> downloader.downloadResumable("bucket", "data.bin", target));
+            assertTrue(Files.exists(dir.resolve("data.bin.part.json")));
+
+            downloader.downloadResumable("bucket", "data.bin", target);
+
+            assertArrayEquals(content, Files.readAllBytes(target));
+            assertEquals(List.of("bytes=0-", "bytes=" + 3 * CHUNK_SIZE + "-", "bytes=" + 3 * CHUNK_SIZE + "-"), server.rangeStarts());
+            try (var files = Files.list(dir)) {
+                assertEquals(1, files.count());
+            }
+        }
+    }
+
+    @Test
+    void restartsWhenTheObjectChanged() throws Exception {
+        try (InterruptingServer server = new InterruptingServer()) {
+            server.putObject("bucket", "data.bin", ParallelUploaderTest.randomFile(5 * CHUNK_SIZE));
+            Path target = dir.resolve("data.bin");
+            ParallelDownloader downloader = new ParallelDownloader(server.connectionFactory(), CHUNK_SIZE, 1, 0);
+            assertThrows(ErrorResponseException.class, () -> downloader.downloadResumable("bucket", "data.bin", target));
+
+            byte[] replaced = ParallelUploaderTest.randomFile(4 * CHUNK_SIZE);
+            server.putObject("bucket", "data.bin", replaced);
+            downloader.downloadResumable("bucket", "data.bin", target);
+
+            assertArrayEquals(replaced, Files.readAllBytes(target));
+            assertEquals("bytes=0-", server.rangeStarts().get(2));
+        }
+    }
+
+    /**
+     * Ends the first GET after three chunks and denies the second one
+     */
+    private static class InterruptingServer extends StubMinioServer {
+        private final List<String> ranges = new CopyOnWriteArrayList<>();
+
+        InterruptingServer() throws IOException {
+        }
+
+        @Override
+        protected void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equals(exchange.getRequestMethod()) || exchange.getRequestURI().getQuery() != null) {
+                super.handle(exchange);
+                return;
+            }
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            ranges.add(range);
+            if (ranges.size() == 1) {
+                byte[] content = object(exchange.getRequestURI().getPath().split("/")[1], exchange.getRequestURI().getPath().split("/", 3)[2]);
+                // a response that ends early, as a dropped connection would
+                exchange.sendResponseHeaders(206, 3 * CHUNK_SIZE);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(content, 0, 3 * CHUNK_SIZE);
+                }
+            } else if (ranges.size() == 2) {
+                sendError(exchange, 403, "AccessDenied");
+            } else {
+                super.handle(exchange);
+            }
+        }
+
+        List<String> rangeStarts() {
+            return ranges.stream().map(range -> range == null ? null : range.substring(0, range.indexOf('-') + 1)).toList();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.junhong.ojectstoragespringbootstarter.transfer;
+
+import com.junhong.ojectstoragespringbootstarter.connection.MinioConnectionFactory;
+import com.junhong.ojectstoragespringbootstarter.service.ObjectOps;
+import com.junhong.ojectstoragespringbootstarter.support.StubMinioServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Compares the sequential {@link ObjectOps#uploadObject} with {@link ParallelUploader} against a stand-in server
+ * limited to 32MB/s per connection.
+ * <p>
+ * Run with {@code mvn test -Dtest=ParallelUploaderBenchmark -Dbenchmark=true}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ParallelUploaderBenchmark {
+    private static final int FILE_SIZE = 128 * 1024 * 1024;
+    private static final long BANDWIDTH_PER_CONNECTION = 32L * 1024 * 1024;
+    private static final long PART_SIZE = 8L * 1024 * 1024;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void uploadThroughput() throws Exception {
+        Path file = dir.resolve("large.bin");
+        Files.write(file, ParallelUploaderTest.randomFile(FILE_SIZE));
+        try (StubMinioServer server = new StubMinioServer(BANDWIDTH_PER_CONNECTION)) {
+            MinioConnectionFactory factory = server.connectionFactory();
+            ObjectOps objectOps = new ObjectOps(factory);
+
+            long start = System.nanoTime();
+            objectOps.uploadObject("bench", "sequential.bin", file.toString(), "application/octet-stream");
+            report("sequential uploadObject", start);
+
+            for (int parallelism : new int[]{4, 8, 16}) {
+                start = System.nanoTime();
+                new ParallelUploader(factory, PART_SIZE, parallelism, 3).upload("bench", "parallel.bin", file, null);
+                report("parallel x" + parallelism, start);
+            }
+        }
+    }
+
+    private static void report(String name, long startNanos) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        System.out.printf("%-24s: %6.2f s, %7.1f MB/s%n", name, seconds, FILE_SIZE / 1024.0 / 1024.0 / seconds);
+    }
+}
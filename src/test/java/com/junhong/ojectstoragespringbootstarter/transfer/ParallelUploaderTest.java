@@ -0,0 +1,136 @@
+package com.junhong.ojectstoragespringbootstarter.transfer;
+
+import com.junhong.ojectstoragespringbootstarter.service.ObjectOptions;
+import com.junhong.ojectstoragespringbootstarter.support.StubMinioServer;
+import com.sun.net.httpserver.HttpExchange;
+import io.minio.errors.ErrorResponseException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelUploaderTest {
+    private static final int PART_SIZE = 5 * 1024 * 1024;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void retriesOnlyTheFailedPart() throws Exception {
+        AtomicInteger partTwoAttempts = new AtomicInteger();
+        try (StubMinioServer server = new FailingServer("partNumber=2", "InternalError", 500, 1, partTwoAttempts)) {
+            byte[] content = randomFile(3 * PART_SIZE + 123);
+            Path file = dir.resolve("data.bin");
+            Files.write(file, content);
+
+            new ParallelUploader(server.connectionFactory(), PART_SIZE, 2, 3).upload("bucket", "data.bin", file, null);
+
+            assertArrayEquals(content, server.object("bucket", "data.bin"));
+            assertEquals(2, partTwoAttempts.get());
+            assertTrue(server.pendingUploads().isEmpty());
+        }
+    }
+
+    @Test
+    void abortsWhenAPartKeepsFailing() throws Exception {
+        try (StubMinioServer server = new FailingServer("partNumber=3", "AccessDenied", 403, Integer.MAX_VALUE, new AtomicInteger())) {
+            Path file = dir.resolve("data.bin");
+            Files.write(file, randomFile(3 * PART_SIZE));
+
+            ErrorResponseException error = assertThrows(ErrorResponseException.class,
+                    () -> new ParallelUploader(server.connectionFactory(), PART_SIZE, 4, 3).upload("bucket", "data.bin", file, "application/octet-stream"));
+
+            assertEquals("AccessDenied", error.errorResponse().code());
+            assertTrue(server.pendingUploads().isEmpty());
+        }
+    }
+
+    @Test
+    void resumesFromTheCheckpointAfterAFailure() throws Exception {
+        AtomicInteger partThreeAttempts = new AtomicInteger();
+        try (StubMinioServer server = new FailingServer("partNumber=3", "AccessDenied", 403, 1, partThreeAttempts)) {
+            byte[] content = randomFile(4 * PART_SIZE);
+            Path file = dir.resolve("data.bin");
+            Files.write(file, content);
+            Path checkpoint = dir.resolve("data.bin.checkpoint");
+            ParallelUploader uploader = new ParallelUploader(server.connectionFactory(), PART_SIZE, 1, 0);
+
+            assertThrows(ErrorResponseException.class,
+                    () -> uploader.uploadResumable("bucket", "data.bin", file, null, ObjectOptions.EMPTY, checkpoint));
+            assertTrue(Files.exists(checkpoint));
+            assertEquals(1, server.pendingUploads().size());
+            int requestsBefore = server.requests();
+
+            uploader.uploadResumable("bucket", "data.bin", file, null, ObjectOptions.EMPTY, checkpoint);
+
+            assertArrayEquals(content, server.object("bucket", "data.bin"));
+            // list parts, parts 3 and 4, complete
+            assertEquals(4, server.requests() - requestsBefore);
+            assertFalse(Files.exists(checkpoint));
+            assertTrue(server.pendingUploads().isEmpty());
+        }
+    }
+
+    @Test
+    void startsOverWhenTheFileChanged() throws Exception {
+        try (StubMinioServer server = new FailingServer("partNumber=2", "AccessDenied", 403, 1, new AtomicInteger())) {
+            Path file = dir.resolve("data.bin");
+            Files.write(file, randomFile(2 * PART_SIZE));
+            Path checkpoint = dir.resolve("data.bin.checkpoint");
+            ParallelUploader uploader = new ParallelUploader(server.connectionFactory(), PART_SIZE, 1, 0);
+            assertThrows(ErrorResponseException.class,
+                    () -> uploader.uploadResumable("bucket", "data.bin", file, null, ObjectOptions.EMPTY, checkpoint));
+
+            byte[] changed = randomFile(2 * PART_SIZE + 1);
+            Files.write(file, changed);
+            uploader.uploadResumable("bucket", "data.bin", file, null, ObjectOptions.EMPTY, checkpoint);
+
+            assertArrayEquals(changed, server.object("bucket", "data.bin"));
+            assertTrue(server.pendingUploads().isEmpty());
+        }
+    }
+
+    static byte[] randomFile(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
+    private static final class FailingServer extends StubMinioServer {
+        private final String query;
+        private final String code;
+        private final int status;
+        private final int failures;
+        private final AtomicInteger attempts;
+
+        private FailingServer(String query, String code, int status, int failures, AtomicInteger attempts) throws IOException {
+            this.query = query;
+            this.code = code;
+            this.status = status;
+            this.failures = failures;
+            this.attempts = attempts;
+        }
+
+        @Override
+        protected void handle(HttpExchange exchange) throws IOException {
+            String rawQuery = exchange.getRequestURI().getRawQuery();
+            if ("PUT".equals(exchange.getRequestMethod()) && rawQuery != null && rawQuery.contains(query)
+                    && attempts.incrementAndGet() <= failures) {
+                exchange.getRequestBody().readAllBytes();
+                sendError(exchange, status, code);
+                return;
+            }
+            super.handle(exchange);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.junhong.ojectstoragespringbootstarter.transfer;
+
+import com.junhong.ojectstoragespringbootstarter.service.ObjectOptions;
+import com.junhong.ojectstoragespringbootstarter.support.StubMinioServer;
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrefixCopierTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void movesPrefixAndResumesFromCheckpoint() throws Exception {
+        AtomicBoolean denyCopy = new AtomicBoolean(true);
+        try (StubMinioServer server = new StubMinioServer() {
+            @Override
+            protected void handle(HttpExchange exchange) throws IOException {
+                if (denyCopy.get() && exchange.getRequestURI().getPath().endsWith("/new/25.txt")) {
+                    sendError(exchange, 403, "AccessDenied");
+                    return;
+                }
+                super.handle(exchange);
+            }
+        }) {
+            for (int i = 10; i < 40; i++) {
+                server.putObject("bucket", "old/" + i + ".txt", String.valueOf(i).getBytes(StandardCharsets.UTF_8));
+            }
+            server.putObject("bucket", "other/keep.txt", new byte[]{1});
+            Path checkpoint = dir.resolve("move.checkpoint");
+            PrefixCopier copier = new PrefixCopier(server.connectionFactory(),
+                    new BulkDeleter(server.connectionFactory(), 1000, 2, 0), 10, 4, 0);
+
+            TransferSummary<String> first = copier.move("bucket", "old", "bucket", "new", null, null, ObjectOptions.EMPTY, checkpoint);
+
+            assertEquals(29, first.getCompleted());
+            assertEquals(1, first.getFailed());
+            assertFalse(first.isComplete());
+            assertTrue(first.getFailures().containsKey("old/25.txt"));
+            assertNotNull(server.object("bucket", "old/25.txt"));
+            assertNull(server.object("bucket", "old/26.txt"));
+            // stuck before the batch with the failure
+            assertTrue(Files.readString(checkpoint).contains("old/19.txt"));
+
+            denyCopy.set(false);
+            TransferSummary<String> second = copier.move("bucket", "old/", "bucket", "new/", null, null, ObjectOptions.EMPTY, checkpoint);
+
+            assertEquals(1, second.getCompleted());
+            assertTrue(second.isComplete());
+            assertFalse(Files.exists(checkpoint));
+            for (int i = 10; i < 40; i++) {
+                assertArrayEquals(String.valueOf(i).getBytes(StandardCharsets.UTF_8), server.object("bucket", "new/" + i + ".txt"));
+                assertNull(server.object("bucket", "old/" + i + ".txt"));
+            }
+            assertNotNull(server.object("bucket", "other/keep.txt"));
+
+            assertThrows(IllegalArgumentException.class, () -> copier.copy("bucket", "new", "bucket", "new/nested"));
+        }
+    }
+}
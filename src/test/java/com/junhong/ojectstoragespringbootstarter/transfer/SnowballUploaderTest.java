@@ -0,0 +1,66 @@
+package com.junhong.ojectstoragespringbootstarter.transfer;
+
+import com.junhong.ojectstoragespringbootstarter.support.StubMinioServer;
+import com.sun.net.httpserver.HttpExchange;
+import io.minio.SnowballObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnowballUploaderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void packsSmallObjectsIntoConcurrentBatches() throws Exception {
+        AtomicInteger tars = new AtomicInteger();
+        try (StubMinioServer server = new StubMinioServer() {
+            @Override
+            protected void handle(HttpExchange exchange) throws IOException {
+                if (exchange.getRequestHeaders().containsKey("X-Amz-Meta-Snowball-Auto-Extract") && tars.getAndIncrement() == 0) {
+                    sendError(exchange, 503, "SlowDown");
+                    return;
+                }
+                super.handle(exchange);
+            }
+        }) {
+            List<SnowballObject> objects = new ArrayList<>();
+            List<byte[]> contents = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                byte[] content = ParallelUploaderTest.randomFile(2048);
+                contents.add(content);
+                objects.add(new SnowballObject("small/" + i + ".bin", new ByteArrayInputStream(content), content.length, ZonedDateTime.now()));
+            }
+            Path file = dir.resolve("file.txt");
+            Files.write(file, new byte[]{1, 2, 3});
+            objects.add(new SnowballObject("small/file.txt", file.toString()));
+
+            // 25 objects of 2.5KB tar entries per batch, staged on disk above 32KB
+            TransferSummary<String> summary = new SnowballUploader(server.connectionFactory(), 64 * 1024, 32 * 1024, false, 4, 2)
+                    .upload("bucket", objects);
+
+            assertTrue(summary.isComplete());
+            assertEquals(201, summary.getCompleted());
+            assertEquals(200 * 2048 + 3, summary.getBytesTransferred());
+            // 9 batches and the retry of the throttled one
+            assertEquals(10, tars.get());
+            for (int i = 0; i < 200; i++) {
+                assertArrayEquals(contents.get(i), server.object("bucket", "small/" + i + ".bin"));
+            }
+            assertArrayEquals(new byte[]{1, 2, 3}, server.object("bucket", "small/file.txt"));
+        }
+    }
+}